@@ -221,6 +221,18 @@ final class AccessHelper {
 		return isSamePackage(cls1, cls2) && getOutermostEnclosingClass(cls1) == getOutermostEnclosingClass(cls2);
 	}
 
+	/**
+	 * Checks if the specified class is defined by the specified class loader or one of its descendants.
+	 *
+	 * @return {@code true} if it is, {@code false} otherwise
+	 */
+	public static boolean isDefinedBy(Class<?> cls, ClassLoader loader) {
+		for (ClassLoader current = cls.getClassLoader(); current != null; current = current.getParent()) {
+			if (current == loader) return true;
+		}
+		return false;
+	}
+
 	/**
 	 * Returns the outermost enclosing class of the specified class.
 	 *
@@ -0,0 +1,83 @@
+package me.coley.event;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
+/**
+ * Completion of an {@linkplain EventBus#postAsync(Event) asynchronous post}, which is also the task delivering it.
+ * <p>
+ * The post is split into parts: the listeners called by the task itself, and one part per
+ * {@linkplain Listener#target() listener target}. The future completes when the last part arrives,
+ * exceptionally with a {@link DeliveryException} if any listener failed.
+ *
+ * @author Andy Li
+ * @since 1.5
+ */
+@SuppressWarnings("serial")
+final class AsyncPost extends CompletableFuture<Void> implements Runnable {
+	private static final AtomicIntegerFieldUpdater<AsyncPost> PENDING_UPDATER =
+			AtomicIntegerFieldUpdater.newUpdater(AsyncPost.class, "pending");
+
+	private final EventBus.Handler handler;
+	private final Event event;
+
+	/**
+	 * Number of parts which haven't arrived yet, including the part of the task itself.
+	 */
+	private volatile int pending = 1;
+
+	/**
+	 * Failures of listeners, or {@code null} if none failed. Guarded by {@code this}.
+	 */
+	private List<DeliveryException.Failure> failures;
+
+	AsyncPost(EventBus.Handler handler, Event event) {
+		this.handler = handler;
+		this.event = event;
+	}
+
+	@Override
+	public void run() {
+		try {
+			handler.postAsync(event, this);
+		} catch (RuntimeException | Error e) {
+			fail(null, null, e);
+		} finally {
+			if (event instanceof PooledEvent) ((PooledEvent) event).release();
+			arrive(1);
+		}
+	}
+
+	/**
+	 * Expects more parts to arrive.
+	 */
+	void expect(int parts) {
+		PENDING_UPDATER.addAndGet(this, parts);
+	}
+
+	/**
+	 * Records the failure of a listener.
+	 */
+	void fail(Object listener, Method method, Throwable error) {
+		synchronized (this) {
+			if (failures == null) failures = new ArrayList<>(2);
+			failures.add(new DeliveryException.Failure(listener, method, error));
+		}
+	}
+
+	/**
+	 * Marks parts as arrived, and completes the future after the last one.
+	 */
+	void arrive(int parts) {
+		if (PENDING_UPDATER.addAndGet(this, -parts) != 0) return;
+		List<DeliveryException.Failure> failures;
+		synchronized (this) {
+			failures = this.failures;
+		}
+		if (failures == null) complete(null);
+		else completeExceptionally(new DeliveryException(event, failures));
+	}
+}
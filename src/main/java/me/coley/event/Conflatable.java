@@ -0,0 +1,21 @@
+package me.coley.event;
+
+/**
+ * Implemented by events which only the latest value per key matters, such as price or status updates.
+ * <p>
+ * When a {@linkplain Listener#conflate() conflating listener} falls behind, a pending event is
+ * replaced in place by a newer event with an equal {@linkplain #conflationKey() conflation key}
+ * instead of being queued after it.
+ *
+ * @author Andy Li
+ * @since 1.5
+ */
+public interface Conflatable {
+	/**
+	 * Returns the conflation key of this event.
+	 * The key must implement {@link Object#equals(Object) equals()} and {@link Object#hashCode() hashCode()} properly.
+	 *
+	 * @return the conflation key, or {@code null} if this event should never be conflated
+	 */
+	Object conflationKey();
+}
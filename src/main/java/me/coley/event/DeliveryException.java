@@ -0,0 +1,85 @@
+package me.coley.event;
+
+import java.lang.reflect.Method;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Thrown when listeners failed to handle an {@linkplain EventBus#postAsync(Event) asynchronous post}.
+ * <p>
+ * Each failure is listed with the listener it came from. The first failure is the cause of this exception,
+ * and the others are {@linkplain #getSuppressed() suppressed}.
+ *
+ * @author Andy Li
+ * @see EventBus#postAsync(Event)
+ * @since 1.5
+ */
+public final class DeliveryException extends RuntimeException {
+	private static final long serialVersionUID = 1L;
+
+	private final transient Event event;
+	private final transient List<Failure> failures;
+
+	DeliveryException(Event event, List<Failure> failures) {
+		super(failures.size() + " listener(s) failed to handle " + event.getClass().getName(), failures.get(0).error);
+		this.event = event;
+		this.failures = Collections.unmodifiableList(failures);
+		for (int i = 1; i < failures.size(); i++) addSuppressed(failures.get(i).error);
+	}
+
+	/**
+	 * @return the posted event. A {@link PooledEvent} may have been recycled.
+	 */
+	public Event getEvent() {
+		return event;
+	}
+
+	/**
+	 * @return the failures, in the order they happened
+	 */
+	public List<Failure> getFailures() {
+		return failures;
+	}
+
+	/**
+	 * Failure of a listener.
+	 */
+	public static final class Failure {
+		private final Object listener;
+		private final Method method;
+		private final Throwable error;
+
+		Failure(Object listener, Method method, Throwable error) {
+			this.listener = listener;
+			this.method = method;
+			this.error = error;
+		}
+
+		/**
+		 * @return the listener, or {@code null} if the event couldn't be handed to a
+		 * {@linkplain Listener#target() listener target}
+		 */
+		public Object getListener() {
+			return listener;
+		}
+
+		/**
+		 * @return the listener method, or {@code null} if the event couldn't be handed to a listener target
+		 */
+		public Method getMethod() {
+			return method;
+		}
+
+		/**
+		 * @return the exception thrown
+		 */
+		public Throwable getError() {
+			return error;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("Failure{method=%s, error=%s}", method, error);
+		}
+	}
+}
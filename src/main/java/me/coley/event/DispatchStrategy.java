@@ -0,0 +1,28 @@
+package me.coley.event;
+
+/**
+ * Determines how events posted by listeners during dispatch are handled.
+ *
+ * @author Andy Li
+ * @see EventBus#setDispatchStrategy(DispatchStrategy)
+ * @since 1.5
+ */
+public enum DispatchStrategy {
+	/**
+	 * Events are dispatched immediately, including events posted by listeners during dispatch.
+	 * Nested posts run recursively on the same stack, depth-first.
+	 */
+	IMMEDIATE,
+	/**
+	 * Events posted by listeners during dispatch are queued in a per-thread queue, and dispatched
+	 * breadth-first after the current event has been delivered to all listeners. The outermost
+	 * {@link EventBus#post(Event) post} returns when the queue is drained.
+	 * <p>
+	 * If a listener throws, the remaining queued events are discarded and the exception
+	 * is propagated from the outermost post.
+	 * <p>
+	 * {@linkplain FlyweightEvent Flyweights} must not be posted by listeners in this mode,
+	 * since they may be repositioned before the queued post is dispatched.
+	 */
+	QUEUED
+}
@@ -1,10 +1,27 @@
 package me.coley.event;
 
+import javax.management.JMException;
+import javax.management.ObjectName;
 import java.lang.invoke.MethodHandle;
 import java.lang.invoke.MethodHandles;
+import java.lang.management.ManagementFactory;
+import java.lang.ref.WeakReference;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.stream.Collector;
 
 /**
  * Represents an event bus.
@@ -12,10 +29,68 @@ import java.util.*;
  * @author Matt, Andy Li
  */
 public class EventBus {
+	/**
+	 * Map of listener objects to their subscriptions.
+	 */
+	final Map<Object, Subscription> subscriptions = new HashMap<>();
+
 	/**
 	 * Map of listener objects to listener invokers.
+	 *
+	 * @deprecated since 1.5, listeners are held by invokers shared with other listeners. This is a read-only view
+	 * of the invokers holding each listener, which must be read while holding the lock of the bus.
+	 */
+	@Deprecated
+	protected final Map<Object, Set<InvokeWrapper>> listenerToInvokers = new AbstractMap<Object, Set<InvokeWrapper>>() {
+		@Override
+		public Set<InvokeWrapper> get(Object key) {
+			Subscription subscription = subscriptions.get(key);
+			return subscription == null ? null : invokersOf(subscription);
+		}
+
+		@Override
+		public boolean containsKey(Object key) {
+			return subscriptions.containsKey(key);
+		}
+
+		@Override
+		public int size() {
+			return subscriptions.size();
+		}
+
+		@Override
+		public Set<Entry<Object, Set<InvokeWrapper>>> entrySet() {
+			return new AbstractSet<Entry<Object, Set<InvokeWrapper>>>() {
+				@Override
+				public Iterator<Entry<Object, Set<InvokeWrapper>>> iterator() {
+					Iterator<Entry<Object, Subscription>> it = subscriptions.entrySet().iterator();
+					return new Iterator<Entry<Object, Set<InvokeWrapper>>>() {
+						@Override
+						public boolean hasNext() {
+							return it.hasNext();
+						}
+
+						@Override
+						public Entry<Object, Set<InvokeWrapper>> next() {
+							Entry<Object, Subscription> entry = it.next();
+							return new SimpleImmutableEntry<>(entry.getKey(), invokersOf(entry.getValue()));
+						}
+					};
+				}
+
+				@Override
+				public int size() {
+					return subscriptions.size();
+				}
+			};
+		}
+	};
+
+	/**
+	 * Cache of listener method descriptors, shared by all listeners of the same class.
+	 * Weakly keyed, and weakly referencing the descriptors so that listener classes can be unloaded.
 	 */
-	protected final Map<Object, Set<InvokeWrapper>> listenerToInvokers = new HashMap<>();
+	private final Map<Class<?>, WeakReference<ListenerClass>> listenerClasses = new WeakHashMap<>();
 
 	/**
 	 * Handler registry.
@@ -27,6 +102,36 @@ public class EventBus {
 	 */
 	protected MethodHandles.Lookup defaultLookup = AccessHelper.defaultLookup();
 
+	/**
+	 * Executor used for asynchronous delivery.
+	 */
+	protected volatile Executor asyncExecutor = ForkJoinPool.commonPool();
+
+	/**
+	 * Number of events replaced by a newer event before being delivered to a conflating listener.
+	 */
+	private final LongAdder conflatedEvents = new LongAdder();
+
+	/**
+	 * Number of events suppressed by {@linkplain PostPolicy post policies}.
+	 */
+	final LongAdder suppressedEvents = new LongAdder();
+
+	/**
+	 * How events posted during dispatch are handled.
+	 */
+	protected volatile DispatchStrategy dispatchStrategy = DispatchStrategy.IMMEDIATE;
+
+	/**
+	 * Per-thread queues for {@link DispatchStrategy#QUEUED}.
+	 */
+	private final ThreadLocal<DispatchQueue> dispatchQueues = ThreadLocal.withInitial(DispatchQueue::new);
+
+	/**
+	 * Journal of posted events, or {@code null} if journaling is disabled.
+	 */
+	private volatile Journal journal;
+
 	/**
 	 * Registers all listener methods on {@code object} for receiving events.
 	 *
@@ -41,21 +146,8 @@ public class EventBus {
 	 * @see MethodHandles.Lookup
 	 * @since 1.3
 	 */
-	@SuppressWarnings("EqualsWithItself")
 	public void subscribe(Object object, MethodHandles.Lookup lookup) throws IllegalArgumentException, SecurityException {
-		if (!object.equals(object)) throw new IllegalArgumentException("Broken equals() implementation");
-		if (listenerToInvokers.containsKey(object)) {
-			return;  // Already registered
-		}
-
-		Set<InvokeWrapper> invokers = getInvokers(object, lookup);
-		if(invokers.isEmpty()) {
-			throw new IllegalArgumentException("the object doesn't have any listener methods");
-		}
-		listenerToInvokers.put(object, invokers);
-		for (InvokeWrapper invoker : invokers) {
-			handlerRegistry.getHandler(invoker.eventType).subscribe(invoker);
-		}
+		subscribe0(object, null, lookup);
 	}
 
 	/**
@@ -75,31 +167,353 @@ public class EventBus {
 		subscribe(object, defaultLookup);
 	}
 
+	/**
+	 * Registers all listener methods on {@code object} for receiving events with the specified routing key.
+	 * <p>
+	 * The listener methods will only receive {@link KeyedEvent}s whose {@linkplain KeyedEvent#key() key}
+	 * equals to {@code key}, overriding any {@linkplain Listener#key() key declared on the annotation}.
+	 *
+	 * @param object object whose listener methods should be registered
+	 * @param key    the routing key
+	 * @param lookup the {@linkplain MethodHandles.Lookup Lookup object} used in {@link MethodHandle} creation
+	 * @throws IllegalArgumentException if there's an invalid listener method on the {@code object},
+	 *                                  or the {@code object} doesn't have any listener methods
+	 * @throws SecurityException        if a security manager denied access to the declared methods
+	 *                                  of the class of the {@code object}, or the provided
+	 *                                  {@linkplain MethodHandles.Lookup lookup object}
+	 *                                  cannot access one of the listener method found in the class
+	 * @see KeyedEvent
+	 * @since 1.5
+	 */
+	public void subscribeKeyed(Object object, Object key, MethodHandles.Lookup lookup)
+			throws IllegalArgumentException, SecurityException {
+		subscribe0(object, Objects.requireNonNull(key), lookup);
+	}
+
+	/**
+	 * Registers all listener methods on {@code object} for receiving events with the specified routing key.
+	 *
+	 * @param object object whose listener methods should be registered
+	 * @param key    the routing key
+	 * @throws IllegalArgumentException if there's an invalid listener method on the {@code object},
+	 *                                  or the {@code object} doesn't have any listener methods
+	 * @throws SecurityException        if a security manager denied access to the declared methods
+	 *                                  of the class of the {@code object}, or the default
+	 *                                  {@linkplain MethodHandles.Lookup lookup object} cannot access
+	 *                                  one of the listener method found in the class
+	 * @see #subscribeKeyed(Object, Object, MethodHandles.Lookup)
+	 * @since 1.5
+	 */
+	public void subscribeKeyed(Object object, Object key) throws IllegalArgumentException, SecurityException {
+		subscribeKeyed(object, key, defaultLookup);
+	}
+
+	@SuppressWarnings("EqualsWithItself")
+	private synchronized void subscribe0(Object object, Object key, MethodHandles.Lookup lookup)
+			throws IllegalArgumentException, SecurityException {
+		if (!object.equals(object)) throw new IllegalArgumentException("Broken equals() implementation");
+		if (subscriptions.containsKey(object)) {
+			return;  // Already registered
+		}
+
+		register(object, key, getListenerClass(object.getClass(), lookup));
+	}
+
+	/**
+	 * Registers the listener methods of {@code listenerClass} on {@code object}, which must not be registered yet.
+	 *
+	 * @param key routing key overriding the declared keys, or {@code null}
+	 * @throws IllegalArgumentException if the listener class doesn't have any listener methods
+	 */
+	synchronized void register(Object object, Object key, ListenerClass listenerClass) throws IllegalArgumentException {
+		ListenerMethod[] methods = listenerClass.methods;
+		if (methods.length == 0) {
+			throw new IllegalArgumentException("the object doesn't have any listener methods");
+		}
+		Subscription subscription = new Subscription(listenerClass, key);
+		for (int i = 0; i < methods.length; i++) {
+			ListenerMethod method = methods[i];
+			subscription.slots[i] = handlerRegistry.getHandler(method.eventType)
+					.subscribe(this, method, subscription.keyOf(method), object);
+		}
+		subscriptions.put(object, subscription);
+	}
+
 	/**
 	 * Unregisters all listener methods on the {@code object}.
 	 *
 	 * @param object object whose listener methods should be unregistered
 	 */
 	@SuppressWarnings("EqualsWithItself")
-	public void unsubscribe(Object object) {
+	public synchronized void unsubscribe(Object object) {
 		if (!object.equals(object)) throw new IllegalArgumentException("Broken equals() implementation");
-		Set<InvokeWrapper> invokers = listenerToInvokers.remove(object);
-		if (invokers == null || invokers.isEmpty()) {
+		Subscription subscription = subscriptions.remove(object);
+		if (subscription == null) {
 			return; // Not registered
 		}
+		unsubscribe0(subscription);
+	}
 
-		for (InvokeWrapper invoker : invokers) {
-			handlerRegistry.getHandler(invoker.eventType).unsubscribe(invoker);
+	/**
+	 * Unregisters all listener objects whose class, or whose listened event types, are defined by the specified
+	 * class loader or its descendants, and removes all handlers of event types defined by them.
+	 * <p>
+	 * This allows the class loader to be garbage collected, e.g. when reloading plugins.
+	 *
+	 * @param loader the class loader
+	 * @since 1.5
+	 */
+	public synchronized void unsubscribeClassLoader(ClassLoader loader) {
+		Objects.requireNonNull(loader);
+		for (Iterator<Map.Entry<Object, Subscription>> it = subscriptions.entrySet().iterator(); it.hasNext(); ) {
+			Map.Entry<Object, Subscription> entry = it.next();
+			Subscription subscription = entry.getValue();
+			boolean matched = AccessHelper.isDefinedBy(entry.getKey().getClass(), loader);
+			for (ListenerMethod method : subscription.type.methods) {
+				matched |= AccessHelper.isDefinedBy(method.eventType, loader);
+			}
+			if (matched) {
+				it.remove();
+				unsubscribe0(subscription);
+			}
+		}
+		listenerClasses.keySet().removeIf(type -> AccessHelper.isDefinedBy(type, loader));
+		handlerRegistry.removeHandlers(type -> AccessHelper.isDefinedBy(type, loader));
+	}
+
+	/**
+	 * Removes the listener of the subscription from all handlers.
+	 */
+	private void unsubscribe0(Subscription subscription) {
+		ListenerMethod[] methods = subscription.type.methods;
+		for (int i = 0; i < methods.length; i++) {
+			ListenerMethod method = methods[i];
+			InvokeWrapper invoker = handlerRegistry.getHandler(method.eventType)
+					.unsubscribe(method, subscription.keyOf(method), subscription.slots[i]);
+			if (invoker != null) compact(invoker, i);
+		}
+	}
+
+	/**
+	 * Compacts the receivers of the specified invoker and updates the slots of the moved listeners.
+	 *
+	 * @param methodIndex index of the invoker's listener method in its {@linkplain ListenerClass listener class}
+	 */
+	private void compact(InvokeWrapper invoker, int methodIndex) {
+		Object[] receivers = invoker.compact();
+		for (int slot = 0; slot < receivers.length; slot++) {
+			Object receiver = receivers[slot];
+			if (receiver == null) break;
+			subscriptions.get(invoker.listenerOf(receiver)).slots[methodIndex] = slot;
 		}
 	}
 
 	/**
 	 * Posts an event to all registered listeners.
+	 * <p>
+	 * If the event is a {@link PooledEvent}, the reference of the caller is released after dispatch.
+	 *
+	 * @param event event to post
+	 * @throws IllegalStateException if the event is a {@link PooledEvent} which has already been recycled
+	 */
+	public void post(Event event) throws IllegalStateException {
+		PooledEvent.checkNotRecycled(event);
+		Journal journal = this.journal;
+		if (journal != null) journal.append(event);
+		postUnjournaled(event);
+	}
+
+	/**
+	 * Posts an event to all registered listeners on the {@linkplain #setAsyncExecutor async executor}, and returns
+	 * a future completing once every listener has handled it.
+	 * <p>
+	 * Listeners are called in the same order as {@link #post(Event)}, regardless of the {@linkplain
+	 * #setDispatchStrategy dispatch strategy} and the {@linkplain #setFanOutPool fan-out pool}, and the future also
+	 * waits for {@linkplain Listener#target() targeted listeners} on their executors. A failing listener doesn't stop
+	 * the others, the failures of all listeners are collected into a {@link DeliveryException} which completes
+	 * the future exceptionally. A post dropped by the {@linkplain TargetQueue queue} of a target counts as handled
+	 * by the listeners of that target. {@linkplain Listener#conflate() Conflating listeners} count as handled once
+	 * the event is in their mailbox, and the future completes right away if the {@linkplain PostPolicy post policy}
+	 * suppresses or defers the event.
+	 * <p>
+	 * The future is the only allocation of the post besides the tasks of targeted listeners.
+	 * If the event is a {@link PooledEvent}, the reference of the caller is released after dispatch.
+	 *
+	 * @param event event to post
+	 * @return the future
+	 * @throws java.util.concurrent.RejectedExecutionException if the async executor rejects the post
+	 * @throws IllegalStateException if the event is a {@link PooledEvent} which has already been recycled
+	 * @since 1.5
+	 */
+	public CompletableFuture<Void> postAsync(Event event) throws IllegalStateException {
+		PooledEvent.checkNotRecycled(event);
+		Journal journal = this.journal;
+		if (journal != null) journal.append(event);
+		AsyncPost post = new AsyncPost(handlerRegistry.getHandler(event.getClass()), event);
+		try {
+			asyncExecutor.execute(post);
+		} catch (RuntimeException | Error e) {
+			if (event instanceof PooledEvent) ((PooledEvent) event).release();
+			throw e;
+		}
+		return post;
+	}
+
+	/**
+	 * Posts an event without {@linkplain #setJournal journaling} it, for replaying journaled events.
+	 */
+	void postUnjournaled(Event event) {
+		if (dispatchStrategy == DispatchStrategy.QUEUED) {
+			postQueued(event);
+		} else {
+			dispatch(event);
+		}
+	}
+
+	/**
+	 * Posts a query event and returns the first answer.
+	 * <p>
+	 * Listeners are called in the same order as {@link #post(Event)}, and the result of a listener
+	 * method is its return value; {@code void} listeners never answer. Dispatch stops as soon as
+	 * a listener returns a non-null value, so the listeners after it are not called.
+	 * <p>
+	 * Queries are always dispatched immediately, regardless of the {@linkplain #setDispatchStrategy
+	 * dispatch strategy}, as the caller is waiting for the answer.
+	 * {@linkplain Listener#conflate() Conflating listeners} receive the event asynchronously and never answer.
+	 * If the event is a {@link PooledEvent}, the reference of the caller is released after dispatch.
+	 *
+	 * @param event event to post
+	 * @param <R>   type of the answer
+	 * @return the first non-null result, or {@code null} if no listener answered
+	 * @throws ClassCastException    if the answer is not of the expected type
+	 * @throws IllegalStateException if the event is a {@link PooledEvent} which has already been recycled
+	 * @since 1.5
+	 */
+	@SuppressWarnings("unchecked")
+	public <R> R query(Event event) throws IllegalStateException {
+		PooledEvent.checkNotRecycled(event);
+		try {
+			return (R) handlerRegistry.getHandler(event.getClass()).query(event);
+		} finally {
+			if (event instanceof PooledEvent) ((PooledEvent) event).release();
+		}
+	}
+
+	/**
+	 * Posts a query event to all registered listeners and collects their non-null results.
+	 * <p>
+	 * Unlike {@link #query(Event)}, all listeners are called. Results are collected in listener order.
+	 * If the event is a {@link PooledEvent}, the reference of the caller is released after dispatch.
+	 *
+	 * @param event     event to post
+	 * @param collector collector of the results
+	 * @param <R>       type of the results
+	 * @param <A>       intermediate accumulation type of the collector
+	 * @param <C>       type of the collected result
+	 * @return the collected result
+	 * @throws ClassCastException    if a result is not of the expected type
+	 * @throws IllegalStateException if the event is a {@link PooledEvent} which has already been recycled
+	 * @see #query(Event)
+	 * @since 1.5
+	 */
+	@SuppressWarnings("unchecked")
+	public <R, A, C> C queryAll(Event event, Collector<? super R, A, C> collector) throws IllegalStateException {
+		PooledEvent.checkNotRecycled(event);
+		A container = collector.supplier().get();
+		try {
+			handlerRegistry.getHandler(event.getClass())
+					.queryAll(event, (BiConsumer<A, Object>) collector.accumulator(), container);
+		} finally {
+			if (event instanceof PooledEvent) ((PooledEvent) event).release();
+		}
+		return collector.finisher().apply(container);
+	}
+
+	/**
+	 * Posts an event after the specified delay.
+	 * <p>
+	 * Delayed events are kept in a hashed timing wheel with a resolution of one millisecond, which
+	 * schedules and cancels in constant time regardless of the number of pending events. When the delay
+	 * expires, the event is {@linkplain #post(Event) posted} on the {@linkplain #setAsyncExecutor async executor}.
+	 * If the event is a {@link PooledEvent}, the reference of the caller is transferred to the scheduled post.
 	 *
 	 * @param event event to post
+	 * @param delay delay before posting the event
+	 * @param unit  time unit of {@code delay}
+	 * @return handle for cancelling the post
+	 * @throws IllegalStateException if the event is a {@link PooledEvent} which has already been recycled
+	 * @since 1.5
+	 */
+	public ScheduledPost postDelayed(Event event, long delay, TimeUnit unit) throws IllegalStateException {
+		PooledEvent.checkNotRecycled(event);
+		ScheduledEvent scheduled = new ScheduledEvent(Objects.requireNonNull(event),
+				TimingWheel.shared().deadlineAfter(delay, unit), 0);
+		scheduled.start();
+		return scheduled;
+	}
+
+	/**
+	 * Posts an event periodically, first after the initial delay, and then every {@code period}
+	 * until the returned handle is cancelled. Posts are scheduled at a fixed rate, so delays of
+	 * the async executor don't accumulate.
+	 * <p>
+	 * The same event instance is posted every time, so it shouldn't be modified by listeners.
+	 * If the event is a {@link PooledEvent}, the reference of the caller is transferred to the scheduled post,
+	 * and released when it is cancelled.
+	 *
+	 * @param event        event to post
+	 * @param initialDelay delay before the first post
+	 * @param period       period between successive posts
+	 * @param unit         time unit of {@code initialDelay} and {@code period}
+	 * @return handle for cancelling the posts
+	 * @throws IllegalArgumentException if {@code period} is not positive
+	 * @throws IllegalStateException    if the event is a {@link PooledEvent} which has already been recycled
+	 * @see #postDelayed(Event, long, TimeUnit)
+	 * @since 1.5
+	 */
+	public ScheduledPost postAtFixedRate(Event event, long initialDelay, long period, TimeUnit unit)
+			throws IllegalArgumentException, IllegalStateException {
+		if (period <= 0) throw new IllegalArgumentException("period <= 0");
+		PooledEvent.checkNotRecycled(event);
+		ScheduledEvent scheduled = new ScheduledEvent(Objects.requireNonNull(event),
+				TimingWheel.shared().deadlineAfter(initialDelay, unit), unit.toNanos(period));
+		scheduled.start();
+		return scheduled;
+	}
+
+	/**
+	 * Posts an event using {@link DispatchStrategy#QUEUED}.
+	 */
+	private void postQueued(Event event) {
+		DispatchQueue queue = dispatchQueues.get();
+		if (queue.dispatching) {
+			queue.events.addLast(event);
+			return;
+		}
+
+		queue.dispatching = true;
+		try {
+			dispatch(event);
+			while ((event = queue.events.pollFirst()) != null) {
+				dispatch(event);
+			}
+		} finally {
+			queue.dispatching = false;
+			while ((event = queue.events.pollFirst()) != null) {
+				if (event instanceof PooledEvent) ((PooledEvent) event).release();
+			}
+		}
+	}
+
+	/**
+	 * Dispatches an event to all registered listeners immediately.
 	 */
-	public void post(Event event) {
-		handlerRegistry.getHandler(event.getClass()).post(event);
+	private void dispatch(Event event) {
+		try {
+			handlerRegistry.getHandler(event.getClass()).post(event);
+		} finally {
+			if (event instanceof PooledEvent) ((PooledEvent) event).release();
+		}
 	}
 
 	/**
@@ -112,25 +526,389 @@ public class EventBus {
 		this.defaultLookup = Objects.requireNonNull(lookup);
 	}
 
+	/**
+	 * Sets the {@linkplain Executor executor} used for asynchronous delivery,
+	 * such as {@linkplain Listener#conflate() conflating listeners}.
+	 * The default executor is {@link ForkJoinPool#commonPool()}.
+	 *
+	 * @param executor new async executor
+	 * @since 1.5
+	 */
+	public void setAsyncExecutor(Executor executor) {
+		this.asyncExecutor = Objects.requireNonNull(executor);
+	}
+
+	/**
+	 * Sets how events posted by listeners during dispatch are handled.
+	 * The default strategy is {@link DispatchStrategy#IMMEDIATE}.
+	 *
+	 * @param strategy new dispatch strategy
+	 * @since 1.5
+	 */
+	public void setDispatchStrategy(DispatchStrategy strategy) {
+		this.dispatchStrategy = Objects.requireNonNull(strategy);
+	}
+
+	/**
+	 * Returns the number of events which were replaced by a newer event with the same
+	 * {@linkplain Conflatable#conflationKey() conflation key} before being delivered
+	 * to a {@linkplain Listener#conflate() conflating listener}.
+	 *
+	 * @return the number of conflated events
+	 * @since 1.5
+	 */
+	public long getConflatedEventCount() {
+		return conflatedEvents.sum();
+	}
+
+	/**
+	 * Creates a publisher of events of the specified type, which buffers up to
+	 * {@value EventPublisher#DEFAULT_BUFFER_SIZE} events per subscriber.
+	 *
+	 * @param type the event type
+	 * @param <E>  the event type
+	 * @return the publisher
+	 * @see #publisher(Class, OverflowStrategy, int)
+	 * @since 1.5
+	 */
+	public <E extends Event> EventPublisher<E> publisher(Class<E> type) {
+		return publisher(type, OverflowStrategy.BUFFER, EventPublisher.DEFAULT_BUFFER_SIZE);
+	}
+
+	/**
+	 * Creates a publisher of events of the specified type, for bridging into reactive pipelines.
+	 * On Java 9 and later the publisher implements {@code java.util.concurrent.Flow.Publisher}.
+	 * <p>
+	 * Events are delivered to subscribers on the posting thread, or on the thread requesting them if they
+	 * had to wait for demand. Pooled events are retained while they wait. {@linkplain FlyweightEvent Flyweights}
+	 * must not be published, since they're repositioned after the post returns.
+	 *
+	 * @param type       the event type
+	 * @param strategy   what to do with events posted while a subscriber has no demand
+	 * @param bufferSize maximum number of events waiting for demand per subscriber,
+	 *                   with the {@link OverflowStrategy#BUFFER BUFFER} strategy
+	 * @param <E>        the event type
+	 * @return the publisher
+	 * @throws IllegalArgumentException if {@code bufferSize} is not positive
+	 * @since 1.5
+	 */
+	public <E extends Event> EventPublisher<E> publisher(Class<E> type, OverflowStrategy strategy, int bufferSize)
+			throws IllegalArgumentException {
+		if (bufferSize <= 0) throw new IllegalArgumentException("bufferSize <= 0");
+		return new EventPublisher<>(this, Objects.requireNonNull(type), Objects.requireNonNull(strategy), bufferSize);
+	}
+
+	/**
+	 * Sets the {@linkplain PostPolicy post policy} for events whose class is exactly the specified type,
+	 * replacing the current policy. Policies don't apply to {@linkplain #query(Event) queries}.
+	 *
+	 * @param type   the event type
+	 * @param policy the new policy, or {@code null} to remove the current policy
+	 * @throws IllegalStateException if the policy is already used for another event type or by another bus
+	 * @since 1.5
+	 */
+	public synchronized void setPostPolicy(Class<? extends Event> type, PostPolicy policy) throws IllegalStateException {
+		Handler handler = handlerRegistry.getHandler(Objects.requireNonNull(type));
+		if (policy != null && policy.handler != handler) policy.bind(this, handler);
+		handler.policy = policy;
+		handlerRegistry.updateRetention(handler);
+	}
+
+	/**
+	 * Gets the {@linkplain PostPolicy post policy} for events of the specified type.
+	 *
+	 * @param type the event type
+	 * @return the policy, or {@code null} if there's none
+	 * @since 1.5
+	 */
+	public PostPolicy getPostPolicy(Class<? extends Event> type) {
+		return handlerRegistry.getHandler(Objects.requireNonNull(type)).policy;
+	}
+
+	/**
+	 * Sets the pool on which listeners of events whose class is exactly the specified type are invoked in parallel.
+	 * <p>
+	 * Listeners with the same {@linkplain Listener#priority() priority} form a band, and the listeners of a band
+	 * are invoked concurrently on the pool, while the posting thread invokes one of them. Bands are still invoked
+	 * in order, each one after the previous band has completed, and the post returns once all bands are done.
+	 * This only pays off for expensive listeners which don't depend on each other within their band.
+	 * <p>
+	 * If listeners of a band throw, the first exception is rethrown after the band has completed, with the others
+	 * {@linkplain Throwable#addSuppressed(Throwable) suppressed}, and the following bands are skipped.
+	 * Events posted by listeners running on the pool are dispatched by the pool thread.
+	 * {@linkplain #query(Event) Queries} and posts {@linkplain #setTracer(Tracer) sampled by the tracer}
+	 * are always delivered sequentially.
+	 *
+	 * @param type the event type
+	 * @param pool the pool, or {@code null} to deliver events sequentially on the posting thread
+	 * @since 1.5
+	 */
+	public synchronized void setFanOutPool(Class<? extends Event> type, ForkJoinPool pool) {
+		Handler handler = handlerRegistry.getHandler(Objects.requireNonNull(type));
+		handler.fanOutPool = pool;
+		handlerRegistry.updateRetention(handler);
+	}
+
+	/**
+	 * Gets the pool on which listeners of events of the specified type are invoked in parallel.
+	 *
+	 * @param type the event type
+	 * @return the pool, or {@code null} if events are delivered sequentially
+	 * @see #setFanOutPool(Class, ForkJoinPool)
+	 * @since 1.5
+	 */
+	public ForkJoinPool getFanOutPool(Class<? extends Event> type) {
+		return handlerRegistry.getHandler(Objects.requireNonNull(type)).fanOutPool;
+	}
+
+	/**
+	 * Sets the executor of {@linkplain Listener#target() targeted listeners} with the specified target name,
+	 * replacing the current executor.
+	 * <p>
+	 * Each post hands one task per target to its executor, which calls all listeners of the target in priority
+	 * order, and the post doesn't wait for it. Listeners of different targets and the posting thread run
+	 * independently. Exceptions thrown by targeted listeners are passed to the uncaught exception handler of the
+	 * executing thread. Posting an event with a targeted listener whose target has no executor fails with an
+	 * {@link IllegalStateException}. {@linkplain FlyweightEvent Flyweights} must not be delivered to targeted
+	 * listeners, since they're repositioned after the post returns.
+	 * <p>
+	 * Posts waiting for the executor are not bounded, see {@link #setTargetExecutor(String, Executor, int,
+	 * OverloadPolicy)} for limiting them.
+	 *
+	 * @param target   the target name
+	 * @param executor the executor, or {@code null} to remove the current executor
+	 * @since 1.5
+	 */
+	public void setTargetExecutor(String target, Executor executor) {
+		if (executor == null) handlerRegistry.targetQueues.remove(Objects.requireNonNull(target));
+		else handlerRegistry.targetQueues.put(target, new TargetQueue(Objects.requireNonNull(target), executor));
+	}
+
+	/**
+	 * Sets the executor of {@linkplain Listener#target() targeted listeners} with the specified target name,
+	 * with a bounded {@linkplain TargetQueue queue} in front of it, replacing the current executor.
+	 * <p>
+	 * Posts to the target wait in the queue, and are handed to the executor one at a time in post order,
+	 * so the executor never holds more than one task of the target. A post arriving while the queue is full is
+	 * handled by the overload policy. Posts already queued by a replaced queue are still delivered.
+	 *
+	 * @param target   the target name
+	 * @param executor the executor
+	 * @param capacity maximum number of posts waiting in the queue
+	 * @param policy   what to do with posts arriving while the queue is full
+	 * @return the queue, for monitoring it
+	 * @throws IllegalArgumentException if {@code capacity} is not positive
+	 * @see #setTargetExecutor(String, Executor)
+	 * @since 1.5
+	 */
+	public TargetQueue setTargetExecutor(String target, Executor executor, int capacity, OverloadPolicy policy)
+			throws IllegalArgumentException {
+		if (capacity <= 0) throw new IllegalArgumentException("capacity <= 0");
+		TargetQueue queue = new TargetQueue(Objects.requireNonNull(target), Objects.requireNonNull(executor),
+				capacity, Objects.requireNonNull(policy));
+		handlerRegistry.targetQueues.put(target, queue);
+		return queue;
+	}
+
+	/**
+	 * Gets the executor of {@linkplain Listener#target() targeted listeners} with the specified target name.
+	 *
+	 * @param target the target name
+	 * @return the executor, or {@code null} if there's none
+	 * @since 1.5
+	 */
+	public Executor getTargetExecutor(String target) {
+		TargetQueue queue = getTargetQueue(target);
+		return queue == null ? null : queue.getExecutor();
+	}
+
+	/**
+	 * Gets the queue of posts waiting for the executor of {@linkplain Listener#target() targeted listeners}
+	 * with the specified target name.
+	 *
+	 * @param target the target name
+	 * @return the queue, or {@code null} if the target has no executor
+	 * @since 1.5
+	 */
+	public TargetQueue getTargetQueue(String target) {
+		return handlerRegistry.targetQueues.get(Objects.requireNonNull(target));
+	}
+
+	/**
+	 * Returns the queues of all targets which have an executor.
+	 *
+	 * @return the queues by target name
+	 * @since 1.5
+	 */
+	public Map<String, TargetQueue> getTargetQueues() {
+		return Collections.unmodifiableMap(new TreeMap<>(handlerRegistry.targetQueues));
+	}
+
+	/**
+	 * Returns the total number of events suppressed by the {@linkplain PostPolicy post policies} of this bus.
+	 *
+	 * @return the number of suppressed events
+	 * @see PostPolicy#getSuppressedCount()
+	 * @since 1.5
+	 */
+	public long getSuppressedEventCount() {
+		return suppressedEvents.sum();
+	}
+
+	/**
+	 * Prepares dispatching events of the specified types ahead of traffic, so that their first posts don't pay
+	 * for it. This creates their handlers, links them with the handlers of their supertypes, and builds their
+	 * dispatch tables. Tables are invalidated by later subscriptions, use {@link #setAutoPrepare(boolean)}
+	 * to keep them built.
+	 *
+	 * @param types the event types
+	 * @since 1.5
+	 */
+	@SafeVarargs
+	public final void prepare(Class<? extends Event>... types) {
+		for (Class<? extends Event> type : types) {
+			handlerRegistry.getHandler(Objects.requireNonNull(type)).prepare();
+		}
+	}
+
+	/**
+	 * Sets whether dispatch tables invalidated by subscribing or unsubscribing are rebuilt eagerly in the background,
+	 * on the {@linkplain #setAsyncExecutor async executor}. Otherwise they're rebuilt by the next post.
+	 * Only the tables which have been built by a post or {@link #prepare(Class[])} are rebuilt.
+	 * <p>
+	 * Either way, posts never wait for a lock: a post which finds its table invalidated rebuilds it without locking.
+	 * Auto-prepare is disabled by default.
+	 *
+	 * @param enabled {@code true} to enable auto-prepare
+	 * @since 1.5
+	 */
+	public void setAutoPrepare(boolean enabled) {
+		handlerRegistry.prepareExecutor = enabled ? command -> asyncExecutor.execute(command) : null;
+	}
+
+	/**
+	 * Sets the {@linkplain Journal journal} which posted events of its registered types are appended to.
+	 * Events are journaled when they're posted, before any {@linkplain PostPolicy post policy} applies.
+	 * Queries are not journaled.
+	 *
+	 * @param journal the journal, or {@code null} to disable journaling
+	 * @since 1.5
+	 */
+	public void setJournal(Journal journal) {
+		this.journal = journal;
+	}
+
+	/**
+	 * @return the {@linkplain Journal journal} of this bus, or {@code null} if journaling is disabled
+	 * @since 1.5
+	 */
+	public Journal getJournal() {
+		return journal;
+	}
+
+	/**
+	 * Sets the {@linkplain Tracer tracer} recording sampled posts of this bus.
+	 * Tracing is disabled by default, and costs a single volatile read per post while it is.
+	 *
+	 * @param tracer the tracer, or {@code null} to disable tracing
+	 * @since 1.5
+	 */
+	public void setTracer(Tracer tracer) {
+		handlerRegistry.tracer = tracer;
+	}
+
+	/**
+	 * @return the {@linkplain Tracer tracer} of this bus, or {@code null} if tracing is disabled
+	 * @since 1.5
+	 */
+	public Tracer getTracer() {
+		return handlerRegistry.tracer;
+	}
+
+	/**
+	 * Takes a read-only {@linkplain EventBusSnapshot snapshot} of the registry of this bus.
+	 * Posts never wait for a snapshot, except that the first post of an event type may briefly wait while its
+	 * handler is created. Subscribing and unsubscribing may wait for the snapshot.
+	 *
+	 * @return the snapshot
+	 * @since 1.5
+	 */
+	public EventBusSnapshot snapshot() {
+		int listenerObjectCount;
+		synchronized (this) {
+			listenerObjectCount = subscriptions.size();
+		}
+		return new EventBusSnapshot(listenerObjectCount, handlerRegistry.snapshot());
+	}
+
+	/**
+	 * Registers an {@link EventBusMXBean} of this bus to the platform MBean server, with the object name
+	 * {@code me.coley.event:type=EventBus,name=<name>}. The MBean keeps this bus reachable until it's unregistered.
+	 *
+	 * @param name name of the bus
+	 * @return the object name, for unregistering the MBean
+	 * @throws JMException if the name is invalid, or already registered
+	 * @since 1.5
+	 */
+	public ObjectName registerMXBean(String name) throws JMException {
+		ObjectName objectName = new ObjectName("me.coley.event:type=EventBus,name=" + ObjectName.quote(name));
+		ManagementFactory.getPlatformMBeanServer().registerMBean(new EventBusMonitor(this), objectName);
+		return objectName;
+	}
+
+	/**
+	 * Gets all listener methods of the {@code type}. The result is cached, and shared by all listeners of the class
+	 * subscribed with {@linkplain MethodHandles.Lookup lookup objects} of the same access.
+	 *
+	 * @param lookup the {@linkplain MethodHandles.Lookup Lookup object} used in {@link MethodHandle} creation
+	 * @throws IllegalArgumentException if there's an invalid listener method in the {@code type}
+	 * @throws SecurityException        if a security manager denied access to the declared methods
+	 *                                  of the {@code type}, or the provided
+	 *                                  {@linkplain MethodHandles.Lookup lookup}
+	 *                                  cannot access one of the listener method found in the class
+	 */
+	protected ListenerClass getListenerClass(Class<?> type, MethodHandles.Lookup lookup)
+			throws IllegalArgumentException, SecurityException {
+		WeakReference<ListenerClass> ref = listenerClasses.get(type);
+		ListenerClass listenerClass = ref == null ? null : ref.get();
+		if (listenerClass == null || !listenerClass.hasSameAccess(lookup)) {
+			listenerClass = ListenerClass.create(type, lookup);
+			listenerClasses.put(type, new WeakReference<>(listenerClass));
+		}
+		return listenerClass;
+	}
+
+	/**
+	 * @return the invokers holding the listener of the subscription
+	 */
+	private Set<InvokeWrapper> invokersOf(Subscription subscription) {
+		Set<InvokeWrapper> result = new LinkedHashSet<>();
+		for (ListenerMethod method : subscription.type.methods) {
+			result.add(handlerRegistry.getHandler(method.eventType).getInvoker(method, subscription.keyOf(method)));
+		}
+		return Collections.unmodifiableSet(result);
+	}
+
 	/**
 	 * Gets all listener methods on the {@code object}.
 	 *
 	 * @param lookup the {@linkplain MethodHandles.Lookup Lookup object} used in {@link MethodHandle} creation
+	 * @return new invokers holding only the {@code object}, which are not subscribed to any bus
 	 * @throws IllegalArgumentException if there's an invalid listener method on the {@code object}
 	 * @throws SecurityException        if a security manager denied access to the declared methods
 	 *                                  of the class of the {@code object}, or the provided
 	 *                                  {@linkplain MethodHandles.Lookup lookup}
 	 *                                  cannot access one of the listener method found in the class
+	 * @deprecated since 1.5, listener methods are described by {@link #getListenerClass(Class, MethodHandles.Lookup)}
 	 */
+	@Deprecated
 	protected static Set<InvokeWrapper> getInvokers(Object object, MethodHandles.Lookup lookup)
 			throws IllegalArgumentException, SecurityException {
 		Set<InvokeWrapper> result = new LinkedHashSet<>();
-		for (Method method : AccessHelper.getMethodsRecursively(object.getClass())) {
-			Listener annotation = AccessHelper.getAnnotationRecursively(method, Listener.class);
-			if (annotation != null) {
-				checkListenerMethod(method, false);
-				result.add(InvokeWrapper.create(object, method, annotation.priority(), lookup));
-			}
+		for (ListenerMethod method : ListenerClass.create(object.getClass(), lookup).methods) {
+			InvokeWrapper invoker = new InvokeWrapper(method, method.key);
+			invoker.add(object);
+			result.add(invoker);
 		}
 		return result;
 	}
@@ -176,14 +954,149 @@ public class EventBus {
 		return false;
 	}
 
+	/**
+	 * An event scheduled by {@link #postDelayed postDelayed()} or {@link #postAtFixedRate postAtFixedRate()}.
+	 * The timing wheel only hands it over to the async executor, so that listeners never run on the wheel thread.
+	 */
+	final class ScheduledEvent implements ScheduledPost, Runnable {
+		private final Event event;
+
+		/**
+		 * Period in nanoseconds, or {@code 0} for a delayed post.
+		 */
+		private final long period;
+
+		/**
+		 * Wheel time of the next post.
+		 * <p>
+		 * Guarded by {@code this}.
+		 */
+		private long deadline;
+
+		/**
+		 * Timeout of the next post.
+		 * <p>
+		 * Guarded by {@code this}.
+		 */
+		private TimingWheel.Timeout timeout;
+
+		private volatile boolean cancelled;
+
+		ScheduledEvent(Event event, long deadline, long period) {
+			this.event = event;
+			this.deadline = deadline;
+			this.period = period;
+		}
+
+		synchronized void start() {
+			timeout = TimingWheel.shared().scheduleAt(this, deadline);
+		}
+
+		/**
+		 * Called by the timing wheel when the deadline expires.
+		 */
+		@Override
+		public void run() {
+			synchronized (this) {
+				if (cancelled) return;
+				if (period != 0) {
+					if (event instanceof PooledEvent) ((PooledEvent) event).retain();
+					deadline += period;
+					timeout = TimingWheel.shared().scheduleAt(this, deadline);
+				}
+			}
+			try {
+				asyncExecutor.execute(() -> post(event));
+			} catch (RuntimeException | Error e) {
+				if (event instanceof PooledEvent) ((PooledEvent) event).release();
+				throw e;
+			}
+		}
+
+		@Override
+		public synchronized boolean cancel() {
+			if (cancelled) return false;
+			if (!timeout.cancel() && period == 0) return false;
+			cancelled = true;
+			if (event instanceof PooledEvent) ((PooledEvent) event).release();
+			return true;
+		}
+
+		@Override
+		public boolean isCancelled() {
+			return cancelled;
+		}
+	}
+
+	/**
+	 * Per-thread queue of events posted during dispatch.
+	 */
+	private static final class DispatchQueue {
+		/**
+		 * Queued events. Only grows, so it doesn't allocate in steady state.
+		 */
+		final ArrayDeque<Event> events = new ArrayDeque<>();
+
+		/**
+		 * Whether the current thread is dispatching an event.
+		 */
+		boolean dispatching;
+	}
+
 	/**
 	 * Handler registry (for supertype event handling).
 	 */
 	static final class HandlerRegistry {
+		/**
+		 * Tracer of sampled posts, or {@code null} if tracing is disabled.
+		 */
+		volatile Tracer tracer;
+
+		/**
+		 * Executor rebuilding invalidated invoker caches in the background, or {@code null} if they're rebuilt
+		 * at the next post.
+		 */
+		volatile Executor prepareExecutor;
+
+		/**
+		 * Queues of {@linkplain Listener#target() targeted listeners} by target name.
+		 */
+		final Map<String, TargetQueue> targetQueues = new ConcurrentHashMap<>();
+
 		/**
 		 * Map of all registered handlers.
+		 * <p>
+		 * Both keys and values are weakly referenced. So a handler is removed once it's unreferenced and not
+		 * {@linkplain #retained retained}, and it never keeps its event type from being unloaded.
+		 * <p>
+		 * Guarded by {@code this}.
+		 */
+		private final Map<Class<? extends Event>, WeakReference<Handler>> handlers = new WeakHashMap<>();
+
+		/**
+		 * Handlers which are {@linkplain Handler#isInUse() in use}, strongly reachable from the bus only.
+		 * Handlers of event types without listeners in their hierarchy aren't retained, and are recreated
+		 * when they're needed again.
+		 * Guarded by {@code this}.
 		 */
-		private final Map<Class<? extends Event>, Handler> handlers = new HashMap<>();
+		private final Set<Handler> retained = new HashSet<>();
+
+		/**
+		 * Lock-free lookup of handlers by event type.
+		 * <p>
+		 * The values only reference the handlers weakly. A value is strongly reachable from its event type,
+		 * so it must not reach this registry, or the bus and all its listeners would live as long as the event type.
+		 */
+		private final ClassValue<WeakReference<Handler>> lookup = new ClassValue<WeakReference<Handler>>() {
+			@Override
+			@SuppressWarnings("unchecked")
+			protected WeakReference<Handler> computeValue(Class<?> type) {
+				synchronized (HandlerRegistry.this) {
+					createHandler((Class<? extends Event>) type);
+					return handlers.get(type);
+				}
+			}
+		};
 
 		/**
 		 * Gets or creates the {@linkplain Handler handler} for the specified event type.
@@ -192,14 +1105,120 @@ public class EventBus {
 		 * @return the handler for the event type
 		 */
 		public Handler getHandler(Class<? extends Event> type) {
-			Handler handler = handlers.get(type);
+			Handler handler = lookup.get(type).get();
+			return handler != null ? handler : recreateHandler(type);
+		}
+
+		/**
+		 * Creates the handler for the specified event type again after the previous one was collected.
+		 */
+		private synchronized Handler recreateHandler(Class<? extends Event> type) {
+			Handler handler = createHandler(type);
+			if (lookup.get(type).get() != handler) lookup.remove(type);
+			return handler;
+		}
+
+		/**
+		 * Gets or creates the {@linkplain Handler handler} for the specified event type in {@link #handlers}.
+		 */
+		private synchronized Handler createHandler(Class<? extends Event> type) {
+			WeakReference<Handler> ref = handlers.get(type);
+			Handler handler = ref == null ? null : ref.get();
 			if (handler == null) {
-				computeHierarchy(handler = new Handler(type));
-				handlers.put(type, handler);
+				computeHierarchy(handler = new Handler(this, type));
+				handlers.put(type, new WeakReference<>(handler));
+				retain(handler);
 			}
 			return handler;
 		}
 
+		/**
+		 * Retains the specified handler and its subtype handlers while they're {@linkplain Handler#isInUse() in use}.
+		 * Must be called when the handler may have started or stopped being in use.
+		 */
+		synchronized void updateRetention(Handler subject) {
+			retain(subject);
+			for (Handler handler : handlers()) {
+				if (handler.supertypeHandlers.contains(subject)) retain(handler);
+			}
+		}
+
+		/**
+		 * Retains the specified handler if it's {@linkplain Handler#isInUse() in use}, or releases it.
+		 * Guarded by {@code this}.
+		 */
+		private void retain(Handler handler) {
+			WeakReference<Handler> ref = handlers.get(handler.eventType);
+			if (handler.isInUse() && ref != null && ref.get() == handler) retained.add(handler);
+			else retained.remove(handler);
+		}
+
+		/**
+		 * Removes all handlers whose event type matches the filter.
+		 * Handlers are still usable if referenced elsewhere, but they won't receive listeners anymore.
+		 *
+		 * @param filter the filter of event types
+		 */
+		synchronized void removeHandlers(Predicate<Class<? extends Event>> filter) {
+			List<Handler> removed = new ArrayList<>();
+			for (Iterator<Map.Entry<Class<? extends Event>, WeakReference<Handler>>> it =
+				 handlers.entrySet().iterator(); it.hasNext(); ) {
+				Map.Entry<Class<? extends Event>, WeakReference<Handler>> entry = it.next();
+				if (filter.test(entry.getKey())) {
+					it.remove();
+					lookup.remove(entry.getKey());
+					Handler handler = entry.getValue().get();
+					if (handler != null) removed.add(handler);
+					retained.remove(handler);
+				}
+			}
+			if (removed.isEmpty()) return;
+			for (Handler handler : handlers()) {
+				if (handler.removeSupertypeHandlers(removed)) retain(handler);
+			}
+		}
+
+		/**
+		 * Invalidates the invoker caches of the specified handler and all its subtype handlers.
+		 * Must be called when the invokers of the handler changed.
+		 */
+		synchronized void invalidateHierarchy(Handler subject) {
+			subject.invalidateCache(true);
+			for (Handler handler : handlers()) {
+				handler.invalidateCache(handler.supertypeHandlers.contains(subject));
+			}
+		}
+
+		/**
+		 * Describes all live handlers. Posts only take the registry lock when creating the handler of a new event type.
+		 *
+		 * @return the handler descriptions, ordered by event type name
+		 */
+		synchronized List<EventBusSnapshot.EventTypeInfo> snapshot() {
+			List<EventBusSnapshot.EventTypeInfo> result = new ArrayList<>();
+			for (Handler handler : handlers()) {
+				List<Class<? extends Event>> supertypes = new ArrayList<>();
+				for (Handler supertypeHandler : handler.supertypeHandlers) supertypes.add(supertypeHandler.eventType);
+				supertypes.sort(Comparator.comparing(Class::getName));
+				result.add(new EventBusSnapshot.EventTypeInfo(handler.eventType, handler.listenerCount, supertypes,
+						!handler.getInvokerCache().stale, handler.posts.sum()));
+			}
+			result.sort(Comparator.comparing(info -> info.getEventType().getName()));
+			return result;
+		}
+
+		/**
+		 * @return all live handlers
+		 */
+		synchronized List<Handler> handlers() {
+			List<Handler> result = new ArrayList<>(handlers.size());
+			for (WeakReference<Handler> ref : handlers.values()) {
+				Handler handler = ref.get();
+				if (handler != null) result.add(handler);
+			}
+			return result;
+		}
+
 		/**
 		 * Computes and updates the registry's handler hierarchy with the specified handler.
 		 *
@@ -208,9 +1227,9 @@ public class EventBus {
 		 *         in the current registry <b>and</b> the hierarchy had been updated,
 		 *         {@code false} otherwise
 		 */
-		boolean computeHierarchy(Handler subject) {
+		synchronized boolean computeHierarchy(Handler subject) {
 			boolean associationFound = false;
-			for (Handler handler : handlers.values()) {
+			for (Handler handler : handlers()) {
 				if (subject == handler) continue;
 				if (subject.isSubtypeOf(handler)) {
 					associationFound |= subject.addSupertypeHandler(handler);
@@ -226,94 +1245,321 @@ public class EventBus {
 	 * Event distribution handler.
 	 */
 	@SuppressWarnings("VolatileArrayField")
-	static class Handler {
+	static class Handler extends HandlerBase {
 		/**
 		 * Event type for this handler.
 		 */
 		private final Class<? extends Event> eventType;
 
 		/**
-		 * All known handlers which event type is a supertype of this handler's event type.
-		 * <p>
-		 * <b>Note</b>: any modification to this collection MUST also invalidate the {@link #computedInvokerCache}.
+		 * All known handlers which event type is a supertype of this handler's event type.
+		 * <p>
+		 * <b>Note</b>: any modification to this collection MUST also invalidate the {@linkplain #getInvokerCache() invoker cache}.
+		 */
+		private final Set<Handler> supertypeHandlers = new HashSet<>();
+
+		/**
+		 * Lock-free copy of {@link #supertypeHandlers}, for rebuilding the invoker cache.
+		 */
+		private volatile Handler[] supertypes = new Handler[0];
+
+		/**
+		 * Set of {@linkplain InvokeWrapper invokers} registered in this handler.
+		 * <p>
+		 * Modified under the bus lock, and copied without locking when the invoker cache is rebuilt. A copy taken
+		 * concurrently with a modification is never published, because the modification invalidates the cache
+		 * afterwards.
+		 * <p>
+		 * <b>Note</b>: any modification to this collection MUST also invalidate the {@linkplain #getInvokerCache() invoker cache}.
+		 */
+		private final ConcurrentSkipListSet<InvokeWrapper> invokers = new ConcurrentSkipListSet<>(InvokeWrapper.COMPARATOR);
+
+		/**
+		 * Index of {@link #invokers} by listener method and routing key.
+		 */
+		private final Map<ListenerMethod, Map<Object, InvokeWrapper>> invokerIndex = new HashMap<>();
+
+		/**
+		 * Post policy of events of this exact type, or {@code null} if there's none.
+		 */
+		volatile PostPolicy policy;
+
+		/**
+		 * Pool for {@linkplain FanOut parallel delivery} of events of this exact type, or {@code null} if they're
+		 * delivered sequentially.
+		 */
+		volatile ForkJoinPool fanOutPool;
+
+		/**
+		 * The registry this handler belongs to.
+		 */
+		private final HandlerRegistry registry;
+
+		/**
+		 * Number of listeners subscribed to this handler. Guarded by the bus.
+		 */
+		volatile int listenerCount;
+
+		/**
+		 * Number of posts and queries.
+		 */
+		final LongAdder posts = new LongAdder();
+
+		Handler(HandlerRegistry registry, Class<? extends Event> eventType) {
+			this.registry = registry;
+			this.eventType = eventType;
+		}
+
+		/**
+		 * Adds a listener to the {@linkplain InvokeWrapper invoker} of the specified listener method and routing key,
+		 * creating the invoker if it's not present.
+		 *
+		 * @return the slot of the listener in the invoker
+		 */
+		public int subscribe(EventBus bus, ListenerMethod method, Object key, Object listener) {
+			InvokeWrapper invoker = getInvoker(method, key);
+			if (invoker == null) {
+				invoker = InvokeWrapper.create(method, key, bus);
+				invokerIndex.computeIfAbsent(method, m -> new HashMap<>(2)).put(key, invoker);
+				invokers.add(invoker);
+				registry.invalidateHierarchy(this);
+				registry.updateRetention(this);
+			}
+			listenerCount++;
+			return invoker.add(listener);
+		}
+
+		/**
+		 * Removes the listener at the specified slot from the {@linkplain InvokeWrapper invoker}
+		 * of the specified listener method and routing key. The invoker is removed once it's empty.
+		 *
+		 * @return the invoker if it should be {@linkplain InvokeWrapper#compact() compacted}, {@code null} otherwise
+		 */
+		public InvokeWrapper unsubscribe(ListenerMethod method, Object key, int slot) {
+			InvokeWrapper invoker = getInvoker(method, key);
+			if (invoker == null) return null;
+
+			invoker.remove(slot);
+			listenerCount--;
+			if (invoker.isEmpty()) {
+				Map<Object, InvokeWrapper> byKey = invokerIndex.get(method);
+				byKey.remove(key);
+				if (byKey.isEmpty()) invokerIndex.remove(method);
+				invokers.remove(invoker);
+				registry.invalidateHierarchy(this);
+				registry.updateRetention(this);
+				return null;
+			}
+			return invoker.shouldCompact() ? invoker : null;
+		}
+
+		/**
+		 * Returns whether this handler must be kept as long as the bus, even if nothing else references it.
+		 * That's the case if it has invokers, a post policy or a fan-out pool, or if a supertype handler has
+		 * invokers, so that its invoker cache and post count survive as long as its events have listeners.
+		 * Guarded by the registry.
+		 */
+		boolean isInUse() {
+			if (!invokers.isEmpty() || policy != null || fanOutPool != null) return true;
+			for (Handler supertypeHandler : supertypeHandlers) {
+				if (!supertypeHandler.invokers.isEmpty()) return true;
+			}
+			return false;
+		}
+
+		/**
+		 * Gets the {@linkplain InvokeWrapper invoker} of the specified listener method and routing key.
+		 *
+		 * @return the invoker, or {@code null} if not present
+		 */
+		InvokeWrapper getInvoker(ListenerMethod method, Object key) {
+			Map<Object, InvokeWrapper> byKey = invokerIndex.get(method);
+			return byKey == null ? null : byKey.get(key);
+		}
+
+		/**
+		 * Posts an event to all registered listeners in this handler and its supertype handlers,
+		 * unless it's suppressed or deferred by the {@linkplain #policy post policy}.
+		 *
+		 * @param event event to post
+		 */
+		public void post(Event event) {
+			posts.increment();
+			PostPolicy policy = this.policy;
+			if (policy != null && !policy.admit(event)) return;
+			Tracer tracer = registry.tracer;
+			if (tracer != null) {
+				tracer.post(this, event);
+				return;
+			}
+			deliver(event);
+		}
+
+		/**
+		 * Posts an event on behalf of an {@linkplain EventBus#postAsync(Event) asynchronous post}, calling
+		 * the listeners one by one and collecting their failures instead of stopping at the first one.
+		 *
+		 * @param event      event to post
+		 * @param completion completion of the post
+		 */
+		void postAsync(Event event, AsyncPost completion) {
+			posts.increment();
+			PostPolicy policy = this.policy;
+			if (policy != null && !policy.admit(event)) return;
+
+			InvokerCache cache = getInvokerCache();
+			if (cache.stale) cache = rebuildCache(cache);
+			Object key = event instanceof KeyedEvent ? ((KeyedEvent) event).key() : null;
+			InvokeWrapper[] invokers = cache.get(key);
+			if (cache.targeted) {
+				TargetedDispatch dispatch = cache.dispatch(invokers);
+				invokers = dispatch.local;
+				try {
+					dispatch.submit(registry.targetQueues, event, completion);
+				} catch (RuntimeException | Error e) {
+					completion.fail(null, null, e);
+				}
+			}
+
+			for (InvokeWrapper invoker : invokers) invoker.forEachReceiver(event, completion, Handler::invokeAsync);
+		}
+
+		private static Object invokeAsync(InvokeWrapper invoker, Object receiver, Event event, AsyncPost completion) {
+			try {
+				invoker.invoke(receiver, event);
+			} catch (RuntimeException | Error e) {
+				completion.fail(invoker.listenerOf(receiver), invoker.method.method, e);
+			}
+			return null;
+		}
+
+		/**
+		 * Delivers an event to all registered listeners in this handler and its supertype handlers,
+		 * bypassing the {@linkplain #policy post policy}.
+		 *
+		 * @param event event to deliver
 		 */
-		private final Set<Handler> supertypeHandlers = new HashSet<>();
+		void deliver(Event event) {
+			ForkJoinPool pool = fanOutPool;
+			if (pool != null) {
+				FanOut.deliver(pool, invokersFor(event), event);
+				return;
+			}
+			for (InvokeWrapper invoker : invokersFor(event)) {
+				invoker.invoke(event);
+			}
+		}
 
 		/**
-		 * Set of {@linkplain InvokeWrapper invokers} registered in this handler.
-		 * <p>
-		 * <b>Note</b>: any modification to this collection MUST also invalidate the {@link #computedInvokerCache}.
+		 * Posts a query event until a listener answers.
+		 *
+		 * @param event event to post
+		 * @return the first non-null result, or {@code null} if no listener answered
+		 * @see EventBus#query(Event)
 		 */
-		private final SortedSet<InvokeWrapper> invokers = new TreeSet<>(InvokeWrapper.COMPARATOR);
+		public Object query(Event event) {
+			posts.increment();
+			for (InvokeWrapper invoker : invokersFor(event)) {
+				Object result = invoker.query(event);
+				if (result != null) return result;
+			}
+			return null;
+		}
 
 		/**
-		 * Computed invoker cache.
+		 * Posts a query event to all listeners and accumulates their non-null results.
+		 *
+		 * @param event       event to post
+		 * @param accumulator accumulator of the results
+		 * @param container   result container
+		 * @see EventBus#queryAll(Event, Collector)
 		 */
-		private transient volatile InvokeWrapper[] computedInvokerCache = null;
-
-		Handler(Class<? extends Event> eventType) { this.eventType = eventType; }
+		public <A> void queryAll(Event event, BiConsumer<A, Object> accumulator, A container) {
+			posts.increment();
+			Consumer<Object> results = result -> accumulator.accept(container, result);
+			for (InvokeWrapper invoker : invokersFor(event)) {
+				invoker.queryAll(event, results);
+			}
+		}
 
 		/**
-		 * Adds an {@linkplain InvokeWrapper invoker} to this handler.
+		 * Returns the invokers that the specified event should be delivered to on the current thread, in order.
+		 * <p>
+		 * Invokers of {@linkplain Listener#target() targeted listeners} are not returned,
+		 * the event is handed to their target executors instead.
 		 *
-		 * @return {@code true} if this handler did not already contain the specified invoker
+		 * @throws RuntimeException if the event cannot be handed to a target executor
 		 */
-		public boolean subscribe(InvokeWrapper invoker) {
-			return invalidateCache(invokers.add(invoker));
+		InvokeWrapper[] invokersFor(Event event) throws RuntimeException {
+			InvokerCache cache = getInvokerCache();
+			if (cache.stale) cache = rebuildCache(cache);
+
+			Object key = event instanceof KeyedEvent ? ((KeyedEvent) event).key() : null;
+			InvokeWrapper[] invokers = cache.get(key);
+			if (cache.targeted) invokers = cache.dispatch(invokers).submit(registry.targetQueues, event, null);
+			return invokers;
 		}
 
 		/**
-		 * Removes the specified {@linkplain InvokeWrapper invoker} from this handler if it's present.
-		 *
-		 * @return {@code true} if this handler contained the specified invoker
+		 * Builds the {@linkplain #getInvokerCache() invoker cache} if it's stale.
 		 */
-		public boolean unsubscribe(InvokeWrapper invoker) {
-			return invalidateCache(invokers.remove(invoker));
+		void prepare() {
+			InvokerCache cache = getInvokerCache();
+			if (cache.stale) rebuildCache(cache);
 		}
 
 		/**
-		 * Posts an event to all registered listeners in this handler and its supertype handlers.
+		 * Rebuilds and publishes the invoker cache without locking. Threads racing to rebuild it may compute it
+		 * more than once, but only a cache computed after the latest invalidation is published.
 		 *
-		 * @param event event to post
+		 * @param stale the stale marker observed
+		 * @return the rebuilt cache
 		 */
-		public void post(Event event) {
-			InvokeWrapper[] cache = this.computedInvokerCache;
-			if (cache == null) {
-				synchronized (this) {
-					if ((cache = this.computedInvokerCache) == null) {
-						cache = this.computedInvokerCache = computeInvokerCache();
-					}
-				}
-			}
-
-			for (InvokeWrapper invoker : cache) {
-				invoker.invoke(event);
+		private InvokerCache rebuildCache(InvokerCache stale) {
+			for (;;) {
+				InvokerCache cache = computeInvokerCache();
+				if (compareAndSetInvokerCache(stale, cache)) return cache;
+				stale = getInvokerCache();
+				if (!stale.stale) return stale;  // rebuilt by another thread
 			}
 		}
 
 		/**
 		 * Computes all invokers that need to be invoked when this handler received an event.
 		 */
-		synchronized InvokeWrapper[] computeInvokerCache() {
-			SortedSet<InvokeWrapper> set;
-			if (hasSupertypeHandler()) {
-				set = new TreeSet<>(this.invokers);
-				for (Handler supertypeHandler : this.supertypeHandlers)
-					set.addAll(supertypeHandler.invokers);
-			} else {
-				set = this.invokers;
-			}
-			return set.toArray(new InvokeWrapper[0]);
+		private InvokerCache computeInvokerCache() {
+			Handler[] supertypes = this.supertypes;
+			if (supertypes.length == 0) return new InvokerCache(Arrays.asList(invokers.toArray(InvokerCache.EMPTY)));
+
+			// Copied through arrays, bulk copies of a sorted set trust its size, which may change concurrently
+			SortedSet<InvokeWrapper> set = new TreeSet<>(InvokeWrapper.COMPARATOR);
+			Collections.addAll(set, invokers.toArray(InvokerCache.EMPTY));
+			for (Handler supertypeHandler : supertypes)
+				Collections.addAll(set, supertypeHandler.invokers.toArray(InvokerCache.EMPTY));
+			return new InvokerCache(set);
 		}
 
 		/**
-		 * Invalidates the {@link #computedInvokerCache} when {@code modified} is {@code true}.
+		 * Invalidates the {@linkplain #getInvokerCache() invoker cache} when {@code modified} is {@code true}.
+		 * If the cache was built and {@linkplain EventBus#setAutoPrepare(boolean) auto-prepare} is enabled,
+		 * it's rebuilt in the background.
 		 *
 		 * @param modified should we invalidate?
 		 * @return same value as {@code modified}
 		 */
 		boolean invalidateCache(boolean modified) {
-			if (modified) this.computedInvokerCache = null;
+			if (modified) {
+				boolean built = !getInvokerCache().stale;
+				setInvokerCache(new InvokerCache());
+				Executor executor = registry.prepareExecutor;
+				if (built && executor != null) {
+					try {
+						executor.execute(this::prepare);
+					} catch (RejectedExecutionException ignored) {
+						// Rebuilt at the next post instead
+					}
+				}
+			}
 			return modified;
 		}
 
@@ -374,8 +1620,21 @@ public class EventBus {
 		 * @return {@code true} if any modification occurred, {@code false} otherwise.
 		 */
 		boolean addSupertypeHandler(Handler handler) {
-			if (handler == this) return false;
-			return invalidateCache(supertypeHandlers.add(handler));
+			if (handler == this || !supertypeHandlers.add(handler)) return false;
+			supertypes = supertypeHandlers.toArray(new Handler[0]);
+			return invalidateCache(true);
+		}
+
+		/**
+		 * Removes handlers from this handler's supertype handlers.
+		 *
+		 * @param handlers the handlers to be removed
+		 * @return {@code true} if any modification occurred, {@code false} otherwise.
+		 */
+		boolean removeSupertypeHandlers(Collection<Handler> handlers) {
+			if (!supertypeHandlers.removeAll(handlers)) return false;
+			supertypes = supertypeHandlers.toArray(new Handler[0]);
+			return invalidateCache(true);
 		}
 
 		@Override
@@ -396,137 +1655,600 @@ public class EventBus {
 		}
 	}
 
+	/**
+	 * Immutable snapshot of the invokers of a {@linkplain Handler handler}, indexed by routing key.
+	 */
+	static final class InvokerCache {
+		private static final InvokeWrapper[] EMPTY = new InvokeWrapper[0];
+
+		/**
+		 * Invokers without a routing key, sorted.
+		 */
+		private final InvokeWrapper[] unkeyed;
+
+		/**
+		 * Invokers with a routing key grouped by their key, sorted.
+		 */
+		private final Map<Object, InvokeWrapper[]> keyed;
+
+		/**
+		 * Lazily merged {@link #unkeyed} and {@link #keyed} invokers for each routing key.
+		 * {@code null} if there's nothing to merge.
+		 */
+		private final Map<Object, InvokeWrapper[]> merged;
+
+		/**
+		 * Whether this is a marker of an invalidated cache, which has no invokers.
+		 */
+		final boolean stale;
+
+		/**
+		 * Whether any invoker belongs to a {@linkplain Listener#target() targeted listener}.
+		 */
+		final boolean targeted;
+
+		/**
+		 * Lazily grouped invokers of each array returned by {@link #get(Object)}, keyed by identity.
+		 * {@code null} if there's no {@linkplain #targeted targeted} invoker.
+		 */
+		private final Map<InvokeWrapper[], TargetedDispatch> dispatches;
+
+		/**
+		 * Creates a stale marker.
+		 */
+		InvokerCache() {
+			this.unkeyed = EMPTY;
+			this.keyed = Collections.emptyMap();
+			this.merged = null;
+			this.stale = true;
+			this.targeted = false;
+			this.dispatches = null;
+		}
+
+		/**
+		 * @param invokers all invokers, sorted
+		 */
+		InvokerCache(Collection<InvokeWrapper> invokers) {
+			this.stale = false;
+			List<InvokeWrapper> unkeyed = new ArrayList<>(invokers.size());
+			Map<Object, List<InvokeWrapper>> keyed = new HashMap<>();
+			boolean targeted = false;
+			for (InvokeWrapper invoker : invokers) {
+				if (invoker.method.target != null) targeted = true;
+				if (invoker.key == null) unkeyed.add(invoker);
+				else keyed.computeIfAbsent(invoker.key, k -> new ArrayList<>()).add(invoker);
+			}
+
+			this.unkeyed = unkeyed.toArray(EMPTY);
+			if (keyed.isEmpty()) {
+				this.keyed = Collections.emptyMap();
+			} else {
+				this.keyed = new HashMap<>(keyed.size() * 4 / 3 + 1);
+				for (Map.Entry<Object, List<InvokeWrapper>> entry : keyed.entrySet())
+					this.keyed.put(entry.getKey(), entry.getValue().toArray(EMPTY));
+			}
+			this.merged = this.keyed.isEmpty() || this.unkeyed.length == 0 ? null : new ConcurrentHashMap<>();
+			this.targeted = targeted;
+			this.dispatches = targeted ? new ConcurrentHashMap<>() : null;
+		}
+
+		/**
+		 * Gets all invokers which should receive an event with the specified routing key, in priority order.
+		 *
+		 * @param key the routing key, or {@code null}
+		 * @return the invokers, must not be modified
+		 */
+		InvokeWrapper[] get(Object key) {
+			if (key == null || keyed.isEmpty()) return unkeyed;
+			InvokeWrapper[] keyedInvokers = keyed.get(key);
+			if (keyedInvokers == null) return unkeyed;
+			if (merged == null) return keyedInvokers;
+
+			InvokeWrapper[] result = merged.get(key);
+			if (result == null) {
+				result = merge(unkeyed, keyedInvokers);
+				InvokeWrapper[] existing = merged.putIfAbsent(key, result);
+				if (existing != null) result = existing;
+			}
+			return result;
+		}
+
+		/**
+		 * Groups invokers returned by {@link #get(Object)} by their target. Only valid if the cache is
+		 * {@linkplain #targeted targeted}.
+		 */
+		TargetedDispatch dispatch(InvokeWrapper[] invokers) {
+			TargetedDispatch dispatch = dispatches.get(invokers);
+			if (dispatch == null) {
+				dispatch = TargetedDispatch.of(invokers);
+				TargetedDispatch existing = dispatches.putIfAbsent(invokers, dispatch);
+				if (existing != null) dispatch = existing;
+			}
+			return dispatch;
+		}
+
+		/**
+		 * @return all invokers without a routing key
+		 */
+		InvokeWrapper[] unkeyed() {
+			return unkeyed;
+		}
+
+		/**
+		 * Merges two sorted invoker arrays.
+		 */
+		private static InvokeWrapper[] merge(InvokeWrapper[] a, InvokeWrapper[] b) {
+			InvokeWrapper[] result = new InvokeWrapper[a.length + b.length];
+			int i = 0, j = 0, k = 0;
+			while (i < a.length && j < b.length) {
+				result[k++] = InvokeWrapper.COMPARATOR.compare(a[i], b[j]) <= 0 ? a[i++] : b[j++];
+			}
+			while (i < a.length) result[k++] = a[i++];
+			while (j < b.length) result[k++] = b[j++];
+			return result;
+		}
+	}
+
+	/**
+	 * Subscription of a listener object.
+	 */
+	static final class Subscription {
+		/**
+		 * The listener class.
+		 */
+		final ListenerClass type;
+
+		/**
+		 * Routing key overriding the {@linkplain Listener#key() declared keys}, or {@code null}.
+		 */
+		final Object key;
+
+		/**
+		 * Slots of the listener in the {@linkplain InvokeWrapper invokers} of each listener method.
+		 */
+		final int[] slots;
+
+		Subscription(ListenerClass type, Object key) {
+			this.type = type;
+			this.key = key;
+			this.slots = new int[type.methods.length];
+		}
+
+		/**
+		 * @return the effective routing key of the listener method
+		 */
+		Object keyOf(ListenerMethod method) {
+			return key != null ? key : method.key;
+		}
+	}
+
 	/**
 	 * Listener method invocation wrapper.
+	 * <p>
+	 * An invoker holds all listeners subscribed with the same {@linkplain ListenerMethod listener method}
+	 * and routing key in a flat array, so a subscription costs one array slot instead of one object.
+	 * Removed listeners leave an empty slot until the invoker is {@linkplain #compact() compacted}.
+	 * <p>
+	 * Modifications are guarded by the bus. Reads don't take any lock:
+	 * {@link #receivers} is always written before {@link #size}, and is never shorter than the live listeners.
 	 */
-	static class InvokeWrapper implements Comparable<InvokeWrapper> {
+	@SuppressWarnings("VolatileArrayField")
+	static class InvokeWrapper {
 		/**
-		 * Compares Invokewrappers using their {@code priority} value,
-		 * and only returns 0 when {@code o1.equals(o2)}.
+		 * Compares InvokeWrappers using their {@code priority} value,
+		 * and only returns 0 when {@code o1 == o2}.
 		 */
 		public static final Comparator<InvokeWrapper> COMPARATOR = (o1, o2) -> {
-			if (fastEqual(o1, o2)) return 0;
+			if (o1 == o2) return 0;
 
 			// @formatter:off
 			int c;
-			if ((c = Integer.compare(o1.priority, o2.priority))                         != 0) return c;
-			if ((c = o1.method.getName().compareTo(o2.method.getName()))                != 0) return c;
-			if ((c = o1.eventType.getName().compareTo(o2.eventType.getName()))          != 0) return c;
-			if ((c = Integer.compare(o1.listener.hashCode(), o2.listener.hashCode()))   != 0) return c;
-			if ((c = Integer.compare(o1.hashCode(), o2.hashCode()))                     != 0) return c;
+			if ((c = Integer.compare(o1.method.priority, o2.method.priority))                                  != 0) return c;
+			if ((c = o1.method.name().compareTo(o2.method.name()))                                             != 0) return c;
+			if ((c = o1.method.eventType.getName().compareTo(o2.method.eventType.getName()))                   != 0) return c;
+			if ((c = Long.compare(o1.sequence, o2.sequence))                                                   != 0) return c;
 			// @formatter:on
-			throw new AssertionError();  // ensures the comparator will never return 0 if the two wrapper aren't equal
+			throw new AssertionError();  // ensures the comparator will never return 0 if the two wrapper aren't the same
 		};
 
+		private static final Object[] EMPTY = new Object[0];
+
 		/**
-		 * Constructs an InvokeWrapper.
-		 *
-		 * @throws SecurityException if the provided {@linkplain MethodHandles.Lookup lookup}
-		 *                           cannot access the specified method
+		 * Source of {@link #sequence}.
 		 */
-		@SuppressWarnings("unchecked")
-		public static InvokeWrapper create(Object instance, Method method, MethodHandles.Lookup lookup) throws SecurityException {
-			int priority = AccessHelper.getAnnotationRecursively(method, Listener.class).priority();
-			return create(instance, method, priority, lookup);
-		}
+		private static final AtomicLong SEQUENCE = new AtomicLong();
 
 		/**
-		 * Constructs an InvokeWrapper with specified {@code priority} value.
-		 *
-		 * @throws SecurityException if the provided {@linkplain MethodHandles.Lookup lookup}
-		 *                           cannot access the specified method
+		 * Constructs an InvokeWrapper for the specified listener method and routing key.
 		 */
-		@SuppressWarnings("unchecked")
-		public static InvokeWrapper create(Object instance, Method method, int priority, MethodHandles.Lookup lookup)
-				throws SecurityException {
-			Class<? extends Event> eventType = (Class<? extends Event>) method.getParameterTypes()[0];
-			MethodHandle methodHandle = AccessHelper.unreflectMethodHandle(lookup, method);
-			return new InvokeWrapper(instance, eventType, method, priority, methodHandle);
+		static InvokeWrapper create(ListenerMethod method, Object key, EventBus bus) {
+			return method.conflate ? new ConflatingInvokeWrapper(method, key, bus) : new InvokeWrapper(method, key);
 		}
 
 		/**
-		 * Listener instance. Used in invocation.
+		 * Listener method.
 		 */
-		private final Object listener;
+		final ListenerMethod method;
 
 		/**
-		 * Event type which the {@code listener} listens.
+		 * Routing key, or {@code null} if the listeners receive events of all keys.
 		 */
-		private final Class<? extends Event> eventType;
+		final Object key;
 
 		/**
-		 * Listener method.
+		 * Creation order, used to break ties between invokers.
 		 */
-		private final Method method;
+		private final long sequence = SEQUENCE.getAndIncrement();
 
 		/**
-		 * Listener priority. Lower values are called first.
+		 * Receivers of the events, usually the listeners. Removed receivers are {@code null}.
 		 */
-		private final int priority;
+		private volatile Object[] receivers = EMPTY;
 
 		/**
-		 * {@link MethodHandle} for invocation.
+		 * Number of used slots in {@link #receivers}, including removed ones.
 		 */
-		private final MethodHandle methodHandle;
+		private volatile int size;
 
-		InvokeWrapper(Object listener, Class<? extends Event> eventType, Method method, int priority, MethodHandle methodHandle) {
-			this.listener = listener;
-			this.eventType = eventType;
+		/**
+		 * Number of removed slots in {@link #receivers}.
+		 */
+		private int removed;
+
+		InvokeWrapper(ListenerMethod method, Object key) {
 			this.method = method;
-			this.priority = priority;
-			this.methodHandle = methodHandle;
+			this.key = key;
 		}
 
 		/**
-		 * Invokes the listener.
+		 * Invokes all listeners.
 		 *
 		 * @param event event to post
 		 * @throws RuntimeException if the underlying listener method throws an exception
 		 */
 		public void invoke(Event event) throws RuntimeException {
+			// Same as forEachReceiver(), but inlined so that the listener can be inlined into the dispatch loop
+			int size = this.size;
+			Object[] receivers = this.receivers;
+			if (size > receivers.length) size = receivers.length;  // compacted concurrently
+			for (int i = 0; i < size; i++) {
+				Object receiver = receivers[i];
+				if (receiver != null) invoke(receiver, event);
+			}
+		}
+
+		/**
+		 * Invokes all listeners, and records a {@linkplain Tracer.Span.Kind#LISTENER listener span} for each of them.
+		 *
+		 * @param event    event to post
+		 * @param recorder the span recorder of the current thread
+		 * @throws RuntimeException if the underlying listener method throws an exception
+		 */
+		void invoke(Event event, Tracer.Recorder recorder) throws RuntimeException {
+			forEachReceiver(event, recorder, InvokeWrapper::invokeTraced);
+		}
+
+		private static Object invokeTraced(InvokeWrapper invoker, Object receiver, Event event,
+				Tracer.Recorder recorder) {
+			recorder.enter();
 			try {
-				methodHandle.invoke(listener, event);
-			} catch (RuntimeException | Error e) {
-				throw e;
-			} catch (Throwable e) {
-				throw new RuntimeException("Exception while invoking listener", e);
+				invoker.invoke(receiver, event);
+			} finally {
+				recorder.exit(Tracer.Span.Kind.LISTENER, invoker.method);
+			}
+			return null;
+		}
+
+		/**
+		 * Invokes the listener of the specified receiver.
+		 */
+		void invoke(Object receiver, Event event) throws RuntimeException {
+			method.invoke(receiver, event);
+		}
+
+		/**
+		 * Invokes listeners until one of them answers.
+		 *
+		 * @param event event to post
+		 * @return the first non-null result, or {@code null} if no listener answered
+		 * @throws RuntimeException if the underlying listener method throws an exception
+		 */
+		Object query(Event event) throws RuntimeException {
+			return forEachReceiver(event, null, (invoker, receiver, query, context) -> invoker.query(receiver, query));
+		}
+
+		/**
+		 * Invokes all listeners and hands their non-null results to {@code results}.
+		 *
+		 * @throws RuntimeException if the underlying listener method throws an exception
+		 */
+		void queryAll(Event event, Consumer<Object> results) throws RuntimeException {
+			forEachReceiver(event, results, InvokeWrapper::queryInto);
+		}
+
+		private static Object queryInto(InvokeWrapper invoker, Object receiver, Event event, Consumer<Object> results) {
+			Object result = invoker.query(receiver, event);
+			if (result != null) results.accept(result);
+			return null;
+		}
+
+		/**
+		 * Applies a function to each receiver of a consistent snapshot of the receivers, so that a concurrent
+		 * compaction can neither skip a listener nor move one under the iteration.
+		 *
+		 * @param event    event handed to the function
+		 * @param context  context handed to the function
+		 * @param function the function, which returns {@code null} to continue with the next receiver
+		 * @param <C>      type of the context
+		 * @return the first non-null result of the function, or {@code null}
+		 */
+		<C> Object forEachReceiver(Event event, C context, ReceiverFunction<? super C> function) {
+			int size = this.size;
+			Object[] receivers = this.receivers;
+			if (size > receivers.length) size = receivers.length;  // compacted concurrently
+			for (int i = 0; i < size; i++) {
+				Object receiver = receivers[i];
+				if (receiver == null) continue;
+				Object result = function.apply(this, receiver, event, context);
+				if (result != null) return result;
+			}
+			return null;
+		}
+
+		/**
+		 * Invokes the listener of the specified receiver and returns its result.
+		 */
+		Object query(Object receiver, Event event) throws RuntimeException {
+			return method.query(receiver, event);
+		}
+
+		/**
+		 * Adds a listener.
+		 *
+		 * @return the slot of the listener
+		 */
+		int add(Object listener) {
+			Object[] receivers = this.receivers;
+			int slot = this.size;
+			if (slot == receivers.length) {
+				this.receivers = receivers = Arrays.copyOf(receivers, Math.max(1, slot * 2));
+			}
+			receivers[slot] = toReceiver(listener);
+			this.size = slot + 1;
+			return slot;
+		}
+
+		/**
+		 * Removes the listener at the specified slot. The slot is not reused until compaction.
+		 */
+		void remove(int slot) {
+			receivers[slot] = null;
+			removed++;
+		}
+
+		/**
+		 * @return {@code true} if there are no listeners
+		 */
+		boolean isEmpty() {
+			return size == removed;
+		}
+
+		/**
+		 * @return number of listeners
+		 */
+		int listenerCount() {
+			return size - removed;
+		}
+
+		/**
+		 * @return number of used slots, including removed ones. Must be read before {@link #receivers()}.
+		 */
+		int size() {
+			return size;
+		}
+
+		/**
+		 * @return the receivers, which may be longer than {@link #size()} or shorter if compacted concurrently
+		 */
+		Object[] receivers() {
+			return receivers;
+		}
+
+		/**
+		 * @return {@code true} if at least half of the slots are empty
+		 */
+		boolean shouldCompact() {
+			return removed > 8 && removed >= size / 2;
+		}
+
+		/**
+		 * Moves all listeners to the beginning of a new array.
+		 *
+		 * @return the new array, live receivers first, followed by {@code null}s
+		 */
+		Object[] compact() {
+			Object[] receivers = this.receivers;
+			int count = listenerCount();
+			Object[] compacted = new Object[Math.max(count * 2, count + 1)];
+			int j = 0;
+			for (int i = 0, size = this.size; i < size; i++) {
+				if (receivers[i] != null) compacted[j++] = receivers[i];
 			}
+			this.receivers = compacted;
+			this.size = count;
+			this.removed = 0;
+			return compacted;
+		}
+
+		/**
+		 * Converts a listener to the receiver stored in {@link #receivers}.
+		 */
+		Object toReceiver(Object listener) {
+			return listener;
 		}
 
 		/**
-		 * Compares this object with another InvokeWrapper for order.
+		 * Converts a receiver stored in {@link #receivers} back to its listener.
 		 */
+		Object listenerOf(Object receiver) {
+			return receiver;
+		}
+
 		@Override
-		public int compareTo(InvokeWrapper o) {
-			return COMPARATOR.compare(this, o);
+		public String toString() {
+			return String.format("InvokeWrapper{method=%s, priority=%d, key=%s, listeners=%d}",
+					method, method.priority, key, listenerCount());
+		}
+	}
+
+	/**
+	 * Function applied to the receivers of an invoker by {@link InvokeWrapper#forEachReceiver}.
+	 *
+	 * @param <C> type of the context
+	 */
+	@FunctionalInterface
+	interface ReceiverFunction<C> {
+		/**
+		 * @return {@code null} to continue with the next receiver, or the result of the iteration
+		 */
+		Object apply(InvokeWrapper invoker, Object receiver, Event event, C context);
+	}
+
+	/**
+	 * Listener invocation wrapper for {@linkplain Listener#conflate() conflating listeners}.
+	 * <p>
+	 * Each listener has a mailbox of pending events, delivered on the {@linkplain #asyncExecutor async executor}.
+	 * A pending {@link Conflatable} event is replaced in place when a newer event with the same key arrives,
+	 * so the mailbox never holds more than one event per key.
+	 * {@linkplain PooledEvent Pooled events} are retained while they're in the mailbox.
+	 */
+	static final class ConflatingInvokeWrapper extends InvokeWrapper {
+		/**
+		 * The bus this invoker belongs to.
+		 */
+		private final EventBus bus;
+
+		ConflatingInvokeWrapper(ListenerMethod method, Object key, EventBus bus) {
+			super(method, key);
+			this.bus = bus;
 		}
 
+		/**
+		 * Queues the event in the mailbox for asynchronous delivery.
+		 */
 		@Override
-		public boolean equals(Object o) {
-			if (this == o) return true;
-			if (!(o instanceof InvokeWrapper)) return false;
-			return fastEqual(this, (InvokeWrapper) o);
+		void invoke(Object receiver, Event event) {
+			((Mailbox) receiver).offer(event);
 		}
 
+		/**
+		 * Queues the event in the mailbox. Asynchronous listeners never answer.
+		 */
 		@Override
-		public int hashCode() {
-			int n = 1;
-			n = 31 * n + listener.hashCode();
-			n = 31 * n + eventType.hashCode();
-			n = 31 * n + method.hashCode();
-			return n;
+		Object query(Object receiver, Event event) {
+			((Mailbox) receiver).offer(event);
+			return null;
 		}
 
-		private static boolean fastEqual(InvokeWrapper o1, InvokeWrapper o2) {
-			return Objects.equals(o1.listener, o2.listener) &&
-					Objects.equals(o1.eventType, o2.eventType) &&
-					Objects.equals(o1.method, o2.method);
+		@Override
+		Object toReceiver(Object listener) {
+			return new Mailbox(listener);
 		}
 
 		@Override
-		public String toString() {
-			return String.format("InvokeWrapper{listener=%s, eventType=%s, method=%s(%s), priority=%d}",
-					listener, eventType.getName(), method.getName(), eventType.getSimpleName(), priority);
+		Object listenerOf(Object receiver) {
+			return ((Mailbox) receiver).listener;
+		}
+
+		/**
+		 * Pending events of a conflating listener.
+		 */
+		final class Mailbox implements Runnable {
+			/**
+			 * The listener.
+			 */
+			final Object listener;
+
+			/**
+			 * Pending events in arrival order, keyed by their conflation key.
+			 * Events without a conflation key use a unique key so they are never replaced.
+			 * <p>
+			 * Guarded by {@code this}.
+			 */
+			private final LinkedHashMap<Object, Event> pending = new LinkedHashMap<>();
+
+			/**
+			 * Whether a drain task has been submitted and not finished yet.
+			 * <p>
+			 * Guarded by {@code this}.
+			 */
+			private boolean scheduled;
+
+			Mailbox(Object listener) {
+				this.listener = listener;
+			}
+
+			/**
+			 * Queues the event, replacing the pending event with the same conflation key.
+			 */
+			void offer(Event event) {
+				Object key = event instanceof Conflatable ? ((Conflatable) event).conflationKey() : null;
+				if (key == null) key = new Object();
+				if (event instanceof PooledEvent) ((PooledEvent) event).retain();
+				Event replaced;
+				synchronized (this) {
+					replaced = pending.put(key, event);
+					if (replaced == null) {
+						if (scheduled) return;
+						scheduled = true;
+					}
+				}
+				if (replaced != null) {
+					bus.conflatedEvents.increment();
+					if (replaced instanceof PooledEvent) ((PooledEvent) replaced).release();
+					return;
+				}
+				try {
+					bus.asyncExecutor.execute(this);
+				} catch (RuntimeException | Error e) {
+					synchronized (this) { scheduled = false; }
+					throw e;
+				}
+			}
+
+			/**
+			 * Drains the mailbox, delivering pending events in arrival order.
+			 */
+			@Override
+			public void run() {
+				for (;;) {
+					Event event;
+					synchronized (this) {
+						Iterator<Event> it = pending.values().iterator();
+						if (!it.hasNext()) {
+							scheduled = false;
+							return;
+						}
+						event = it.next();
+						it.remove();
+					}
+					try {
+						method.invoke(listener, event);
+					} catch (RuntimeException | Error e) {
+						Thread thread = Thread.currentThread();
+						thread.getUncaughtExceptionHandler().uncaughtException(thread, e);
+					} finally {
+						if (event instanceof PooledEvent) ((PooledEvent) event).release();
+					}
+				}
+			}
+
+			/**
+			 * @return number of events waiting to be delivered
+			 */
+			synchronized int pendingCount() {
+				return pending.size();
+			}
 		}
 	}
 }
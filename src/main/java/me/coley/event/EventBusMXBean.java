@@ -0,0 +1,73 @@
+package me.coley.event;
+
+import java.util.Map;
+
+/**
+ * Management interface of an {@link EventBus}, for monitoring it over JMX.
+ * Event types are identified by their class names.
+ *
+ * @author Andy Li
+ * @see EventBus#registerMXBean(String)
+ * @since 1.5
+ */
+public interface EventBusMXBean {
+	/**
+	 * @return number of subscribed objects
+	 */
+	int getListenerObjectCount();
+
+	/**
+	 * @return number of event types the bus has a handler for
+	 */
+	int getHandlerCount();
+
+	/**
+	 * @return number of listeners per event type
+	 */
+	Map<String, Integer> getListenerCounts();
+
+	/**
+	 * @return event types which have never been posted
+	 */
+	String[] getNeverPostedEventTypes();
+
+	/**
+	 * @return total number of posts and queries
+	 */
+	long getPostCount();
+
+	/**
+	 * @return posts and queries per second, averaged over the last sampling interval of at least a second
+	 */
+	double getPostRate();
+
+	/**
+	 * @return posts and queries per second per event type, averaged over the last sampling interval
+	 * of at least a second. Event types which weren't posted in the interval are omitted.
+	 */
+	Map<String, Double> getPostRates();
+
+	/**
+	 * @return number of events suppressed by post policies
+	 * @see EventBus#getSuppressedEventCount()
+	 */
+	long getSuppressedEventCount();
+
+	/**
+	 * @return number of events conflated before delivery
+	 * @see EventBus#getConflatedEventCount()
+	 */
+	long getConflatedEventCount();
+
+	/**
+	 * @return number of posts waiting to be delivered per listener target
+	 * @see TargetQueue#getDepth()
+	 */
+	Map<String, Integer> getTargetQueueDepths();
+
+	/**
+	 * @return number of posts dropped by full queues per listener target
+	 * @see TargetQueue#getDroppedCount()
+	 */
+	Map<String, Long> getTargetDroppedCounts();
+}
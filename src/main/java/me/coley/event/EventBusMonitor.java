@@ -0,0 +1,125 @@
+package me.coley.event;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link EventBusMXBean} implementation backed by {@linkplain EventBus#snapshot() snapshots}.
+ * <p>
+ * Post rates are computed from the post counts of two snapshots at least {@link #SAMPLE_INTERVAL} apart,
+ * so that polling more often doesn't make them noisier.
+ *
+ * @author Andy Li
+ * @since 1.5
+ */
+final class EventBusMonitor implements EventBusMXBean {
+	/**
+	 * Minimum interval between post rate samples, in nanoseconds.
+	 */
+	private static final long SAMPLE_INTERVAL = TimeUnit.SECONDS.toNanos(1);
+
+	private final EventBus bus;
+
+	/**
+	 * Time of the last sample. Guarded by {@code this}.
+	 */
+	private long sampleTime = System.nanoTime();
+
+	/**
+	 * Post counts per event type at the last sample. Guarded by {@code this}.
+	 */
+	private Map<String, Long> sampleCounts = new HashMap<>();
+
+	/**
+	 * Post rates per event type between the last two samples. Guarded by {@code this}.
+	 */
+	private Map<String, Double> rates = Collections.emptyMap();
+
+	EventBusMonitor(EventBus bus) {
+		this.bus = bus;
+	}
+
+	@Override
+	public int getListenerObjectCount() {
+		return bus.snapshot().getListenerObjectCount();
+	}
+
+	@Override
+	public int getHandlerCount() {
+		return bus.snapshot().getHandlerCount();
+	}
+
+	@Override
+	public Map<String, Integer> getListenerCounts() {
+		Map<String, Integer> result = new LinkedHashMap<>();
+		for (EventBusSnapshot.EventTypeInfo info : bus.snapshot().getEventTypes()) {
+			result.put(info.getEventType().getName(), info.getListenerCount());
+		}
+		return result;
+	}
+
+	@Override
+	public String[] getNeverPostedEventTypes() {
+		return bus.snapshot().getNeverPostedEventTypes().stream().map(Class::getName).toArray(String[]::new);
+	}
+
+	@Override
+	public long getPostCount() {
+		return bus.snapshot().getPostCount();
+	}
+
+	@Override
+	public double getPostRate() {
+		double rate = 0;
+		for (double r : getPostRates().values()) rate += r;
+		return rate;
+	}
+
+	@Override
+	public synchronized Map<String, Double> getPostRates() {
+		long now = System.nanoTime();
+		long elapsed = now - sampleTime;
+		if (elapsed < SAMPLE_INTERVAL) return rates;
+
+		Map<String, Long> counts = new HashMap<>();
+		Map<String, Double> rates = new LinkedHashMap<>();
+		double seconds = elapsed / (double) TimeUnit.SECONDS.toNanos(1);
+		for (EventBusSnapshot.EventTypeInfo info : bus.snapshot().getEventTypes()) {
+			String name = info.getEventType().getName();
+			long count = info.getPostCount();
+			counts.put(name, count);
+			long delta = count - sampleCounts.getOrDefault(name, 0L);
+			if (delta > 0) rates.put(name, delta / seconds);
+		}
+		this.sampleTime = now;
+		this.sampleCounts = counts;
+		return this.rates = Collections.unmodifiableMap(rates);
+	}
+
+	@Override
+	public long getSuppressedEventCount() {
+		return bus.getSuppressedEventCount();
+	}
+
+	@Override
+	public long getConflatedEventCount() {
+		return bus.getConflatedEventCount();
+	}
+
+	@Override
+	public Map<String, Integer> getTargetQueueDepths() {
+		Map<String, Integer> result = new LinkedHashMap<>();
+		for (TargetQueue queue : bus.getTargetQueues().values()) result.put(queue.getTarget(), queue.getDepth());
+		return result;
+	}
+
+	@Override
+	public Map<String, Long> getTargetDroppedCounts() {
+		Map<String, Long> result = new LinkedHashMap<>();
+		for (TargetQueue queue : bus.getTargetQueues().values()) result.put(queue.getTarget(), queue.getDroppedCount());
+		return result;
+	}
+}
@@ -0,0 +1,140 @@
+package me.coley.event;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Read-only snapshot of the registry of an {@link EventBus}, for finding out how big a bus is
+ * and where its listeners are.
+ * <p>
+ * A snapshot is taken without blocking posts, so it's consistent per event type but not across event types.
+ *
+ * @author Andy Li
+ * @see EventBus#snapshot()
+ * @since 1.5
+ */
+public final class EventBusSnapshot {
+	private final int listenerObjectCount;
+	private final List<EventTypeInfo> eventTypes;
+
+	EventBusSnapshot(int listenerObjectCount, List<EventTypeInfo> eventTypes) {
+		this.listenerObjectCount = listenerObjectCount;
+		this.eventTypes = Collections.unmodifiableList(eventTypes);
+	}
+
+	/**
+	 * @return number of subscribed objects
+	 */
+	public int getListenerObjectCount() {
+		return listenerObjectCount;
+	}
+
+	/**
+	 * @return number of event types the bus has a handler for
+	 */
+	public int getHandlerCount() {
+		return eventTypes.size();
+	}
+
+	/**
+	 * @return all event types the bus has a handler for, ordered by name
+	 */
+	public List<EventTypeInfo> getEventTypes() {
+		return eventTypes;
+	}
+
+	/**
+	 * @return total number of posts and queries of all event types
+	 */
+	public long getPostCount() {
+		long count = 0;
+		for (EventTypeInfo info : eventTypes) count += info.postCount;
+		return count;
+	}
+
+	/**
+	 * @return event types which have never been posted, ordered by name. These usually have only been
+	 * subscribed to. Event types are described as long as they or one of their supertypes have listeners,
+	 * so the post counts of types whose listeners have all unsubscribed may be lost.
+	 */
+	public List<Class<? extends Event>> getNeverPostedEventTypes() {
+		List<Class<? extends Event>> result = new ArrayList<>();
+		for (EventTypeInfo info : eventTypes) {
+			if (info.postCount == 0) result.add(info.eventType);
+		}
+		return result;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		sb.append(String.format("EventBus{listenerObjects=%d, handlers=%d, posts=%d}%n",
+				listenerObjectCount, getHandlerCount(), getPostCount()));
+		for (EventTypeInfo info : eventTypes) sb.append("  ").append(info).append(System.lineSeparator());
+		return sb.toString();
+	}
+
+	/**
+	 * State of the handler of an event type.
+	 */
+	public static final class EventTypeInfo {
+		private final Class<? extends Event> eventType;
+		private final int listenerCount;
+		private final List<Class<? extends Event>> supertypes;
+		private final boolean cached;
+		private final long postCount;
+
+		EventTypeInfo(Class<? extends Event> eventType, int listenerCount, List<Class<? extends Event>> supertypes,
+		              boolean cached, long postCount) {
+			this.eventType = eventType;
+			this.listenerCount = listenerCount;
+			this.supertypes = Collections.unmodifiableList(supertypes);
+			this.cached = cached;
+			this.postCount = postCount;
+		}
+
+		/**
+		 * @return the event type
+		 */
+		public Class<? extends Event> getEventType() {
+			return eventType;
+		}
+
+		/**
+		 * @return number of listeners subscribed to exactly this event type
+		 */
+		public int getListenerCount() {
+			return listenerCount;
+		}
+
+		/**
+		 * @return supertypes of this event type which have a handler, whose listeners
+		 * also receive events of this type, ordered by name
+		 */
+		public List<Class<? extends Event>> getSupertypes() {
+			return supertypes;
+		}
+
+		/**
+		 * @return {@code true} if the dispatch table of this event type is built, {@code false}
+		 * if it will be built at the next post
+		 */
+		public boolean isCached() {
+			return cached;
+		}
+
+		/**
+		 * @return number of posts and queries of exactly this event type, including suppressed posts
+		 */
+		public long getPostCount() {
+			return postCount;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("%s{listeners=%d, supertypes=%d, cached=%b, posts=%d}",
+					eventType.getName(), listenerCount, supertypes.size(), cached, postCount);
+		}
+	}
+}
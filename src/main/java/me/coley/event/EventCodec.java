@@ -0,0 +1,35 @@
+package me.coley.event;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Encodes events of a type into bytes and back, for {@linkplain Journal journaling} them.
+ * <p>
+ * Codecs only use the relative get and put methods of the buffers they're given, starting at the current
+ * position. They must not modify the limit or the byte order of the buffer, nor keep a reference to it.
+ *
+ * @param <E> the event type
+ * @author Andy Li
+ * @see Journal#register(Class, EventCodec)
+ * @since 1.5
+ */
+public interface EventCodec<E extends Event> {
+	/**
+	 * Encodes an event.
+	 *
+	 * @param event  the event
+	 * @param buffer the buffer to write to, which may be backed by a memory-mapped file
+	 * @throws java.nio.BufferOverflowException if the buffer doesn't have enough space, which is retried
+	 *                                          with a larger buffer
+	 */
+	void encode(E event, ByteBuffer buffer);
+
+	/**
+	 * Decodes an event.
+	 *
+	 * @param buffer the buffer to read from, whose remaining bytes are exactly what {@link #encode} wrote.
+	 *               It may be backed by a memory-mapped file.
+	 * @return the event
+	 */
+	E decode(ByteBuffer buffer);
+}
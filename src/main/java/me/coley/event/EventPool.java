@@ -0,0 +1,130 @@
+package me.coley.event;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.function.Supplier;
+
+/**
+ * Thread-local pool of {@linkplain PooledEvent events}, to avoid allocating an event per post on hot paths.
+ * <p>
+ * Events are {@linkplain #acquire() acquired} from the pool of the current thread, and returned to the pool
+ * of the thread which {@linkplain PooledEvent#release() releases} their last reference.
+ * <pre>{@code
+ * EventPool<PriceEvent> pool = new EventPool<>(PriceEvent::new);
+ * PriceEvent event = pool.acquire();
+ * event.set(symbol, price);
+ * bus.post(event);  // released automatically after dispatch
+ * }</pre>
+ * In {@linkplain #setDebug(boolean) debug mode} released events are never reused. Instead they stay poisoned,
+ * so that a listener keeping a pooled event after dispatch returns will fail on
+ * {@link PooledEvent#ensureAccessible()} with the stack trace of the release as the cause.
+ *
+ * @param <E> the type of the pooled events
+ * @author Andy Li
+ * @since 1.5
+ */
+public final class EventPool<E extends PooledEvent> {
+	/**
+	 * Default maximum number of pooled events per thread.
+	 */
+	public static final int DEFAULT_MAX_POOLED_PER_THREAD = 256;
+
+	private final Supplier<? extends E> factory;
+	private final int maxPooledPerThread;
+	private final ThreadLocal<Stack> stacks = ThreadLocal.withInitial(Stack::new);
+	private volatile boolean debug;
+
+	/**
+	 * Creates a pool which holds at most {@value #DEFAULT_MAX_POOLED_PER_THREAD} events per thread.
+	 *
+	 * @param factory creates new events when the pool is empty
+	 */
+	public EventPool(Supplier<? extends E> factory) {
+		this(factory, DEFAULT_MAX_POOLED_PER_THREAD);
+	}
+
+	/**
+	 * Creates a pool.
+	 *
+	 * @param factory            creates new events when the pool is empty
+	 * @param maxPooledPerThread maximum number of pooled events per thread, extra events are left for GC
+	 */
+	public EventPool(Supplier<? extends E> factory, int maxPooledPerThread) {
+		if (maxPooledPerThread < 0) throw new IllegalArgumentException("maxPooledPerThread < 0");
+		this.factory = Objects.requireNonNull(factory);
+		this.maxPooledPerThread = maxPooledPerThread;
+	}
+
+	/**
+	 * Acquires an event from the pool of the current thread, or creates one if the pool is empty.
+	 * The event has a {@linkplain PooledEvent#referenceCount() reference count} of one.
+	 *
+	 * @return the event
+	 */
+	@SuppressWarnings("unchecked")
+	public E acquire() {
+		E event = (E) stacks.get().pop();
+		if (event == null) event = Objects.requireNonNull(factory.get(), "factory returned null");
+		event.acquired(this);
+		return event;
+	}
+
+	/**
+	 * Enables or disables the debug mode.
+	 * In debug mode, released events are poisoned instead of being reused.
+	 *
+	 * @param debug {@code true} to enable debug mode
+	 */
+	public void setDebug(boolean debug) {
+		this.debug = debug;
+	}
+
+	/**
+	 * @return {@code true} if the debug mode is enabled
+	 */
+	public boolean isDebug() {
+		return debug;
+	}
+
+	/**
+	 * Returns the number of events pooled by the current thread.
+	 *
+	 * @return the number of events
+	 */
+	public int pooledCount() {
+		return stacks.get().size;
+	}
+
+	/**
+	 * Recycles the event after its last reference was released.
+	 */
+	void recycle(PooledEvent event) {
+		if (debug) {
+			event.recycledAt = new Throwable("Recycled here");
+			return;
+		}
+		event.reset();
+		stacks.get().push(event, maxPooledPerThread);
+	}
+
+	/**
+	 * Array-based stack, which doesn't allocate once it's grown.
+	 */
+	private static final class Stack {
+		private PooledEvent[] elements = new PooledEvent[16];
+		private int size;
+
+		PooledEvent pop() {
+			if (size == 0) return null;
+			PooledEvent event = elements[--size];
+			elements[size] = null;
+			return event;
+		}
+
+		void push(PooledEvent event, int max) {
+			if (size >= max) return;
+			if (size == elements.length) elements = Arrays.copyOf(elements, Math.min(max, size * 2));
+			elements[size++] = event;
+		}
+	}
+}
@@ -0,0 +1,77 @@
+package me.coley.event;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Publishes events of a type posted on an {@link EventBus} to reactive subscribers, with demand-based backpressure.
+ * <p>
+ * On Java 9 and later this class implements {@code java.util.concurrent.Flow.Publisher}. Each subscriber is registered
+ * on the bus as a listener of the event type, and receives events only as they are requested. Events posted while
+ * a subscriber has no outstanding demand are handled by the {@linkplain #getOverflowStrategy() overflow strategy}.
+ * Subscriptions last until they are cancelled, the bus never completes them.
+ * <p>
+ * On Java 8 the reactive API is unavailable, and publishers can't be subscribed to.
+ *
+ * @param <E> the event type
+ * @author Andy Li
+ * @see EventBus#publisher(Class, OverflowStrategy, int)
+ * @since 1.5
+ */
+public final class EventPublisher<E extends Event> {
+	/**
+	 * Default buffer size, same as {@code Flow.defaultBufferSize()}.
+	 */
+	public static final int DEFAULT_BUFFER_SIZE = 256;
+
+	final EventBus bus;
+	final Class<E> eventType;
+	final OverflowStrategy strategy;
+	final int bufferSize;
+
+	/**
+	 * Listener class shared by all subscriptions.
+	 */
+	final ListenerClass listenerClass;
+
+	/**
+	 * Number of events dropped by all subscriptions.
+	 */
+	final LongAdder dropped = new LongAdder();
+
+	EventPublisher(EventBus bus, Class<E> eventType, OverflowStrategy strategy, int bufferSize) {
+		this.bus = bus;
+		this.eventType = eventType;
+		this.strategy = strategy;
+		this.bufferSize = bufferSize;
+		this.listenerClass = EventSubscription.listenerClass(eventType);
+	}
+
+	/**
+	 * @return the type of published events
+	 */
+	public Class<E> getEventType() {
+		return eventType;
+	}
+
+	/**
+	 * @return the overflow strategy of subscriptions
+	 */
+	public OverflowStrategy getOverflowStrategy() {
+		return strategy;
+	}
+
+	/**
+	 * @return the buffer size of subscriptions with the {@link OverflowStrategy#BUFFER BUFFER} strategy
+	 */
+	public int getBufferSize() {
+		return bufferSize;
+	}
+
+	/**
+	 * @return the number of events dropped by the {@link OverflowStrategy#DROP DROP}
+	 * and {@link OverflowStrategy#LATEST LATEST} strategies, summed over all subscriptions
+	 */
+	public long getDroppedCount() {
+		return dropped.sum();
+	}
+}
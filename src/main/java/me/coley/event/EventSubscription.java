@@ -0,0 +1,227 @@
+package me.coley.event;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Method;
+import java.util.ArrayDeque;
+
+/**
+ * Subscription of a reactive subscriber to an {@link EventPublisher}, independent of the reactive API.
+ * <p>
+ * The subscription is registered on the bus as a listener of the publisher's event type. Posted events are
+ * queued, and handed to the subscriber only when it has requested them. Events arriving without demand are
+ * handled by the {@linkplain OverflowStrategy overflow strategy} of the publisher.
+ * <p>
+ * Signals to the subscriber never overlap: whichever thread finds work drains the queue, and the other
+ * threads only enqueue. Requests and posts made by the subscriber during a signal are picked up by the same drain.
+ *
+ * @param <E> the event type
+ * @author Andy Li
+ * @since 1.5
+ */
+abstract class EventSubscription<E extends Event> {
+	/**
+	 * The method receiving posted events.
+	 */
+	private static final Method ON_EVENT;
+
+	static {
+		try {
+			ON_EVENT = EventSubscription.class.getDeclaredMethod("onEvent", Event.class);
+		} catch (NoSuchMethodException e) {
+			throw new AssertionError(e);
+		}
+	}
+
+	final EventPublisher<E> publisher;
+
+	/**
+	 * Events waiting for demand.
+	 * <p>
+	 * Guarded by {@code this}.
+	 */
+	private final ArrayDeque<E> queue = new ArrayDeque<>();
+
+	/**
+	 * Number of requested events not delivered yet.
+	 * <p>
+	 * Guarded by {@code this}.
+	 */
+	private long demand;
+
+	/**
+	 * Error to signal at the next drain.
+	 * <p>
+	 * Guarded by {@code this}.
+	 */
+	private Throwable error;
+
+	/**
+	 * Whether a thread is draining the queue.
+	 * <p>
+	 * Guarded by {@code this}.
+	 */
+	private boolean draining;
+
+	private volatile boolean cancelled;
+
+	EventSubscription(EventPublisher<E> publisher) {
+		this.publisher = publisher;
+	}
+
+	/**
+	 * Creates the listener class of subscriptions to the specified event type.
+	 */
+	static ListenerClass listenerClass(Class<? extends Event> eventType) {
+		return ListenerClass.forEventType(ON_EVENT, eventType, MethodHandles.lookup());
+	}
+
+	/**
+	 * Signals the subscription to the subscriber, and then registers it on the bus unless it has been cancelled.
+	 */
+	final void start() {
+		signalSubscribe();
+		EventBus bus = publisher.bus;
+		synchronized (bus) {
+			if (!cancelled) bus.register(this, null, publisher.listenerClass);
+		}
+	}
+
+	/**
+	 * Requests more events.
+	 *
+	 * @param n number of events, non-positive values cancel the subscription with an {@link IllegalArgumentException}
+	 */
+	public void request(long n) {
+		synchronized (this) {
+			if (n <= 0) {
+				if (error == null) error = new IllegalArgumentException("non-positive request: " + n);
+			} else {
+				demand += n;
+				if (demand < 0) demand = Long.MAX_VALUE;
+			}
+		}
+		drain();
+	}
+
+	/**
+	 * Cancels the subscription and unregisters it from the bus. Queued events are discarded.
+	 */
+	public void cancel() {
+		synchronized (this) {
+			if (cancelled) return;
+			cancelled = true;
+		}
+		publisher.bus.unsubscribe(this);
+		drain();
+	}
+
+	/**
+	 * Called by the bus when an event is posted.
+	 */
+	@SuppressWarnings("unchecked")
+	private void onEvent(Event event) {
+		synchronized (this) {
+			if (cancelled || error != null) return;
+			if (demand <= queue.size()) {
+				switch (publisher.strategy) {
+					case DROP:
+						publisher.dropped.increment();
+						return;
+					case LATEST:
+						if (queue.size() > demand) {
+							release(queue.pollLast());
+							publisher.dropped.increment();
+						}
+						break;
+					case BUFFER:
+						if (queue.size() - demand >= publisher.bufferSize) {
+							error = new IllegalStateException("Buffer overflow, buffer size: " + publisher.bufferSize);
+						}
+						break;
+					case FAIL:
+						error = new IllegalStateException("Event posted without demand");
+						break;
+				}
+			}
+			if (error == null) {
+				if (event instanceof PooledEvent) ((PooledEvent) event).retain();
+				queue.addLast((E) event);
+			}
+		}
+		drain();
+	}
+
+	/**
+	 * Delivers queued events while there's demand, or signals the pending error.
+	 */
+	private void drain() {
+		synchronized (this) {
+			if (draining) return;
+			draining = true;
+		}
+		for (;;) {
+			E event;
+			Throwable error = null;
+			synchronized (this) {
+				if (cancelled) {
+					clear();
+					draining = false;
+					return;
+				}
+				if (this.error != null) {
+					error = this.error;
+					cancelled = true;
+					clear();
+					event = null;
+				} else if (demand > 0 && (event = queue.pollFirst()) != null) {
+					demand--;
+				} else {
+					draining = false;
+					return;
+				}
+			}
+
+			if (error != null) {
+				publisher.bus.unsubscribe(this);
+				signalError(error);
+				return;
+			}
+			try {
+				signalNext(event);
+			} catch (RuntimeException | Error e) {
+				synchronized (this) { draining = false; }
+				cancel();
+				throw e;
+			} finally {
+				release(event);
+			}
+		}
+	}
+
+	/**
+	 * Discards queued events.
+	 */
+	private void clear() {
+		E event;
+		while ((event = queue.pollFirst()) != null) release(event);
+	}
+
+	private static void release(Event event) {
+		if (event instanceof PooledEvent) ((PooledEvent) event).release();
+	}
+
+	/**
+	 * Signals the subscription to the subscriber.
+	 */
+	abstract void signalSubscribe();
+
+	/**
+	 * Signals an event to the subscriber.
+	 */
+	abstract void signalNext(E event);
+
+	/**
+	 * Signals an error to the subscriber. No signal follows.
+	 */
+	abstract void signalError(Throwable error);
+}
@@ -0,0 +1,155 @@
+package me.coley.event;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Parallel delivery of an event to the listeners of each priority band.
+ * <p>
+ * Listeners with the same {@linkplain Listener#priority() priority} form a band. The listeners of a band are
+ * invoked concurrently on a {@link ForkJoinPool}, one task per listener, and the posting thread invokes one of
+ * them itself while it waits. A band starts only after the previous band has completed, so changes made to
+ * the event by a band are visible to the next one.
+ * <p>
+ * If listeners of a band throw, the rest of the band still completes. The first exception is then rethrown with
+ * the others {@linkplain Throwable#addSuppressed(Throwable) suppressed}, and the following bands are skipped.
+ *
+ * @author Andy Li
+ * @see EventBus#setFanOutPool(Class, ForkJoinPool)
+ * @since 1.5
+ */
+final class FanOut {
+	private FanOut() {
+	}
+
+	/**
+	 * Delivers an event to the specified invokers, band by band.
+	 *
+	 * @param pool     the pool running the listeners
+	 * @param invokers invokers sorted by priority
+	 * @param event    event to deliver
+	 * @throws RuntimeException if a listener throws an exception
+	 */
+	static void deliver(ForkJoinPool pool, EventBus.InvokeWrapper[] invokers, Event event) throws RuntimeException {
+		for (int start = 0, end; start < invokers.length; start = end) {
+			int priority = invokers[start].method.priority;
+			end = start + 1;
+			while (end < invokers.length && invokers[end].method.priority == priority) end++;
+
+			if (end - start == 1 && invokers[start].listenerCount() <= 1) {
+				invokers[start].invoke(event);
+			} else {
+				new Band(invokers, start, end, event).run(pool);
+			}
+		}
+	}
+
+	/**
+	 * Listeners of one band.
+	 */
+	private static final class Band {
+		private final Event event;
+
+		/**
+		 * Receivers of the band, and the invoker of each of them.
+		 */
+		private final Object[] receivers;
+		private final EventBus.InvokeWrapper[] owners;
+		private int count;
+
+		/**
+		 * First exception thrown by a listener. Guarded by {@code this}.
+		 */
+		private Throwable error;
+
+		Band(EventBus.InvokeWrapper[] invokers, int start, int end, Event event) {
+			this.event = event;
+			int capacity = 0;
+			for (int i = start; i < end; i++) capacity += invokers[i].size();
+			this.receivers = new Object[capacity];
+			this.owners = new EventBus.InvokeWrapper[capacity];
+
+			// A single snapshot of each invoker, so that a concurrent compaction can't move a listener between tasks
+			for (int i = start; i < end; i++) invokers[i].forEachReceiver(event, this, Band::add);
+		}
+
+		private static Object add(EventBus.InvokeWrapper invoker, Object receiver, Event event, Band band) {
+			if (band.count == band.receivers.length) return band;  // subscribed concurrently
+			band.receivers[band.count] = receiver;
+			band.owners[band.count++] = invoker;
+			return null;
+		}
+
+		/**
+		 * Invokes all listeners of the band and waits for them.
+		 */
+		void run(ForkJoinPool pool) throws RuntimeException {
+			if (count == 0) return;
+			if (count == 1) {
+				owners[0].invoke(receivers[0], event);
+				return;
+			}
+
+			Slice rest = new Slice(this, 1, count);
+			if (ForkJoinTask.getPool() == pool) {
+				rest.fork();
+			} else {
+				pool.execute(rest);
+			}
+			invoke(0);
+			rest.join();
+
+			Throwable error;
+			synchronized (this) {
+				error = this.error;
+			}
+			if (error instanceof RuntimeException) throw (RuntimeException) error;
+			if (error instanceof Error) throw (Error) error;
+			if (error != null) throw new RuntimeException("Exception while invoking listener", error);
+		}
+
+		/**
+		 * Invokes the listener at the specified index, and records its exception.
+		 */
+		void invoke(int index) {
+			try {
+				owners[index].invoke(receivers[index], event);
+			} catch (Throwable e) {
+				synchronized (this) {
+					if (error == null) {
+						error = e;
+					} else if (error != e) {
+						error.addSuppressed(e);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Invokes a range of listeners of a band, splitting it until each task has one listener.
+	 */
+	@SuppressWarnings("serial")
+	private static final class Slice extends RecursiveAction {
+		private final Band band;
+		private final int from;
+		private final int to;
+
+		Slice(Band band, int from, int to) {
+			this.band = band;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from == 1) {
+				band.invoke(from);
+				return;
+			}
+			int mid = (from + to) >>> 1;
+			invokeAll(new Slice(band, from, mid), new Slice(band, mid, to));
+		}
+	}
+}
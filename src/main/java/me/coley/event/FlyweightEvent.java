@@ -0,0 +1,79 @@
+package me.coley.event;
+
+import java.nio.ByteBuffer;
+import java.util.Objects;
+
+/**
+ * Represents an event which is a flyweight over a fixed-layout record in a {@link ByteBuffer},
+ * usually a direct buffer filled by a binary feed.
+ * <p>
+ * A flyweight has no fields of its own. Its data is read from and written to the buffer through the
+ * {@linkplain FlyweightLayout.Field fields} of its {@linkplain FlyweightLayout layout}, and it can be
+ * {@linkplain #wrap(ByteBuffer, int) repositioned} to another record without allocation.
+ * Because of that, a flyweight is only valid during dispatch. Listeners must not keep it,
+ * and it must not be delivered to asynchronous listeners.
+ *
+ * @author Andy Li
+ * @see FlyweightLayout
+ * @see FlyweightPublisher
+ * @since 1.5
+ */
+public abstract class FlyweightEvent extends Event {
+	/**
+	 * Layout of the underlying record.
+	 */
+	private final FlyweightLayout layout;
+
+	/**
+	 * Buffer containing the underlying record, or {@code null} if not wrapped yet.
+	 */
+	private ByteBuffer buffer;
+
+	/**
+	 * Absolute offset of the underlying record in the {@link #buffer}.
+	 */
+	private int offset;
+
+	protected FlyweightEvent(FlyweightLayout layout) {
+		this.layout = Objects.requireNonNull(layout);
+	}
+
+	/**
+	 * Repositions this flyweight to the record at the specified absolute offset in the buffer.
+	 *
+	 * @param buffer the buffer
+	 * @param offset the absolute offset of the record
+	 * @return this flyweight
+	 * @throws IndexOutOfBoundsException if the record doesn't fit into the buffer's limit
+	 */
+	public final FlyweightEvent wrap(ByteBuffer buffer, int offset) throws IndexOutOfBoundsException {
+		if (offset < 0 || offset > buffer.limit() - layout.size()) {
+			throw new IndexOutOfBoundsException(String.format("Record [%d, %d) out of buffer limit %d",
+					offset, offset + layout.size(), buffer.limit()));
+		}
+		this.buffer = buffer;
+		this.offset = offset;
+		return this;
+	}
+
+	/**
+	 * @return layout of the underlying record
+	 */
+	public final FlyweightLayout layout() {
+		return layout;
+	}
+
+	/**
+	 * @return buffer containing the underlying record, or {@code null} if not wrapped yet
+	 */
+	public final ByteBuffer buffer() {
+		return buffer;
+	}
+
+	/**
+	 * @return absolute offset of the underlying record
+	 */
+	public final int offset() {
+		return offset;
+	}
+}
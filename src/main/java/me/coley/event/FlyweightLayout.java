@@ -0,0 +1,358 @@
+package me.coley.event;
+
+import java.util.*;
+
+/**
+ * Fixed layout of the record underlying a {@link FlyweightEvent}.
+ * <p>
+ * Fields are laid out in declaration order, each aligned to its own size. A layout is usually declared
+ * together with its fields as constants of the event class:
+ * <pre>{@code
+ * public class PriceEvent extends FlyweightEvent {
+ *     private static final FlyweightLayout.Builder BUILDER = FlyweightLayout.builder();
+ *     static final FlyweightLayout.IntField INSTRUMENT = BUILDER.int32("instrument");
+ *     static final FlyweightLayout.LongField PRICE = BUILDER.int64("price");
+ *     static final FlyweightLayout LAYOUT = BUILDER.build();
+ *
+ *     public PriceEvent() { super(LAYOUT); }
+ *
+ *     public int instrument() { return INSTRUMENT.get(this); }
+ *     public long price() { return PRICE.get(this); }
+ * }
+ * }</pre>
+ *
+ * @author Andy Li
+ * @since 1.5
+ */
+public final class FlyweightLayout {
+	private final List<Field> fields;
+	private final int size;
+
+	private FlyweightLayout(List<Field> fields, int size) {
+		this.fields = Collections.unmodifiableList(fields);
+		this.size = size;
+	}
+
+	/**
+	 * Creates a layout builder.
+	 *
+	 * @return a new builder
+	 */
+	public static Builder builder() {
+		return new Builder();
+	}
+
+	/**
+	 * @return size of a record in bytes, padded to the largest field alignment
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @return all fields in declaration order
+	 */
+	public List<Field> fields() {
+		return fields;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("FlyweightLayout{size=%d, fields=%s}", size, fields);
+	}
+
+	/**
+	 * Builder of {@link FlyweightLayout}.
+	 */
+	public static final class Builder {
+		private final List<Field> fields = new ArrayList<>();
+		private final Set<String> names = new HashSet<>();
+		private int size;
+		private int alignment = 1;
+		private boolean built;
+
+		private Builder() {}
+
+		/**
+		 * Adds an 8-bit integer field.
+		 */
+		public ByteField int8(String name) {
+			return add(new ByteField(name, allocate(name, Byte.BYTES)));
+		}
+
+		/**
+		 * Adds a 16-bit integer field.
+		 */
+		public ShortField int16(String name) {
+			return add(new ShortField(name, allocate(name, Short.BYTES)));
+		}
+
+		/**
+		 * Adds a 16-bit character field.
+		 */
+		public CharField char16(String name) {
+			return add(new CharField(name, allocate(name, Character.BYTES)));
+		}
+
+		/**
+		 * Adds a 32-bit integer field.
+		 */
+		public IntField int32(String name) {
+			return add(new IntField(name, allocate(name, Integer.BYTES)));
+		}
+
+		/**
+		 * Adds a 64-bit integer field.
+		 */
+		public LongField int64(String name) {
+			return add(new LongField(name, allocate(name, Long.BYTES)));
+		}
+
+		/**
+		 * Adds a 32-bit floating point field.
+		 */
+		public FloatField float32(String name) {
+			return add(new FloatField(name, allocate(name, Float.BYTES)));
+		}
+
+		/**
+		 * Adds a 64-bit floating point field.
+		 */
+		public DoubleField float64(String name) {
+			return add(new DoubleField(name, allocate(name, Double.BYTES)));
+		}
+
+		/**
+		 * Builds the layout. No fields can be added afterwards.
+		 *
+		 * @return the layout
+		 */
+		public FlyweightLayout build() {
+			built = true;
+			return new FlyweightLayout(new ArrayList<>(fields), align(size, alignment));
+		}
+
+		private int allocate(String name, int bytes) {
+			if (built) throw new IllegalStateException("Layout already built");
+			if (!names.add(Objects.requireNonNull(name))) throw new IllegalArgumentException("Duplicate field: " + name);
+			int offset = align(size, bytes);
+			size = offset + bytes;
+			alignment = Math.max(alignment, bytes);
+			return offset;
+		}
+
+		private <F extends Field> F add(F field) {
+			fields.add(field);
+			return field;
+		}
+
+		private static int align(int offset, int alignment) {
+			return (offset + alignment - 1) & -alignment;
+		}
+	}
+
+	/**
+	 * A fixed-offset field of a layout.
+	 */
+	public abstract static class Field {
+		final String name;
+		final int offset;
+
+		Field(String name, int offset) {
+			this.name = name;
+			this.offset = offset;
+		}
+
+		/**
+		 * @return name of this field
+		 */
+		public String name() {
+			return name;
+		}
+
+		/**
+		 * @return offset of this field relative to the start of the record
+		 */
+		public int offset() {
+			return offset;
+		}
+
+		/**
+		 * @return size of this field in bytes
+		 */
+		public abstract int size();
+
+		@Override
+		public String toString() {
+			return String.format("%s@%d", name, offset);
+		}
+	}
+
+	/**
+	 * An 8-bit integer field.
+	 */
+	public static final class ByteField extends Field {
+		ByteField(String name, int offset) { super(name, offset); }
+
+		/**
+		 * @return the value of this field in the record of the event
+		 */
+		public byte get(FlyweightEvent event) {
+			return event.buffer().get(event.offset() + offset);
+		}
+
+		/**
+		 * Sets the value of this field in the record of the event.
+		 */
+		public void set(FlyweightEvent event, byte value) {
+			event.buffer().put(event.offset() + offset, value);
+		}
+
+		@Override
+		public int size() { return Byte.BYTES; }
+	}
+
+	/**
+	 * A 16-bit integer field.
+	 */
+	public static final class ShortField extends Field {
+		ShortField(String name, int offset) { super(name, offset); }
+
+		/**
+		 * @return the value of this field in the record of the event
+		 */
+		public short get(FlyweightEvent event) {
+			return event.buffer().getShort(event.offset() + offset);
+		}
+
+		/**
+		 * Sets the value of this field in the record of the event.
+		 */
+		public void set(FlyweightEvent event, short value) {
+			event.buffer().putShort(event.offset() + offset, value);
+		}
+
+		@Override
+		public int size() { return Short.BYTES; }
+	}
+
+	/**
+	 * A 16-bit character field.
+	 */
+	public static final class CharField extends Field {
+		CharField(String name, int offset) { super(name, offset); }
+
+		/**
+		 * @return the value of this field in the record of the event
+		 */
+		public char get(FlyweightEvent event) {
+			return event.buffer().getChar(event.offset() + offset);
+		}
+
+		/**
+		 * Sets the value of this field in the record of the event.
+		 */
+		public void set(FlyweightEvent event, char value) {
+			event.buffer().putChar(event.offset() + offset, value);
+		}
+
+		@Override
+		public int size() { return Character.BYTES; }
+	}
+
+	/**
+	 * A 32-bit integer field.
+	 */
+	public static final class IntField extends Field {
+		IntField(String name, int offset) { super(name, offset); }
+
+		/**
+		 * @return the value of this field in the record of the event
+		 */
+		public int get(FlyweightEvent event) {
+			return event.buffer().getInt(event.offset() + offset);
+		}
+
+		/**
+		 * Sets the value of this field in the record of the event.
+		 */
+		public void set(FlyweightEvent event, int value) {
+			event.buffer().putInt(event.offset() + offset, value);
+		}
+
+		@Override
+		public int size() { return Integer.BYTES; }
+	}
+
+	/**
+	 * A 64-bit integer field.
+	 */
+	public static final class LongField extends Field {
+		LongField(String name, int offset) { super(name, offset); }
+
+		/**
+		 * @return the value of this field in the record of the event
+		 */
+		public long get(FlyweightEvent event) {
+			return event.buffer().getLong(event.offset() + offset);
+		}
+
+		/**
+		 * Sets the value of this field in the record of the event.
+		 */
+		public void set(FlyweightEvent event, long value) {
+			event.buffer().putLong(event.offset() + offset, value);
+		}
+
+		@Override
+		public int size() { return Long.BYTES; }
+	}
+
+	/**
+	 * A 32-bit floating point field.
+	 */
+	public static final class FloatField extends Field {
+		FloatField(String name, int offset) { super(name, offset); }
+
+		/**
+		 * @return the value of this field in the record of the event
+		 */
+		public float get(FlyweightEvent event) {
+			return event.buffer().getFloat(event.offset() + offset);
+		}
+
+		/**
+		 * Sets the value of this field in the record of the event.
+		 */
+		public void set(FlyweightEvent event, float value) {
+			event.buffer().putFloat(event.offset() + offset, value);
+		}
+
+		@Override
+		public int size() { return Float.BYTES; }
+	}
+
+	/**
+	 * A 64-bit floating point field.
+	 */
+	public static final class DoubleField extends Field {
+		DoubleField(String name, int offset) { super(name, offset); }
+
+		/**
+		 * @return the value of this field in the record of the event
+		 */
+		public double get(FlyweightEvent event) {
+			return event.buffer().getDouble(event.offset() + offset);
+		}
+
+		/**
+		 * Sets the value of this field in the record of the event.
+		 */
+		public void set(FlyweightEvent event, double value) {
+			event.buffer().putDouble(event.offset() + offset, value);
+		}
+
+		@Override
+		public int size() { return Double.BYTES; }
+	}
+}
@@ -0,0 +1,56 @@
+package me.coley.event;
+
+import java.nio.ByteBuffer;
+import java.util.Objects;
+import java.util.function.Supplier;
+
+/**
+ * Posts {@linkplain FlyweightEvent flyweight events} to an {@link EventBus} without allocation,
+ * by repositioning one flyweight per thread over each record.
+ *
+ * @param <E> the type of the flyweight events
+ * @author Andy Li
+ * @since 1.5
+ */
+public final class FlyweightPublisher<E extends FlyweightEvent> {
+	private final EventBus bus;
+	private final ThreadLocal<E> flyweights;
+
+	/**
+	 * @param bus     the bus to post to
+	 * @param factory creates the flyweight of each thread
+	 */
+	public FlyweightPublisher(EventBus bus, Supplier<? extends E> factory) {
+		this.bus = Objects.requireNonNull(bus);
+		Objects.requireNonNull(factory);
+		this.flyweights = ThreadLocal.withInitial(factory);
+	}
+
+	/**
+	 * Posts the record at the specified absolute offset in the buffer.
+	 *
+	 * @param buffer the buffer
+	 * @param offset the absolute offset of the record
+	 */
+	public void publish(ByteBuffer buffer, int offset) {
+		E flyweight = flyweights.get();
+		flyweight.wrap(buffer, offset);
+		bus.post(flyweight);
+	}
+
+	/**
+	 * Posts {@code count} consecutive records starting at the specified absolute offset in the buffer.
+	 *
+	 * @param buffer the buffer
+	 * @param offset the absolute offset of the first record
+	 * @param count  the number of records
+	 */
+	public void publishAll(ByteBuffer buffer, int offset, int count) {
+		E flyweight = flyweights.get();
+		int size = flyweight.layout().size();
+		for (int i = 0; i < count; i++, offset += size) {
+			flyweight.wrap(buffer, offset);
+			bus.post(flyweight);
+		}
+	}
+}
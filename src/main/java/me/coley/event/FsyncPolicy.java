@@ -0,0 +1,64 @@
+package me.coley.event;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * When a {@link Journal} forces written events to the storage device.
+ * <p>
+ * Events are written in batches of what has been posted since the previous batch, so that one force
+ * commits a whole group of events. Until they're forced, written events survive a crash of the JVM
+ * but not a crash of the operating system.
+ *
+ * @author Andy Li
+ * @see Journal
+ * @since 1.5
+ */
+public final class FsyncPolicy {
+	private static final FsyncPolicy NEVER = new FsyncPolicy(-1);
+	private static final FsyncPolicy EVERY_BATCH = new FsyncPolicy(0);
+
+	/**
+	 * Minimum interval between forces in nanoseconds, {@code 0} to force every batch, or negative to never force.
+	 */
+	final long intervalNanos;
+
+	private FsyncPolicy(long intervalNanos) {
+		this.intervalNanos = intervalNanos;
+	}
+
+	/**
+	 * @return a policy which leaves writing back to the operating system, except when the journal is
+	 * {@linkplain Journal#sync() synced} or closed
+	 */
+	public static FsyncPolicy never() {
+		return NEVER;
+	}
+
+	/**
+	 * @return a policy which forces every batch before writing the next one
+	 */
+	public static FsyncPolicy everyBatch() {
+		return EVERY_BATCH;
+	}
+
+	/**
+	 * Creates a policy which forces written events at most once per interval, and at the latest
+	 * an interval after they've been written.
+	 *
+	 * @param interval interval between forces
+	 * @param unit     time unit of {@code interval}
+	 * @return the policy
+	 * @throws IllegalArgumentException if {@code interval} is not positive
+	 */
+	public static FsyncPolicy interval(long interval, TimeUnit unit) throws IllegalArgumentException {
+		if (interval <= 0) throw new IllegalArgumentException("interval <= 0");
+		return new FsyncPolicy(unit.toNanos(interval));
+	}
+
+	@Override
+	public String toString() {
+		if (intervalNanos < 0) return "FsyncPolicy{never}";
+		if (intervalNanos == 0) return "FsyncPolicy{everyBatch}";
+		return "FsyncPolicy{interval=" + intervalNanos + "ns}";
+	}
+}
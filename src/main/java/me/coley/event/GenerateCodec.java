@@ -0,0 +1,42 @@
+package me.coley.event;
+
+import java.lang.annotation.*;
+
+/**
+ * Annotation for event classes whose {@link EventCodec} should be generated at compile time.
+ * <p>
+ * The {@linkplain me.coley.event.processor.CodecProcessor codec processor} generates a codec named
+ * {@code <EventClass>_Codec} in the package of the event class, for nested classes the names of the enclosing
+ * classes are joined by underscores. The processor isn't discovered on the class path, it must be enabled with
+ * {@code javac -processor me.coley.event.processor.CodecProcessor}, or the {@code annotationProcessors} of the
+ * Maven compiler plugin. Generated codecs are looked up with {@link GeneratedCodecs#of(Class)}.
+ * <p>
+ * All non-static and non-transient fields of the event class and its superclasses below {@link Event} are
+ * encoded, superclass fields first, and each field in its declaration order. Fields are read and written directly,
+ * so they must be neither {@code private} nor {@code final}. Supported field types are primitives,
+ * {@link String}s and enums. Non-abstract event classes need a no-arg constructor accessible from their package.
+ * <p>
+ * Encoding writes straight into the buffer without allocating. The encoded form begins with a schema id derived
+ * from the {@link #version()} and the field layout, which the decoder checks, so bytes written by a codec of a
+ * different layout are rejected instead of being decoded as garbage.
+ * <p>
+ * The annotation is inherited, so subclasses of an annotated event class get their own codecs, which reuse
+ * the generated code of their superclass for the inherited fields.
+ *
+ * @author Andy Li
+ * @see GeneratedCodecs
+ * @since 1.5
+ */
+@Documented
+@Inherited
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.CLASS)
+public @interface GenerateCodec {
+	/**
+	 * Schema version. Bump it to invalidate previously encoded events whose layout is unchanged, for example
+	 * when the meaning of a field changes.
+	 *
+	 * @return Schema version.
+	 */
+	int version() default 1;
+}
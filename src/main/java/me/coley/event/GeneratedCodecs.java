@@ -0,0 +1,162 @@
+package me.coley.event;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Lookup of the codecs generated for classes annotated with {@link GenerateCodec}, and the runtime support
+ * used by the generated code.
+ *
+ * @author Andy Li
+ * @see GenerateCodec
+ * @since 1.5
+ */
+public final class GeneratedCodecs {
+	/**
+	 * Suffix of the names of generated codec classes.
+	 */
+	public static final String SUFFIX = "_Codec";
+
+	private GeneratedCodecs() {
+	}
+
+	/**
+	 * Returns the name of the codec class generated for an event class.
+	 *
+	 * @param binaryName binary name of the event class
+	 * @return binary name of the codec class
+	 */
+	public static String codecName(String binaryName) {
+		int simple = binaryName.lastIndexOf('.') + 1;
+		return binaryName.substring(0, simple) + binaryName.substring(simple).replace('$', '_') + SUFFIX;
+	}
+
+	/**
+	 * Returns the codec generated for an event class.
+	 *
+	 * @param type the event class
+	 * @param <E>  the event type
+	 * @return the generated codec
+	 * @throws IllegalArgumentException if there's no generated codec for the class, or the class is abstract
+	 */
+	@SuppressWarnings("unchecked")
+	public static <E extends Event> EventCodec<E> of(Class<E> type) throws IllegalArgumentException {
+		Object codec;
+		try {
+			Class<?> codecClass = Class.forName(codecName(type.getName()), true, type.getClassLoader());
+			codec = codecClass.getField("INSTANCE").get(null);
+		} catch (ClassNotFoundException e) {
+			throw new IllegalArgumentException("No codec generated for " + type.getName() +
+					", is it annotated with @GenerateCodec?", e);
+		} catch (ReflectiveOperationException e) {
+			throw new IllegalArgumentException("No codec instance for " + type.getName(), e);
+		}
+		if (!(codec instanceof EventCodec)) throw new IllegalArgumentException("Not a codec: " + codec);
+		return (EventCodec<E>) codec;
+	}
+
+	/**
+	 * Checks the schema id read by a generated decoder.
+	 *
+	 * @param type     the event class
+	 * @param expected schema id of the decoder
+	 * @param actual   schema id read from the buffer
+	 * @throws IllegalArgumentException if the schema ids differ
+	 */
+	public static void checkSchema(Class<?> type, int expected, int actual) throws IllegalArgumentException {
+		if (expected != actual) {
+			throw new IllegalArgumentException(String.format("Incompatible schema of %s: expected %08x, found %08x",
+					type.getName(), expected, actual));
+		}
+	}
+
+	/**
+	 * Writes a string as its UTF-8 length followed by the UTF-8 bytes, without allocating.
+	 * Unpaired surrogates are written as {@code '?'}.
+	 *
+	 * @param buffer the buffer
+	 * @param value  the string, may be {@code null}
+	 */
+	public static void putString(ByteBuffer buffer, String value) {
+		if (value == null) {
+			buffer.putInt(-1);
+			return;
+		}
+		int length = value.length();
+		int utf8Length = 0;
+		for (int i = 0; i < length; i++) {
+			char c = value.charAt(i);
+			if (c < 0x80) {
+				utf8Length++;
+			} else if (c < 0x800) {
+				utf8Length += 2;
+			} else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1))) {
+				utf8Length += 4;
+				i++;
+			} else if (Character.isSurrogate(c)) {
+				utf8Length++;
+			} else {
+				utf8Length += 3;
+			}
+		}
+		buffer.putInt(utf8Length);
+		for (int i = 0; i < length; i++) {
+			char c = value.charAt(i);
+			if (c < 0x80) {
+				buffer.put((byte) c);
+			} else if (c < 0x800) {
+				buffer.put((byte) (0xC0 | c >> 6));
+				buffer.put((byte) (0x80 | c & 0x3F));
+			} else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1))) {
+				int codePoint = Character.toCodePoint(c, value.charAt(++i));
+				buffer.put((byte) (0xF0 | codePoint >> 18));
+				buffer.put((byte) (0x80 | codePoint >> 12 & 0x3F));
+				buffer.put((byte) (0x80 | codePoint >> 6 & 0x3F));
+				buffer.put((byte) (0x80 | codePoint & 0x3F));
+			} else if (Character.isSurrogate(c)) {
+				buffer.put((byte) '?');
+			} else {
+				buffer.put((byte) (0xE0 | c >> 12));
+				buffer.put((byte) (0x80 | c >> 6 & 0x3F));
+				buffer.put((byte) (0x80 | c & 0x3F));
+			}
+		}
+	}
+
+	/**
+	 * Reads a string written by {@link #putString(ByteBuffer, String)}.
+	 *
+	 * @param buffer the buffer
+	 * @return the string, may be {@code null}
+	 */
+	public static String getString(ByteBuffer buffer) {
+		int length = buffer.getInt();
+		if (length < 0) return null;
+		if (length > buffer.remaining()) throw new IllegalArgumentException("String length out of bounds: " + length);
+		String value;
+		if (buffer.hasArray()) {
+			value = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length, StandardCharsets.UTF_8);
+			buffer.position(buffer.position() + length);
+		} else {
+			byte[] bytes = new byte[length];
+			buffer.get(bytes);
+			value = new String(bytes, StandardCharsets.UTF_8);
+		}
+		return value;
+	}
+
+	/**
+	 * Reads an enum constant written as its ordinal, {@code -1} for {@code null}.
+	 *
+	 * @param buffer    the buffer
+	 * @param constants constants of the enum type
+	 * @param <T>       the enum type
+	 * @return the constant, may be {@code null}
+	 */
+	public static <T extends Enum<T>> T getEnum(ByteBuffer buffer, T[] constants) {
+		int ordinal = buffer.getInt();
+		if (ordinal < 0) return null;
+		if (ordinal >= constants.length) throw new IllegalArgumentException("Enum ordinal out of bounds: " + ordinal);
+		return constants[ordinal];
+	}
+}
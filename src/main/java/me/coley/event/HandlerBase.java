@@ -0,0 +1,45 @@
+package me.coley.event;
+
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+
+/**
+ * Base of {@link EventBus.Handler} holding its published invoker cache.
+ * <p>
+ * The cache is never {@code null}, an invalidated cache is replaced by a fresh {@linkplain EventBus.InvokerCache#stale
+ * stale marker}. A rebuilt cache is published by a compare-and-set against the marker it replaces, so that a cache
+ * computed before an invalidation can never overwrite it. Reads and invalidations only need acquire/release ordering.
+ * This version uses a volatile field, the Java 11 layer of the multi-release JAR replaces it
+ * with {@code VarHandle} accesses.
+ *
+ * @author Andy Li
+ * @since 1.5
+ */
+abstract class HandlerBase {
+	private static final AtomicReferenceFieldUpdater<HandlerBase, EventBus.InvokerCache> INVOKER_CACHE =
+			AtomicReferenceFieldUpdater.newUpdater(HandlerBase.class, EventBus.InvokerCache.class, "invokerCache");
+
+	private volatile EventBus.InvokerCache invokerCache = new EventBus.InvokerCache();
+
+	/**
+	 * @return the published invoker cache, which may be stale
+	 */
+	final EventBus.InvokerCache getInvokerCache() {
+		return invokerCache;
+	}
+
+	/**
+	 * Invalidates the invoker cache with a stale marker.
+	 */
+	final void setInvokerCache(EventBus.InvokerCache cache) {
+		this.invokerCache = cache;
+	}
+
+	/**
+	 * Publishes a rebuilt invoker cache if the cache is still {@code expected}.
+	 *
+	 * @return {@code true} if successful
+	 */
+	final boolean compareAndSetInvokerCache(EventBus.InvokerCache expected, EventBus.InvokerCache cache) {
+		return INVOKER_CACHE.compareAndSet(this, expected, cache);
+	}
+}
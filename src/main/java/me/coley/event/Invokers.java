@@ -0,0 +1,46 @@
+package me.coley.event;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Method;
+import java.util.function.BiConsumer;
+
+/**
+ * Creates the invokers of {@linkplain ListenerMethod listener methods}.
+ * <p>
+ * This version invokes the listener method through its {@link MethodHandle}. The Java 11 layer of
+ * the multi-release JAR spins a dedicated class per listener method instead, falling back to this.
+ *
+ * @author Andy Li
+ * @since 1.5
+ */
+final class Invokers {
+	/**
+	 * Creates an invoker of the listener method. Exceptions thrown by the listener method,
+	 * including checked ones, are propagated from {@link BiConsumer#accept(Object, Object) accept()} as is.
+	 *
+	 * @param method the listener method
+	 * @param handle method handle of the listener method, adapted to {@code (Object, Event)void}
+	 * @param lookup the {@linkplain MethodHandles.Lookup lookup object} used in method handle creation
+	 * @return the invoker
+	 */
+	static BiConsumer<Object, Event> create(Method method, MethodHandle handle, MethodHandles.Lookup lookup) {
+		return (listener, event) -> {
+			try {
+				handle.invokeExact(listener, event);
+			} catch (Throwable e) {
+				throw Invokers.<RuntimeException>sneakyThrow(e);
+			}
+		};
+	}
+
+	/**
+	 * Throws a checked exception without declaring it.
+	 */
+	@SuppressWarnings("unchecked")
+	static <T extends Throwable> T sneakyThrow(Throwable e) throws T {
+		throw (T) e;
+	}
+
+	private Invokers() {}
+}
@@ -0,0 +1,559 @@
+package me.coley.event;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.zip.CRC32;
+
+/**
+ * Durable journal of posted events, for auditing and crash recovery.
+ * <p>
+ * Events of the {@linkplain #register(Class, EventCodec) registered types} posted on a bus with this
+ * {@linkplain EventBus#setJournal(Journal) journal set} are appended to segmented memory-mapped files in the
+ * {@linkplain JournalFormat journal format}. Posting only enqueues the event, a dedicated writer thread encodes
+ * events in batches straight into the mapped segment, and forces them to the storage device according to the
+ * {@linkplain FsyncPolicy fsync policy}. A new segment is started when the current one is full, and when
+ * a journal is opened on a directory which already has segments. A sealed segment gets a sparse index beside it,
+ * which lets a {@link JournalReplayer} skip blocks of other event types or timestamps.
+ * <p>
+ * Events are encoded after they're posted, so they must not be modified after posting. {@linkplain PooledEvent
+ * Pooled events} are retained until they're encoded, {@linkplain FlyweightEvent flyweights} must not be journaled.
+ *
+ * @author Andy Li
+ * @see EventBus#setJournal(Journal)
+ * @since 1.5
+ */
+public final class Journal implements Closeable {
+	/**
+	 * Default segment size, 64 MiB.
+	 */
+	public static final int DEFAULT_SEGMENT_SIZE = 64 << 20;
+
+	/**
+	 * Maximum number of events written before a commit, so that the fsync policy applies under sustained load.
+	 */
+	private static final int MAX_BATCH_SIZE = 1024;
+
+	private static final int INDEX_BLOCK_ENTRY_SIZE = 32;
+
+	private final Path directory;
+	private final int segmentSize;
+	private final FsyncPolicy fsyncPolicy;
+
+	/**
+	 * Codecs of journaled types, by exact event class.
+	 */
+	private final Map<Class<?>, TypeCodec> codecs = new ConcurrentHashMap<>();
+
+	/**
+	 * Events and sync requests waiting for the writer.
+	 */
+	private final Queue<Object> queue = new ConcurrentLinkedQueue<>();
+
+	private final Thread writer;
+
+	/**
+	 * Whether the writer is parked with an empty queue.
+	 */
+	private volatile boolean idle;
+
+	private volatile boolean closed;
+
+	/**
+	 * The error which stopped the writer, or {@code null}.
+	 */
+	private volatile IOException failure;
+
+	private final LongAdder dropped = new LongAdder();
+
+	private volatile long writtenCount;
+
+	// Accessed by the writer only
+
+	private long segmentIndex;
+	private MappedByteBuffer segment;
+	private final BitSet definedTypes = new BitSet();
+
+	/**
+	 * Types defined in the current segment.
+	 */
+	private final List<TypeCodec> segmentTypes = new ArrayList<>();
+
+	/**
+	 * Index blocks of the current segment, in the {@linkplain JournalFormat index format}.
+	 */
+	private ByteBuffer indexBlocks = ByteBuffer.allocate(64 * INDEX_BLOCK_ENTRY_SIZE);
+
+	/**
+	 * Start offset of the current index block, or {@code -1} if there's no record in it yet.
+	 */
+	private int blockStart = -1;
+	private long blockMinTimestamp;
+	private long blockMaxTimestamp;
+	private long blockTypeMask;
+	private final CRC32 crc = new CRC32();
+
+	/**
+	 * Whether there are written events which haven't been forced.
+	 */
+	private boolean dirty;
+
+	private long lastForce = System.nanoTime();
+
+	/**
+	 * Opens a journal with {@value #DEFAULT_SEGMENT_SIZE}-byte segments, forced every batch.
+	 *
+	 * @param directory the journal directory, created if it doesn't exist
+	 * @throws IOException if the directory cannot be created or read
+	 */
+	public Journal(Path directory) throws IOException {
+		this(directory, DEFAULT_SEGMENT_SIZE, FsyncPolicy.everyBatch());
+	}
+
+	/**
+	 * Opens a journal.
+	 *
+	 * @param directory   the journal directory, created if it doesn't exist
+	 * @param segmentSize size of a segment file in bytes, which is the maximum size of an encoded event
+	 * @param fsyncPolicy when written events are forced to the storage device
+	 * @throws IllegalArgumentException if {@code segmentSize} is too small
+	 * @throws IOException              if the directory cannot be created or read
+	 */
+	public Journal(Path directory, int segmentSize, FsyncPolicy fsyncPolicy) throws IllegalArgumentException, IOException {
+		if (segmentSize < JournalFormat.SEGMENT_HEADER_SIZE + JournalFormat.RECORD_HEADER_SIZE * 2 + 256)
+			throw new IllegalArgumentException("segmentSize too small: " + segmentSize);
+		this.directory = Files.createDirectories(directory);
+		this.segmentSize = segmentSize;
+		this.fsyncPolicy = fsyncPolicy;
+		List<Long> segments = JournalFormat.listSegments(directory);
+		this.segmentIndex = segments.isEmpty() ? 0 : segments.get(segments.size() - 1) + 1;
+
+		this.writer = new Thread(this::run, "EventBus-journal-" + directory.getFileName());
+		writer.setDaemon(true);
+		writer.start();
+	}
+
+	/**
+	 * Journals events whose class is exactly the specified type.
+	 *
+	 * @param type  the event type
+	 * @param codec the codec of the event type
+	 * @param <E>   the event type
+	 * @throws IllegalStateException if the type has already been registered, or too many types are registered
+	 */
+	public synchronized <E extends Event> void register(Class<E> type, EventCodec<E> codec) throws IllegalStateException {
+		if (codecs.containsKey(type)) throw new IllegalStateException(type.getName() + " is already registered");
+		if (codecs.size() > Short.MAX_VALUE) throw new IllegalStateException("Too many types");
+		codecs.put(type, new TypeCodec(codecs.size(), type, codec));
+	}
+
+	/**
+	 * @param type the event type
+	 * @return {@code true} if events of exactly the specified type are journaled
+	 */
+	public boolean isJournaled(Class<? extends Event> type) {
+		return codecs.containsKey(type);
+	}
+
+	/**
+	 * @return the journal directory
+	 */
+	public Path getDirectory() {
+		return directory;
+	}
+
+	/**
+	 * @return number of events written
+	 */
+	public long getWrittenCount() {
+		return writtenCount;
+	}
+
+	/**
+	 * @return number of events which couldn't be written, because they were posted after the journal was closed
+	 * or failed, or their codec failed
+	 */
+	public long getDroppedCount() {
+		return dropped.sum();
+	}
+
+	/**
+	 * Sets the handler of the codec failures and oversized events which made the writer drop an event.
+	 * By default they're reported to the default uncaught exception handler.
+	 *
+	 * @param handler the handler, called on the writer thread
+	 * @see #getDroppedCount()
+	 */
+	public void setUncaughtExceptionHandler(Thread.UncaughtExceptionHandler handler) {
+		writer.setUncaughtExceptionHandler(handler);
+	}
+
+	/**
+	 * Enqueues an event for writing if its type is journaled.
+	 */
+	void append(Event event) {
+		TypeCodec codec = codecs.get(event.getClass());
+		if (codec == null) return;
+		if (closed || failure != null) {
+			dropped.increment();
+			return;
+		}
+		if (event instanceof PooledEvent) ((PooledEvent) event).retain();
+		queue.add(new Entry(event, codec, System.currentTimeMillis()));
+		if (idle) LockSupport.unpark(writer);
+	}
+
+	/**
+	 * Waits until all events posted before this call are written and forced to the storage device.
+	 *
+	 * @throws IOException if the journal failed, or the current thread is interrupted
+	 */
+	public void sync() throws IOException {
+		if (closed) {
+			checkFailure();
+			return;
+		}
+		SyncRequest request = new SyncRequest();
+		queue.add(request);
+		LockSupport.unpark(writer);
+		try {
+			while (!request.latch.await(100, TimeUnit.MILLISECONDS)) {
+				if (!writer.isAlive()) discardQueue();  // closed concurrently
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException();
+		}
+		checkFailure();
+	}
+
+	/**
+	 * Writes and forces all events posted before this call, and stops the writer.
+	 * Events posted afterwards are dropped.
+	 *
+	 * @throws IOException if the journal failed, or the current thread is interrupted
+	 */
+	@Override
+	public void close() throws IOException {
+		closed = true;
+		LockSupport.unpark(writer);
+		try {
+			writer.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException();
+		}
+		discardQueue();
+		checkFailure();
+	}
+
+	private void checkFailure() throws IOException {
+		IOException failure = this.failure;
+		if (failure != null) throw new IOException("Journal failed", failure);
+	}
+
+	private void run() {
+		try {
+			int batch = 0;
+			for (;;) {
+				// Read before polling, so that everything enqueued before closing is drained by the last poll
+				boolean closing = closed;
+				Object entry = queue.poll();
+				if (entry instanceof Entry) {
+					write((Entry) entry);
+					if (++batch == MAX_BATCH_SIZE) {
+						commit(false);
+						batch = 0;
+					}
+				} else if (entry != null) {
+					commit(true);
+					((SyncRequest) entry).latch.countDown();
+				} else {
+					commit(false);
+					batch = 0;
+					if (closing) break;
+					idle = true;
+					if (queue.isEmpty() && !closed) {
+						if (dirty && fsyncPolicy.intervalNanos > 0)
+							LockSupport.parkNanos(this, fsyncPolicy.intervalNanos - (System.nanoTime() - lastForce));
+						else LockSupport.park(this);
+					}
+					idle = false;
+				}
+			}
+			commit(true);
+			if (segment != null) sealIndex();
+		} catch (IOException | RuntimeException e) {
+			failure = e instanceof IOException ? (IOException) e : new IOException(e);
+			discardQueue();
+		} finally {
+			segment = null;
+		}
+	}
+
+	/**
+	 * Releases and drops all queued events, and completes all sync requests.
+	 */
+	private void discardQueue() {
+		Object entry;
+		while ((entry = queue.poll()) != null) {
+			if (entry instanceof Entry) {
+				release(((Entry) entry).event);
+				dropped.increment();
+			} else {
+				((SyncRequest) entry).latch.countDown();
+			}
+		}
+	}
+
+	/**
+	 * Forces written events according to the fsync policy.
+	 *
+	 * @param force force regardless of the policy
+	 */
+	private void commit(boolean force) {
+		if (!dirty) return;
+		long interval = fsyncPolicy.intervalNanos;
+		if (force || interval == 0 || interval > 0 && System.nanoTime() - lastForce >= interval) {
+			segment.force();
+			lastForce = System.nanoTime();
+			dirty = false;
+		}
+	}
+
+	private void write(Entry entry) throws IOException {
+		TypeCodec codec = entry.codec;
+		try {
+			for (boolean rolled = false; ; rolled = true) {
+				if (segment == null) roll();
+				int start = segment.position();
+				try {
+					if (!definedTypes.get(codec.id)) {
+						putRecord(JournalFormat.KIND_TYPE, codec, 0, null);
+						definedTypes.set(codec.id);
+						segmentTypes.add(codec);
+						start = segment.position();
+					}
+					putRecord(JournalFormat.KIND_EVENT, codec, entry.timestamp, entry.event);
+					writtenCount++;
+					return;
+				} catch (BufferOverflowException e) {
+					discard(start);
+					if (rolled) {
+						reportFailure(new IllegalArgumentException("Encoded event is larger than a segment: " + entry.event));
+						dropped.increment();
+						return;
+					}
+					roll();
+				} catch (RuntimeException e) {
+					discard(start);
+					reportFailure(e);
+					dropped.increment();
+					return;
+				}
+			}
+		} finally {
+			release(entry.event);
+		}
+	}
+
+	/**
+	 * Zeroes what a failed encoding wrote after {@code start}, so that it cannot be mistaken for a record,
+	 * and moves the position back to {@code start}.
+	 */
+	private void discard(int start) {
+		MappedByteBuffer segment = this.segment;
+		for (int i = start, end = segment.position(); i < end; i++) segment.put(i, (byte) 0);
+		segment.limit(segment.capacity()).position(start);
+	}
+
+	/**
+	 * Writes a record at the current position of the segment. The kind is written last.
+	 *
+	 * @param event the event to encode, or {@code null} to write the type name
+	 * @throws BufferOverflowException if the segment is full
+	 */
+	@SuppressWarnings("unchecked")
+	private void putRecord(byte kind, TypeCodec codec, long timestamp, Event event) {
+		MappedByteBuffer segment = this.segment;
+		int start = segment.position();
+		if (segment.remaining() < JournalFormat.RECORD_HEADER_SIZE) throw new BufferOverflowException();
+		int payloadStart = start + JournalFormat.RECORD_HEADER_SIZE;
+		segment.position(payloadStart);
+		if (event != null) ((EventCodec<Event>) codec.codec).encode(event, segment);
+		else segment.put(codec.name);
+		int end = segment.position();
+
+		ByteBuffer view = segment.duplicate();
+		view.limit(end).position(payloadStart);
+		crc.reset();
+		crc.update(view);
+		segment.putShort(start + JournalFormat.TYPE_ID_OFFSET, (short) codec.id)
+				.putInt(start + JournalFormat.LENGTH_OFFSET, end - payloadStart)
+				.putInt(start + JournalFormat.CRC_OFFSET, (int) crc.getValue())
+				.putLong(start + JournalFormat.TIMESTAMP_OFFSET, timestamp)
+				.put(start + JournalFormat.KIND_OFFSET, kind);
+		dirty = true;
+
+		if (blockStart < 0) {
+			blockStart = start;
+			blockMinTimestamp = Long.MAX_VALUE;
+			blockMaxTimestamp = Long.MIN_VALUE;
+			blockTypeMask = 0;
+		}
+		if (kind == JournalFormat.KIND_EVENT) {
+			blockMinTimestamp = Math.min(blockMinTimestamp, timestamp);
+			blockMaxTimestamp = Math.max(blockMaxTimestamp, timestamp);
+			blockTypeMask |= JournalFormat.typeMask(codec.id);
+		}
+		if (end - blockStart >= JournalFormat.INDEX_BLOCK_SIZE) closeBlock(end);
+	}
+
+	/**
+	 * Adds the current block to the index.
+	 *
+	 * @param end end offset of the block
+	 */
+	private void closeBlock(int end) {
+		if (indexBlocks.remaining() < INDEX_BLOCK_ENTRY_SIZE) {
+			ByteBuffer grown = ByteBuffer.allocate(indexBlocks.capacity() * 2);
+			indexBlocks.flip();
+			indexBlocks = grown.put(indexBlocks);
+		}
+		indexBlocks.putInt(blockStart).putInt(end)
+				.putLong(blockMinTimestamp).putLong(blockMaxTimestamp).putLong(blockTypeMask);
+		blockStart = -1;
+	}
+
+	/**
+	 * Writes the index of the current segment. The index is written to a temporary file and then moved,
+	 * so that readers never see a partial index.
+	 */
+	private void sealIndex() throws IOException {
+		int end = segment.position();
+		if (blockStart >= 0) closeBlock(end);
+		int blockCount = indexBlocks.position() / INDEX_BLOCK_ENTRY_SIZE;
+		if (blockCount > JournalFormat.MAX_INDEX_BLOCKS) return;  // too many blocks, readers will scan
+
+		int size = 16 + indexBlocks.position();
+		for (TypeCodec codec : segmentTypes) size += 4 + codec.name.length;
+		ByteBuffer index = ByteBuffer.allocate(size);
+		index.putInt(JournalFormat.INDEX_MAGIC).putInt(JournalFormat.VERSION).putInt(end)
+				.putShort((short) segmentTypes.size()).putShort((short) blockCount);
+		for (TypeCodec codec : segmentTypes) {
+			index.putShort((short) codec.id).putShort((short) codec.name.length).put(codec.name);
+		}
+		indexBlocks.flip();
+		index.put(indexBlocks);
+		indexBlocks.clear();
+		index.flip();
+
+		long segmentIndex = this.segmentIndex - 1;
+		Path path = JournalFormat.indexPath(directory, segmentIndex);
+		Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+		try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING)) {
+			while (index.hasRemaining()) channel.write(index);
+			if (fsyncPolicy.intervalNanos >= 0) channel.force(false);
+		}
+		Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	/**
+	 * Forces the current segment if needed, and starts the next one.
+	 */
+	private void roll() throws IOException {
+		if (segment != null) {
+			if (dirty) {
+				segment.force();
+				dirty = false;
+			}
+			sealIndex();
+		}
+		segment = null;
+		Path path = JournalFormat.segmentPath(directory, segmentIndex++);
+		MappedByteBuffer segment;
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW,
+				StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+			segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+		}
+		segment.putInt(JournalFormat.MAGIC).putInt(JournalFormat.VERSION).putLong(System.currentTimeMillis());
+		if (fsyncPolicy.intervalNanos >= 0) segment.force();
+		this.segment = segment;
+		definedTypes.clear();
+		segmentTypes.clear();
+		indexBlocks.clear();
+		blockStart = -1;
+	}
+
+	private void reportFailure(Throwable e) {
+		Thread thread = Thread.currentThread();
+		thread.getUncaughtExceptionHandler().uncaughtException(thread, e);
+	}
+
+	private static void release(Event event) {
+		if (event instanceof PooledEvent) ((PooledEvent) event).release();
+	}
+
+	@Override
+	public String toString() {
+		return "Journal{" + directory + "}";
+	}
+
+	/**
+	 * Codec of a journaled type.
+	 */
+	private static final class TypeCodec {
+		final int id;
+		final byte[] name;
+		final EventCodec<?> codec;
+
+		TypeCodec(int id, Class<?> type, EventCodec<?> codec) {
+			this.id = id;
+			this.name = type.getName().getBytes(StandardCharsets.UTF_8);
+			this.codec = codec;
+		}
+	}
+
+	/**
+	 * A posted event waiting for the writer.
+	 */
+	private static final class Entry {
+		final Event event;
+		final TypeCodec codec;
+		final long timestamp;
+
+		Entry(Event event, TypeCodec codec, long timestamp) {
+			this.event = event;
+			this.codec = codec;
+			this.timestamp = timestamp;
+		}
+	}
+
+	/**
+	 * A request to force all events written before it.
+	 */
+	private static final class SyncRequest {
+		final CountDownLatch latch = new CountDownLatch(1);
+	}
+}
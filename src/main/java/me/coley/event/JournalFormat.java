@@ -0,0 +1,121 @@
+package me.coley.event;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * On-disk format of {@link Journal} segments.
+ * <p>
+ * A journal is a directory of segment files named by their index, which are written one after another.
+ * A segment is a {@value #SEGMENT_HEADER_SIZE}-byte header followed by records, and is zero-filled after the
+ * last record. All values are big-endian.
+ * <pre>
+ * segment header: int magic, int version, long creation time (epoch millis)
+ * record:         byte kind, short type id, int payload length, int payload CRC32, long timestamp (epoch millis),
+ *                 payload
+ * </pre>
+ * A {@link #KIND_TYPE} record defines a type id for the rest of the segment, its payload is the UTF-8 class name.
+ * A {@link #KIND_EVENT} record is an event of a defined type, encoded by its {@linkplain EventCodec codec}.
+ * The kind is written last, so a record which hasn't been completely written reads as the end of the segment.
+ * <p>
+ * When a segment is sealed, a sparse index is written beside it. The index divides the records into blocks of about
+ * {@value #INDEX_BLOCK_SIZE} bytes, and describes each block by the range of its event timestamps and the types
+ * of its events, so that readers can skip blocks without reading them. The index also has all type definitions
+ * of the segment, since skipped blocks may contain them.
+ * <pre>
+ * index:      int magic, int version, int end of the last record, short type count, short block count,
+ *             type definitions, blocks
+ * type:       short type id, short name length, UTF-8 name
+ * block:      int start offset, int end offset, long min timestamp, long max timestamp, long type mask
+ * </pre>
+ * Bit {@code n} of a type mask is set if the block has an event of type id {@code n}, except that bit 63 stands
+ * for all type ids from 63 on. A segment without an index, such as the segment being written when the JVM crashed,
+ * must be scanned.
+ *
+ * @author Andy Li
+ * @since 1.5
+ */
+final class JournalFormat {
+	static final int MAGIC = 0x45564A4C;  // "EVJL"
+	static final int VERSION = 1;
+	static final int SEGMENT_HEADER_SIZE = 16;
+
+	static final int RECORD_HEADER_SIZE = 19;
+	static final int KIND_OFFSET = 0;
+	static final int TYPE_ID_OFFSET = 1;
+	static final int LENGTH_OFFSET = 3;
+	static final int CRC_OFFSET = 7;
+	static final int TIMESTAMP_OFFSET = 11;
+
+	static final byte KIND_END = 0;
+	static final byte KIND_TYPE = 1;
+	static final byte KIND_EVENT = 2;
+
+	static final String SEGMENT_SUFFIX = ".journal";
+
+	static final int INDEX_MAGIC = 0x45564A49;  // "EVJI"
+	static final String INDEX_SUFFIX = ".index";
+	static final int INDEX_BLOCK_SIZE = 64 << 10;
+
+	/**
+	 * Maximum number of blocks of an index.
+	 */
+	static final int MAX_INDEX_BLOCKS = 0xFFFF;
+
+	private JournalFormat() {
+	}
+
+	/**
+	 * @return path of the segment with the specified index
+	 */
+	static Path segmentPath(Path directory, long index) {
+		return directory.resolve(String.format("%020d%s", index, SEGMENT_SUFFIX));
+	}
+
+	/**
+	 * @return path of the index of the segment with the specified index
+	 */
+	static Path indexPath(Path directory, long index) {
+		return directory.resolve(String.format("%020d%s", index, INDEX_SUFFIX));
+	}
+
+	/**
+	 * @return the bit of the specified type id in a type mask
+	 */
+	static long typeMask(int typeId) {
+		return 1L << Math.min(typeId, 63);
+	}
+
+	/**
+	 * @return index of the segment, or {@code -1} if the path is not a segment
+	 */
+	static long segmentIndex(Path path) {
+		String name = path.getFileName().toString();
+		if (!name.endsWith(SEGMENT_SUFFIX)) return -1;
+		try {
+			return Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length()));
+		} catch (NumberFormatException e) {
+			return -1;
+		}
+	}
+
+	/**
+	 * @return indices of all segments in the directory, in ascending order
+	 */
+	static List<Long> listSegments(Path directory) throws IOException {
+		List<Long> result = new ArrayList<>();
+		try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + SEGMENT_SUFFIX)) {
+			for (Path path : stream) {
+				long index = segmentIndex(path);
+				if (index >= 0) result.add(index);
+			}
+		}
+		Collections.sort(result);
+		return result;
+	}
+}
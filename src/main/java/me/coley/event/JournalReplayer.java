@@ -0,0 +1,305 @@
+package me.coley.event;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * Replays the events of a {@link Journal} directory, for re-driving listeners after a restart.
+ * <p>
+ * Segments are memory-mapped and read in order. Each event payload is handed to its {@linkplain EventCodec codec}
+ * as a view of the mapped segment, so nothing is copied before decoding. Replays can be restricted to some event
+ * types and a timestamp range, and the sparse index beside each sealed segment is used to skip the blocks which
+ * have neither, so replaying a rare type doesn't read the whole journal. Segments without an index are scanned.
+ * <p>
+ * Only events of {@linkplain #register(Class, EventCodec) registered types} are replayed. A record whose checksum
+ * doesn't match is treated as the end of its segment, as it's usually an event torn by a crash. For the same reason,
+ * a segment whose header is missing or zero-filled is treated as empty.
+ *
+ * @author Andy Li
+ * @see Journal
+ * @since 1.5
+ */
+public final class JournalReplayer {
+	private static final int BLOCK_ENTRY_SIZE = 32;
+
+	private final Path directory;
+
+	/**
+	 * Codecs by class name.
+	 */
+	private final Map<String, EventCodec<?>> codecs = new HashMap<>();
+
+	private boolean verifyChecksums = true;
+
+	private long corruptSegments;
+
+	/**
+	 * Creates a replayer of a journal directory.
+	 *
+	 * @param directory the journal directory
+	 */
+	public JournalReplayer(Path directory) {
+		this.directory = directory;
+	}
+
+	/**
+	 * Replays events whose class is exactly the specified type.
+	 *
+	 * @param type  the event type
+	 * @param codec the codec of the event type
+	 * @param <E>   the event type
+	 * @throws IllegalStateException if the type has already been registered
+	 */
+	public <E extends Event> void register(Class<E> type, EventCodec<E> codec) throws IllegalStateException {
+		if (codecs.containsKey(type.getName())) throw new IllegalStateException(type.getName() + " is already registered");
+		codecs.put(type.getName(), codec);
+	}
+
+	/**
+	 * Sets whether the checksums of replayed events are verified. Verification is enabled by default.
+	 *
+	 * @param verifyChecksums {@code true} to verify checksums
+	 */
+	public void setVerifyChecksums(boolean verifyChecksums) {
+		this.verifyChecksums = verifyChecksums;
+	}
+
+	/**
+	 * @return number of segments whose replay stopped at a corrupt record or header
+	 */
+	public long getCorruptSegmentCount() {
+		return corruptSegments;
+	}
+
+	/**
+	 * Posts all journaled events of the registered types on a bus, in the order they were journaled.
+	 * Replayed events are not journaled again, even if the bus has a {@linkplain EventBus#setJournal journal}.
+	 *
+	 * @param bus the bus
+	 * @return number of replayed events
+	 * @throws IOException if the journal cannot be read
+	 */
+	public long replay(EventBus bus) throws IOException {
+		return replay(bus::postUnjournaled, Long.MIN_VALUE, Long.MAX_VALUE);
+	}
+
+	/**
+	 * Posts the journaled events of the specified types within a timestamp range on a bus, in the order
+	 * they were journaled. Replayed events are not journaled again.
+	 *
+	 * @param bus   the bus
+	 * @param from  minimum timestamp in epoch milliseconds, inclusive
+	 * @param to    maximum timestamp in epoch milliseconds, exclusive
+	 * @param types the event types, all registered types if empty
+	 * @return number of replayed events
+	 * @throws IOException if the journal cannot be read
+	 */
+	@SafeVarargs
+	public final long replay(EventBus bus, long from, long to, Class<? extends Event>... types) throws IOException {
+		return replay(bus::postUnjournaled, from, to, types);
+	}
+
+	/**
+	 * Hands the journaled events of the specified types within a timestamp range to a consumer, in the order
+	 * they were journaled.
+	 *
+	 * @param consumer the consumer
+	 * @param from     minimum timestamp in epoch milliseconds, inclusive
+	 * @param to       maximum timestamp in epoch milliseconds, exclusive
+	 * @param types    the event types, all registered types if empty
+	 * @return number of replayed events
+	 * @throws IOException if the journal cannot be read
+	 */
+	@SafeVarargs
+	public final long replay(Consumer<? super Event> consumer, long from, long to, Class<? extends Event>... types)
+			throws IOException {
+		Map<String, EventCodec<?>> selected;
+		if (types.length == 0) {
+			selected = codecs;
+		} else {
+			selected = new HashMap<>();
+			for (Class<? extends Event> type : types) {
+				EventCodec<?> codec = codecs.get(type.getName());
+				if (codec == null) throw new IllegalArgumentException(type.getName() + " is not registered");
+				selected.put(type.getName(), codec);
+			}
+		}
+
+		long count = 0;
+		for (long index : JournalFormat.listSegments(directory)) {
+			count += new SegmentReader(selected, from, to, consumer).read(index);
+		}
+		return count;
+	}
+
+	/**
+	 * Reads one segment.
+	 */
+	private final class SegmentReader {
+		private final Map<String, EventCodec<?>> selected;
+		private final long from;
+		private final long to;
+		private final Consumer<? super Event> consumer;
+
+		/**
+		 * Codecs of the selected types by type id, {@code null} for other types.
+		 */
+		private EventCodec<?>[] byId = new EventCodec<?>[16];
+
+		/**
+		 * Type mask of the selected types.
+		 */
+		private long mask;
+
+		private final CRC32 crc = new CRC32();
+		private long count;
+
+		SegmentReader(Map<String, EventCodec<?>> selected, long from, long to, Consumer<? super Event> consumer) {
+			this.selected = selected;
+			this.from = from;
+			this.to = to;
+			this.consumer = consumer;
+		}
+
+		long read(long index) throws IOException {
+			MappedByteBuffer segment;
+			try (FileChannel channel = FileChannel.open(JournalFormat.segmentPath(directory, index),
+					StandardOpenOption.READ)) {
+				segment = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			}
+			if (segment.limit() < JournalFormat.SEGMENT_HEADER_SIZE || segment.getInt(0) == 0) {
+				// Created just before a crash, its header has never reached the disk
+				corruptSegments++;
+				return 0;
+			}
+			if (segment.getInt(0) != JournalFormat.MAGIC)
+				throw new IOException("Not a journal segment: " + JournalFormat.segmentPath(directory, index));
+			if (segment.getInt(4) != JournalFormat.VERSION)
+				throw new IOException("Unsupported journal version: " + segment.getInt(4));
+
+			ByteBuffer blocks = readIndex(index);
+			if (blocks == null) {
+				scan(segment, JournalFormat.SEGMENT_HEADER_SIZE, segment.limit());
+			} else {
+				int blockCount = blocks.getShort(14) & 0xFFFF;
+				for (int i = 0; i < blockCount; i++) {
+					int start = blocks.getInt();
+					int end = blocks.getInt();
+					long minTimestamp = blocks.getLong();
+					long maxTimestamp = blocks.getLong();
+					long typeMask = blocks.getLong();
+					if ((typeMask & mask) != 0 && maxTimestamp >= from && minTimestamp < to) {
+						if (!scan(segment, start, end)) break;
+					}
+				}
+			}
+			return count;
+		}
+
+		/**
+		 * Reads the index of a segment, and defines the types in it.
+		 *
+		 * @return the index positioned at the first block, or {@code null} if there's no valid index
+		 */
+		private ByteBuffer readIndex(long index) throws IOException {
+			ByteBuffer buffer;
+			try {
+				buffer = ByteBuffer.wrap(Files.readAllBytes(JournalFormat.indexPath(directory, index)));
+			} catch (NoSuchFileException e) {
+				return null;
+			}
+			try {
+				if (buffer.getInt() != JournalFormat.INDEX_MAGIC || buffer.getInt() != JournalFormat.VERSION) return null;
+				buffer.getInt();  // end
+				int typeCount = buffer.getShort() & 0xFFFF;
+				buffer.getShort();  // block count
+				for (int i = 0; i < typeCount; i++) {
+					int id = buffer.getShort();
+					byte[] name = new byte[buffer.getShort() & 0xFFFF];
+					buffer.get(name);
+					define(id, name);
+				}
+				if (buffer.remaining() == (buffer.getShort(14) & 0xFFFF) * BLOCK_ENTRY_SIZE) return buffer;
+			} catch (BufferUnderflowException ignored) {
+			}
+			Arrays.fill(byId, null);
+			mask = 0;
+			return null;
+		}
+
+		private void define(int id, byte[] name) {
+			if (id >= byId.length) byId = Arrays.copyOf(byId, Math.max(id + 1, byId.length * 2));
+			EventCodec<?> codec = selected.get(new String(name, StandardCharsets.UTF_8));
+			byId[id] = codec;
+			if (codec != null) mask |= JournalFormat.typeMask(id);
+		}
+
+		/**
+		 * Reads the records between the specified offsets.
+		 *
+		 * @return {@code false} if the end of the segment has been reached
+		 */
+		private boolean scan(MappedByteBuffer segment, int start, int end) {
+			ByteBuffer payload = segment.duplicate();
+			int position = start;
+			while (position + JournalFormat.RECORD_HEADER_SIZE <= end) {
+				int record = position;
+				byte kind = segment.get(record + JournalFormat.KIND_OFFSET);
+				if (kind == JournalFormat.KIND_END) return false;
+				int typeId = segment.getShort(record + JournalFormat.TYPE_ID_OFFSET);
+				int length = segment.getInt(record + JournalFormat.LENGTH_OFFSET);
+				int payloadStart = record + JournalFormat.RECORD_HEADER_SIZE;
+				if (length < 0 || typeId < 0 || length > end - payloadStart) {
+					corruptSegments++;
+					return false;
+				}
+				payload.limit(payloadStart + length).position(payloadStart);
+				position = payloadStart + length;
+
+				if (kind == JournalFormat.KIND_TYPE) {
+					if (!verify(segment, payload, record)) return false;
+					byte[] name = new byte[length];
+					payload.get(name);
+					define(typeId, name);
+					continue;
+				}
+				EventCodec<?> codec = typeId < byId.length ? byId[typeId] : null;
+				if (codec == null) continue;
+				long timestamp = segment.getLong(record + JournalFormat.TIMESTAMP_OFFSET);
+				if (timestamp < from || timestamp >= to) continue;
+				if (!verify(segment, payload, record)) return false;
+				consumer.accept(codec.decode(payload));
+				count++;
+			}
+			return true;
+		}
+
+		/**
+		 * Verifies the checksum of the record at the specified offset, whose payload is the remaining bytes of
+		 * {@code payload}.
+		 */
+		private boolean verify(MappedByteBuffer segment, ByteBuffer payload, int record) {
+			if (!verifyChecksums) return true;
+			int position = payload.position();
+			crc.reset();
+			crc.update(payload);
+			payload.position(position);
+			if ((int) crc.getValue() == segment.getInt(record + JournalFormat.CRC_OFFSET)) return true;
+			corruptSegments++;
+			return false;
+		}
+	}
+}
@@ -0,0 +1,23 @@
+package me.coley.event;
+
+/**
+ * Implemented by events which belong to a specific entity, such as an account or an instrument.
+ * <p>
+ * A keyed event is only delivered to listeners without a key, and to listeners whose key
+ * {@linkplain Object#equals(Object) equals} the {@linkplain #key() key of the event}.
+ * Events which don't implement this interface are only delivered to listeners without a key.
+ *
+ * @author Andy Li
+ * @see Listener#key()
+ * @see EventBus#subscribeKeyed(Object, Object)
+ * @since 1.5
+ */
+public interface KeyedEvent {
+	/**
+	 * Returns the routing key of this event.
+	 * The key must implement {@link Object#equals(Object) equals()} and {@link Object#hashCode() hashCode()} properly.
+	 *
+	 * @return the routing key, or {@code null} if this event should only be delivered to listeners without a key
+	 */
+	Object key();
+}
@@ -18,4 +18,43 @@ public @interface Listener {
 	 * @return Priority of event receiving.
 	 */
 	int priority() default 0;
+
+	/**
+	 * Whether events should be delivered asynchronously with conflation.
+	 * <p>
+	 * Conflating listeners are called on the {@linkplain EventBus#setAsyncExecutor(java.util.concurrent.Executor)
+	 * async executor} of the bus. While the listener is behind, a pending {@link Conflatable} event is replaced
+	 * in place by a newer event with the same {@linkplain Conflatable#conflationKey() conflation key}.
+	 *
+	 * @return {@code true} if the listener is conflating
+	 * @since 1.5
+	 */
+	boolean conflate() default false;
+
+	/**
+	 * Routing key of the listener. An empty string means the listener has no key.
+	 * <p>
+	 * A listener with a key only receives {@link KeyedEvent}s whose {@linkplain KeyedEvent#key() key}
+	 * equals to it. Listeners without a key receive all events.
+	 *
+	 * @return Routing key of the listener.
+	 * @see EventBus#subscribeKeyed(Object, Object)
+	 * @since 1.5
+	 */
+	String key() default "";
+
+	/**
+	 * Name of the executor the listener is called on. An empty string means the listener is called on the
+	 * posting thread.
+	 * <p>
+	 * Events are handed to the executor {@linkplain EventBus#setTargetExecutor(String, java.util.concurrent.Executor)
+	 * registered under this name} on the bus, for listeners which must run on a specific thread, or must not run
+	 * on the posting thread. All listeners of a post with the same target are called by one task, in priority order.
+	 * A listener can't be both targeted and {@linkplain #conflate() conflating}.
+	 *
+	 * @return Name of the target executor.
+	 * @see EventBus#setTargetExecutor(String, java.util.concurrent.Executor)
+	 * @since 1.5
+	 */
+	String target() default "";
 }
\ No newline at end of file
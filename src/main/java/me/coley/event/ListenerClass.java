@@ -0,0 +1,100 @@
+package me.coley.event;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * All listener methods of a listener class, shared by all subscribed instances of that class.
+ *
+ * @author Andy Li
+ * @since 1.5
+ */
+final class ListenerClass {
+	private static final ListenerMethod[] EMPTY = new ListenerMethod[0];
+
+	/**
+	 * The listener class.
+	 */
+	final Class<?> type;
+
+	/**
+	 * The {@linkplain MethodHandles.Lookup lookup object} used in creation.
+	 */
+	final MethodHandles.Lookup lookup;
+
+	/**
+	 * All listener methods of the class.
+	 */
+	final ListenerMethod[] methods;
+
+	private ListenerClass(Class<?> type, MethodHandles.Lookup lookup, ListenerMethod[] methods) {
+		this.type = type;
+		this.lookup = lookup;
+		this.methods = methods;
+	}
+
+	/**
+	 * Finds all listener methods of the specified class.
+	 *
+	 * @param lookup the {@linkplain MethodHandles.Lookup Lookup object} used in method handle creation
+	 * @throws IllegalArgumentException if there's an invalid listener method in the class
+	 * @throws SecurityException        if a security manager denied access to the declared methods
+	 *                                  of the class, or the provided {@linkplain MethodHandles.Lookup lookup}
+	 *                                  cannot access one of the listener method found in the class
+	 */
+	static ListenerClass create(Class<?> type, MethodHandles.Lookup lookup) throws IllegalArgumentException, SecurityException {
+		List<ListenerMethod> methods = new ArrayList<>();
+		for (Method method : AccessHelper.getMethodsRecursively(type)) {
+			Listener annotation = AccessHelper.getAnnotationRecursively(method, Listener.class);
+			if (annotation != null) {
+				EventBus.checkListenerMethod(method, false);
+				methods.add(ListenerMethod.create(method, annotation, lookup));
+			}
+		}
+		return new ListenerClass(type, lookup, methods.toArray(EMPTY));
+	}
+
+	/**
+	 * Creates a listener class with a single listener method listening the specified event type,
+	 * for adapters whose event type is only known at runtime.
+	 *
+	 * @param method the listener method, accepting an {@link Event} parameter
+	 * @throws SecurityException if the provided {@linkplain MethodHandles.Lookup lookup}
+	 *                           cannot access the method
+	 */
+	static ListenerClass forEventType(Method method, Class<? extends Event> eventType, MethodHandles.Lookup lookup)
+			throws SecurityException {
+		return new ListenerClass(method.getDeclaringClass(), lookup,
+				new ListenerMethod[]{ ListenerMethod.create(method, eventType, lookup) });
+	}
+
+	/**
+	 * Checks if the specified {@linkplain MethodHandles.Lookup lookup object} has the same access
+	 * as the one used in creation.
+	 *
+	 * @return {@code true} if they have the same lookup class and lookup modes
+	 */
+	boolean hasSameAccess(MethodHandles.Lookup lookup) {
+		return this.lookup == lookup || (this.lookup.lookupClass() == lookup.lookupClass() &&
+				this.lookup.lookupModes() == lookup.lookupModes());
+	}
+
+	/**
+	 * Returns the index of the specified listener method in {@link #methods}.
+	 *
+	 * @return the index, or {@code -1} if not found
+	 */
+	int indexOf(ListenerMethod method) {
+		for (int i = 0; i < methods.length; i++) {
+			if (methods[i] == method) return i;
+		}
+		return -1;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("ListenerClass{%s}", type.getName());
+	}
+}
@@ -0,0 +1,160 @@
+package me.coley.event;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.util.function.BiConsumer;
+
+/**
+ * Listener method descriptor, shared by all listeners of the same class.
+ *
+ * @author Andy Li
+ * @since 1.5
+ */
+final class ListenerMethod {
+	/**
+	 * Type of the method handle behind {@link #invoker}.
+	 */
+	private static final MethodType INVOKE_TYPE = MethodType.methodType(void.class, Object.class, Event.class);
+
+	/**
+	 * Type of {@link #queryHandle}.
+	 */
+	private static final MethodType QUERY_TYPE = MethodType.methodType(Object.class, Object.class, Event.class);
+
+	/**
+	 * Listener method.
+	 */
+	final Method method;
+
+	/**
+	 * Event type which the listener method listens.
+	 */
+	final Class<? extends Event> eventType;
+
+	/**
+	 * Listener priority. Lower values are called first.
+	 */
+	final int priority;
+
+	/**
+	 * Declared routing key, or {@code null} if the method doesn't declare one.
+	 */
+	final Object key;
+
+	/**
+	 * Whether events are delivered asynchronously with conflation.
+	 */
+	final boolean conflate;
+
+	/**
+	 * Name of the {@linkplain Listener#target() target executor}, or {@code null} if the listener is called on
+	 * the posting thread.
+	 */
+	final String target;
+
+	/**
+	 * Invoker of the listener method, see {@link Invokers}.
+	 */
+	private final BiConsumer<Object, Event> invoker;
+
+	/**
+	 * {@link MethodHandle} for queries, adapted to {@code (Object, Event)Object}.
+	 * Returns {@code null} if the listener method is {@code void}.
+	 */
+	private final MethodHandle queryHandle;
+
+	private ListenerMethod(Method method, Class<? extends Event> eventType, int priority, Object key,
+	                       boolean conflate, String target, BiConsumer<Object, Event> invoker, MethodHandle queryHandle) {
+		this.method = method;
+		this.eventType = eventType;
+		this.priority = priority;
+		this.key = key;
+		this.conflate = conflate;
+		this.target = target;
+		this.invoker = invoker;
+		this.queryHandle = queryHandle;
+	}
+
+	/**
+	 * Constructs a ListenerMethod.
+	 *
+	 * @throws IllegalArgumentException if the listener is both conflating and targeted
+	 * @throws SecurityException        if the provided {@linkplain MethodHandles.Lookup lookup}
+	 *                                  cannot access the specified method
+	 */
+	@SuppressWarnings("unchecked")
+	static ListenerMethod create(Method method, Listener annotation, MethodHandles.Lookup lookup)
+			throws IllegalArgumentException, SecurityException {
+		Class<? extends Event> eventType = (Class<? extends Event>) method.getParameterTypes()[0];
+		String target = annotation.target().isEmpty() ? null : annotation.target();
+		if (target != null && annotation.conflate())
+			throw new IllegalArgumentException("Listener method can't be both conflating and targeted: " + method);
+		MethodHandle handle = AccessHelper.unreflectMethodHandle(lookup, method);
+		Object key = annotation.key().isEmpty() ? null : annotation.key();
+		return new ListenerMethod(method, eventType, annotation.priority(), key, annotation.conflate(), target,
+				Invokers.create(method, handle.asType(INVOKE_TYPE), lookup), handle.asType(QUERY_TYPE));
+	}
+
+	/**
+	 * Constructs a ListenerMethod listening the specified event type, for listeners whose event type is only
+	 * known at runtime. The method must accept an {@link Event} parameter.
+	 *
+	 * @throws SecurityException if the provided {@linkplain MethodHandles.Lookup lookup}
+	 *                           cannot access the specified method
+	 */
+	static ListenerMethod create(Method method, Class<? extends Event> eventType, MethodHandles.Lookup lookup)
+			throws SecurityException {
+		MethodHandle handle = AccessHelper.unreflectMethodHandle(lookup, method);
+		return new ListenerMethod(method, eventType, 0, null, false, null,
+				Invokers.create(method, handle.asType(INVOKE_TYPE), lookup), handle.asType(QUERY_TYPE));
+	}
+
+	/**
+	 * Invokes the listener method on the specified listener.
+	 *
+	 * @param listener listener instance
+	 * @param event    event to post
+	 * @throws RuntimeException if the underlying listener method throws an exception
+	 */
+	void invoke(Object listener, Event event) throws RuntimeException {
+		try {
+			invoker.accept(listener, event);
+		} catch (RuntimeException | Error e) {
+			throw e;
+		} catch (Throwable e) {
+			throw new RuntimeException("Exception while invoking listener", e);
+		}
+	}
+
+	/**
+	 * Invokes the listener method on the specified listener and returns its result.
+	 *
+	 * @param listener listener instance
+	 * @param event    event to post
+	 * @return the result of the listener method, or {@code null} if the method is {@code void}
+	 * @throws RuntimeException if the underlying listener method throws an exception
+	 */
+	Object query(Object listener, Event event) throws RuntimeException {
+		try {
+			return (Object) queryHandle.invokeExact(listener, event);
+		} catch (RuntimeException | Error e) {
+			throw e;
+		} catch (Throwable e) {
+			throw new RuntimeException("Exception while invoking listener", e);
+		}
+	}
+
+	/**
+	 * @return name of the listener method
+	 */
+	String name() {
+		return method.getName();
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%s.%s(%s)", method.getDeclaringClass().getName(), method.getName(), eventType.getSimpleName());
+	}
+}
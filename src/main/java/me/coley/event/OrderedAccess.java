@@ -0,0 +1,123 @@
+package me.coley.event;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+
+/**
+ * Ordered accesses to direct buffers shared with other processes, in native byte order.
+ * <p>
+ * Plain buffer accesses give no ordering guarantees, so a reader in another process could see a counter advanced
+ * before the data it publishes. This version uses {@code sun.misc.Unsafe} on the buffer address, the Java 11 layer
+ * of the multi-release JAR replaces it with {@code VarHandle} accesses. {@code Unsafe} is only accessed
+ * reflectively, through method handles bound to its instance, so compiling against it needs no internal API.
+ *
+ * @author Andy Li
+ * @since 1.5
+ */
+final class OrderedAccess {
+	private static final long ADDRESS_OFFSET;
+	private static final MethodHandle GET_LONG;
+	private static final MethodHandle GET_LONG_VOLATILE;
+	private static final MethodHandle PUT_ORDERED_LONG;
+	private static final MethodHandle GET_INT_VOLATILE;
+	private static final MethodHandle PUT_ORDERED_INT;
+	private static final MethodHandle STORE_FENCE;
+	private static final MethodHandle LOAD_FENCE;
+
+	static {
+		try {
+			Class<?> type = Class.forName("sun.misc.Unsafe");
+			Field field = type.getDeclaredField("theUnsafe");
+			field.setAccessible(true);
+			Object unsafe = field.get(null);
+			MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+			MethodType getLong = MethodType.methodType(long.class, Object.class, long.class);
+			MethodType getInt = MethodType.methodType(int.class, Object.class, long.class);
+			MethodType fence = MethodType.methodType(void.class);
+			GET_LONG = lookup.findVirtual(type, "getLong", getLong).bindTo(unsafe);
+			GET_LONG_VOLATILE = lookup.findVirtual(type, "getLongVolatile", getLong).bindTo(unsafe);
+			PUT_ORDERED_LONG = lookup.findVirtual(type, "putOrderedLong",
+					MethodType.methodType(void.class, Object.class, long.class, long.class)).bindTo(unsafe);
+			GET_INT_VOLATILE = lookup.findVirtual(type, "getIntVolatile", getInt).bindTo(unsafe);
+			PUT_ORDERED_INT = lookup.findVirtual(type, "putOrderedInt",
+					MethodType.methodType(void.class, Object.class, long.class, int.class)).bindTo(unsafe);
+			STORE_FENCE = lookup.findVirtual(type, "storeFence", fence).bindTo(unsafe);
+			LOAD_FENCE = lookup.findVirtual(type, "loadFence", fence).bindTo(unsafe);
+			ADDRESS_OFFSET = (long) lookup.findVirtual(type, "objectFieldOffset",
+					MethodType.methodType(long.class, Field.class)).invoke(unsafe, Buffer.class.getDeclaredField("address"));
+		} catch (Throwable e) {
+			throw new ExceptionInInitializerError(e);
+		}
+	}
+
+	private OrderedAccess() {
+	}
+
+	private static long address(ByteBuffer buffer, int index) {
+		if (!buffer.isDirect()) throw new IllegalArgumentException("Not a direct buffer");
+		if (index < 0 || index > buffer.capacity() - 8) throw new IndexOutOfBoundsException(String.valueOf(index));
+		try {
+			return (long) GET_LONG.invokeExact((Object) buffer, ADDRESS_OFFSET) + index;
+		} catch (Throwable e) {
+			throw Invokers.<RuntimeException>sneakyThrow(e);
+		}
+	}
+
+	static long getLongAcquire(ByteBuffer buffer, int index) {
+		try {
+			return (long) GET_LONG_VOLATILE.invokeExact((Object) null, address(buffer, index));
+		} catch (Throwable e) {
+			throw Invokers.<RuntimeException>sneakyThrow(e);
+		}
+	}
+
+	static void setLongRelease(ByteBuffer buffer, int index, long value) {
+		try {
+			PUT_ORDERED_LONG.invokeExact((Object) null, address(buffer, index), value);
+		} catch (Throwable e) {
+			throw Invokers.<RuntimeException>sneakyThrow(e);
+		}
+	}
+
+	static int getIntAcquire(ByteBuffer buffer, int index) {
+		try {
+			return (int) GET_INT_VOLATILE.invokeExact((Object) null, address(buffer, index));
+		} catch (Throwable e) {
+			throw Invokers.<RuntimeException>sneakyThrow(e);
+		}
+	}
+
+	static void setIntRelease(ByteBuffer buffer, int index, int value) {
+		try {
+			PUT_ORDERED_INT.invokeExact((Object) null, address(buffer, index), value);
+		} catch (Throwable e) {
+			throw Invokers.<RuntimeException>sneakyThrow(e);
+		}
+	}
+
+	/**
+	 * Orders earlier stores before later stores.
+	 */
+	static void storeFence() {
+		try {
+			STORE_FENCE.invokeExact();
+		} catch (Throwable e) {
+			throw Invokers.<RuntimeException>sneakyThrow(e);
+		}
+	}
+
+	/**
+	 * Orders earlier loads before later loads.
+	 */
+	static void loadFence() {
+		try {
+			LOAD_FENCE.invokeExact();
+		} catch (Throwable e) {
+			throw Invokers.<RuntimeException>sneakyThrow(e);
+		}
+	}
+}
@@ -0,0 +1,28 @@
+package me.coley.event;
+
+/**
+ * Determines what an {@link EventPublisher} does with events posted while its subscriber has no outstanding demand.
+ *
+ * @author Andy Li
+ * @see EventBus#publisher(Class, OverflowStrategy, int)
+ * @since 1.5
+ */
+public enum OverflowStrategy {
+	/**
+	 * Events are dropped while there's no demand.
+	 */
+	DROP,
+	/**
+	 * Only the latest event is kept while there's no demand, older events are dropped.
+	 */
+	LATEST,
+	/**
+	 * Events are buffered while there's no demand, up to the buffer size of the publisher.
+	 * The subscription is cancelled with an error when the buffer overflows.
+	 */
+	BUFFER,
+	/**
+	 * The subscription is cancelled with an error when an event arrives while there's no demand.
+	 */
+	FAIL
+}
@@ -0,0 +1,29 @@
+package me.coley.event;
+
+/**
+ * Determines what a bounded {@link TargetQueue} does with an event posted while it's full.
+ *
+ * @author Andy Li
+ * @see EventBus#setTargetExecutor(String, java.util.concurrent.Executor, int, OverloadPolicy)
+ * @since 1.5
+ */
+public enum OverloadPolicy {
+	/**
+	 * The posting thread waits until the queue has room, at most for the queue's
+	 * {@linkplain TargetQueue#setBlockTimeout block timeout}, after which the event is dropped for the target.
+	 * Posts made by the target's own listeners never wait, and may exceed the capacity instead.
+	 */
+	BLOCK,
+	/**
+	 * The posted event is dropped for the target.
+	 */
+	DROP_NEWEST,
+	/**
+	 * The oldest queued event is dropped to make room for the posted event.
+	 */
+	DROP_OLDEST,
+	/**
+	 * The targeted listeners are called on the posting thread, bypassing the queue and the executor.
+	 */
+	CALLER_RUNS
+}
@@ -0,0 +1,215 @@
+package me.coley.event;
+
+import java.io.Closeable;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Posts events on a bus from a fixed set of worker lanes, in parallel across keys and in order within a key.
+ * <p>
+ * Each lane is a bounded queue consumed by its own thread. An event goes to the lane chosen by the hash of its
+ * {@linkplain KeyedEvent#key() key}, so all events of a key are posted one after another by the same thread, in the
+ * order they were handed to {@link #post(Event)}. Events of different keys in different lanes are posted in parallel.
+ * Events without a key all go to the same lane, and keep their order too.
+ * <p>
+ * The queues are lock-free: producers claim a slot with a single compare-and-set, and the lane thread only parks
+ * after spinning on an empty queue for a while. {@link #post(Event)} waits while the lane of the event is full.
+ * <p>
+ * A lane posts with {@link EventBus#post(Event)}, so policies, tracing and journaling apply as usual, and the bus
+ * releases pooled events after dispatch. Exceptions thrown by listeners are reported to the uncaught exception handler
+ * of the lane thread, and the lane goes on with the next event.
+ *
+ * @author Andy Li
+ * @since 1.5
+ */
+public final class PartitionedDispatcher implements Closeable {
+	/**
+	 * Default capacity of each lane.
+	 */
+	public static final int DEFAULT_CAPACITY = 1 << 16;
+
+	/**
+	 * Number of empty polls before a lane thread parks.
+	 */
+	private static final int SPIN_POLLS = 1 << 10;
+
+	private final EventBus bus;
+	private final Lane[] lanes;
+
+	private volatile boolean closed;
+
+	/**
+	 * Creates a dispatcher with lanes of {@value #DEFAULT_CAPACITY} events, and starts the lane threads.
+	 *
+	 * @param bus   the bus to post events on
+	 * @param lanes number of lanes, usually the number of cores available for dispatch
+	 * @throws IllegalArgumentException if {@code lanes} is not positive
+	 */
+	public PartitionedDispatcher(EventBus bus, int lanes) throws IllegalArgumentException {
+		this(bus, lanes, DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Creates a dispatcher, and starts the lane threads.
+	 *
+	 * @param bus      the bus to post events on
+	 * @param lanes    number of lanes, usually the number of cores available for dispatch
+	 * @param capacity number of events each lane can hold, rounded up to a power of two
+	 * @throws IllegalArgumentException if {@code lanes} or {@code capacity} is not positive
+	 */
+	public PartitionedDispatcher(EventBus bus, int lanes, int capacity) throws IllegalArgumentException {
+		if (lanes <= 0) throw new IllegalArgumentException("lanes <= 0");
+		if (capacity <= 0) throw new IllegalArgumentException("capacity <= 0");
+		if (capacity > 1 << 30) throw new IllegalArgumentException("capacity too large: " + capacity);
+		this.bus = bus;
+		this.lanes = new Lane[lanes];
+		int size = capacity == 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+		for (int i = 0; i < lanes; i++) this.lanes[i] = new Lane(i, size);
+		for (Lane lane : this.lanes) lane.thread.start();
+	}
+
+	/**
+	 * Hands an event to the lane of its key, waiting while the lane is full.
+	 * <p>
+	 * If the event is a {@link PooledEvent}, the reference of the caller is released after dispatch.
+	 *
+	 * @param event event to post
+	 * @throws IllegalStateException if the dispatcher has been closed
+	 */
+	public void post(Event event) throws IllegalStateException {
+		if (closed) throw new IllegalStateException("Closed");
+		Object key = event instanceof KeyedEvent ? ((KeyedEvent) event).key() : null;
+		lanes[laneOf(key)].offer(event);
+	}
+
+	/**
+	 * Returns the lane which events with the specified key are posted from.
+	 *
+	 * @param key the key, may be {@code null}
+	 * @return index of the lane
+	 */
+	public int laneOf(Object key) {
+		if (key == null) return 0;
+		int h = key.hashCode();
+		h ^= h >>> 16;
+		return (int) (((h * 0x9E3779B9L) & 0xFFFFFFFFL) * lanes.length >>> 32);
+	}
+
+	/**
+	 * @return number of lanes
+	 */
+	public int getLaneCount() {
+		return lanes.length;
+	}
+
+	/**
+	 * @return number of events waiting in all lanes
+	 */
+	public long getPendingCount() {
+		long count = 0;
+		for (Lane lane : lanes) count += lane.tail.get() - lane.head;
+		return count;
+	}
+
+	/**
+	 * Stops accepting events, and waits until the lanes have posted all queued events.
+	 * Events posted concurrently with closing may be lost.
+	 */
+	@Override
+	public void close() {
+		closed = true;
+		for (Lane lane : lanes) LockSupport.unpark(lane.thread);
+		boolean interrupted = false;
+		for (Lane lane : lanes) {
+			if (lane.thread == Thread.currentThread()) continue;
+			for (;;) {
+				try {
+					lane.thread.join();
+					break;
+				} catch (InterruptedException e) {
+					interrupted = true;
+				}
+			}
+		}
+		if (interrupted) Thread.currentThread().interrupt();
+	}
+
+	/**
+	 * A bounded multi-producer, single-consumer queue and its consumer thread.
+	 * <p>
+	 * A producer claims the slot of sequence number {@code tail} by a compare-and-set, and then fills it with a
+	 * release store. The consumer waits for the slot at {@code head} to be filled, clears it, and advances
+	 * {@code head}, which makes the slot available to producers again.
+	 */
+	private final class Lane implements Runnable {
+		final Thread thread;
+		private final AtomicReferenceArray<Event> slots;
+		private final int mask;
+
+		/**
+		 * Sequence number of the next slot to claim.
+		 */
+		final AtomicLong tail = new AtomicLong();
+
+		/**
+		 * Sequence number of the next slot to consume, only written by the lane thread.
+		 */
+		volatile long head;
+
+		/**
+		 * Whether the lane thread is parked or about to park.
+		 */
+		private volatile boolean waiting;
+
+		Lane(int index, int capacity) {
+			this.slots = new AtomicReferenceArray<>(capacity);
+			this.mask = capacity - 1;
+			this.thread = new Thread(this, "EventBus-lane-" + index);
+			thread.setDaemon(true);
+		}
+
+		void offer(Event event) {
+			long seq;
+			for (int spins = 0; ; spins++) {
+				seq = tail.get();
+				if (seq - head > mask) {
+					// Full, wait for the lane thread
+					if (spins < SPIN_POLLS) Thread.yield();
+					else LockSupport.parkNanos(this, 1000);
+				} else if (tail.compareAndSet(seq, seq + 1)) {
+					break;
+				}
+			}
+			slots.lazySet((int) seq & mask, event);
+			if (waiting) LockSupport.unpark(thread);
+		}
+
+		@Override
+		public void run() {
+			int idle = 0;
+			for (;;) {
+				long head = this.head;
+				int index = (int) head & mask;
+				Event event = slots.get(index);
+				if (event == null) {
+					if (tail.get() != head) continue;  // Claimed but not filled yet
+					if (closed && tail.get() == head) return;
+					if (++idle < SPIN_POLLS) continue;
+					waiting = true;
+					if (tail.get() == head && !closed) LockSupport.park(this);
+					waiting = false;
+					continue;
+				}
+				idle = 0;
+				slots.lazySet(index, null);
+				this.head = head + 1;
+				try {
+					bus.post(event);
+				} catch (RuntimeException | Error e) {
+					thread.getUncaughtExceptionHandler().uncaughtException(thread, e);
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,124 @@
+package me.coley.event;
+
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
+/**
+ * Represents an event which can be recycled by an {@link EventPool}.
+ * <p>
+ * A pooled event is reference-counted. {@linkplain EventPool#acquire() Acquiring} an event from a pool gives the
+ * caller one reference, and {@linkplain EventBus#post(Event) posting} it hands that reference over to the bus,
+ * which releases it once synchronous dispatch has finished. Listeners which need the event after they return,
+ * such as asynchronous listeners, must {@link #retain()} it and {@link #release()} it when they're done.
+ * <p>
+ * Posting or {@linkplain #retain() retaining} an event which has already been recycled throws an
+ * {@link IllegalStateException}, which also has the place of recycling as its cause in {@linkplain
+ * EventPool#setDebug(boolean) debug mode}. Other uses after recycling, such as reading the event in a listener which
+ * kept it without retaining it, are only detected if the accessors check. Subclasses must reset all their state
+ * in {@link #reset()}, and should call {@link #ensureAccessible()} in their accessors.
+ * <p>
+ * Events which are not acquired from a pool are not reference-counted, {@code retain()} and
+ * {@code release()} have no effect on them.
+ *
+ * @author Andy Li
+ * @see EventPool
+ * @since 1.5
+ */
+public abstract class PooledEvent extends Event {
+	private static final AtomicIntegerFieldUpdater<PooledEvent> REFERENCE_COUNT_UPDATER =
+			AtomicIntegerFieldUpdater.newUpdater(PooledEvent.class, "referenceCount");
+
+	/**
+	 * Number of references to this event. The event is recycled when it drops to zero.
+	 */
+	private volatile int referenceCount;
+
+	/**
+	 * The pool this event was acquired from, or {@code null} if this event is not pooled.
+	 */
+	EventPool<?> pool;
+
+	/**
+	 * Where this event was recycled. Only recorded in {@linkplain EventPool#setDebug(boolean) debug mode}.
+	 */
+	Throwable recycledAt;
+
+	/**
+	 * Resets the state of this event before it's returned to the pool.
+	 */
+	protected abstract void reset();
+
+	/**
+	 * Increases the reference count by one.
+	 *
+	 * @return this event
+	 * @throws IllegalStateException if this event has already been recycled
+	 */
+	public final PooledEvent retain() throws IllegalStateException {
+		if (pool == null) return this;
+		for (;;) {
+			int count = referenceCount;
+			if (count <= 0) throw recycledException();
+			if (REFERENCE_COUNT_UPDATER.compareAndSet(this, count, count + 1)) return this;
+		}
+	}
+
+	/**
+	 * Decreases the reference count by one, and returns this event to its pool when it reaches zero.
+	 *
+	 * @return {@code true} if this event has been recycled
+	 * @throws IllegalStateException if this event has already been recycled
+	 */
+	public final boolean release() throws IllegalStateException {
+		if (pool == null) return false;
+		for (;;) {
+			int count = referenceCount;
+			if (count <= 0) throw recycledException();
+			if (REFERENCE_COUNT_UPDATER.compareAndSet(this, count, count - 1)) {
+				if (count != 1) return false;
+				pool.recycle(this);
+				return true;
+			}
+		}
+	}
+
+	/**
+	 * Returns the current reference count.
+	 *
+	 * @return the reference count, or {@code 0} if this event has been recycled
+	 */
+	public final int referenceCount() {
+		return referenceCount;
+	}
+
+	/**
+	 * Checks that this event has not been recycled.
+	 *
+	 * @throws IllegalStateException if this event has been recycled, which usually means someone kept
+	 *                               the event after dispatch without {@linkplain #retain() retaining} it
+	 */
+	protected final void ensureAccessible() throws IllegalStateException {
+		if (pool != null && referenceCount <= 0) throw recycledException();
+	}
+
+	/**
+	 * Checks that an event is not a recycled pooled event.
+	 *
+	 * @throws IllegalStateException if the event has been recycled
+	 */
+	static void checkNotRecycled(Event event) throws IllegalStateException {
+		if (event instanceof PooledEvent) ((PooledEvent) event).ensureAccessible();
+	}
+
+	/**
+	 * Called by the pool when this event is acquired.
+	 */
+	final void acquired(EventPool<?> pool) {
+		this.pool = pool;
+		this.recycledAt = null;
+		this.referenceCount = 1;
+	}
+
+	private IllegalStateException recycledException() {
+		return new IllegalStateException("Event has already been recycled: " + this, recycledAt);
+	}
+}
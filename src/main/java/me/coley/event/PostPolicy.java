@@ -0,0 +1,240 @@
+package me.coley.event;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Limits how often events of a type are delivered, for event types which come in storms
+ * such as UI refreshes or cache invalidations.
+ * <p>
+ * Policies are {@linkplain EventBus#setPostPolicy(Class, PostPolicy) set on a bus} per event type, and apply to
+ * {@linkplain EventBus#post(Event) posts} of events whose class is exactly that type. Suppressed events are dropped
+ * before they reach any listener, and counted in {@link #getSuppressedCount()}.
+ * <p>
+ * Policies are stateful, so an instance can only be used for one event type of one bus.
+ *
+ * @author Andy Li
+ * @see EventBus#setPostPolicy(Class, PostPolicy)
+ * @since 1.5
+ */
+public abstract class PostPolicy {
+	private final LongAdder suppressed = new LongAdder();
+
+	/**
+	 * The bus this policy is bound to, or {@code null} if it isn't bound yet.
+	 */
+	EventBus bus;
+
+	/**
+	 * The handler this policy is bound to.
+	 */
+	EventBus.Handler handler;
+
+	PostPolicy() {
+	}
+
+	/**
+	 * Creates a policy which delivers an event only after no event of the same type has been posted
+	 * for the specified quiet period. Only the last event of a burst is delivered, asynchronously on the
+	 * {@linkplain EventBus#setAsyncExecutor async executor}, and the events it replaced are suppressed.
+	 *
+	 * @param quietPeriod quiet period before delivering the last event
+	 * @param unit        time unit of {@code quietPeriod}
+	 * @return the policy
+	 * @throws IllegalArgumentException if {@code quietPeriod} is not positive
+	 */
+	public static PostPolicy debounce(long quietPeriod, TimeUnit unit) throws IllegalArgumentException {
+		if (quietPeriod <= 0) throw new IllegalArgumentException("quietPeriod <= 0");
+		return new Debounce(unit.toNanos(quietPeriod));
+	}
+
+	/**
+	 * Creates a policy which delivers at most one event per interval. The first event of an interval
+	 * is delivered immediately, and the others are suppressed.
+	 *
+	 * @param interval minimum interval between delivered events
+	 * @param unit     time unit of {@code interval}
+	 * @return the policy
+	 * @throws IllegalArgumentException if {@code interval} is not positive, or longer than about 146 years
+	 */
+	public static PostPolicy throttle(long interval, TimeUnit unit) throws IllegalArgumentException {
+		return tokenBucket(1, interval, unit);
+	}
+
+	/**
+	 * Creates a token bucket policy, which allows bursts of up to {@code capacity} events and a sustained rate of
+	 * one event per {@code refillInterval}. Each delivered event takes a token, and events are suppressed while
+	 * the bucket is empty. The bucket starts full.
+	 *
+	 * @param capacity       maximum number of tokens
+	 * @param refillInterval interval of adding one token to the bucket
+	 * @param unit           time unit of {@code refillInterval}
+	 * @return the policy
+	 * @throws IllegalArgumentException if {@code capacity} or {@code refillInterval} is not positive, or if refilling
+	 *                                  the whole bucket takes longer than {@link System#nanoTime()} can measure,
+	 *                                  about 292 years
+	 */
+	public static PostPolicy tokenBucket(int capacity, long refillInterval, TimeUnit unit)
+			throws IllegalArgumentException {
+		if (capacity <= 0) throw new IllegalArgumentException("capacity <= 0");
+		if (refillInterval <= 0) throw new IllegalArgumentException("refillInterval <= 0");
+		long interval = unit.toNanos(refillInterval);
+		try {
+			// Arrival times may run ahead of now by the burst and one more interval
+			Math.multiplyExact(capacity + 1L, interval);
+		} catch (ArithmeticException e) {
+			throw new IllegalArgumentException("capacity * refillInterval is too long");
+		}
+		return new TokenBucket(capacity, interval);
+	}
+
+	/**
+	 * @return the number of events suppressed by this policy
+	 */
+	public long getSuppressedCount() {
+		return suppressed.sum();
+	}
+
+	/**
+	 * Binds this policy to the handler of an event type.
+	 *
+	 * @throws IllegalStateException if this policy has already been bound
+	 */
+	void bind(EventBus bus, EventBus.Handler handler) throws IllegalStateException {
+		if (this.bus != null) throw new IllegalStateException("Policy is already in use");
+		this.bus = bus;
+		this.handler = handler;
+	}
+
+	/**
+	 * Decides whether a posted event should be delivered now. Events not admitted are either suppressed,
+	 * or taken over by the policy for later delivery.
+	 *
+	 * @param event the posted event
+	 * @return {@code true} if the event should be delivered now
+	 */
+	abstract boolean admit(Event event);
+
+	/**
+	 * Counts a suppressed event.
+	 */
+	final void suppressed() {
+		suppressed.increment();
+		bus.suppressedEvents.increment();
+	}
+
+	/**
+	 * Token bucket implemented as a generic cell rate algorithm, so that the state is a single timestamp.
+	 */
+	static final class TokenBucket extends PostPolicy {
+		private static final AtomicLongFieldUpdater<TokenBucket> ARRIVAL_TIME_UPDATER =
+				AtomicLongFieldUpdater.newUpdater(TokenBucket.class, "arrivalTime");
+
+		/**
+		 * Nanoseconds per token.
+		 */
+		private final long interval;
+
+		/**
+		 * Nanoseconds of tokens the bucket can hold.
+		 */
+		private final long burst;
+
+		/**
+		 * Theoretical arrival time of the next event in {@link System#nanoTime()}, which is the time
+		 * when the bucket will be full again. The bucket is full when it is in the past.
+		 */
+		private volatile long arrivalTime = System.nanoTime();
+
+		TokenBucket(int capacity, long interval) {
+			this.interval = interval;
+			this.burst = (long) capacity * interval;
+		}
+
+		@Override
+		boolean admit(Event event) {
+			for (;;) {
+				long now = System.nanoTime();
+				long arrivalTime = this.arrivalTime;
+				long next = (arrivalTime - now < 0 ? now : arrivalTime) + interval;
+				if (next - now > burst) {
+					suppressed();
+					return false;
+				}
+				if (ARRIVAL_TIME_UPDATER.compareAndSet(this, arrivalTime, next)) return true;
+			}
+		}
+	}
+
+	/**
+	 * Keeps the last posted event, and delivers it when the quiet period has elapsed since the last post.
+	 * At most one timeout is pending, it's rescheduled on expiry if newer events arrived in the meantime.
+	 */
+	static final class Debounce extends PostPolicy implements Runnable {
+		private final long quietPeriod;
+
+		/**
+		 * The event to deliver.
+		 */
+		private final AtomicReference<Event> pending = new AtomicReference<>();
+
+		/**
+		 * Time of the last post in {@link TimingWheel#nanoTime() wheel time}.
+		 */
+		private volatile long lastPost;
+
+		Debounce(long quietPeriod) {
+			this.quietPeriod = quietPeriod;
+		}
+
+		@Override
+		boolean admit(Event event) {
+			if (event instanceof PooledEvent) ((PooledEvent) event).retain();
+			TimingWheel wheel = TimingWheel.shared();
+			lastPost = wheel.nanoTime();
+			Event replaced = pending.getAndSet(event);
+			if (replaced == null) {
+				wheel.schedule(this, quietPeriod, TimeUnit.NANOSECONDS);
+			} else {
+				suppressed();
+				if (replaced instanceof PooledEvent) ((PooledEvent) replaced).release();
+			}
+			return false;
+		}
+
+		/**
+		 * Called by the timing wheel when the quiet period may have elapsed.
+		 */
+		@Override
+		public void run() {
+			TimingWheel wheel = TimingWheel.shared();
+			long deadline = lastPost + quietPeriod;
+			if (deadline - wheel.nanoTime() > 0) {
+				wheel.scheduleAt(this, deadline);
+				return;
+			}
+
+			Event event = pending.getAndSet(null);
+			if (event == null) return;
+			try {
+				bus.asyncExecutor.execute(() -> deliver(event));
+			} catch (RuntimeException | Error e) {
+				if (event instanceof PooledEvent) ((PooledEvent) event).release();
+				throw e;
+			}
+		}
+
+		private void deliver(Event event) {
+			try {
+				handler.deliver(event);
+			} catch (RuntimeException | Error e) {
+				Thread thread = Thread.currentThread();
+				thread.getUncaughtExceptionHandler().uncaughtException(thread, e);
+			} finally {
+				if (event instanceof PooledEvent) ((PooledEvent) event).release();
+			}
+		}
+	}
+}
@@ -0,0 +1,23 @@
+package me.coley.event;
+
+/**
+ * Handle of an event scheduled with {@link EventBus#postDelayed postDelayed()}
+ * or {@link EventBus#postAtFixedRate postAtFixedRate()}.
+ *
+ * @author Andy Li
+ * @since 1.5
+ */
+public interface ScheduledPost {
+	/**
+	 * Cancels the scheduled post. Cancellation never interrupts a dispatch in progress.
+	 *
+	 * @return {@code true} if the post was cancelled, {@code false} if the delayed event
+	 * has already been posted, or the post has already been cancelled
+	 */
+	boolean cancel();
+
+	/**
+	 * @return {@code true} if the post has been cancelled
+	 */
+	boolean isCancelled();
+}
@@ -0,0 +1,65 @@
+package me.coley.event;
+
+/**
+ * Layout of the ring buffer files shared by {@link SharedMemoryTransmitter} and {@link SharedMemoryReceiver}.
+ * <p>
+ * A ring file is a {@value #DATA_OFFSET}-byte header followed by the ring of records, whose capacity is a power
+ * of two. Positions in the ring are counted in bytes from its creation and never wrap, the offset of a position
+ * is the position modulo the capacity.
+ * <pre>
+ * header: int magic, int version, int capacity                      at 0, big-endian
+ *         long tail intent                                          at {@value #TAIL_INTENT_OFFSET}, native order
+ *         long tail                                                 at {@value #TAIL_OFFSET}, native order
+ *         int type count                                            at {@value #TYPE_COUNT_OFFSET}, native order
+ *         types: short name length, UTF-8 class name                from {@value #TYPE_TABLE_OFFSET}, big-endian
+ * record: int payload length, int type id, payload, zero padding to a multiple of {@value #ALIGNMENT} bytes
+ * </pre>
+ * The counters are on separate cache lines, and are written with release and read with acquire semantics.
+ * The transmitter first raises the tail intent to the end of the record it's going to write, then writes the record,
+ * and then raises the tail to publish it. A receiver reads records up to the tail, and discards what it read if the
+ * tail intent has since passed its position plus the capacity, because the record may have been overwritten.
+ * <p>
+ * A record never wraps around the end of the ring. If it doesn't fit, a {@link #PADDING_TYPE padding} record fills
+ * the rest of the ring, and the record is written at offset 0. A type id is the index of its class name in the type
+ * table, which only grows; the type count is raised after the name is written.
+ *
+ * @author Andy Li
+ * @since 1.5
+ */
+final class SharedMemoryFormat {
+	static final int MAGIC = 0x45565242;  // "EVRB"
+	static final int VERSION = 1;
+	static final int VERSION_OFFSET = 4;
+	static final int CAPACITY_OFFSET = 8;
+	static final int TAIL_INTENT_OFFSET = 64;
+	static final int TAIL_OFFSET = 128;
+	static final int TYPE_COUNT_OFFSET = 192;
+	static final int TYPE_TABLE_OFFSET = 196;
+	static final int DATA_OFFSET = 8192;
+
+	static final int RECORD_HEADER_SIZE = 8;
+	static final int LENGTH_OFFSET = 0;
+	static final int TYPE_ID_OFFSET = 4;
+	static final int PADDING_TYPE = -1;
+	static final int ALIGNMENT = 8;
+
+	static final int MIN_CAPACITY = 4096;
+	static final int MAX_CAPACITY = 1 << 30;
+
+	private SharedMemoryFormat() {
+	}
+
+	/**
+	 * @return length of a record with the specified payload length, including the header and padding
+	 */
+	static int recordLength(int payloadLength) {
+		return (RECORD_HEADER_SIZE + payloadLength + ALIGNMENT - 1) & -ALIGNMENT;
+	}
+
+	/**
+	 * @return the maximum payload length of a ring with the specified capacity
+	 */
+	static int maxPayloadLength(int capacity) {
+		return capacity / 8 - RECORD_HEADER_SIZE;
+	}
+}
@@ -0,0 +1,327 @@
+package me.coley.event;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import static me.coley.event.SharedMemoryFormat.*;
+
+/**
+ * Posts the events a {@link SharedMemoryTransmitter}, usually in another process, writes into a ring buffer file.
+ * <p>
+ * A receiver starts at the latest event of the ring, and reads events as they're written, without ever blocking
+ * the transmitter. Events of the {@linkplain #register(Class, EventCodec) registered types} are decoded straight
+ * from the mapped ring and posted on the bus, other types are skipped. Any number of receivers may read the same
+ * ring, each at its own pace.
+ * <p>
+ * Events are read by {@link #poll()}, either from an application thread, or from the thread {@linkplain #start()
+ * started} by the receiver. That thread spins while events keep arriving, which keeps the latency of a transmitted
+ * event in the order of microseconds, and backs off to yielding and then parking when the ring is idle.
+ * <p>
+ * A receiver which falls behind by more than the capacity of the ring skips to the latest event,
+ * and counts the {@linkplain #getLapCount() lap}. A receiver which reads a corrupt record also skips to the latest
+ * event, and counts the {@linkplain #getCorruptCount() corruption}.
+ *
+ * @author Andy Li
+ * @see SharedMemoryTransmitter
+ * @since 1.5
+ */
+public final class SharedMemoryReceiver implements Closeable {
+	/**
+	 * Number of empty polls before the receiver thread starts to yield.
+	 */
+	private static final int SPIN_POLLS = 10_000;
+
+	/**
+	 * Number of empty polls before the receiver thread starts to park.
+	 */
+	private static final int YIELD_POLLS = SPIN_POLLS + 100;
+
+	private static final long PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+
+	/**
+	 * Event being posted by a receiver on the current thread, which must not be transmitted back.
+	 */
+	private static final ThreadLocal<Event> RECEIVED = new ThreadLocal<>();
+
+	private final EventBus bus;
+	private final Path file;
+	private final MappedByteBuffer ring;
+	private final int capacity;
+
+	/**
+	 * View of the ring handed to codecs.
+	 */
+	private final ByteBuffer view;
+
+	/**
+	 * Codecs by class name.
+	 */
+	private final Map<String, EventCodec<?>> codecs = new ConcurrentHashMap<>();
+
+	/**
+	 * Incremented by registrations, so that the poller resolves the codecs again.
+	 */
+	private volatile int registrations;
+
+	/**
+	 * Class names of the type table read so far, by type id.
+	 * <p>
+	 * Guarded by {@code this}, as are the other fields of the poller.
+	 */
+	private String[] typeNames = new String[16];
+	private int typeCount;
+	private int typeTableEnd = TYPE_TABLE_OFFSET;
+
+	/**
+	 * Codecs by type id, {@code null} for types which are not registered.
+	 */
+	private EventCodec<?>[] byId = new EventCodec<?>[16];
+	private int resolvedRegistrations;
+
+	/**
+	 * Position of the next record to read.
+	 */
+	private long cursor;
+
+	private volatile long received;
+	private volatile long laps;
+	private volatile long corruptions;
+
+	private volatile boolean closed;
+	private Thread thread;
+
+	/**
+	 * Opens a ring buffer file created by a {@link SharedMemoryTransmitter}.
+	 *
+	 * @param bus  the bus to post received events on
+	 * @param file the ring buffer file
+	 * @throws IOException if the file cannot be mapped, or is not a ring buffer file
+	 */
+	public SharedMemoryReceiver(EventBus bus, Path file) throws IOException {
+		this.bus = bus;
+		this.file = file;
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			this.ring = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		}
+		if (ring.capacity() < DATA_OFFSET || ring.getInt(0) != MAGIC) throw new IOException("Not a ring buffer: " + file);
+		if (ring.getInt(VERSION_OFFSET) != VERSION) {
+			throw new IOException("Unsupported ring buffer version: " + ring.getInt(VERSION_OFFSET));
+		}
+		this.capacity = ring.getInt(CAPACITY_OFFSET);
+		if (ring.capacity() != DATA_OFFSET + capacity) throw new IOException("Truncated ring buffer: " + file);
+		this.view = ring.duplicate();
+		this.cursor = OrderedAccess.getLongAcquire(ring, TAIL_OFFSET);
+	}
+
+	/**
+	 * Returns whether an event is being posted by a receiver on the current thread.
+	 */
+	static boolean isReceived(Event event) {
+		return RECEIVED.get() == event;
+	}
+
+	/**
+	 * Receives events whose class is exactly the specified type.
+	 *
+	 * @param type  the event type
+	 * @param codec the codec of the event type
+	 * @param <E>   the event type
+	 * @throws IllegalStateException if the type has already been registered
+	 */
+	public <E extends Event> void register(Class<E> type, EventCodec<E> codec) throws IllegalStateException {
+		if (codecs.putIfAbsent(type.getName(), codec) != null) {
+			throw new IllegalStateException(type.getName() + " is already registered");
+		}
+		registrations++;
+	}
+
+	/**
+	 * Posts the events written since the last poll.
+	 *
+	 * @return number of posted events
+	 * @throws IllegalStateException if the ring is corrupt, the corrupt records are skipped
+	 * @throws RuntimeException      if a codec or a listener failed, the event is skipped
+	 */
+	public synchronized int poll() throws IllegalStateException {
+		int count = 0;
+		long tail = OrderedAccess.getLongAcquire(ring, TAIL_OFFSET);
+		while (cursor < tail) {
+			int offset = (int) cursor & (capacity - 1);
+			int position = DATA_OFFSET + offset;
+			int length = ring.getInt(position + LENGTH_OFFSET);
+			int typeId = ring.getInt(position + TYPE_ID_OFFSET);
+			int recordLength = typeId == PADDING_TYPE ? capacity - offset : recordLength(length);
+			boolean valid = length >= 0 && length <= capacity && recordLength <= capacity - offset;
+			boolean defined = typeId == PADDING_TYPE || isDefined(typeId);
+
+			Event event = null;
+			RuntimeException failure = null;
+			if (valid && defined && typeId != PADDING_TYPE) {
+				EventCodec<?> codec = byId[typeId];
+				if (codec != null) {
+					view.limit(position + RECORD_HEADER_SIZE + length).position(position + RECORD_HEADER_SIZE);
+					try {
+						event = codec.decode(view);
+					} catch (RuntimeException e) {
+						failure = e;
+					}
+				}
+			}
+
+			// Whatever was read is garbage if the transmitter has started to overwrite it
+			OrderedAccess.loadFence();
+			if (OrderedAccess.getLongAcquire(ring, TAIL_INTENT_OFFSET) - cursor > capacity) {
+				laps++;
+				cursor = tail = OrderedAccess.getLongAcquire(ring, TAIL_OFFSET);
+				continue;
+			}
+			if (!valid || !defined) {
+				long corrupt = cursor;
+				corruptions++;
+				cursor = OrderedAccess.getLongAcquire(ring, TAIL_OFFSET);
+				if (!valid) throw new IllegalStateException("Corrupt ring buffer at position " + corrupt + ": " + file);
+				throw new IllegalStateException("Undefined type id " + typeId + ": " + file);
+			}
+			cursor += recordLength;
+			if (failure != null) throw failure;
+			if (event != null) {
+				received++;
+				count++;
+				post(event);
+			}
+		}
+		return count;
+	}
+
+	private void post(Event event) {
+		RECEIVED.set(event);
+		try {
+			bus.post(event);
+		} finally {
+			RECEIVED.set(null);
+		}
+	}
+
+	/**
+	 * Returns whether a type id is in the type table, reading new types from the type table.
+	 * The codecs of defined type ids are in {@link #byId}.
+	 */
+	private boolean isDefined(int typeId) {
+		if (typeId < 0) return false;
+		if (typeId >= typeCount || resolvedRegistrations != registrations) readTypes();
+		return typeId < typeCount;
+	}
+
+	private void readTypes() {
+		int count = OrderedAccess.getIntAcquire(ring, TYPE_COUNT_OFFSET);
+		if (count > typeNames.length) {
+			typeNames = Arrays.copyOf(typeNames, Math.max(count, typeNames.length * 2));
+			byId = Arrays.copyOf(byId, typeNames.length);
+		}
+		for (; typeCount < count; typeCount++) {
+			byte[] name = new byte[ring.getShort(typeTableEnd) & 0xFFFF];
+			view.limit(view.capacity()).position(typeTableEnd + 2);
+			view.get(name);
+			typeNames[typeCount] = new String(name, StandardCharsets.UTF_8);
+			typeTableEnd += 2 + name.length;
+		}
+		resolvedRegistrations = registrations;
+		for (int i = 0; i < typeCount; i++) byId[i] = codecs.get(typeNames[i]);
+	}
+
+	/**
+	 * Starts a daemon thread polling the ring until the receiver is closed. Exceptions thrown by polls are
+	 * reported to the uncaught exception handler of the thread, and polling continues.
+	 *
+	 * @throws IllegalStateException if the receiver has already been started or closed
+	 */
+	public synchronized void start() throws IllegalStateException {
+		if (closed) throw new IllegalStateException("Closed");
+		if (thread != null) throw new IllegalStateException("Already started");
+		thread = new Thread(this::run, "EventBus-shm-" + file.getFileName());
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	private void run() {
+		int idle = 0;
+		while (!closed) {
+			int count;
+			try {
+				count = poll();
+			} catch (RuntimeException e) {
+				Thread thread = Thread.currentThread();
+				thread.getUncaughtExceptionHandler().uncaughtException(thread, e);
+				count = 0;
+			}
+			if (count > 0) {
+				idle = 0;
+			} else if (idle < SPIN_POLLS) {
+				idle++;
+			} else if (idle < YIELD_POLLS) {
+				idle++;
+				Thread.yield();
+			} else {
+				LockSupport.parkNanos(this, PARK_NANOS);
+			}
+		}
+	}
+
+	/**
+	 * @return the ring buffer file
+	 */
+	public Path getFile() {
+		return file;
+	}
+
+	/**
+	 * @return number of events posted
+	 */
+	public long getReceivedCount() {
+		return received;
+	}
+
+	/**
+	 * @return number of times this receiver fell behind by more than the capacity of the ring, and lost events
+	 */
+	public long getLapCount() {
+		return laps;
+	}
+
+	/**
+	 * @return number of corrupt records read, each of which made this receiver skip to the latest event
+	 */
+	public long getCorruptCount() {
+		return corruptions;
+	}
+
+	/**
+	 * Stops the receiver thread, and waits for it to finish the current poll.
+	 */
+	@Override
+	public void close() {
+		Thread thread;
+		synchronized (this) {
+			closed = true;
+			thread = this.thread;
+		}
+		if (thread == null || thread == Thread.currentThread()) return;
+		LockSupport.unpark(thread);
+		try {
+			thread.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
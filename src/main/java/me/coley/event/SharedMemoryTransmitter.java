@@ -0,0 +1,317 @@
+package me.coley.event;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Method;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static me.coley.event.SharedMemoryFormat.*;
+
+/**
+ * Publishes events posted on a bus into a memory-mapped ring buffer file, from which {@link SharedMemoryReceiver}s
+ * in other processes on the same host dispatch them to their own buses.
+ * <p>
+ * The file should be on a memory-backed file system such as {@code /dev/shm} on Linux, so that the ring is never
+ * written back to disk. Events of the {@linkplain #publish(Class, EventCodec) published types} are encoded by their
+ * {@linkplain EventCodec codecs} on the posting thread while the bus dispatches them, and are visible to receivers
+ * as soon as the post returns. The transmitter never waits for receivers: a receiver which falls behind by more
+ * than the capacity of the ring loses events, and {@linkplain SharedMemoryReceiver#getLapCount() counts} it.
+ * <p>
+ * A ring has only one transmitter. A transmitter reopens an existing ring of the same capacity and continues after
+ * its last event, so attached receivers survive a restart of the transmitting process. Otherwise the file is
+ * replaced, and receivers attached to the old file have to be reopened. Events posted by a receiver of the same
+ * bus are not transmitted again, so two processes can exchange a type through a pair of rings.
+ *
+ * @author Andy Li
+ * @see SharedMemoryReceiver
+ * @since 1.5
+ */
+public final class SharedMemoryTransmitter implements Closeable {
+	/**
+	 * The method receiving posted events.
+	 */
+	private static final Method ON_EVENT;
+
+	static {
+		try {
+			ON_EVENT = Outlet.class.getDeclaredMethod("onEvent", Event.class);
+		} catch (NoSuchMethodException e) {
+			throw new AssertionError(e);
+		}
+	}
+
+	private final EventBus bus;
+	private final Path file;
+	private final MappedByteBuffer ring;
+	private final int capacity;
+	private final int maxPayloadLength;
+
+	/**
+	 * Listeners of the published types, by exact event class.
+	 * <p>
+	 * Guarded by {@code this}.
+	 */
+	private final Map<Class<?>, Outlet> outlets = new HashMap<>();
+
+	/**
+	 * Class names of the type table, by type id.
+	 * <p>
+	 * Guarded by {@code this}.
+	 */
+	private final List<String> typeNames = new ArrayList<>();
+
+	/**
+	 * End offset of the type table in the header.
+	 * <p>
+	 * Guarded by {@code this}.
+	 */
+	private int typeTableEnd = TYPE_TABLE_OFFSET;
+
+	/**
+	 * Position after the last written record.
+	 * <p>
+	 * Guarded by {@code this}.
+	 */
+	private long tail;
+
+	/**
+	 * Buffer events are encoded into before they're copied into the ring, grown on demand.
+	 * <p>
+	 * Guarded by {@code this}.
+	 */
+	private ByteBuffer scratch = ByteBuffer.allocate(256);
+
+	/**
+	 * View of the ring for copying payloads.
+	 * <p>
+	 * Guarded by {@code this}.
+	 */
+	private final ByteBuffer view;
+
+	private volatile long transmitted;
+	private volatile long dropped;
+	private boolean closed;
+
+	/**
+	 * Opens or creates a ring buffer file.
+	 *
+	 * @param bus      the bus whose posted events are transmitted
+	 * @param file     the ring buffer file, preferably on a memory-backed file system
+	 * @param capacity capacity of the ring in bytes, a power of two between 4 KiB and 1 GiB. Events are transmitted
+	 *                 only if they're encoded into at most an eighth of it.
+	 * @throws IllegalArgumentException if the capacity is invalid
+	 * @throws IOException              if the file cannot be created or mapped
+	 */
+	public SharedMemoryTransmitter(EventBus bus, Path file, int capacity) throws IllegalArgumentException, IOException {
+		if (capacity < MIN_CAPACITY || capacity > MAX_CAPACITY || Integer.bitCount(capacity) != 1) {
+			throw new IllegalArgumentException("Invalid capacity: " + capacity);
+		}
+		this.bus = bus;
+		this.file = file;
+		this.capacity = capacity;
+		this.maxPayloadLength = maxPayloadLength(capacity);
+		this.ring = open(file, capacity);
+		this.view = ring.duplicate();
+		this.tail = OrderedAccess.getLongAcquire(ring, TAIL_OFFSET);
+
+		int typeCount = OrderedAccess.getIntAcquire(ring, TYPE_COUNT_OFFSET);
+		for (int i = 0; i < typeCount; i++) {
+			byte[] name = new byte[ring.getShort(typeTableEnd) & 0xFFFF];
+			view.position(typeTableEnd + 2);
+			view.get(name);
+			typeNames.add(new String(name, StandardCharsets.UTF_8));
+			typeTableEnd += 2 + name.length;
+		}
+	}
+
+	/**
+	 * Maps the ring buffer file, replacing it unless it's a ring of the specified capacity.
+	 */
+	private static MappedByteBuffer open(Path file, int capacity) throws IOException {
+		int size = DATA_OFFSET + capacity;
+		if (Files.exists(file) && Files.size(file) == size) {
+			MappedByteBuffer ring;
+			try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+				ring = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+			}
+			if (ring.getInt(0) == MAGIC && ring.getInt(VERSION_OFFSET) == VERSION &&
+					ring.getInt(CAPACITY_OFFSET) == capacity) {
+				return ring;
+			}
+		}
+
+		// Initialize a new file aside, so that receivers never see an incomplete header
+		Path directory = file.toAbsolutePath().getParent();
+		Path temp = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+		MappedByteBuffer ring;
+		try {
+			try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+				ring = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+			}
+			ring.putInt(VERSION_OFFSET, VERSION);
+			ring.putInt(CAPACITY_OFFSET, capacity);
+			ring.putInt(0, MAGIC);
+			Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException | RuntimeException e) {
+			Files.deleteIfExists(temp);
+			throw e;
+		}
+		return ring;
+	}
+
+	/**
+	 * Transmits posted events whose class is exactly the specified type.
+	 * <p>
+	 * The type keeps its type id in the ring even if the transmitter is restarted, so its receivers don't have to
+	 * register it again.
+	 *
+	 * @param type  the event type
+	 * @param codec the codec of the event type
+	 * @param <E>   the event type
+	 * @throws IllegalStateException if the type has already been published, the type table of the ring is full,
+	 *                               or the transmitter has been closed
+	 */
+	@SuppressWarnings("unchecked")
+	public synchronized <E extends Event> void publish(Class<E> type, EventCodec<E> codec) throws IllegalStateException {
+		if (closed) throw new IllegalStateException("Closed");
+		if (outlets.containsKey(type)) throw new IllegalStateException(type.getName() + " is already published");
+		int typeId = typeNames.indexOf(type.getName());
+		if (typeId < 0) {
+			byte[] name = type.getName().getBytes(StandardCharsets.UTF_8);
+			if (typeTableEnd + 2 + name.length > DATA_OFFSET) throw new IllegalStateException("Type table is full");
+			ring.putShort(typeTableEnd, (short) name.length);
+			view.position(typeTableEnd + 2);
+			view.put(name);
+			typeTableEnd += 2 + name.length;
+			typeId = typeNames.size();
+			typeNames.add(type.getName());
+			OrderedAccess.setIntRelease(ring, TYPE_COUNT_OFFSET, typeNames.size());
+		}
+		Outlet outlet = new Outlet(type, typeId, (EventCodec<Event>) codec);
+		bus.register(outlet, null, ListenerClass.forEventType(ON_EVENT, type, MethodHandles.lookup()));
+		outlets.put(type, outlet);
+	}
+
+	/**
+	 * Writes an event into the ring.
+	 */
+	synchronized void transmit(Outlet outlet, Event event) {
+		if (closed) return;
+		ByteBuffer scratch = this.scratch;
+		scratch.clear();
+		for (;;) {
+			try {
+				outlet.codec.encode(event, scratch);
+				break;
+			} catch (BufferOverflowException e) {
+				if (scratch.capacity() >= maxPayloadLength) {
+					dropped++;
+					return;
+				}
+				scratch = this.scratch = ByteBuffer.allocate(Math.min(scratch.capacity() * 2, maxPayloadLength));
+			}
+		}
+
+		int length = scratch.position();
+		int recordLength = recordLength(length);
+		long tail = this.tail;
+		int offset = (int) tail & (capacity - 1);
+		int padding = capacity - offset < recordLength ? capacity - offset : 0;
+		long newTail = tail + padding + recordLength;
+
+		OrderedAccess.setLongRelease(ring, TAIL_INTENT_OFFSET, newTail);
+		OrderedAccess.storeFence();
+		if (padding != 0) {
+			ring.putInt(DATA_OFFSET + offset + LENGTH_OFFSET, padding - RECORD_HEADER_SIZE);
+			ring.putInt(DATA_OFFSET + offset + TYPE_ID_OFFSET, PADDING_TYPE);
+			offset = 0;
+		}
+		int position = DATA_OFFSET + offset;
+		ring.putInt(position + LENGTH_OFFSET, length);
+		ring.putInt(position + TYPE_ID_OFFSET, outlet.typeId);
+		scratch.flip();
+		view.limit(position + recordLength).position(position + RECORD_HEADER_SIZE);
+		view.put(scratch);
+		while (view.hasRemaining()) view.put((byte) 0);
+		view.limit(view.capacity());
+
+		this.tail = newTail;
+		OrderedAccess.setLongRelease(ring, TAIL_OFFSET, newTail);
+		transmitted++;
+	}
+
+	/**
+	 * @return the ring buffer file
+	 */
+	public Path getFile() {
+		return file;
+	}
+
+	/**
+	 * @return capacity of the ring in bytes
+	 */
+	public int getCapacity() {
+		return capacity;
+	}
+
+	/**
+	 * @return number of events written into the ring
+	 */
+	public long getTransmittedCount() {
+		return transmitted;
+	}
+
+	/**
+	 * @return number of events dropped because their encoded size exceeds an eighth of the capacity
+	 */
+	public long getDroppedCount() {
+		return dropped;
+	}
+
+	/**
+	 * Stops transmitting events. The file is left for the receivers.
+	 */
+	@Override
+	public void close() {
+		synchronized (this) {
+			if (closed) return;
+			closed = true;
+		}
+		for (Outlet outlet : outlets.values()) bus.unsubscribe(outlet);
+	}
+
+	/**
+	 * Listener of a published type.
+	 */
+	final class Outlet {
+		final Class<?> type;
+		final int typeId;
+		final EventCodec<Event> codec;
+
+		Outlet(Class<?> type, int typeId, EventCodec<Event> codec) {
+			this.type = type;
+			this.typeId = typeId;
+			this.codec = codec;
+		}
+
+		/**
+		 * Called by the bus when an event is posted.
+		 */
+		void onEvent(Event event) {
+			if (event.getClass() == type && !SharedMemoryReceiver.isReceived(event)) transmit(this, event);
+		}
+	}
+}
@@ -0,0 +1,713 @@
+package me.coley.event;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Method;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Forwards events between buses in different processes or on different hosts over TCP.
+ * <p>
+ * Events of the {@linkplain #register(Class, EventCodec) registered types} posted on the bus are encoded by their
+ * {@linkplain EventCodec codecs} on the posting thread, and buffered for each connected peer. Frames are written by
+ * a single non-blocking I/O thread, which writes everything buffered since its last write at once, so that bursts
+ * of events are batched into few writes. Received events of the registered types are posted on the bus by the I/O
+ * thread, and are not forwarded back. Listeners of forwarded types should thus hand slow work off to other threads.
+ * <p>
+ * A bridge may {@linkplain #listen(InetSocketAddress) accept} connections and {@linkplain #connect(InetSocketAddress)
+ * connect} to other bridges at the same time, every connection forwards events in both directions. Outgoing
+ * connections are re-established automatically with an exponential backoff. The outbound buffer of each peer is
+ * bounded: events posted while it's full, for example while a peer is unreachable, are dropped and counted.
+ * <p>
+ * The wire format is a stream of length-prefixed frames, all values big-endian:
+ * <pre>
+ * frame: int length of the rest, byte kind, short type id, payload
+ * </pre>
+ * A type frame defines a type id for the rest of the connection, its payload is the UTF-8 class name. An event frame
+ * is an event of a defined type, encoded by its codec.
+ *
+ * @author Andy Li
+ * @since 1.5
+ */
+public final class SocketBridge implements Closeable {
+	/**
+	 * Default size of the outbound and inbound buffers of each peer, which is also the maximum frame size.
+	 */
+	public static final int DEFAULT_BUFFER_SIZE = 1 << 20;
+
+	private static final int FRAME_HEADER_SIZE = 7;
+	private static final int KIND_OFFSET = 4;
+	private static final int TYPE_ID_OFFSET = 5;
+	private static final byte KIND_TYPE = 1;
+	private static final byte KIND_EVENT = 2;
+
+	private static final long MIN_RECONNECT_DELAY = TimeUnit.MILLISECONDS.toNanos(50);
+	private static final long MAX_RECONNECT_DELAY = TimeUnit.SECONDS.toNanos(5);
+
+	/**
+	 * The method receiving posted events.
+	 */
+	private static final Method ON_EVENT;
+
+	static {
+		try {
+			ON_EVENT = Outlet.class.getDeclaredMethod("onEvent", Event.class);
+		} catch (NoSuchMethodException e) {
+			throw new AssertionError(e);
+		}
+	}
+
+	/**
+	 * Event being posted by a bridge on the current thread, which must not be forwarded back.
+	 */
+	private static final ThreadLocal<Event> RECEIVED = new ThreadLocal<>();
+
+	private final EventBus bus;
+	private final int bufferSize;
+	private final Selector selector;
+	private final Thread thread;
+
+	/**
+	 * Listeners of the registered types, by exact event class.
+	 * <p>
+	 * Guarded by {@code this}.
+	 */
+	private final Map<Class<?>, Outlet> outlets = new HashMap<>();
+
+	/**
+	 * UTF-8 class names of the registered types, by type id. Copied on write.
+	 */
+	private volatile byte[][] typeNames = new byte[0][];
+
+	/**
+	 * Codecs by class name.
+	 */
+	private final Map<String, EventCodec<?>> codecs = new ConcurrentHashMap<>();
+
+	/**
+	 * Incremented by registrations, so that connections resolve the codecs of received types again.
+	 */
+	private volatile int registrations;
+
+	private final List<Peer> peers = new CopyOnWriteArrayList<>();
+	private final List<ServerSocketChannel> servers = new CopyOnWriteArrayList<>();
+
+	/**
+	 * Tasks to run on the I/O thread.
+	 */
+	private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+
+	/**
+	 * Buffer events are encoded into before they're copied into the outbound buffers, grown on demand.
+	 * <p>
+	 * Guarded by {@code this}.
+	 */
+	private ByteBuffer scratch = ByteBuffer.allocate(256);
+
+	private final LongAdder forwarded = new LongAdder();
+	private final LongAdder dropped = new LongAdder();
+	private volatile long received;
+
+	private volatile boolean closed;
+
+	/**
+	 * Creates a bridge with buffers of {@value #DEFAULT_BUFFER_SIZE} bytes.
+	 *
+	 * @param bus the bus whose events are forwarded, and which received events are posted on
+	 * @throws IOException if the selector cannot be opened
+	 */
+	public SocketBridge(EventBus bus) throws IOException {
+		this(bus, DEFAULT_BUFFER_SIZE);
+	}
+
+	/**
+	 * Creates a bridge.
+	 *
+	 * @param bus        the bus whose events are forwarded, and which received events are posted on
+	 * @param bufferSize size of the outbound and inbound buffers of each peer. Events encoded into more bytes are
+	 *                   never forwarded, and the buffers of connected bridges should have the same size.
+	 * @throws IllegalArgumentException if the buffer size is less than 64 bytes
+	 * @throws IOException              if the selector cannot be opened
+	 */
+	public SocketBridge(EventBus bus, int bufferSize) throws IllegalArgumentException, IOException {
+		if (bufferSize < 64) throw new IllegalArgumentException("bufferSize too small: " + bufferSize);
+		this.bus = bus;
+		this.bufferSize = bufferSize;
+		this.selector = Selector.open();
+		this.thread = new Thread(this::run, "EventBus-bridge");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/**
+	 * Forwards posted events whose class is exactly the specified type, and posts received events of the type.
+	 *
+	 * @param type  the event type
+	 * @param codec the codec of the event type
+	 * @param <E>   the event type
+	 * @throws IllegalStateException if the type has already been registered, or the bridge has been closed
+	 */
+	@SuppressWarnings("unchecked")
+	public synchronized <E extends Event> void register(Class<E> type, EventCodec<E> codec) throws IllegalStateException {
+		if (closed) throw new IllegalStateException("Closed");
+		if (outlets.containsKey(type)) throw new IllegalStateException(type.getName() + " is already registered");
+		if (outlets.size() > Short.MAX_VALUE) throw new IllegalStateException("Too many types");
+		byte[][] typeNames = Arrays.copyOf(this.typeNames, this.typeNames.length + 1);
+		typeNames[typeNames.length - 1] = type.getName().getBytes(StandardCharsets.UTF_8);
+		this.typeNames = typeNames;
+		codecs.put(type.getName(), codec);
+		registrations++;
+
+		Outlet outlet = new Outlet(type, typeNames.length - 1, (EventCodec<Event>) codec);
+		bus.register(outlet, null, ListenerClass.forEventType(ON_EVENT, type, MethodHandles.lookup()));
+		outlets.put(type, outlet);
+	}
+
+	/**
+	 * Accepts connections from other bridges.
+	 *
+	 * @param address the local address, with port {@code 0} for an ephemeral port
+	 * @return the bound address
+	 * @throws IOException if the address cannot be bound
+	 */
+	public InetSocketAddress listen(InetSocketAddress address) throws IOException {
+		if (closed) throw new IllegalStateException("Closed");
+		ServerSocketChannel server = ServerSocketChannel.open();
+		try {
+			server.setOption(StandardSocketOptions.SO_REUSEADDR, true);
+			server.bind(address);
+			server.configureBlocking(false);
+		} catch (IOException e) {
+			server.close();
+			throw e;
+		}
+		servers.add(server);
+		submit(() -> {
+			try {
+				server.register(selector, SelectionKey.OP_ACCEPT);
+			} catch (ClosedChannelException ignored) {
+			}
+		});
+		return (InetSocketAddress) server.getLocalAddress();
+	}
+
+	/**
+	 * Connects to another bridge, and reconnects whenever the connection is lost. Events posted while the bridge
+	 * is not connected are buffered until the buffer is full.
+	 *
+	 * @param address the address of the other bridge
+	 */
+	public void connect(InetSocketAddress address) {
+		if (closed) throw new IllegalStateException("Closed");
+		Peer peer = new Peer(address);
+		peers.add(peer);
+		submit(() -> open(peer));
+	}
+
+	private void submit(Runnable task) {
+		tasks.add(task);
+		selector.wakeup();
+	}
+
+	/**
+	 * Encodes an event and buffers it for all peers.
+	 */
+	synchronized void send(Outlet outlet, Event event) {
+		if (closed || peers.isEmpty()) return;
+		ByteBuffer scratch = this.scratch;
+		int maxLength = bufferSize - FRAME_HEADER_SIZE * 2 - outlet.name.length;
+		scratch.clear();
+		for (;;) {
+			try {
+				outlet.codec.encode(event, scratch);
+				break;
+			} catch (BufferOverflowException e) {
+				if (scratch.capacity() >= maxLength) {
+					dropped.add(peers.size());
+					return;
+				}
+				scratch = this.scratch = ByteBuffer.allocate(Math.min(scratch.capacity() * 2, maxLength));
+			}
+		}
+		scratch.flip();
+		for (Peer peer : peers) {
+			if (peer.enqueue(outlet, scratch)) {
+				forwarded.increment();
+			} else {
+				dropped.increment();
+			}
+			scratch.rewind();
+		}
+	}
+
+	private void run() {
+		try {
+			while (!closed) {
+				selector.select(reconnectTimeout());
+				Runnable task;
+				while ((task = tasks.poll()) != null) task.run();
+
+				Iterator<SelectionKey> it = selector.selectedKeys().iterator();
+				while (it.hasNext()) {
+					SelectionKey key = it.next();
+					it.remove();
+					if (!key.isValid()) continue;
+					if (key.isAcceptable()) {
+						accept((ServerSocketChannel) key.channel());
+						continue;
+					}
+					Peer peer = (Peer) key.attachment();
+					try {
+						if (key.isConnectable()) finishConnect(peer);
+						if (key.isValid() && key.isReadable()) read(peer);
+						if (key.isValid() && key.isWritable()) flush(peer);
+					} catch (IOException e) {
+						disconnect(peer);
+					}
+				}
+
+				long now = System.nanoTime();
+				for (Peer peer : peers) {
+					if (peer.remote != null && peer.channel == null && now - peer.reconnectAt >= 0) open(peer);
+				}
+			}
+		} catch (IOException e) {
+			report(e);
+		} finally {
+			for (ServerSocketChannel server : servers) closeQuietly(server);
+			for (Peer peer : peers) closeQuietly(peer.channel);
+			closeQuietly(selector);
+		}
+	}
+
+	/**
+	 * @return milliseconds until the next reconnection, or {@code 0} if none is scheduled
+	 */
+	private long reconnectTimeout() {
+		long now = System.nanoTime();
+		long timeout = Long.MAX_VALUE;
+		for (Peer peer : peers) {
+			if (peer.remote != null && peer.channel == null) timeout = Math.min(timeout, peer.reconnectAt - now);
+		}
+		if (timeout == Long.MAX_VALUE) return 0;
+		return Math.max(1, TimeUnit.NANOSECONDS.toMillis(timeout));
+	}
+
+	private void accept(ServerSocketChannel server) {
+		SocketChannel channel;
+		try {
+			channel = server.accept();
+			if (channel == null) return;
+			channel.configureBlocking(false);
+			channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+		} catch (IOException e) {
+			return;
+		}
+		Peer peer = new Peer(null);
+		peer.channel = channel;
+		peers.add(peer);
+		try {
+			established(peer, channel.register(selector, SelectionKey.OP_READ, peer));
+		} catch (IOException e) {
+			disconnect(peer);
+		}
+	}
+
+	/**
+	 * Starts connecting a peer, or schedules the next attempt.
+	 */
+	private void open(Peer peer) {
+		SocketChannel channel = null;
+		try {
+			channel = SocketChannel.open();
+			channel.configureBlocking(false);
+			channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+			peer.channel = channel;
+			if (channel.connect(peer.remote)) {
+				established(peer, channel.register(selector, SelectionKey.OP_READ, peer));
+			} else {
+				peer.key = channel.register(selector, SelectionKey.OP_CONNECT, peer);
+			}
+		} catch (IOException e) {
+			if (channel != null) disconnect(peer);
+			else peer.scheduleReconnect();
+		}
+	}
+
+	private void finishConnect(Peer peer) throws IOException {
+		if (!peer.channel.finishConnect()) return;
+		peer.key.interestOps(SelectionKey.OP_READ);
+		established(peer, peer.key);
+	}
+
+	private void established(Peer peer, SelectionKey key) throws IOException {
+		peer.key = key;
+		peer.reconnectDelay = MIN_RECONNECT_DELAY;
+		byte[][] typeNames = this.typeNames;
+		synchronized (peer) {
+			// Buffered events may refer to type ids defined on the previous connection
+			int size = 0;
+			for (int id = peer.defined.nextSetBit(0); id >= 0; id = peer.defined.nextSetBit(id + 1)) {
+				size += FRAME_HEADER_SIZE + typeNames[id].length;
+			}
+			ByteBuffer hello = ByteBuffer.allocate(size);
+			for (int id = peer.defined.nextSetBit(0); id >= 0; id = peer.defined.nextSetBit(id + 1)) {
+				putTypeFrame(hello, id, typeNames[id]);
+			}
+			hello.flip();
+			peer.hello = hello;
+			peer.connected = true;
+		}
+		flush(peer);
+	}
+
+	/**
+	 * Writes the buffered frames of a peer, as much as the socket takes.
+	 */
+	private void flush(Peer peer) throws IOException {
+		peer.flushRequested.set(false);
+		if (!peer.connected) return;
+		synchronized (peer) {
+			ByteBuffer out = peer.out;
+			boolean remaining;
+			if (peer.hello != null) {
+				peer.channel.write(peer.hello);
+				if (peer.hello.hasRemaining()) {
+					peer.key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+					return;
+				}
+				peer.hello = null;
+			}
+			out.flip();
+			out.position(peer.sent);
+			peer.channel.write(out);
+			int written = out.position();
+			remaining = out.hasRemaining();
+
+			// Keep the partially written frame, so that it can be dropped if the connection is lost
+			int boundary = 0;
+			while (boundary < written) {
+				int end = boundary + 4 + out.getInt(boundary);
+				if (end > written) break;
+				boundary = end;
+			}
+			out.position(boundary);
+			out.compact();
+			peer.sent = written - boundary;
+			peer.key.interestOps(remaining ? SelectionKey.OP_READ | SelectionKey.OP_WRITE : SelectionKey.OP_READ);
+		}
+	}
+
+	/**
+	 * Reads and posts the received frames of a peer.
+	 */
+	private void read(Peer peer) throws IOException {
+		ByteBuffer in = peer.in;
+		if (peer.channel.read(in) < 0) throw new EOFException();
+		in.flip();
+		ByteBuffer view = peer.view;
+		while (in.remaining() >= 4) {
+			int start = in.position();
+			int length = in.getInt(start);
+			if (length < FRAME_HEADER_SIZE - 4 || length > in.capacity() - 4) {
+				throw new IOException("Invalid frame length: " + length);
+			}
+			int end = start + 4 + length;
+			if (end > in.limit()) break;
+			byte kind = in.get(start + KIND_OFFSET);
+			int typeId = in.getShort(start + TYPE_ID_OFFSET);
+			view.limit(end).position(start + FRAME_HEADER_SIZE);
+			in.position(end);
+
+			if (kind == KIND_TYPE) {
+				byte[] name = new byte[view.remaining()];
+				view.get(name);
+				peer.define(typeId, new String(name, StandardCharsets.UTF_8));
+			} else if (kind == KIND_EVENT) {
+				EventCodec<?> codec = peer.codec(typeId);
+				if (codec != null) receive(codec, view);
+			} else {
+				throw new IOException("Invalid frame kind: " + kind);
+			}
+		}
+		in.compact();
+	}
+
+	private void receive(EventCodec<?> codec, ByteBuffer payload) {
+		Event event;
+		try {
+			event = codec.decode(payload);
+		} catch (RuntimeException e) {
+			report(e);
+			return;
+		}
+		received++;
+		RECEIVED.set(event);
+		try {
+			bus.post(event);
+		} catch (RuntimeException e) {
+			report(e);
+		} finally {
+			RECEIVED.set(null);
+		}
+	}
+
+	/**
+	 * Closes the connection of a peer. Outgoing connections are scheduled to reconnect, and keep their
+	 * buffered events except the partially written one.
+	 */
+	private void disconnect(Peer peer) {
+		closeQuietly(peer.channel);
+		peer.channel = null;
+		peer.key = null;
+		synchronized (peer) {
+			peer.connected = false;
+			peer.hello = null;
+			ByteBuffer out = peer.out;
+			if (peer.sent > 0) {
+				out.flip();
+				if (out.get(KIND_OFFSET) == KIND_EVENT) dropped.increment();
+				out.position(4 + out.getInt(0));
+				out.compact();
+				peer.sent = 0;
+			}
+		}
+		peer.in.clear();
+		peer.resetInbound();
+		if (peer.remote == null) {
+			peers.remove(peer);
+		} else {
+			peer.scheduleReconnect();
+		}
+	}
+
+	private static void putTypeFrame(ByteBuffer buffer, int typeId, byte[] name) {
+		buffer.putInt(FRAME_HEADER_SIZE - 4 + name.length).put(KIND_TYPE).putShort((short) typeId).put(name);
+	}
+
+	private static void report(Throwable e) {
+		Thread thread = Thread.currentThread();
+		thread.getUncaughtExceptionHandler().uncaughtException(thread, e);
+	}
+
+	private static void closeQuietly(Closeable closeable) {
+		if (closeable == null) return;
+		try {
+			closeable.close();
+		} catch (IOException ignored) {
+		}
+	}
+
+	/**
+	 * @return number of connected peers
+	 */
+	public int getConnectionCount() {
+		int count = 0;
+		for (Peer peer : peers) {
+			if (peer.connected) count++;
+		}
+		return count;
+	}
+
+	/**
+	 * @return number of events buffered for peers, counting each peer
+	 */
+	public long getForwardedCount() {
+		return forwarded.sum();
+	}
+
+	/**
+	 * @return number of events dropped because the outbound buffer of a peer was full, or because they're too
+	 * large for it, counting each peer
+	 */
+	public long getDroppedCount() {
+		return dropped.sum();
+	}
+
+	/**
+	 * @return number of received events
+	 */
+	public long getReceivedCount() {
+		return received;
+	}
+
+	/**
+	 * Stops forwarding events, and closes all connections. Buffered events which haven't been written are lost.
+	 */
+	@Override
+	public void close() {
+		synchronized (this) {
+			if (closed) return;
+			closed = true;
+		}
+		for (Outlet outlet : outlets.values()) bus.unsubscribe(outlet);
+		selector.wakeup();
+		if (Thread.currentThread() == thread) return;
+		try {
+			thread.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Listener of a registered type.
+	 */
+	final class Outlet {
+		final Class<?> type;
+		final int typeId;
+		final byte[] name;
+		final EventCodec<Event> codec;
+
+		Outlet(Class<?> type, int typeId, EventCodec<Event> codec) {
+			this.type = type;
+			this.typeId = typeId;
+			this.name = type.getName().getBytes(StandardCharsets.UTF_8);
+			this.codec = codec;
+		}
+
+		/**
+		 * Called by the bus when an event is posted.
+		 */
+		void onEvent(Event event) {
+			if (event.getClass() == type && RECEIVED.get() != event) send(this, event);
+		}
+	}
+
+	/**
+	 * A connection to another bridge, or an outgoing connection being re-established.
+	 */
+	private final class Peer {
+		/**
+		 * Address of an outgoing connection, {@code null} for accepted connections.
+		 */
+		final InetSocketAddress remote;
+
+		/**
+		 * Frames waiting to be written, in fill mode. Only whole frames are buffered.
+		 * <p>
+		 * Guarded by {@code this}, as are the other outbound fields.
+		 */
+		final ByteBuffer out = ByteBuffer.allocateDirect(bufferSize);
+
+		/**
+		 * Number of bytes of the first buffered frame which have been written.
+		 */
+		int sent;
+
+		/**
+		 * Type ids defined by the buffered or written frames.
+		 */
+		final BitSet defined = new BitSet();
+
+		/**
+		 * Type frames to write before the buffered frames on a new connection.
+		 */
+		ByteBuffer hello;
+
+		volatile boolean connected;
+		final AtomicBoolean flushRequested = new AtomicBoolean();
+		final Runnable flushTask = () -> {
+			try {
+				flush(this);
+			} catch (IOException e) {
+				disconnect(this);
+			}
+		};
+
+		// Fields of the I/O thread
+
+		SocketChannel channel;
+		SelectionKey key;
+		long reconnectDelay = MIN_RECONNECT_DELAY;
+		long reconnectAt;
+
+		final ByteBuffer in = ByteBuffer.allocateDirect(bufferSize);
+		final ByteBuffer view = in.duplicate();
+
+		/**
+		 * Names and codecs of the received type ids.
+		 */
+		String[] inboundNames = new String[16];
+		EventCodec<?>[] inboundCodecs = new EventCodec<?>[16];
+		int resolvedRegistrations;
+
+		Peer(InetSocketAddress remote) {
+			this.remote = remote;
+		}
+
+		/**
+		 * Buffers an event frame, after the type frame if the type is not defined yet.
+		 *
+		 * @param payload the encoded event
+		 * @return {@code false} if the buffer is full
+		 */
+		boolean enqueue(Outlet outlet, ByteBuffer payload) {
+			synchronized (this) {
+				boolean define = !defined.get(outlet.typeId);
+				int size = FRAME_HEADER_SIZE + payload.remaining();
+				if (define) size += FRAME_HEADER_SIZE + outlet.name.length;
+				if (out.remaining() < size) return false;
+				if (define) {
+					putTypeFrame(out, outlet.typeId, outlet.name);
+					defined.set(outlet.typeId);
+				}
+				out.putInt(FRAME_HEADER_SIZE - 4 + payload.remaining()).put(KIND_EVENT).putShort((short) outlet.typeId)
+						.put(payload);
+			}
+			if (connected && flushRequested.compareAndSet(false, true)) submit(flushTask);
+			return true;
+		}
+
+		void scheduleReconnect() {
+			reconnectAt = System.nanoTime() + reconnectDelay;
+			reconnectDelay = Math.min(reconnectDelay * 2, MAX_RECONNECT_DELAY);
+		}
+
+		void define(int typeId, String name) {
+			if (typeId < 0) return;
+			if (typeId >= inboundNames.length) {
+				inboundNames = Arrays.copyOf(inboundNames, Math.max(typeId + 1, inboundNames.length * 2));
+				inboundCodecs = Arrays.copyOf(inboundCodecs, inboundNames.length);
+			}
+			inboundNames[typeId] = name;
+			inboundCodecs[typeId] = codecs.get(name);
+		}
+
+		/**
+		 * @return the codec of a received type id, or {@code null} if the type is not registered
+		 */
+		EventCodec<?> codec(int typeId) throws IOException {
+			if (typeId < 0 || typeId >= inboundNames.length || inboundNames[typeId] == null) {
+				throw new IOException("Undefined type id: " + typeId);
+			}
+			int registrations = SocketBridge.this.registrations;
+			if (resolvedRegistrations != registrations) {
+				resolvedRegistrations = registrations;
+				for (int i = 0; i < inboundNames.length; i++) {
+					if (inboundNames[i] != null) inboundCodecs[i] = codecs.get(inboundNames[i]);
+				}
+			}
+			return inboundCodecs[typeId];
+		}
+
+		void resetInbound() {
+			Arrays.fill(inboundNames, null);
+			Arrays.fill(inboundCodecs, null);
+		}
+	}
+}
@@ -0,0 +1,328 @@
+package me.coley.event;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Queue of posts waiting for the executor of a {@linkplain Listener#target() listener target}.
+ * <p>
+ * An unbounded queue hands each post to the executor right away, and only counts the posts which haven't been
+ * delivered yet. A bounded queue holds at most {@linkplain #getCapacity() capacity} posts itself, and delivers
+ * them one at a time in post order with a single task on the executor, so a slow listener can't make the
+ * executor queue grow without bound. A post arriving while a bounded queue is full is handled by its
+ * {@linkplain OverloadPolicy overload policy}, after calling the {@linkplain #setOverloadListener overload listener}.
+ * {@linkplain PooledEvent Pooled events} are released when they're dropped.
+ *
+ * @author Andy Li
+ * @see EventBus#setTargetExecutor(String, Executor, int, OverloadPolicy)
+ * @since 1.5
+ */
+public final class TargetQueue {
+	private static final long DEFAULT_BLOCK_TIMEOUT_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+	private final String target;
+	private final Executor executor;
+	private final int capacity;
+	private final OverloadPolicy policy;
+
+	private volatile Consumer<? super Event> overloadListener;
+
+	/**
+	 * Longest time a post waits for room with the {@linkplain OverloadPolicy#BLOCK BLOCK} policy, in nanoseconds.
+	 */
+	private volatile long blockTimeoutNanos = DEFAULT_BLOCK_TIMEOUT_NANOS;
+
+	/**
+	 * Posts waiting in a bounded queue. Guarded by {@code this}.
+	 */
+	private final ArrayDeque<TargetedDispatch.Batch> pending;
+
+	/**
+	 * Whether a drain task of a bounded queue has been submitted and not finished yet. Guarded by {@code this}.
+	 */
+	private boolean scheduled;
+
+	/**
+	 * Thread draining a bounded queue, or {@code null}. Set and cleared together with {@link #scheduled},
+	 * so that a drain task finishing can't clear the thread of the next one. Guarded by {@code this}.
+	 */
+	private Thread drainer;
+
+	/**
+	 * Number of posts handed to the executor of an unbounded queue and not delivered yet.
+	 */
+	private final AtomicInteger inFlight = new AtomicInteger();
+
+	private final LongAdder dropped = new LongAdder();
+	private final LongAdder overloads = new LongAdder();
+
+	/**
+	 * Creates an unbounded queue.
+	 */
+	TargetQueue(String target, Executor executor) {
+		this.target = target;
+		this.executor = executor;
+		this.capacity = Integer.MAX_VALUE;
+		this.policy = null;
+		this.pending = null;
+	}
+
+	/**
+	 * Creates a bounded queue.
+	 */
+	TargetQueue(String target, Executor executor, int capacity, OverloadPolicy policy) {
+		this.target = target;
+		this.executor = executor;
+		this.capacity = capacity;
+		this.policy = policy;
+		this.pending = new ArrayDeque<>(Math.min(capacity, 1024));
+	}
+
+	/**
+	 * @return name of the target
+	 */
+	public String getTarget() {
+		return target;
+	}
+
+	/**
+	 * @return the executor of the target
+	 */
+	public Executor getExecutor() {
+		return executor;
+	}
+
+	/**
+	 * @return maximum number of waiting posts, {@link Integer#MAX_VALUE} if the queue is unbounded
+	 */
+	public int getCapacity() {
+		return capacity;
+	}
+
+	/**
+	 * @return the overload policy, or {@code null} if the queue is unbounded
+	 */
+	public OverloadPolicy getPolicy() {
+		return policy;
+	}
+
+	/**
+	 * @return number of posts waiting to be delivered, not including the one being delivered by a bounded queue
+	 */
+	public int getDepth() {
+		if (pending == null) return inFlight.get();
+		synchronized (this) {
+			return pending.size();
+		}
+	}
+
+	/**
+	 * @return number of posts dropped because the queue was full
+	 */
+	public long getDroppedCount() {
+		return dropped.sum();
+	}
+
+	/**
+	 * @return number of posts which arrived while the queue was full
+	 */
+	public long getOverloadCount() {
+		return overloads.sum();
+	}
+
+	/**
+	 * Sets the listener called on the posting thread with each event arriving while the queue is full,
+	 * before the overload policy applies, so that producers can shed load.
+	 *
+	 * @param listener the listener, or {@code null} to remove the current listener
+	 */
+	public void setOverloadListener(Consumer<? super Event> listener) {
+		this.overloadListener = listener;
+	}
+
+	/**
+	 * Sets the longest time a post waits for room with the {@linkplain OverloadPolicy#BLOCK BLOCK} policy.
+	 * The post is dropped once it has waited that long. The default is one second.
+	 * <p>
+	 * The timeout keeps a thread of the target's executor from waiting forever when it posts to its own full target
+	 * outside of a listener, since the queue can't be drained before that thread returns.
+	 *
+	 * @param timeout the timeout, {@code 0} to drop posts right away
+	 * @param unit    unit of the timeout
+	 * @throws IllegalArgumentException if the timeout is negative
+	 */
+	public void setBlockTimeout(long timeout, TimeUnit unit) throws IllegalArgumentException {
+		if (timeout < 0) throw new IllegalArgumentException("timeout < 0");
+		this.blockTimeoutNanos = unit.toNanos(timeout);
+	}
+
+	/**
+	 * @param unit unit of the returned timeout
+	 * @return the longest time a post waits for room with the {@linkplain OverloadPolicy#BLOCK BLOCK} policy
+	 */
+	public long getBlockTimeout(TimeUnit unit) {
+		return unit.convert(blockTimeoutNanos, TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * Hands a post to the target.
+	 *
+	 * @throws RuntimeException if the executor rejects the post
+	 */
+	void submit(TargetedDispatch.Batch batch) throws RuntimeException {
+		if (pending == null) {
+			inFlight.incrementAndGet();
+			try {
+				executor.execute(batch);
+			} catch (RuntimeException | Error e) {
+				inFlight.decrementAndGet();
+				batch.discard();
+				throw e;
+			}
+			return;
+		}
+
+		boolean full;
+		boolean schedule = false;
+		synchronized (this) {
+			full = pending.size() >= capacity && drainer != Thread.currentThread();
+			if (!full) schedule = enqueue(batch);
+		}
+		if (!full) {
+			if (schedule) schedule(batch);
+			return;
+		}
+
+		overloads.increment();
+		Consumer<? super Event> listener = overloadListener;
+		if (listener != null) {
+			try {
+				listener.accept(batch.event);
+			} catch (RuntimeException | Error e) {
+				batch.discard();
+				throw e;
+			}
+		}
+
+		TargetedDispatch.Batch discarded = null;
+		synchronized (this) {
+			if (pending.size() >= capacity) {
+				switch (policy) {
+					case BLOCK:
+						long remaining = blockTimeoutNanos;
+						long deadline = System.nanoTime() + remaining;
+						boolean interrupted = false;
+						while (pending.size() >= capacity && remaining > 0) {
+							try {
+								TimeUnit.NANOSECONDS.timedWait(this, remaining);
+							} catch (InterruptedException e) {
+								interrupted = true;
+							}
+							remaining = deadline - System.nanoTime();
+						}
+						if (interrupted) Thread.currentThread().interrupt();
+						if (pending.size() >= capacity) discarded = batch;
+						break;
+					case DROP_NEWEST:
+						discarded = batch;
+						break;
+					case DROP_OLDEST:
+						discarded = pending.pollFirst();
+						break;
+					case CALLER_RUNS:
+						discarded = batch;
+						break;
+				}
+			}
+			if (discarded != batch) schedule = enqueue(batch);
+		}
+
+		if (schedule) schedule(batch);
+		if (policy == OverloadPolicy.CALLER_RUNS && discarded == batch) {
+			batch.run();
+		} else if (discarded != null) {
+			dropped.increment();
+			discarded.discard();
+		}
+	}
+
+	/**
+	 * Appends a post to a bounded queue. Guarded by {@code this}.
+	 *
+	 * @return {@code true} if the drain task should be submitted
+	 */
+	private boolean enqueue(TargetedDispatch.Batch batch) {
+		pending.addLast(batch);
+		if (scheduled) return false;
+		scheduled = true;
+		return true;
+	}
+
+	/**
+	 * Submits the drain task of a bounded queue. If the executor rejects it, the post is taken back.
+	 */
+	private void schedule(TargetedDispatch.Batch batch) throws RuntimeException {
+		try {
+			executor.execute(this::drain);
+		} catch (RuntimeException | Error e) {
+			boolean removed;
+			synchronized (this) {
+				scheduled = false;
+				removed = pending.removeLastOccurrence(batch);
+			}
+			if (removed) batch.discard();
+			throw e;
+		}
+	}
+
+	/**
+	 * Delivers the posts of a bounded queue in order.
+	 */
+	private void drain() {
+		Thread current = Thread.currentThread();
+		synchronized (this) {
+			drainer = current;
+		}
+		boolean drained = false;
+		try {
+			for (;;) {
+				TargetedDispatch.Batch batch;
+				synchronized (this) {
+					batch = pending.pollFirst();
+					if (batch == null) {
+						scheduled = false;
+						drainer = null;
+						drained = true;
+						return;
+					}
+					notifyAll();
+				}
+				batch.run();
+			}
+		} finally {
+			if (!drained) {
+				synchronized (this) {
+					scheduled = false;
+					if (drainer == current) drainer = null;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Called when a post has been delivered.
+	 */
+	void delivered() {
+		if (pending == null) inFlight.decrementAndGet();
+	}
+
+	@Override
+	public String toString() {
+		return String.format("TargetQueue{target=%s, capacity=%d, policy=%s, depth=%d, dropped=%d}",
+				target, capacity, policy, getDepth(), getDroppedCount());
+	}
+}
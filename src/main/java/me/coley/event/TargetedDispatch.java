@@ -0,0 +1,143 @@
+package me.coley.event;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Invokers of a post grouped by their {@linkplain Listener#target() target executor}.
+ * <p>
+ * Each post hands one task per target to its {@linkplain TargetQueue queue}, which invokes all invokers of the target
+ * in priority order. {@linkplain PooledEvent Pooled events} are retained until the task has run or been dropped.
+ * Exceptions thrown by listeners are
+ * passed to the uncaught exception handler of the executing thread, or collected by the completion of an
+ * {@linkplain EventBus#postAsync(Event) asynchronous post}, and don't stop the rest of the task.
+ *
+ * @author Andy Li
+ * @see EventBus#setTargetExecutor(String, java.util.concurrent.Executor)
+ * @since 1.5
+ */
+final class TargetedDispatch {
+	/**
+	 * Invokers without a target, in order.
+	 */
+	final EventBus.InvokeWrapper[] local;
+
+	/**
+	 * Names of the targets, and the invokers of each target in order.
+	 */
+	private final String[] targets;
+	private final EventBus.InvokeWrapper[][] batches;
+
+	private TargetedDispatch(EventBus.InvokeWrapper[] local, String[] targets, EventBus.InvokeWrapper[][] batches) {
+		this.local = local;
+		this.targets = targets;
+		this.batches = batches;
+	}
+
+	/**
+	 * Groups invokers by their target.
+	 *
+	 * @param invokers invokers, sorted
+	 */
+	static TargetedDispatch of(EventBus.InvokeWrapper[] invokers) {
+		List<EventBus.InvokeWrapper> local = new ArrayList<>(invokers.length);
+		Map<String, List<EventBus.InvokeWrapper>> byTarget = new LinkedHashMap<>();
+		for (EventBus.InvokeWrapper invoker : invokers) {
+			String target = invoker.method.target;
+			if (target == null) local.add(invoker);
+			else byTarget.computeIfAbsent(target, t -> new ArrayList<>()).add(invoker);
+		}
+		if (byTarget.isEmpty()) return new TargetedDispatch(invokers, new String[0], new EventBus.InvokeWrapper[0][]);
+
+		String[] targets = byTarget.keySet().toArray(new String[0]);
+		EventBus.InvokeWrapper[][] batches = new EventBus.InvokeWrapper[targets.length][];
+		for (int i = 0; i < targets.length; i++) {
+			batches[i] = byTarget.get(targets[i]).toArray(new EventBus.InvokeWrapper[0]);
+		}
+		return new TargetedDispatch(local.toArray(new EventBus.InvokeWrapper[0]), targets, batches);
+	}
+
+	/**
+	 * Hands the event to the queue of each target.
+	 *
+	 * @param queues     queues by target name
+	 * @param event      event to deliver
+	 * @param completion completion of an {@linkplain EventBus#postAsync(Event) asynchronous post},
+	 *                   which collects the failures of the targeted listeners, or {@code null}
+	 * @return the invokers to invoke on the posting thread
+	 * @throws IllegalStateException if there's no queue for a target, nothing is submitted then
+	 * @throws RuntimeException      if an executor rejects the post, the posts to the previous targets
+	 *                               are still delivered
+	 */
+	EventBus.InvokeWrapper[] submit(Map<String, TargetQueue> queues, Event event, AsyncPost completion)
+			throws RuntimeException {
+		if (targets.length == 0) return local;
+		TargetQueue[] resolved = new TargetQueue[targets.length];
+		for (int i = 0; i < targets.length; i++) {
+			resolved[i] = queues.get(targets[i]);
+			if (resolved[i] == null) throw new IllegalStateException("No executor for listener target: " + targets[i]);
+		}
+		if (completion != null) completion.expect(targets.length);
+		for (int i = 0; i < targets.length; i++) {
+			if (event instanceof PooledEvent) ((PooledEvent) event).retain();
+			try {
+				resolved[i].submit(new Batch(resolved[i], batches[i], event, completion));
+			} catch (RuntimeException | Error e) {
+				if (completion != null) completion.arrive(targets.length - i - 1);
+				throw e;
+			}
+		}
+		return local;
+	}
+
+	/**
+	 * Delivery of a post to the invokers of one target.
+	 */
+	static final class Batch implements Runnable {
+		private final TargetQueue queue;
+		private final EventBus.InvokeWrapper[] invokers;
+		final Event event;
+		private final AsyncPost completion;
+
+		Batch(TargetQueue queue, EventBus.InvokeWrapper[] invokers, Event event, AsyncPost completion) {
+			this.queue = queue;
+			this.invokers = invokers;
+			this.event = event;
+			this.completion = completion;
+		}
+
+		@Override
+		public void run() {
+			try {
+				for (EventBus.InvokeWrapper invoker : invokers) invoker.forEachReceiver(event, completion, Batch::invoke);
+			} finally {
+				discard();
+				queue.delivered();
+			}
+		}
+
+		private static Object invoke(EventBus.InvokeWrapper invoker, Object receiver, Event event, AsyncPost completion) {
+			try {
+				invoker.invoke(receiver, event);
+			} catch (RuntimeException | Error e) {
+				if (completion != null) {
+					completion.fail(invoker.listenerOf(receiver), invoker.method.method, e);
+				} else {
+					Thread thread = Thread.currentThread();
+					thread.getUncaughtExceptionHandler().uncaughtException(thread, e);
+				}
+			}
+			return null;
+		}
+
+		/**
+		 * Releases the event without delivering it.
+		 */
+		void discard() {
+			if (event instanceof PooledEvent) ((PooledEvent) event).release();
+			if (completion != null) completion.arrive(1);
+		}
+	}
+}
@@ -0,0 +1,354 @@
+package me.coley.event;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Hashed timing wheel, scheduling and cancelling timeouts in constant time.
+ * <p>
+ * Timeouts are hashed into a fixed number of buckets by their expiry tick, and each bucket is a
+ * doubly linked list of timeouts which expire in that bucket or in a later round of the wheel.
+ * A single worker thread advances the wheel once per tick and expires the due timeouts of the current bucket,
+ * so a timeout fires at most one tick late. New and cancelled timeouts are handed over to the worker through
+ * lock-free queues, and the worker parks while there's no outstanding timeout.
+ * <p>
+ * Tasks run on the worker thread, so they must be short and must not block.
+ *
+ * @author Andy Li
+ * @since 1.5
+ */
+final class TimingWheel {
+	/**
+	 * Default tick duration, in nanoseconds.
+	 */
+	static final long DEFAULT_TICK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+	/**
+	 * Default number of buckets.
+	 */
+	static final int DEFAULT_WHEEL_SIZE = 512;
+
+	/**
+	 * Maximum number of new timeouts moved into the wheel per tick, so that a burst of scheduling
+	 * cannot stall the expiry of the current bucket.
+	 */
+	private static final int MAX_TRANSFER_PER_TICK = 100_000;
+
+	private final long tickNanos;
+	private final Bucket[] wheel;
+	private final int mask;
+
+	/**
+	 * Origin of the wheel time, in {@link System#nanoTime()}.
+	 */
+	private final long startTime = System.nanoTime();
+
+	/**
+	 * Timeouts which haven't been moved into the wheel yet.
+	 */
+	private final Queue<Timeout> pending = new ConcurrentLinkedQueue<>();
+
+	/**
+	 * Cancelled timeouts which may still be in the wheel.
+	 */
+	private final Queue<Timeout> cancelled = new ConcurrentLinkedQueue<>();
+
+	private final Thread worker;
+
+	/**
+	 * Whether the worker is parked with no outstanding timeout.
+	 */
+	private volatile boolean idle;
+
+	private volatile boolean stopped;
+
+	/**
+	 * Current tick. Accessed by the worker only.
+	 */
+	private long tick;
+
+	/**
+	 * Number of timeouts in the wheel. Accessed by the worker only.
+	 */
+	private int size;
+
+	/**
+	 * Creates a timing wheel with the default tick duration and wheel size.
+	 *
+	 * @param name name of the worker thread
+	 */
+	TimingWheel(String name) {
+		this(DEFAULT_TICK_NANOS, TimeUnit.NANOSECONDS, DEFAULT_WHEEL_SIZE, name);
+	}
+
+	/**
+	 * Creates a timing wheel.
+	 *
+	 * @param tickDuration duration of a tick
+	 * @param unit         time unit of {@code tickDuration}
+	 * @param wheelSize    number of buckets, rounded up to a power of two
+	 * @param name         name of the worker thread
+	 */
+	TimingWheel(long tickDuration, TimeUnit unit, int wheelSize, String name) {
+		if (tickDuration <= 0) throw new IllegalArgumentException("tickDuration <= 0");
+		if (wheelSize <= 0 || wheelSize > 1 << 30) throw new IllegalArgumentException("wheelSize: " + wheelSize);
+		this.tickNanos = unit.toNanos(tickDuration);
+		int n = Integer.highestOneBit(wheelSize);
+		if (n < wheelSize) n <<= 1;
+		this.wheel = new Bucket[n];
+		for (int i = 0; i < n; i++) wheel[i] = new Bucket();
+		this.mask = n - 1;
+
+		this.worker = new Thread(this::run, name);
+		worker.setDaemon(true);
+		worker.start();
+	}
+
+	/**
+	 * @return the timing wheel shared by all buses, created on first use
+	 */
+	static TimingWheel shared() {
+		return Shared.INSTANCE;
+	}
+
+	/**
+	 * @return current wheel time, in nanoseconds
+	 */
+	long nanoTime() {
+		return System.nanoTime() - startTime;
+	}
+
+	/**
+	 * Schedules a task to run once after the specified delay.
+	 *
+	 * @param task  task to run on the worker thread
+	 * @param delay delay before running the task, non-positive values run it on the next tick
+	 * @param unit  time unit of {@code delay}
+	 * @return the timeout of the task
+	 * @throws IllegalStateException if the wheel has been stopped
+	 */
+	Timeout schedule(Runnable task, long delay, TimeUnit unit) throws IllegalStateException {
+		return scheduleAt(task, deadlineAfter(delay, unit));
+	}
+
+	/**
+	 * @return the {@linkplain #nanoTime() wheel time} after the specified delay from now
+	 */
+	long deadlineAfter(long delay, TimeUnit unit) {
+		long now = nanoTime();
+		long deadline = now + Math.max(0, unit.toNanos(delay));
+		return deadline < now ? Long.MAX_VALUE : deadline;  // overflow
+	}
+
+	/**
+	 * Schedules a task to run once at the specified {@linkplain #nanoTime() wheel time}.
+	 *
+	 * @param task     task to run on the worker thread
+	 * @param deadline wheel time to run the task
+	 * @return the timeout of the task
+	 * @throws IllegalStateException if the wheel has been stopped
+	 */
+	Timeout scheduleAt(Runnable task, long deadline) throws IllegalStateException {
+		if (stopped) throw new IllegalStateException("Timing wheel has been stopped");
+		Timeout timeout = new Timeout(this, task, deadline);
+		pending.add(timeout);
+		if (idle) LockSupport.unpark(worker);
+		return timeout;
+	}
+
+	/**
+	 * Stops the worker thread. Outstanding timeouts are never run.
+	 */
+	void stop() {
+		stopped = true;
+		LockSupport.unpark(worker);
+	}
+
+	private void run() {
+		while (!stopped) {
+			if (!waitForNextTick()) break;
+			removeCancelled();
+			transferPending();
+			wheel[(int) (tick & mask)].expire();
+			tick++;
+
+			if (size == 0 && pending.isEmpty()) {
+				idle = true;
+				if (pending.isEmpty() && !stopped) LockSupport.park(this);
+				idle = false;
+				tick = Math.max(tick, nanoTime() / tickNanos);
+			}
+		}
+	}
+
+	/**
+	 * Waits until the end of the current tick.
+	 *
+	 * @return {@code false} if the wheel has been stopped
+	 */
+	private boolean waitForNextTick() {
+		long deadline = tickNanos * (tick + 1);
+		for (;;) {
+			long now = nanoTime();
+			if (now >= deadline) return true;
+			if (stopped) return false;
+			LockSupport.parkNanos(this, deadline - now);
+		}
+	}
+
+	/**
+	 * Moves new timeouts into their buckets.
+	 */
+	private void transferPending() {
+		for (int i = 0; i < MAX_TRANSFER_PER_TICK; i++) {
+			Timeout timeout = pending.poll();
+			if (timeout == null) break;
+			if (timeout.state != Timeout.ST_INIT) continue;
+
+			long expiryTick = timeout.deadline / tickNanos;
+			timeout.remainingRounds = (expiryTick - tick) / wheel.length;
+			wheel[(int) (Math.max(expiryTick, tick) & mask)].add(timeout);
+		}
+	}
+
+	/**
+	 * Unlinks cancelled timeouts from their buckets.
+	 */
+	private void removeCancelled() {
+		Timeout timeout;
+		while ((timeout = cancelled.poll()) != null) {
+			Bucket bucket = timeout.bucket;
+			if (bucket != null) bucket.remove(timeout);
+		}
+	}
+
+	private static final class Shared {
+		static final TimingWheel INSTANCE = new TimingWheel("EventBus-timer");
+	}
+
+	/**
+	 * A task scheduled in a {@link TimingWheel}.
+	 */
+	static final class Timeout {
+		private static final int ST_INIT = 0;
+		private static final int ST_CANCELLED = 1;
+		private static final int ST_EXPIRED = 2;
+		private static final AtomicIntegerFieldUpdater<Timeout> STATE =
+				AtomicIntegerFieldUpdater.newUpdater(Timeout.class, "state");
+
+		private final TimingWheel timingWheel;
+		private final Runnable task;
+
+		/**
+		 * Wheel time to run the task.
+		 */
+		final long deadline;
+
+		private volatile int state = ST_INIT;
+
+		// Accessed by the worker only
+		private long remainingRounds;
+		private Bucket bucket;
+		private Timeout prev, next;
+
+		Timeout(TimingWheel timingWheel, Runnable task, long deadline) {
+			this.timingWheel = timingWheel;
+			this.task = task;
+			this.deadline = deadline;
+		}
+
+		/**
+		 * Cancels the timeout.
+		 *
+		 * @return {@code true} if the task will never run,
+		 * {@code false} if it has already run or has already been cancelled
+		 */
+		boolean cancel() {
+			if (!STATE.compareAndSet(this, ST_INIT, ST_CANCELLED)) return false;
+			timingWheel.cancelled.add(this);
+			return true;
+		}
+
+		/**
+		 * @return {@code true} if the timeout has been cancelled
+		 */
+		boolean isCancelled() {
+			return state == ST_CANCELLED;
+		}
+
+		/**
+		 * @return {@code true} if the task has run or is running
+		 */
+		boolean isExpired() {
+			return state == ST_EXPIRED;
+		}
+
+		private void expire() {
+			if (!STATE.compareAndSet(this, ST_INIT, ST_EXPIRED)) return;
+			try {
+				task.run();
+			} catch (RuntimeException | Error e) {
+				Thread thread = Thread.currentThread();
+				thread.getUncaughtExceptionHandler().uncaughtException(thread, e);
+			}
+		}
+	}
+
+	/**
+	 * Doubly linked list of timeouts hashed to the same bucket.
+	 */
+	private final class Bucket {
+		private Timeout head, tail;
+
+		void add(Timeout timeout) {
+			timeout.bucket = this;
+			if (head == null) {
+				head = tail = timeout;
+			} else {
+				tail.next = timeout;
+				timeout.prev = tail;
+				tail = timeout;
+			}
+			size++;
+		}
+
+		/**
+		 * Unlinks the timeout.
+		 *
+		 * @return the next timeout in this bucket
+		 */
+		Timeout remove(Timeout timeout) {
+			Timeout next = timeout.next;
+			if (timeout.prev != null) timeout.prev.next = next;
+			if (next != null) next.prev = timeout.prev;
+			if (timeout == head) head = next;
+			if (timeout == tail) tail = timeout.prev;
+			timeout.prev = timeout.next = null;
+			timeout.bucket = null;
+			size--;
+			return next;
+		}
+
+		/**
+		 * Runs the timeouts due in the current round, and moves the others one round closer.
+		 */
+		void expire() {
+			Timeout timeout = head;
+			while (timeout != null) {
+				if (timeout.remainingRounds <= 0) {
+					Timeout next = remove(timeout);
+					timeout.expire();
+					timeout = next;
+				} else if (timeout.isCancelled()) {
+					timeout = remove(timeout);
+				} else {
+					timeout.remainingRounds--;
+					timeout = timeout.next;
+				}
+			}
+		}
+	}
+}
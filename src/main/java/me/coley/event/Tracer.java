@@ -0,0 +1,410 @@
+package me.coley.event;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records the dispatch of sampled posts as spans, for finding out which listeners are slow,
+ * and which posts caused which.
+ * <p>
+ * A sampled post is recorded as a {@linkplain Span.Kind#POST post span}, with a {@linkplain Span.Kind#LISTENER
+ * listener span} for each listener invocation as its children. Events posted by listeners during dispatch belong
+ * to the same trace, so a trace is the causal chain of everything a root post caused on the posting thread.
+ * Only root posts are sampled, nested posts are recorded if and only if their root post is.
+ * <p>
+ * Spans are recorded into a per-thread ring buffer allocated up front, without locking. Recording never blocks
+ * the posting thread, and the oldest spans of a thread are overwritten once its buffer is full.
+ * A tracer is enabled by {@linkplain EventBus#setTracer(Tracer) setting it on a bus}.
+ *
+ * @author Andy Li
+ * @see EventBus#setTracer(Tracer)
+ * @since 1.5
+ */
+public final class Tracer {
+	/**
+	 * Maximum depth of nested spans recorded. Deeper spans are dispatched but not recorded.
+	 */
+	private static final int MAX_DEPTH = 64;
+
+	private final int sampleRate;
+
+	private final int bufferSize;
+
+	/**
+	 * Recorders of all threads which posted a sampled event. Recorders of terminated threads are removed
+	 * by {@link #dump()} and {@link #clear()}.
+	 */
+	final List<Recorder> recorders = new CopyOnWriteArrayList<>();
+
+	private final ThreadLocal<Recorder> recorder = ThreadLocal.withInitial(this::newRecorder);
+
+	/**
+	 * Creates a tracer.
+	 *
+	 * @param sampleRate record one in {@code sampleRate} root posts of each thread, {@code 1} records all posts
+	 * @param bufferSize number of spans kept per thread, rounded up to a power of two. The oldest span of a full
+	 *                   buffer may be being overwritten, so it's never dumped.
+	 * @throws IllegalArgumentException if {@code sampleRate} or {@code bufferSize} is not positive
+	 */
+	public Tracer(int sampleRate, int bufferSize) throws IllegalArgumentException {
+		if (sampleRate <= 0) throw new IllegalArgumentException("sampleRate <= 0");
+		if (bufferSize <= 0) throw new IllegalArgumentException("bufferSize <= 0");
+		if (bufferSize > 1 << 30) throw new IllegalArgumentException("bufferSize too large: " + bufferSize);
+		this.sampleRate = sampleRate;
+		this.bufferSize = bufferSize == 1 ? 1 : Integer.highestOneBit(bufferSize - 1) << 1;
+	}
+
+	/**
+	 * @return the sample rate
+	 */
+	public int getSampleRate() {
+		return sampleRate;
+	}
+
+	/**
+	 * @return the number of spans kept per thread
+	 */
+	public int getBufferSize() {
+		return bufferSize;
+	}
+
+	private Recorder newRecorder() {
+		Recorder recorder = new Recorder(Thread.currentThread(), bufferSize);
+		recorders.add(recorder);
+		return recorder;
+	}
+
+	/**
+	 * Dispatches an event, and records it if it's sampled.
+	 */
+	void post(EventBus.Handler handler, Event event) {
+		Recorder recorder = this.recorder.get();
+		if (recorder.unsampled > 0) {
+			handler.deliver(event);
+			return;
+		}
+		if (recorder.depth == 0 && ++recorder.posts % sampleRate != 0) {
+			recorder.unsampled++;
+			try {
+				handler.deliver(event);
+			} finally {
+				recorder.unsampled--;
+			}
+			return;
+		}
+
+		recorder.enter();
+		try {
+			for (EventBus.InvokeWrapper invoker : handler.invokersFor(event)) {
+				invoker.invoke(event, recorder);
+			}
+		} finally {
+			recorder.exit(Span.Kind.POST, event.getClass());
+		}
+	}
+
+	/**
+	 * Exports the spans recorded recently by all threads, ordered by start time. Spans still being recorded,
+	 * such as the post span of a dispatch in progress, are not included. Spans of threads which have terminated
+	 * are exported one last time, and then discarded.
+	 *
+	 * @return the recorded spans
+	 */
+	public List<Span> dump() {
+		List<Span> spans = new ArrayList<>();
+		List<Recorder> terminated = new ArrayList<>();
+		for (Recorder recorder : recorders) {
+			// Checked first, so that no span is written after the last dump
+			if (!recorder.isAlive()) terminated.add(recorder);
+			recorder.dump(spans);
+		}
+		recorders.removeAll(terminated);
+		spans.sort(Comparator.comparingLong(Span::getStartNanos));
+		return spans;
+	}
+
+	/**
+	 * Discards all recorded spans. Spans being recorded concurrently may survive.
+	 */
+	public void clear() {
+		recorders.removeIf(recorder -> !recorder.isAlive());
+		for (Recorder recorder : recorders) recorder.start = recorder.written;
+	}
+
+	/**
+	 * Formats spans as an indented tree per trace.
+	 *
+	 * @param spans spans, as {@linkplain #dump() dumped}
+	 * @return the formatted traces
+	 */
+	public static String format(List<Span> spans) {
+		StringBuilder sb = new StringBuilder();
+		for (Span span : spans) {
+			if (span.isRoot()) format(sb, span, spans, 0);
+		}
+		return sb.toString();
+	}
+
+	private static void format(StringBuilder sb, Span span, List<Span> spans, int depth) {
+		for (int i = 0; i < depth; i++) sb.append("  ");
+		sb.append(span).append('\n');
+		for (Span child : spans) {
+			if (child.thread.equals(span.thread) && child.traceId == span.traceId && child.parentId == span.spanId) {
+				format(sb, child, spans, depth + 1);
+			}
+		}
+	}
+
+	/**
+	 * Per-thread span recorder. Only the owner thread writes, {@link #dump} may read concurrently.
+	 * <p>
+	 * Spans are stored as parallel arrays indexed by sequence number modulo the capacity. The volatile write of
+	 * {@link #written} publishes a completed span, and a reader detects overwritten spans by re-reading it.
+	 */
+	static final class Recorder {
+		final String thread;
+
+		/**
+		 * The owner thread, weakly referenced so that the recorder doesn't keep it reachable.
+		 */
+		private final WeakReference<Thread> owner;
+
+		private final int mask;
+
+		private final long[] traceIds;
+		private final long[] spanIds;
+		private final long[] parentIds;
+		private final long[] startTimes;
+		private final long[] endTimes;
+		private final Object[] subjects;
+		private final byte[] kinds;
+
+		/**
+		 * Number of spans ever written.
+		 */
+		private volatile long written;
+
+		/**
+		 * Sequence number of the first span to dump, advanced by {@link Tracer#clear()}.
+		 */
+		volatile long start;
+
+		/**
+		 * Stack of spans being recorded.
+		 */
+		private final long[] stackIds = new long[MAX_DEPTH];
+		private final long[] stackStartTimes = new long[MAX_DEPTH];
+		int depth;
+
+		/**
+		 * Depth of nested spans beyond {@link #MAX_DEPTH}, which are not recorded.
+		 */
+		private int overflow;
+
+		/**
+		 * Depth of posts nested in a post which is not sampled.
+		 */
+		int unsampled;
+
+		/**
+		 * Number of root posts, for sampling.
+		 */
+		long posts;
+
+		private long traceId;
+		private long nextId = 1;
+
+		Recorder(Thread thread, int capacity) {
+			this.thread = thread.getName();
+			this.owner = new WeakReference<>(thread);
+			this.mask = capacity - 1;
+			this.traceIds = new long[capacity];
+			this.spanIds = new long[capacity];
+			this.parentIds = new long[capacity];
+			this.startTimes = new long[capacity];
+			this.endTimes = new long[capacity];
+			this.subjects = new Object[capacity];
+			this.kinds = new byte[capacity];
+		}
+
+		/**
+		 * @return whether the owner thread may still record spans
+		 */
+		boolean isAlive() {
+			Thread owner = this.owner.get();
+			return owner != null && owner.isAlive();
+		}
+
+		/**
+		 * Starts a span as a child of the current span.
+		 */
+		void enter() {
+			int depth = this.depth;
+			if (depth == MAX_DEPTH) {
+				overflow++;
+				return;
+			}
+			long id = nextId++;
+			if (depth == 0) traceId = id;
+			stackIds[depth] = id;
+			stackStartTimes[depth] = System.nanoTime();
+			this.depth = depth + 1;
+		}
+
+		/**
+		 * Ends the current span and records it.
+		 *
+		 * @param subject the event type of post spans, or the listener method of listener spans
+		 */
+		void exit(Span.Kind kind, Object subject) {
+			long end = System.nanoTime();
+			if (overflow > 0) {
+				overflow--;
+				return;
+			}
+			int depth = --this.depth;
+			long seq = written;
+			int i = (int) seq & mask;
+			traceIds[i] = traceId;
+			spanIds[i] = stackIds[depth];
+			parentIds[i] = depth == 0 ? 0 : stackIds[depth - 1];
+			startTimes[i] = stackStartTimes[depth];
+			endTimes[i] = end;
+			subjects[i] = subject;
+			kinds[i] = (byte) kind.ordinal();
+			written = seq + 1;
+		}
+
+		/**
+		 * Copies the spans which are still in the buffer.
+		 */
+		void dump(List<Span> out) {
+			int capacity = mask + 1;
+			long end = written;
+			long begin = Math.max(start, end - capacity);
+			List<Span> spans = new ArrayList<>((int) (end - begin));
+			for (long seq = begin; seq < end; seq++) {
+				int i = (int) seq & mask;
+				spans.add(new Span(thread, Span.Kind.values()[kinds[i]], subjects[i], traceIds[i], spanIds[i],
+						parentIds[i], startTimes[i], endTimes[i] - startTimes[i]));
+			}
+			// Discard spans overwritten while copying, including the one which may be being written
+			long overwritten = written + 1 - capacity - begin;
+			if (overwritten > 0) spans.subList(0, (int) Math.min(overwritten, spans.size())).clear();
+			out.addAll(spans);
+		}
+	}
+
+	/**
+	 * A recorded span.
+	 */
+	public static final class Span {
+		/**
+		 * Kind of span.
+		 */
+		public enum Kind {
+			/**
+			 * Dispatch of a posted event to all listeners.
+			 */
+			POST,
+			/**
+			 * Invocation of a listener.
+			 */
+			LISTENER
+		}
+
+		private final String thread;
+		private final Kind kind;
+		private final Object subject;
+		private final long traceId;
+		private final long spanId;
+		private final long parentId;
+		private final long startNanos;
+		private final long durationNanos;
+
+		Span(String thread, Kind kind, Object subject, long traceId, long spanId, long parentId,
+		     long startNanos, long durationNanos) {
+			this.thread = thread;
+			this.kind = kind;
+			this.subject = subject;
+			this.traceId = traceId;
+			this.spanId = spanId;
+			this.parentId = parentId;
+			this.startNanos = startNanos;
+			this.durationNanos = durationNanos;
+		}
+
+		/**
+		 * @return name of the thread which recorded this span
+		 */
+		public String getThread() {
+			return thread;
+		}
+
+		/**
+		 * @return kind of this span
+		 */
+		public Kind getKind() {
+			return kind;
+		}
+
+		/**
+		 * @return the event type of a post span, or the name of the listener method of a listener span
+		 */
+		public String getName() {
+			return subject instanceof Class ? ((Class<?>) subject).getName() : subject.toString();
+		}
+
+		/**
+		 * @return id of the trace, which is the id of its root span. Ids are unique per thread.
+		 */
+		public long getTraceId() {
+			return traceId;
+		}
+
+		/**
+		 * @return id of this span, unique per thread
+		 */
+		public long getSpanId() {
+			return spanId;
+		}
+
+		/**
+		 * @return id of the parent span, or {@code 0} if this is the root span of its trace
+		 */
+		public long getParentId() {
+			return parentId;
+		}
+
+		/**
+		 * @return {@code true} if this is the root span of its trace
+		 */
+		public boolean isRoot() {
+			return parentId == 0;
+		}
+
+		/**
+		 * @return start time in {@link System#nanoTime()}
+		 */
+		public long getStartNanos() {
+			return startNanos;
+		}
+
+		/**
+		 * @return duration in nanoseconds
+		 */
+		public long getDurationNanos() {
+			return durationNanos;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("%s %s [%s #%d] %.3f us", kind == Kind.POST ? "post" : "listener", getName(),
+					thread, spanId, durationNanos / (double) TimeUnit.MICROSECONDS.toNanos(1));
+		}
+	}
+}
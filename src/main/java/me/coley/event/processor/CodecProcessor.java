@@ -0,0 +1,316 @@
+package me.coley.event.processor;
+
+import me.coley.event.GenerateCodec;
+import me.coley.event.GeneratedCodecs;
+
+import javax.annotation.processing.*;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.*;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Generates the {@link me.coley.event.EventCodec}s of event classes annotated with {@link GenerateCodec}.
+ * <p>
+ * Each codec class has static {@code encodeFields} and {@code decodeFields} methods for the fields of its
+ * event class. A codec of a subclass delegates the inherited fields to them, so superclasses in other packages
+ * may keep their fields package-private. Non-abstract event classes also get a {@code SCHEMA} id, an
+ * {@code INSTANCE} and the {@code encode} and {@code decode} methods, which write and check the schema id.
+ * <p>
+ * The processor isn't registered as a service, so that compiling against the library doesn't run it implicitly.
+ * Enable it explicitly with {@code javac -processor me.coley.event.processor.CodecProcessor}.
+ *
+ * @author Andy Li
+ * @since 1.5
+ */
+@SupportedAnnotationTypes("me.coley.event.GenerateCodec")
+public class CodecProcessor extends AbstractProcessor {
+	private static final String EVENT = "me.coley.event.Event";
+	private static final String BUFFER = "java.nio.ByteBuffer";
+	private static final String SUPPORT = GeneratedCodecs.class.getName();
+
+	private Elements elements;
+	private Types types;
+	private Messager messager;
+
+	@Override
+	public SourceVersion getSupportedSourceVersion() {
+		return SourceVersion.latestSupported();
+	}
+
+	@Override
+	public synchronized void init(ProcessingEnvironment processingEnv) {
+		super.init(processingEnv);
+		this.elements = processingEnv.getElementUtils();
+		this.types = processingEnv.getTypeUtils();
+		this.messager = processingEnv.getMessager();
+	}
+
+	@Override
+	public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+		for (TypeElement type : ElementFilter.typesIn(roundEnv.getElementsAnnotatedWith(GenerateCodec.class))) {
+			try {
+				generate(type);
+			} catch (IOException e) {
+				messager.printMessage(Diagnostic.Kind.ERROR, "Cannot write codec: " + e, type);
+			}
+		}
+		return false;
+	}
+
+	private void generate(TypeElement type) throws IOException {
+		if (!check(type)) return;
+		String pkg = elements.getPackageOf(type).getQualifiedName().toString();
+		String binaryName = elements.getBinaryName(type).toString();
+		String codecName = GeneratedCodecs.codecName(binaryName).substring(pkg.isEmpty() ? 0 : pkg.length() + 1);
+		String eventName = type.getQualifiedName().toString();
+
+		// Superclass fields are delegated to the codec of the nearest annotated superclass, if there's one
+		TypeElement superclass = superclass(type);
+		TypeElement delegate = superclass != null && superclass.getAnnotation(GenerateCodec.class) != null ?
+				superclass : null;
+		List<VariableElement> direct = new ArrayList<>();
+		for (TypeElement t = type; t != null && t != delegate; t = superclass(t)) {
+			direct.addAll(0, fields(t));
+		}
+		List<VariableElement> all = new ArrayList<>();
+		for (TypeElement t = type; t != null; t = superclass(t)) all.addAll(0, fields(t));
+
+		boolean valid = true;
+		for (VariableElement field : direct) valid &= check(field, pkg);
+		for (VariableElement field : all) valid &= descriptor(field) != null;
+		boolean concrete = !type.getModifiers().contains(Modifier.ABSTRACT);
+		if (concrete && !hasConstructor(type)) {
+			messager.printMessage(Diagnostic.Kind.ERROR, "Event class with a generated codec needs a no-arg " +
+					"constructor accessible from its package", type);
+			valid = false;
+		}
+		if (!valid) return;
+
+		StringBuilder sb = new StringBuilder();
+		if (!pkg.isEmpty()) sb.append("package ").append(pkg).append(";\n\n");
+		sb.append("/**\n * Codec of {@link ").append(eventName).append("}, generated from {@link ")
+				.append(GenerateCodec.class.getName()).append("}.\n */\n");
+		sb.append("public final class ").append(codecName);
+		if (concrete) sb.append(" implements me.coley.event.EventCodec<").append(eventName).append('>');
+		sb.append(" {\n");
+
+		if (concrete) {
+			int version = type.getAnnotation(GenerateCodec.class).version();
+			sb.append("\t/**\n\t * Schema id, derived from version ").append(version)
+					.append(" and the field layout.\n\t */\n");
+			sb.append("\tpublic static final int SCHEMA = ").append(String.format("0x%08x", schema(version, all)))
+					.append(";\n\n");
+			sb.append("\tpublic static final ").append(codecName).append(" INSTANCE = new ").append(codecName)
+					.append("();\n\n");
+		}
+		for (int i = 0; i < direct.size(); i++) {
+			TypeMirror fieldType = direct.get(i).asType();
+			if (fieldType.getKind() == TypeKind.DECLARED && isEnum(fieldType)) {
+				String enumName = types.erasure(fieldType).toString();
+				sb.append("\tprivate static final ").append(enumName).append("[] CONSTANTS_").append(i).append(" = ")
+						.append(enumName).append(".values();\n\n");
+			}
+		}
+
+		if (concrete) {
+			sb.append("\t@Override\n\tpublic void encode(").append(eventName).append(" event, ").append(BUFFER)
+					.append(" buffer) {\n");
+			sb.append("\t\tbuffer.putInt(SCHEMA);\n\t\tencodeFields(event, buffer);\n\t}\n\n");
+			sb.append("\t@Override\n\tpublic ").append(eventName).append(" decode(").append(BUFFER)
+					.append(" buffer) {\n");
+			sb.append("\t\t").append(SUPPORT).append(".checkSchema(").append(eventName)
+					.append(".class, SCHEMA, buffer.getInt());\n");
+			sb.append("\t\t").append(eventName).append(" event = new ").append(eventName).append("();\n");
+			sb.append("\t\tdecodeFields(event, buffer);\n\t\treturn event;\n\t}\n\n");
+		}
+
+		sb.append("\tpublic static void encodeFields(").append(eventName).append(" event, ").append(BUFFER)
+				.append(" buffer) {\n");
+		if (delegate != null) sb.append("\t\t").append(codecClass(delegate)).append(".encodeFields(event, buffer);\n");
+		for (VariableElement field : direct) sb.append("\t\t").append(encoder(field)).append(";\n");
+		sb.append("\t}\n\n");
+
+		sb.append("\tpublic static void decodeFields(").append(eventName).append(" event, ").append(BUFFER)
+				.append(" buffer) {\n");
+		if (delegate != null) sb.append("\t\t").append(codecClass(delegate)).append(".decodeFields(event, buffer);\n");
+		for (int i = 0; i < direct.size(); i++) {
+			sb.append("\t\tevent.").append(direct.get(i).getSimpleName()).append(" = ").append(decoder(direct.get(i), i))
+					.append(";\n");
+		}
+		sb.append("\t}\n}\n");
+
+		try (Writer writer = processingEnv.getFiler().createSourceFile(pkg.isEmpty() ? codecName :
+				pkg + '.' + codecName, type).openWriter()) {
+			writer.write(sb.toString());
+		}
+	}
+
+	/**
+	 * Checks whether a codec can be generated for a class.
+	 */
+	private boolean check(TypeElement type) {
+		String error = null;
+		if (type.getKind() != ElementKind.CLASS) {
+			error = "Only classes can have a generated codec";
+		} else if (!types.isSubtype(types.erasure(type.asType()), types.erasure(elements.getTypeElement(EVENT).asType()))) {
+			error = "Class with a generated codec must extend " + EVENT;
+		} else if (!type.getTypeParameters().isEmpty()) {
+			error = "Generic event classes cannot have a generated codec";
+		}
+		for (Element e = type; error == null && e.getKind().isClass(); e = e.getEnclosingElement()) {
+			if (e.getModifiers().contains(Modifier.PRIVATE)) {
+				error = "Event class with a generated codec must not be private";
+			} else if (e.getEnclosingElement().getKind().isClass() && !e.getModifiers().contains(Modifier.STATIC)) {
+				error = "Nested event class with a generated codec must be static";
+			}
+		}
+		if (error != null) messager.printMessage(Diagnostic.Kind.ERROR, error, type);
+		return error == null;
+	}
+
+	/**
+	 * Checks whether the generated code in a package can access a field directly.
+	 */
+	private boolean check(VariableElement field, String pkg) {
+		Set<Modifier> modifiers = field.getModifiers();
+		String error = null;
+		if (modifiers.contains(Modifier.PRIVATE)) {
+			error = "Encoded field must not be private, mark it transient to skip it";
+		} else if (modifiers.contains(Modifier.FINAL)) {
+			error = "Encoded field must not be final, mark it transient to skip it";
+		} else if (!modifiers.contains(Modifier.PUBLIC) &&
+				!elements.getPackageOf(field).getQualifiedName().contentEquals(pkg)) {
+			error = "Encoded field of a superclass in another package must be public, or annotate the superclass";
+		}
+		if (error != null) messager.printMessage(Diagnostic.Kind.ERROR, error, field);
+		return error == null;
+	}
+
+	/**
+	 * @return the superclass below {@link me.coley.event.Event}, or {@code null} if the superclass is {@code Event}
+	 */
+	private TypeElement superclass(TypeElement type) {
+		TypeElement superclass = (TypeElement) types.asElement(type.getSuperclass());
+		return superclass == null || superclass.getQualifiedName().contentEquals(EVENT) ? null : superclass;
+	}
+
+	/**
+	 * @return the encoded fields declared by a class, in declaration order
+	 */
+	private static List<VariableElement> fields(TypeElement type) {
+		List<VariableElement> fields = new ArrayList<>();
+		for (VariableElement field : ElementFilter.fieldsIn(type.getEnclosedElements())) {
+			Set<Modifier> modifiers = field.getModifiers();
+			if (!modifiers.contains(Modifier.STATIC) && !modifiers.contains(Modifier.TRANSIENT)) fields.add(field);
+		}
+		return fields;
+	}
+
+	private static boolean hasConstructor(TypeElement type) {
+		for (ExecutableElement constructor : ElementFilter.constructorsIn(type.getEnclosedElements())) {
+			if (constructor.getParameters().isEmpty() && !constructor.getModifiers().contains(Modifier.PRIVATE)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private boolean isEnum(TypeMirror type) {
+		return ((DeclaredType) type).asElement().getKind() == ElementKind.ENUM;
+	}
+
+	/**
+	 * @return the type of a field in the schema, or {@code null} if the type is not supported
+	 */
+	private String descriptor(VariableElement field) {
+		TypeMirror type = field.asType();
+		if (type.getKind().isPrimitive()) return type.toString();
+		if (type.getKind() == TypeKind.DECLARED) {
+			String name = types.erasure(type).toString();
+			if (name.equals("java.lang.String") || isEnum(type)) return name;
+		}
+		messager.printMessage(Diagnostic.Kind.ERROR, "Unsupported type of encoded field: " + type +
+				", mark it transient to skip it", field);
+		return null;
+	}
+
+	/**
+	 * Derives the schema id from the version and the names and types of all fields, with 32-bit FNV-1a.
+	 */
+	private int schema(int version, List<VariableElement> fields) {
+		StringBuilder sb = new StringBuilder().append(version).append(';');
+		for (VariableElement field : fields) {
+			sb.append(field.getSimpleName()).append(':').append(descriptor(field)).append(';');
+		}
+		int hash = 0x811C9DC5;
+		for (byte b : sb.toString().getBytes(StandardCharsets.UTF_8)) {
+			hash = (hash ^ (b & 0xFF)) * 0x01000193;
+		}
+		return hash;
+	}
+
+	private String codecClass(TypeElement type) {
+		return GeneratedCodecs.codecName(elements.getBinaryName(type).toString());
+	}
+
+	private String encoder(VariableElement field) {
+		String value = "event." + field.getSimpleName();
+		switch (field.asType().getKind()) {
+			case BOOLEAN:
+				return "buffer.put((byte) (" + value + " ? 1 : 0))";
+			case BYTE:
+				return "buffer.put(" + value + ")";
+			case SHORT:
+				return "buffer.putShort(" + value + ")";
+			case CHAR:
+				return "buffer.putChar(" + value + ")";
+			case INT:
+				return "buffer.putInt(" + value + ")";
+			case LONG:
+				return "buffer.putLong(" + value + ")";
+			case FLOAT:
+				return "buffer.putFloat(" + value + ")";
+			case DOUBLE:
+				return "buffer.putDouble(" + value + ")";
+			default:
+				if (isEnum(field.asType())) return "buffer.putInt(" + value + " == null ? -1 : " + value + ".ordinal())";
+				return SUPPORT + ".putString(buffer, " + value + ")";
+		}
+	}
+
+	private String decoder(VariableElement field, int index) {
+		switch (field.asType().getKind()) {
+			case BOOLEAN:
+				return "buffer.get() != 0";
+			case BYTE:
+				return "buffer.get()";
+			case SHORT:
+				return "buffer.getShort()";
+			case CHAR:
+				return "buffer.getChar()";
+			case INT:
+				return "buffer.getInt()";
+			case LONG:
+				return "buffer.getLong()";
+			case FLOAT:
+				return "buffer.getFloat()";
+			case DOUBLE:
+				return "buffer.getDouble()";
+			default:
+				if (isEnum(field.asType())) return SUPPORT + ".getEnum(buffer, CONSTANTS_" + index + ")";
+				return SUPPORT + ".getString(buffer)";
+		}
+	}
+}
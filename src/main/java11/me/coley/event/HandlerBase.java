@@ -0,0 +1,53 @@
+package me.coley.event;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**
+ * Base of {@link EventBus.Handler} holding its published invoker cache.
+ * <p>
+ * The cache is never {@code null}, an invalidated cache is replaced by a fresh {@linkplain EventBus.InvokerCache#stale
+ * stale marker}. A rebuilt cache is published by a compare-and-set against the marker it replaces, so that a cache
+ * computed before an invalidation can never overwrite it. Reads and invalidations only need acquire/release ordering,
+ * so the field is accessed with {@code VarHandle} acquire/release modes instead of being volatile.
+ *
+ * @author Andy Li
+ * @since 1.5
+ */
+abstract class HandlerBase {
+	private static final VarHandle INVOKER_CACHE;
+
+	static {
+		try {
+			INVOKER_CACHE = MethodHandles.lookup()
+					.findVarHandle(HandlerBase.class, "invokerCache", EventBus.InvokerCache.class);
+		} catch (ReflectiveOperationException e) {
+			throw new ExceptionInInitializerError(e);
+		}
+	}
+
+	private EventBus.InvokerCache invokerCache = new EventBus.InvokerCache();
+
+	/**
+	 * @return the published invoker cache, which may be stale
+	 */
+	final EventBus.InvokerCache getInvokerCache() {
+		return (EventBus.InvokerCache) INVOKER_CACHE.getAcquire(this);
+	}
+
+	/**
+	 * Invalidates the invoker cache with a stale marker.
+	 */
+	final void setInvokerCache(EventBus.InvokerCache cache) {
+		INVOKER_CACHE.setRelease(this, cache);
+	}
+
+	/**
+	 * Publishes a rebuilt invoker cache if the cache is still {@code expected}.
+	 *
+	 * @return {@code true} if successful
+	 */
+	final boolean compareAndSetInvokerCache(EventBus.InvokerCache expected, EventBus.InvokerCache cache) {
+		return INVOKER_CACHE.compareAndSet(this, expected, cache);
+	}
+}
@@ -0,0 +1,74 @@
+package me.coley.event;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaConversionException;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.util.function.BiConsumer;
+
+/**
+ * Creates the invokers of {@linkplain ListenerMethod listener methods}.
+ * <p>
+ * An invoker is a class implementing {@link BiConsumer} which calls the listener method directly, spun by
+ * {@link LambdaMetafactory} in the listener's class, like the class of a method reference. It's defined as
+ * a hidden class on Java 15 and later, so it's unloaded together with the listener's class.
+ * Unlike a {@link MethodHandle} held in a field, the call can be inlined into the dispatch loop.
+ * <p>
+ * If the listener's class can't be accessed with {@link MethodHandles#privateLookupIn privateLookupIn()},
+ * or the invoker can't be spun, the listener method is invoked through its method handle instead.
+ * Errors are not caught.
+ *
+ * @author Andy Li
+ * @since 1.5
+ */
+final class Invokers {
+	private static final MethodType FACTORY_TYPE = MethodType.methodType(BiConsumer.class);
+	private static final MethodType ERASED_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+
+	/**
+	 * Creates an invoker of the listener method. Exceptions thrown by the listener method,
+	 * including checked ones, are propagated from {@link BiConsumer#accept(Object, Object) accept()} as is.
+	 *
+	 * @param method the listener method
+	 * @param handle method handle of the listener method, adapted to {@code (Object, Event)void}
+	 * @param lookup the {@linkplain MethodHandles.Lookup lookup object} used in method handle creation
+	 * @return the invoker
+	 */
+	@SuppressWarnings("unchecked")
+	static BiConsumer<Object, Event> create(Method method, MethodHandle handle, MethodHandles.Lookup lookup) {
+		Class<?> declaringClass = method.getDeclaringClass();
+		CallSite site;
+		try {
+			MethodHandles.Lookup caller = MethodHandles.privateLookupIn(declaringClass, lookup);
+			site = LambdaMetafactory.metafactory(caller, "accept", FACTORY_TYPE, ERASED_TYPE,
+					caller.unreflect(method),
+					MethodType.methodType(void.class, declaringClass, method.getParameterTypes()[0]));
+		} catch (ReflectiveOperationException | LambdaConversionException | SecurityException e) {
+			return (listener, event) -> {
+				try {
+					handle.invokeExact(listener, event);
+				} catch (Throwable t) {
+					throw Invokers.<RuntimeException>sneakyThrow(t);
+				}
+			};
+		}
+		try {
+			return (BiConsumer<Object, Event>) site.getTarget().invoke();
+		} catch (Throwable e) {
+			throw Invokers.<RuntimeException>sneakyThrow(e);
+		}
+	}
+
+	/**
+	 * Throws a checked exception without declaring it.
+	 */
+	@SuppressWarnings("unchecked")
+	static <T extends Throwable> T sneakyThrow(Throwable e) throws T {
+		throw (T) e;
+	}
+
+	private Invokers() {}
+}
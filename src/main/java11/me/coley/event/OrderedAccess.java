@@ -0,0 +1,54 @@
+package me.coley.event;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Ordered accesses to direct buffers shared with other processes, in native byte order.
+ * <p>
+ * Plain buffer accesses give no ordering guarantees, so a reader in another process could see a counter advanced
+ * before the data it publishes. This version uses byte buffer view {@code VarHandle}s, which require the indexes
+ * to be aligned.
+ *
+ * @author Andy Li
+ * @since 1.5
+ */
+final class OrderedAccess {
+	private static final VarHandle LONGS = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.nativeOrder());
+	private static final VarHandle INTS = MethodHandles.byteBufferViewVarHandle(int[].class, ByteOrder.nativeOrder());
+
+	private OrderedAccess() {
+	}
+
+	static long getLongAcquire(ByteBuffer buffer, int index) {
+		return (long) LONGS.getAcquire(buffer, index);
+	}
+
+	static void setLongRelease(ByteBuffer buffer, int index, long value) {
+		LONGS.setRelease(buffer, index, value);
+	}
+
+	static int getIntAcquire(ByteBuffer buffer, int index) {
+		return (int) INTS.getAcquire(buffer, index);
+	}
+
+	static void setIntRelease(ByteBuffer buffer, int index, int value) {
+		INTS.setRelease(buffer, index, value);
+	}
+
+	/**
+	 * Orders earlier stores before later stores.
+	 */
+	static void storeFence() {
+		VarHandle.storeStoreFence();
+	}
+
+	/**
+	 * Orders earlier loads before later loads.
+	 */
+	static void loadFence() {
+		VarHandle.loadLoadFence();
+	}
+}
@@ -0,0 +1,115 @@
+package me.coley.event;
+
+import java.util.Objects;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Publishes events of a type posted on an {@link EventBus} to reactive subscribers, with demand-based backpressure.
+ * <p>
+ * Each {@linkplain Flow.Subscriber subscriber} is registered on the bus as a listener of the event type,
+ * and receives events only as they are requested. Events posted while a subscriber has no outstanding demand
+ * are handled by the {@linkplain #getOverflowStrategy() overflow strategy}.
+ * Subscriptions last until they are cancelled, the bus never completes them.
+ *
+ * @param <E> the event type
+ * @author Andy Li
+ * @see EventBus#publisher(Class, OverflowStrategy, int)
+ * @since 1.5
+ */
+public final class EventPublisher<E extends Event> implements Flow.Publisher<E> {
+	/**
+	 * Default buffer size, same as {@code Flow.defaultBufferSize()}.
+	 */
+	public static final int DEFAULT_BUFFER_SIZE = 256;
+
+	final EventBus bus;
+	final Class<E> eventType;
+	final OverflowStrategy strategy;
+	final int bufferSize;
+
+	/**
+	 * Listener class shared by all subscriptions.
+	 */
+	final ListenerClass listenerClass;
+
+	/**
+	 * Number of events dropped by all subscriptions.
+	 */
+	final LongAdder dropped = new LongAdder();
+
+	EventPublisher(EventBus bus, Class<E> eventType, OverflowStrategy strategy, int bufferSize) {
+		this.bus = bus;
+		this.eventType = eventType;
+		this.strategy = strategy;
+		this.bufferSize = bufferSize;
+		this.listenerClass = EventSubscription.listenerClass(eventType);
+	}
+
+	/**
+	 * @return the type of published events
+	 */
+	public Class<E> getEventType() {
+		return eventType;
+	}
+
+	/**
+	 * @return the overflow strategy of subscriptions
+	 */
+	public OverflowStrategy getOverflowStrategy() {
+		return strategy;
+	}
+
+	/**
+	 * @return the buffer size of subscriptions with the {@link OverflowStrategy#BUFFER BUFFER} strategy
+	 */
+	public int getBufferSize() {
+		return bufferSize;
+	}
+
+	/**
+	 * @return the number of events dropped by the {@link OverflowStrategy#DROP DROP}
+	 * and {@link OverflowStrategy#LATEST LATEST} strategies, summed over all subscriptions
+	 */
+	public long getDroppedCount() {
+		return dropped.sum();
+	}
+
+	/**
+	 * Subscribes a subscriber to events of the published type.
+	 * Events posted before the subscriber is registered, or before it requests them, may be missed.
+	 *
+	 * @param subscriber the subscriber
+	 */
+	@Override
+	public void subscribe(Flow.Subscriber<? super E> subscriber) {
+		new FlowSubscription<>(this, Objects.requireNonNull(subscriber)).start();
+	}
+
+	/**
+	 * Subscription of a {@link Flow.Subscriber}.
+	 */
+	static final class FlowSubscription<E extends Event> extends EventSubscription<E> implements Flow.Subscription {
+		private final Flow.Subscriber<? super E> subscriber;
+
+		FlowSubscription(EventPublisher<E> publisher, Flow.Subscriber<? super E> subscriber) {
+			super(publisher);
+			this.subscriber = subscriber;
+		}
+
+		@Override
+		void signalSubscribe() {
+			subscriber.onSubscribe(this);
+		}
+
+		@Override
+		void signalNext(E event) {
+			subscriber.onNext(event);
+		}
+
+		@Override
+		void signalError(Throwable error) {
+			subscriber.onError(error);
+		}
+	}
+}
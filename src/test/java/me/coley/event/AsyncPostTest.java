@@ -0,0 +1,185 @@
+package me.coley.event;
+
+import me.coley.event.testevent.TestAlphaEvent;
+import me.coley.event.testevent.TestThetaEvent;
+import org.junit.*;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.*;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Andy Li
+ */
+public class AsyncPostTest {
+	private EventBus bus;
+	private List<String> calls;
+
+	@Before
+	public void setup() {
+		this.bus = new EventBus();
+		this.calls = Collections.synchronizedList(new ArrayList<>());
+	}
+
+	private static DeliveryException failure(CompletableFuture<Void> future) throws Exception {
+		try {
+			future.get(5, TimeUnit.SECONDS);
+		} catch (ExecutionException e) {
+			assertTrue("cause should be a DeliveryException", e.getCause() instanceof DeliveryException);
+			return (DeliveryException) e.getCause();
+		}
+		throw new AssertionError("future should complete exceptionally");
+	}
+
+	@Test
+	public void testCompletion() throws Exception {
+		CountDownLatch release = new CountDownLatch(1);
+		bus.subscribe(new Object() {
+			@Listener
+			public void first(TestAlphaEvent event) throws InterruptedException {
+				release.await();
+				calls.add("first");
+			}
+
+			@Listener(priority = 1)
+			public void second(TestAlphaEvent event) {
+				calls.add("second");
+			}
+		});
+		CompletableFuture<Void> future = bus.postAsync(new TestAlphaEvent(1));
+		assertFalse("future shouldn't complete before the listeners", future.isDone());
+		release.countDown();
+		future.get(5, TimeUnit.SECONDS);
+		assertEquals("listeners in order", Arrays.asList("first", "second"), calls);
+	}
+
+	@Test
+	public void testFailures() throws Exception {
+		Object listener = new Object() {
+			@Listener
+			public void fail1(TestAlphaEvent event) {
+				throw new IllegalStateException("fail1");
+			}
+
+			@Listener(priority = 1)
+			public void succeed(TestAlphaEvent event) {
+				calls.add("succeed");
+			}
+
+			@Listener(priority = 2)
+			public void fail2(TestAlphaEvent event) {
+				throw new IllegalArgumentException("fail2");
+			}
+		};
+		bus.subscribe(listener);
+		TestAlphaEvent event = new TestAlphaEvent(1);
+		DeliveryException e = failure(bus.postAsync(event));
+		assertEquals("other listeners should still be called", Collections.singletonList("succeed"), calls);
+		assertSame("event", event, e.getEvent());
+		assertEquals("failures", 2, e.getFailures().size());
+		DeliveryException.Failure first = e.getFailures().get(0);
+		assertSame("listener", listener, first.getListener());
+		assertEquals("method", "fail1", first.getMethod().getName());
+		assertTrue("error", first.getError() instanceof IllegalStateException);
+		assertSame("cause", first.getError(), e.getCause());
+		assertEquals("suppressed", 1, e.getSuppressed().length);
+	}
+
+	@Test
+	public void testTargets() throws Exception {
+		bus.setAsyncExecutor(Runnable::run);
+		QueueExecutor render = new QueueExecutor();
+		bus.setTargetExecutor("render", render);
+		bus.subscribe(new Object() {
+			@Listener(target = "render")
+			public void render(TestAlphaEvent event) {
+				calls.add("render");
+			}
+
+			@Listener(target = "render", priority = 1)
+			public void fail(TestAlphaEvent event) {
+				throw new IllegalStateException("fail");
+			}
+
+			@Listener
+			public void local(TestAlphaEvent event) {
+				calls.add("local");
+			}
+		});
+		CompletableFuture<Void> future = bus.postAsync(new TestAlphaEvent(1));
+		assertEquals("local listener", Collections.singletonList("local"), calls);
+		assertFalse("future should wait for the target", future.isDone());
+		render.runAll();
+		DeliveryException e = failure(future);
+		assertEquals("targeted failure should be collected", "fail", e.getFailures().get(0).getMethod().getName());
+		assertEquals("all listeners", Arrays.asList("local", "render"), calls);
+	}
+
+	@Test
+	public void testMissingTarget() throws Exception {
+		bus.setAsyncExecutor(Runnable::run);
+		bus.subscribe(new Object() {
+			@Listener(target = "render")
+			public void render(TestAlphaEvent event) {
+				calls.add("render");
+			}
+
+			@Listener
+			public void local(TestAlphaEvent event) {
+				calls.add("local");
+			}
+		});
+		DeliveryException e = failure(bus.postAsync(new TestAlphaEvent(1)));
+		assertEquals("local listener should still be called", Collections.singletonList("local"), calls);
+		assertNull("no listener", e.getFailures().get(0).getListener());
+		assertTrue("error", e.getCause() instanceof IllegalStateException);
+	}
+
+	@Test
+	public void testPooledEvent() throws Exception {
+		bus.setAsyncExecutor(Runnable::run);
+		QueueExecutor render = new QueueExecutor();
+		bus.setTargetExecutor("render", render);
+		bus.subscribe(new Object() {
+			@Listener(target = "render")
+			public void render(TestThetaEvent event) {
+				calls.add("render" + event.getId());
+			}
+		});
+		TestThetaEvent event = new EventPool<>(TestThetaEvent::new).acquire().setId(7);
+		CompletableFuture<Void> future = bus.postAsync(event);
+		assertEquals("event should be retained by the target", 1, event.referenceCount());
+		render.runAll();
+		future.get(5, TimeUnit.SECONDS);
+		assertEquals("delivered", Collections.singletonList("render7"), calls);
+		assertEquals("event should be recycled", 0, event.referenceCount());
+	}
+
+	@Test
+	public void testNoListener() throws Exception {
+		bus.postAsync(new TestAlphaEvent(1)).get(5, TimeUnit.SECONDS);
+	}
+
+	/**
+	 * Executor running tasks on demand.
+	 */
+	private static final class QueueExecutor implements Executor {
+		final Queue<Runnable> tasks = new ArrayDeque<>();
+
+		@Override
+		public void execute(Runnable command) {
+			tasks.add(command);
+		}
+
+		void runAll() {
+			Runnable task;
+			while ((task = tasks.poll()) != null) task.run();
+		}
+	}
+}
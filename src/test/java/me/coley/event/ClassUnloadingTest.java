@@ -0,0 +1,112 @@
+package me.coley.event;
+
+import me.coley.event.testevent.TestAlphaEvent;
+import org.junit.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Andy Li
+ */
+public class ClassUnloadingTest {
+	private static final String PLUGIN_PACKAGE = "me.coley.event.plugin.";
+
+	@Test
+	public void testUnsubscribeClassLoader() throws Exception {
+		EventBus bus = new EventBus();
+		List<String> delivered = new ArrayList<>();
+		WeakReference<ClassLoader> loaderRef = loadPlugin(bus, delivered);
+		assertEquals("delivered events", Arrays.asList("plugin", "alpha"), delivered);
+
+		bus.unsubscribeClassLoader(loaderRef.get());
+		delivered.clear();
+		bus.post(new TestAlphaEvent());
+		assertTrue("plugin listener shouldn't receive events", delivered.isEmpty());
+
+		for (int i = 0; i < 10 && loaderRef.get() != null; i++) {
+			System.gc();
+			Thread.sleep(50);
+		}
+		assertNull("plugin class loader should be collected", loaderRef.get());
+	}
+
+	@Test
+	public void testBusCollectable() throws Exception {
+		List<WeakReference<?>> refs = subscribeAndDrop();
+		for (int i = 0; i < 10 && refs.stream().anyMatch(ref -> ref.get() != null); i++) {
+			System.gc();
+			Thread.sleep(50);
+		}
+		assertNull("dropped bus should be collected", refs.get(0).get());
+		assertNull("listener of a dropped bus should be collected", refs.get(1).get());
+	}
+
+	private static List<WeakReference<?>> subscribeAndDrop() {
+		EventBus bus = new EventBus();
+		AlphaListener listener = new AlphaListener();
+		bus.subscribe(listener);
+		bus.post(new TestAlphaEvent());
+		assertEquals("delivered events", 1, listener.received);
+		return Arrays.asList(new WeakReference<>(bus), new WeakReference<>(listener));
+	}
+
+	@SuppressWarnings("unchecked")
+	private static WeakReference<ClassLoader> loadPlugin(EventBus bus, List<String> delivered) throws Exception {
+		ClassLoader loader = new PluginClassLoader(ClassUnloadingTest.class.getClassLoader());
+		Object listener = loader.loadClass(PLUGIN_PACKAGE + "PluginListener").getConstructor().newInstance();
+		((Consumer<List<String>>) listener).accept(delivered);
+		bus.subscribe(listener);
+		bus.post((Event) loader.loadClass(PLUGIN_PACKAGE + "PluginEvent").getConstructor().newInstance());
+		bus.post(new TestAlphaEvent());
+		return new WeakReference<>(loader);
+	}
+
+	public static final class AlphaListener {
+		int received;
+
+		@Listener
+		public void onAlphaEvent(TestAlphaEvent event) {
+			received++;
+		}
+	}
+
+	/**
+	 * Child-first class loader for the plugin package.
+	 */
+	static final class PluginClassLoader extends ClassLoader {
+		PluginClassLoader(ClassLoader parent) {
+			super(parent);
+		}
+
+		@Override
+		protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+			if (!name.startsWith(PLUGIN_PACKAGE)) return super.loadClass(name, resolve);
+			synchronized (getClassLoadingLock(name)) {
+				Class<?> cls = findLoadedClass(name);
+				if (cls == null) {
+					try (InputStream in = getParent().getResourceAsStream(name.replace('.', '/') + ".class")) {
+						if (in == null) throw new ClassNotFoundException(name);
+						ByteArrayOutputStream out = new ByteArrayOutputStream();
+						byte[] buffer = new byte[4096];
+						for (int n; (n = in.read(buffer)) != -1; ) out.write(buffer, 0, n);
+						byte[] bytes = out.toByteArray();
+						cls = defineClass(name, bytes, 0, bytes.length);
+					} catch (IOException ex) {
+						throw new ClassNotFoundException(name, ex);
+					}
+				}
+				if (resolve) resolveClass(cls);
+				return cls;
+			}
+		}
+	}
+}
@@ -0,0 +1,117 @@
+package me.coley.event;
+
+import me.coley.event.testevent.TestAlphaEvent;
+import me.coley.event.testevent.TestBetaEvent;
+import me.coley.event.testevent.TestDeltaEvent;
+import me.coley.event.testevent.TestGammaEvent;
+import org.junit.*;
+
+import javax.management.JMX;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Andy Li
+ */
+public class EventBusSnapshotTest {
+	private EventBus bus;
+
+	@Before
+	public void setup() {
+		this.bus = new EventBus();
+		for (int i = 0; i < 2; i++) {
+			bus.subscribe(new Object() {
+				@Listener
+				public void onBeta(TestBetaEvent event) {
+				}
+
+				@Listener
+				public void onGamma(TestGammaEvent event) {
+				}
+			});
+		}
+		bus.subscribe(new Object() {
+			@Listener
+			public void onAlpha(TestAlphaEvent event) {
+			}
+		});
+	}
+
+	private static EventBusSnapshot.EventTypeInfo find(EventBusSnapshot snapshot, Class<? extends Event> type) {
+		for (EventBusSnapshot.EventTypeInfo info : snapshot.getEventTypes()) {
+			if (info.getEventType() == type) return info;
+		}
+		throw new AssertionError("no handler for " + type);
+	}
+
+	@Test
+	public void testSnapshot() {
+		bus.post(new TestGammaEvent());
+		bus.post(new TestGammaEvent());
+		EventBusSnapshot snapshot = bus.snapshot();
+		assertEquals("listener objects", 3, snapshot.getListenerObjectCount());
+		assertEquals("handlers", 3, snapshot.getHandlerCount());
+		assertEquals("post count", 2, snapshot.getPostCount());
+
+		EventBusSnapshot.EventTypeInfo gamma = find(snapshot, TestGammaEvent.class);
+		assertEquals("gamma listeners", 2, gamma.getListenerCount());
+		assertEquals("gamma supertypes", Collections.singletonList(TestBetaEvent.class), gamma.getSupertypes());
+		assertTrue("gamma should be cached", gamma.isCached());
+		assertEquals("gamma posts", 2, gamma.getPostCount());
+
+		EventBusSnapshot.EventTypeInfo beta = find(snapshot, TestBetaEvent.class);
+		assertTrue("beta supertypes", beta.getSupertypes().isEmpty());
+		assertFalse("beta shouldn't be cached", beta.isCached());
+		List<Class<? extends Event>> neverPosted = snapshot.getNeverPostedEventTypes();
+		assertTrue("never posted", neverPosted.contains(TestAlphaEvent.class) && neverPosted.contains(TestBetaEvent.class));
+		assertFalse("posted", neverPosted.contains(TestGammaEvent.class));
+
+		bus.query(new TestAlphaEvent());
+		assertEquals("queries should be counted", 1, find(bus.snapshot(), TestAlphaEvent.class).getPostCount());
+		assertEquals("previous snapshot should be unchanged", 0, find(snapshot, TestAlphaEvent.class).getPostCount());
+
+		bus.unsubscribeClassLoader(getClass().getClassLoader());
+		snapshot = bus.snapshot();
+		assertEquals("listener objects after unsubscribing", 0, snapshot.getListenerObjectCount());
+		assertEquals("handlers after unsubscribing", 0, snapshot.getHandlerCount());
+	}
+
+	@Test
+	public void testPostCountSurvivesGc() throws InterruptedException {
+		bus.post(new TestDeltaEvent());
+		bus.post(new TestDeltaEvent());
+		for (int i = 0; i < 3; i++) {
+			System.gc();
+			Thread.sleep(20);
+		}
+		EventBusSnapshot snapshot = bus.snapshot();
+		assertEquals("post count of a type listened to through its supertype", 2,
+				find(snapshot, TestDeltaEvent.class).getPostCount());
+		assertFalse("posted", snapshot.getNeverPostedEventTypes().contains(TestDeltaEvent.class));
+	}
+
+	@Test
+	public void testMXBean() throws Exception {
+		ObjectName name = bus.registerMXBean("EventBusSnapshotTest");
+		try {
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			EventBusMXBean proxy = JMX.newMXBeanProxy(server, name, EventBusMXBean.class);
+			assertEquals("handlers", 3, proxy.getHandlerCount());
+			Map<String, Integer> listeners = proxy.getListenerCounts();
+			assertEquals("gamma listeners", 2, (int) listeners.get(TestGammaEvent.class.getName()));
+			assertEquals("never posted", 3, proxy.getNeverPostedEventTypes().length);
+
+			bus.post(new TestAlphaEvent());
+			assertEquals("post count", 1, proxy.getPostCount());
+			assertEquals("rate before the first sample", 0, proxy.getPostRate(), 0);
+		} finally {
+			ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+		}
+	}
+}
@@ -6,7 +6,14 @@ import org.junit.*;
 import java.lang.invoke.MethodHandles;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
 
 import static org.junit.Assert.*;
 
@@ -133,6 +140,30 @@ public class EventBusTest {
 		});
 	}
 
+	@Test
+	public void testSupertypeSubscribedAfterPost() {
+		bus.subscribe(new Object() {
+			@Listener
+			public void onAlpha(TestAlphaEvent event) {
+				marker.mark(TestAlphaEvent.class);
+			}
+		});
+		bus.post(new TestAlphaEvent());
+		Object object = new Object() {
+			@Listener
+			public void onEvent(Event event) {
+				marker.mark(Event.class);
+			}
+		};
+		bus.subscribe(object);
+		bus.post(new TestAlphaEvent());
+		marker.assertMarkedOnce("One %s should be delivered to the supertype listener", Event.class);
+		bus.unsubscribe(object);
+		bus.post(new TestAlphaEvent());
+		marker.assertMarkedOnce("%s shouldn't be delivered after unsubscribing", Event.class);
+		marker.assertMarkedNTimes("Three %ss should be delivered", TestAlphaEvent.class, 3);
+	}
+
 	@Test
 	public void testInheritedListener() {
 		new MyListenerImpl();
@@ -242,6 +273,414 @@ public class EventBusTest {
 		marker.assertMarkedOnce("One %s should be delivered", TestAlphaEvent.class);
 	}
 
+	@Test
+	public void testConflation() {
+		List<Runnable> tasks = new ArrayList<>();
+		bus.setAsyncExecutor(tasks::add);
+		List<String> delivered = new ArrayList<>();
+		bus.subscribe(new Object() {
+			@Listener(conflate = true)
+			public void onEvent(TestEtaEvent event) {
+				delivered.add(event.key + event.id);
+			}
+		});
+		bus.post(new TestEtaEvent("a", 1));
+		bus.post(new TestEtaEvent("b", 1));
+		bus.post(new TestEtaEvent("a", 2));
+		bus.post(new TestEtaEvent(null, 1));
+		bus.post(new TestEtaEvent(null, 2));
+		bus.post(new TestEtaEvent("a", 3));
+		assertEquals("only one drain task should be scheduled", 1, tasks.size());
+		assertTrue("nothing should be delivered synchronously", delivered.isEmpty());
+
+		tasks.remove(0).run();
+		assertEquals("delivered events", Arrays.asList("a3", "b1", "null1", "null2"), delivered);
+		assertEquals("conflated count", 2, bus.getConflatedEventCount());
+
+		bus.post(new TestEtaEvent("a", 4));
+		assertEquals("a new drain task should be scheduled", 1, tasks.size());
+		tasks.remove(0).run();
+		assertEquals("last delivered event", "a4", delivered.get(delivered.size() - 1));
+	}
+
+	@Test
+	public void testKeyedRouting() {
+		List<String> delivered = new ArrayList<>();
+		bus.subscribe(new Object() {
+			@Listener(priority = 1, key = "a")
+			public void onEventA(TestEtaEvent event) {
+				delivered.add("a" + event.id);
+			}
+
+			@Listener(priority = 2)
+			public void onEventAll(TestEtaEvent event) {
+				delivered.add("*" + event.id);
+			}
+		});
+		for (String key : new String[]{ "b", "c" }) {
+			bus.subscribeKeyed(new Object() {
+				@Listener(priority = 3)
+				public void onEvent(TestEtaEvent event) {
+					delivered.add(key + event.id);
+				}
+
+				@Listener
+				public void onAlphaEvent(TestAlphaEvent event) {
+					delivered.add(key + "!");
+				}
+			}, key);
+		}
+
+		bus.post(new TestEtaEvent("a", 1));
+		bus.post(new TestEtaEvent("b", 2));
+		bus.post(new TestEtaEvent("d", 3));
+		bus.post(new TestEtaEvent(null, 4));
+		bus.post(new TestAlphaEvent());
+		assertEquals("delivered order", Arrays.asList("a1", "*1", "*2", "b2", "*3", "*4"), delivered);
+	}
+
+	@Test
+	public void testDispatchStrategy() {
+		List<String> delivered = new ArrayList<>();
+		bus.subscribe(new Object() {
+			@Listener(priority = 1)
+			public void onAlpha1(TestAlphaEvent event) {
+				delivered.add("a" + event.id);
+				if (event.id < 2) bus.post(new TestAlphaEvent(event.id + 1));
+			}
+
+			@Listener(priority = 2)
+			public void onAlpha2(TestAlphaEvent event) {
+				delivered.add("A" + event.id);
+			}
+		});
+
+		bus.post(new TestAlphaEvent(0));
+		assertEquals("immediate order", Arrays.asList("a0", "a1", "a2", "A2", "A1", "A0"), delivered);
+		delivered.clear();
+
+		bus.setDispatchStrategy(DispatchStrategy.QUEUED);
+		bus.post(new TestAlphaEvent(0));
+		assertEquals("queued order", Arrays.asList("a0", "A0", "a1", "A1", "a2", "A2"), delivered);
+	}
+
+	@Test
+	public void testQueuedDeepCascade() {
+		bus.setDispatchStrategy(DispatchStrategy.QUEUED);
+		int[] count = new int[1];
+		bus.subscribe(new Object() {
+			@Listener
+			public void onAlpha(TestAlphaEvent event) {
+				count[0]++;
+				if (event.id < 1_000_000) bus.post(new TestAlphaEvent(event.id + 1));
+			}
+		});
+		bus.post(new TestAlphaEvent(0));
+		assertEquals("delivered count", 1_000_001, count[0]);
+	}
+
+	@Test
+	public void testQueuedDiscardOnException() {
+		bus.setDispatchStrategy(DispatchStrategy.QUEUED);
+		List<Integer> delivered = new ArrayList<>();
+		bus.subscribe(new Object() {
+			@Listener
+			public void onAlpha(TestAlphaEvent event) {
+				delivered.add(event.id);
+				if (event.id == 0) {
+					bus.post(new TestAlphaEvent(1));
+					throw new IllegalStateException();
+				}
+			}
+		});
+		try {
+			bus.post(new TestAlphaEvent(0));
+			fail("exception should be propagated");
+		} catch (IllegalStateException expected) {
+			// expected
+		}
+		bus.post(new TestAlphaEvent(2));
+		assertEquals("delivered ids", Arrays.asList(0, 2), delivered);
+	}
+
+	@Test
+	public void testQuery() {
+		List<String> called = new ArrayList<>();
+		bus.subscribe(new Object() {
+			@Listener(priority = 1)
+			public void onAlpha1(TestAlphaEvent event) {
+				called.add("void");
+			}
+
+			@Listener(priority = 2)
+			public String onAlpha2(TestAlphaEvent event) {
+				called.add("null");
+				return null;
+			}
+
+			@Listener(priority = 3)
+			public String onAlpha3(TestAlphaEvent event) {
+				called.add("answer");
+				return event.id > 0 ? "answer" + event.id : null;
+			}
+
+			@Listener(priority = 4)
+			public String onAlpha4(TestAlphaEvent event) {
+				called.add("late");
+				return "late";
+			}
+		});
+
+		String answer = bus.query(new TestAlphaEvent(1));
+		assertEquals("first answer", "answer1", answer);
+		assertEquals("dispatch should stop at the first answer", Arrays.asList("void", "null", "answer"), called);
+		called.clear();
+
+		answer = bus.query(new TestAlphaEvent(0));
+		assertEquals("later answer", "late", answer);
+		assertEquals("called listeners", Arrays.asList("void", "null", "answer", "late"), called);
+
+		assertNull("no listener for the event", bus.query(new TestBetaEvent()));
+	}
+
+	@Test
+	public void testQueryAll() {
+		bus.subscribe(new Object() {
+			@Listener(priority = 1)
+			public int onAlpha1(TestAlphaEvent event) {
+				return event.id;
+			}
+
+			@Listener(priority = 2)
+			public void onAlpha2(TestAlphaEvent event) {
+			}
+
+			@Listener(priority = 3)
+			public int onAlpha3(TestAlphaEvent event) {
+				return event.id * 2;
+			}
+		});
+		List<Integer> answers = bus.queryAll(new TestAlphaEvent(21), Collectors.toList());
+		assertEquals("collected answers", Arrays.asList(21, 42), answers);
+	}
+
+	@Test
+	public void testPostDelayed() throws InterruptedException {
+		bus.setAsyncExecutor(Runnable::run);
+		List<Integer> delivered = Collections.synchronizedList(new ArrayList<>());
+		CountDownLatch latch = new CountDownLatch(2);
+		bus.subscribe(new Object() {
+			@Listener
+			public void onAlpha(TestAlphaEvent event) {
+				delivered.add(event.id);
+				latch.countDown();
+			}
+		});
+
+		long start = System.nanoTime();
+		ScheduledPost post2 = bus.postDelayed(new TestAlphaEvent(2), 40, TimeUnit.MILLISECONDS);
+		ScheduledPost post1 = bus.postDelayed(new TestAlphaEvent(1), 20, TimeUnit.MILLISECONDS);
+		ScheduledPost post3 = bus.postDelayed(new TestAlphaEvent(3), 30, TimeUnit.MILLISECONDS);
+		assertTrue("cancel should succeed", post3.cancel());
+		assertTrue("post should be cancelled", post3.isCancelled());
+		assertTrue("delayed events should be delivered", latch.await(5, TimeUnit.SECONDS));
+		assertTrue("delivered too early", System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(40));
+		assertEquals("delivered ids", Arrays.asList(1, 2), delivered);
+		assertFalse("cancel after delivery should fail", post1.cancel());
+		assertFalse("post shouldn't be cancelled", post2.isCancelled());
+	}
+
+	@Test
+	public void testPostAtFixedRate() throws InterruptedException {
+		bus.setAsyncExecutor(Runnable::run);
+		AtomicInteger count = new AtomicInteger();
+		CountDownLatch latch = new CountDownLatch(5);
+		bus.subscribe(new Object() {
+			@Listener
+			public void onAlpha(TestAlphaEvent event) {
+				count.incrementAndGet();
+				latch.countDown();
+			}
+		});
+
+		ScheduledPost post = bus.postAtFixedRate(new TestAlphaEvent(), 0, 5, TimeUnit.MILLISECONDS);
+		assertTrue("periodic events should be delivered", latch.await(5, TimeUnit.SECONDS));
+		assertTrue("cancel should succeed", post.cancel());
+		assertFalse("second cancel should fail", post.cancel());
+		int cancelledCount = count.get();
+		Thread.sleep(30);
+		assertTrue("no more events should be delivered after cancel", count.get() <= cancelledCount + 1);
+	}
+
+	private boolean isPrepared(Class<? extends Event> type) {
+		return bus.snapshot().getEventTypes().stream()
+				.filter(info -> info.getEventType() == type)
+				.allMatch(EventBusSnapshot.EventTypeInfo::isCached);
+	}
+
+	@Test
+	public void testPrepare() {
+		bus.subscribe(new Object() {
+			@Listener
+			public void onBeta(TestBetaEvent event) {
+				marker.mark(TestBetaEvent.class);
+			}
+		});
+		bus.prepare(TestGammaEvent.class);
+		assertTrue("prepared", isPrepared(TestGammaEvent.class));
+		assertEquals("supertype handler should be linked", Collections.singletonList(TestBetaEvent.class),
+				bus.snapshot().getEventTypes().stream()
+						.filter(info -> info.getEventType() == TestGammaEvent.class)
+						.findFirst().get().getSupertypes());
+
+		bus.subscribe(new Object() {
+			@Listener
+			public void onGamma(TestGammaEvent event) {
+				marker.mark(TestGammaEvent.class);
+			}
+		});
+		assertFalse("subscribing should invalidate", isPrepared(TestGammaEvent.class));
+		bus.post(new TestGammaEvent());
+		marker.assertMarkedOnce("supertype listener", TestBetaEvent.class);
+		marker.assertMarkedOnce("new listener", TestGammaEvent.class);
+		assertTrue("post should rebuild", isPrepared(TestGammaEvent.class));
+	}
+
+	@Test
+	public void testPreparedSubtypeSurvivesGc() throws InterruptedException {
+		bus.subscribe(new Object() {
+			@Listener
+			public void onBeta(TestBetaEvent event) {
+				marker.mark(TestBetaEvent.class);
+			}
+		});
+		bus.prepare(TestDeltaEvent.class);
+		bus.post(new TestDeltaEvent());
+		for (int i = 0; i < 3; i++) {
+			System.gc();
+			Thread.sleep(20);
+		}
+		assertTrue("handler of a subtype with listeners should be kept", isPrepared(TestDeltaEvent.class));
+	}
+
+	@Test
+	public void testAutoPrepare() {
+		bus.setAsyncExecutor(Runnable::run);
+		bus.setAutoPrepare(true);
+		bus.prepare(TestGammaEvent.class);
+		bus.subscribe(new Object() {
+			@Listener
+			public void onBeta(TestBetaEvent event) {
+			}
+		});
+		assertTrue("prepared types should be rebuilt", isPrepared(TestGammaEvent.class));
+		assertFalse("unprepared types shouldn't be rebuilt", isPrepared(TestBetaEvent.class));
+
+		bus.setAutoPrepare(false);
+		bus.subscribe(new Object() {
+			@Listener
+			public void onGamma(TestGammaEvent event) {
+			}
+		});
+		assertFalse("auto-prepare disabled", isPrepared(TestGammaEvent.class));
+	}
+
+	@Test
+	public void testConcurrentInvalidation() throws InterruptedException {
+		AtomicInteger received = new AtomicInteger();
+		Object listener = new Object() {
+			@Listener
+			public void onAlpha(TestAlphaEvent event) {
+				received.incrementAndGet();
+			}
+		};
+		Thread poster = new Thread(() -> {
+			for (int i = 0; i < 100_000; i++) bus.post(new TestAlphaEvent());
+		});
+		poster.start();
+		for (int i = 0; i < 1_000; i++) {
+			bus.subscribe(listener);
+			bus.unsubscribe(listener);
+		}
+		poster.join();
+
+		bus.subscribe(listener);
+		received.set(0);
+		bus.post(new TestAlphaEvent());
+		assertEquals("a stale cache shouldn't survive invalidation", 1, received.get());
+	}
+
+	@Test
+	public void testPostDuringSubscribe() throws InterruptedException {
+		AtomicInteger received = new AtomicInteger();
+		bus.subscribe(new Object() {
+			@Listener
+			public void onAlpha(TestAlphaEvent event) {
+				received.incrementAndGet();
+			}
+		});
+		Thread poster = new Thread(() -> bus.post(new TestAlphaEvent()));
+		synchronized (bus) {
+			// As if a subscribe were in progress, after it invalidated the cache
+			bus.subscribe(new Object() {
+				@Listener
+				public void onGamma(TestGammaEvent event) {
+				}
+			});
+			poster.start();
+			poster.join(5000);
+			assertFalse("post shouldn't wait for a subscribe", poster.isAlive());
+		}
+		assertEquals("received", 1, received.get());
+
+		AtomicBoolean done = new AtomicBoolean();
+		Thread looper = new Thread(() -> {
+			while (!done.get()) bus.post(new TestAlphaEvent());
+		});
+		looper.start();
+		List<KeyedListener> listeners = new ArrayList<>();
+		for (int i = 0; i < 2_000; i++) {
+			KeyedListener listener = new KeyedListener();
+			bus.subscribeKeyed(listener, "k" + i);
+			listeners.add(listener);
+		}
+		done.set(true);
+		looper.join();
+		for (int i = 0; i < listeners.size(); i++) {
+			bus.post(new TestEtaEvent("k" + i, i));
+			assertEquals("keyed listener subscribed during posts", 1, listeners.get(i).received);
+		}
+	}
+
+	public static class KeyedListener {
+		int received;
+
+		@Listener
+		public void onKeyed(TestEtaEvent event) {
+			received++;
+		}
+	}
+
+	@Test
+	@SuppressWarnings("deprecation")
+	public void testDeprecatedInvokerAccess() {
+		KeyedListener listener = new KeyedListener();
+		bus.subscribeKeyed(listener, "k");
+		assertTrue("subscribed listener", bus.listenerToInvokers.containsKey(listener));
+		assertEquals("listener count", 1, bus.listenerToInvokers.size());
+		Set<EventBus.InvokeWrapper> invokers = bus.listenerToInvokers.get(listener);
+		assertEquals("invokers of the listener", 1, invokers.size());
+		assertSame("invoker should hold the listener", listener,
+				invokers.iterator().next().listenerOf(invokers.iterator().next().receivers()[0]));
+		assertEquals("view entries", Collections.singleton(listener), bus.listenerToInvokers.keySet());
+
+		Set<EventBus.InvokeWrapper> unbound = EventBus.getInvokers(listener, MethodHandles.lookup());
+		assertEquals("listener methods", 1, unbound.size());
+		assertEquals("listeners of a new invoker", 1, unbound.iterator().next().listenerCount());
+		bus.unsubscribe(listener);
+		assertNull("unsubscribed listener", bus.listenerToInvokers.get(listener));
+	}
+
 	@Test(expected = IllegalArgumentException.class)
 	public void testEmptyListener() {
 		bus.subscribe(new Object());
@@ -0,0 +1,133 @@
+package me.coley.event;
+
+import me.coley.event.testevent.TestThetaEvent;
+import org.junit.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Andy Li
+ */
+public class EventPoolTest {
+	private EventBus bus;
+	private EventPool<TestThetaEvent> pool;
+
+	@Before
+	public void setup() {
+		this.bus = new EventBus();
+		this.pool = new EventPool<>(TestThetaEvent::new);
+	}
+
+	@Test
+	public void testRecycleAfterPost() {
+		List<Integer> delivered = new ArrayList<>();
+		bus.subscribe(new Object() {
+			@Listener
+			public void onEvent(TestThetaEvent event) {
+				delivered.add(event.getId());
+			}
+		});
+
+		TestThetaEvent event = pool.acquire().setId(42);
+		assertEquals("reference count after acquire", 1, event.referenceCount());
+		bus.post(event);
+		assertEquals("delivered ids", 42, (int) delivered.get(0));
+		assertEquals("reference count after post", 0, event.referenceCount());
+		assertEquals("event should be returned to the pool", 1, pool.pooledCount());
+
+		TestThetaEvent reused = pool.acquire();
+		assertSame("event should be reused", event, reused);
+		assertEquals("event should be reset", 0, reused.getId());
+		assertEquals("pool should be empty", 0, pool.pooledCount());
+	}
+
+	@Test
+	public void testRetainedByAsyncListener() {
+		List<Runnable> tasks = new ArrayList<>();
+		List<Integer> delivered = new ArrayList<>();
+		bus.setAsyncExecutor(tasks::add);
+		bus.subscribe(new Object() {
+			@Listener(conflate = true)
+			public void onEvent(TestThetaEvent event) {
+				delivered.add(event.getId());
+			}
+		});
+
+		TestThetaEvent event = pool.acquire().setId(7);
+		bus.post(event);
+		assertEquals("event should be retained by the mailbox", 1, event.referenceCount());
+		assertEquals("event shouldn't be returned to the pool", 0, pool.pooledCount());
+
+		tasks.remove(0).run();
+		assertEquals("delivered ids", 7, (int) delivered.get(0));
+		assertEquals("event should be released after delivery", 0, event.referenceCount());
+		assertEquals("event should be returned to the pool", 1, pool.pooledCount());
+	}
+
+	@Test
+	public void testUnpooledEvent() {
+		TestThetaEvent event = new TestThetaEvent().setId(1);
+		bus.post(event);
+		bus.post(event);
+		assertEquals("unpooled event should still be accessible", 1, event.getId());
+	}
+
+	@Test
+	public void testDebugDetectsKeptEvent() {
+		pool.setDebug(true);
+		List<TestThetaEvent> kept = new ArrayList<>();
+		bus.subscribe(new Object() {
+			@Listener
+			public void onEvent(TestThetaEvent event) {
+				kept.add(event);
+			}
+		});
+
+		TestThetaEvent event = pool.acquire().setId(1);
+		bus.post(event);
+		assertEquals("event shouldn't be returned to the pool in debug mode", 0, pool.pooledCount());
+		assertNotSame("a new event should be created in debug mode", event, pool.acquire());
+		try {
+			kept.get(0).getId();
+			fail("accessing a kept event should fail in debug mode");
+		} catch (IllegalStateException expected) {
+			assertNotNull("exception should point to where the event was recycled", expected.getCause());
+		}
+	}
+
+	@Test
+	public void testRepostDetected() {
+		pool.setDebug(true);
+		List<TestThetaEvent> kept = new ArrayList<>();
+		bus.subscribe(new Object() {
+			@Listener
+			public void onEvent(TestThetaEvent event) {
+				kept.add(event);
+			}
+		});
+
+		bus.post(pool.acquire().setId(1));
+		try {
+			bus.post(kept.get(0));
+			fail("posting a recycled event should fail");
+		} catch (IllegalStateException expected) {
+			assertNotNull("exception should point to where the event was recycled", expected.getCause());
+		}
+		try {
+			kept.get(0).retain();
+			fail("retaining a recycled event should fail");
+		} catch (IllegalStateException expected) {
+		}
+		assertEquals("recycled event shouldn't be delivered again", 1, kept.size());
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testReleaseTwice() {
+		TestThetaEvent event = pool.acquire();
+		event.release();
+		event.release();
+	}
+}
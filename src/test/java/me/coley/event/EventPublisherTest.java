@@ -0,0 +1,167 @@
+package me.coley.event;
+
+import me.coley.event.testevent.TestAlphaEvent;
+import org.junit.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Flow;
+
+import static org.junit.Assert.*;
+
+/**
+ * Requires Java 9+, and the multi-release layer on the class path.
+ *
+ * @author Andy Li
+ */
+public class EventPublisherTest {
+	private EventBus bus;
+
+	@Before
+	public void setup() {
+		this.bus = new EventBus();
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <E extends Event> Flow.Publisher<E> flow(EventPublisher<E> publisher) {
+		return (Flow.Publisher<E>) (Object) publisher;
+	}
+
+	private RecordingSubscriber subscribe(OverflowStrategy strategy, int bufferSize) {
+		RecordingSubscriber subscriber = new RecordingSubscriber();
+		flow(bus.publisher(TestAlphaEvent.class, strategy, bufferSize)).subscribe(subscriber);
+		assertNotNull("onSubscribe should be called", subscriber.subscription);
+		return subscriber;
+	}
+
+	private void post(int... ids) {
+		for (int id : ids) bus.post(new TestAlphaEvent(id));
+	}
+
+	@Test
+	public void testDemand() {
+		RecordingSubscriber subscriber = subscribe(OverflowStrategy.BUFFER, 10);
+		subscriber.subscription.request(2);
+		post(1, 2, 3, 4, 5);
+		assertEquals("only requested events should be delivered", Arrays.asList(1, 2), subscriber.received);
+		subscriber.subscription.request(2);
+		assertEquals("buffered events should be delivered on request", Arrays.asList(1, 2, 3, 4), subscriber.received);
+		subscriber.subscription.request(Long.MAX_VALUE);
+		post(6);
+		assertEquals("all events", Arrays.asList(1, 2, 3, 4, 5, 6), subscriber.received);
+		assertNull("no error", subscriber.error);
+	}
+
+	@Test
+	public void testDrop() {
+		EventPublisher<TestAlphaEvent> publisher = bus.publisher(TestAlphaEvent.class, OverflowStrategy.DROP, 1);
+		RecordingSubscriber subscriber = new RecordingSubscriber();
+		flow(publisher).subscribe(subscriber);
+		subscriber.subscription.request(1);
+		post(1, 2, 3);
+		subscriber.subscription.request(1);
+		post(4);
+		assertEquals("received events", Arrays.asList(1, 4), subscriber.received);
+		assertEquals("dropped count", 2, publisher.getDroppedCount());
+	}
+
+	@Test
+	public void testLatest() {
+		RecordingSubscriber subscriber = subscribe(OverflowStrategy.LATEST, 1);
+		post(1, 2, 3);
+		subscriber.subscription.request(2);
+		post(4);
+		assertEquals("received events", Arrays.asList(3, 4), subscriber.received);
+	}
+
+	@Test
+	public void testBufferOverflow() {
+		RecordingSubscriber subscriber = subscribe(OverflowStrategy.BUFFER, 2);
+		subscriber.subscription.request(1);
+		post(1, 2, 3);
+		assertNull("buffer shouldn't overflow yet", subscriber.error);
+		post(4);
+		assertTrue("buffer should overflow", subscriber.error instanceof IllegalStateException);
+		subscriber.subscription.request(10);
+		post(5);
+		assertEquals("received events", Collections.singletonList(1), subscriber.received);
+		assertTrue("subscription should be unregistered", bus.subscriptions.isEmpty());
+	}
+
+	@Test
+	public void testFail() {
+		RecordingSubscriber subscriber = subscribe(OverflowStrategy.FAIL, 1);
+		subscriber.subscription.request(1);
+		post(1, 2);
+		assertEquals("received events", Collections.singletonList(1), subscriber.received);
+		assertTrue("event without demand should fail", subscriber.error instanceof IllegalStateException);
+	}
+
+	@Test
+	public void testIllegalRequest() {
+		RecordingSubscriber subscriber = subscribe(OverflowStrategy.BUFFER, 1);
+		subscriber.subscription.request(0);
+		assertTrue("non-positive request should fail", subscriber.error instanceof IllegalArgumentException);
+	}
+
+	@Test
+	public void testCancel() {
+		RecordingSubscriber subscriber = subscribe(OverflowStrategy.BUFFER, 10);
+		post(1, 2);
+		subscriber.subscription.cancel();
+		assertTrue("subscription should be unregistered", bus.subscriptions.isEmpty());
+		subscriber.subscription.request(10);
+		post(3);
+		assertTrue("nothing should be delivered after cancel", subscriber.received.isEmpty());
+	}
+
+	@Test
+	public void testRequestDuringSignal() {
+		RecordingSubscriber subscriber = new RecordingSubscriber() {
+			@Override
+			public void onSubscribe(Flow.Subscription subscription) {
+				super.onSubscribe(subscription);
+				subscription.request(1);
+			}
+
+			@Override
+			public void onNext(TestAlphaEvent item) {
+				received.add(item.id);
+				if (item.id < 3) bus.post(new TestAlphaEvent(item.id + 1));
+				subscription.request(1);
+			}
+		};
+		flow(bus.publisher(TestAlphaEvent.class)).subscribe(subscriber);
+		post(1);
+		assertEquals("signals should be serialized", Arrays.asList(1, 2, 3), subscriber.received);
+	}
+
+	private static class RecordingSubscriber implements Flow.Subscriber<TestAlphaEvent> {
+		final List<Integer> received = new ArrayList<>();
+		Flow.Subscription subscription;
+		Throwable error;
+
+		@Override
+		public void onSubscribe(Flow.Subscription subscription) {
+			this.subscription = subscription;
+		}
+
+		@Override
+		public void onNext(TestAlphaEvent item) {
+			received.add(item.id);
+		}
+
+		@Override
+		public void onError(Throwable throwable) {
+			assertNull("onError should be called only once", error);
+			this.error = throwable;
+		}
+
+		@Override
+		public void onComplete() {
+			fail("subscriptions should never complete");
+		}
+	}
+}
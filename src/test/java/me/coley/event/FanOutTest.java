@@ -0,0 +1,185 @@
+package me.coley.event;
+
+import me.coley.event.testevent.TestAlphaEvent;
+import me.coley.event.testevent.TestBetaEvent;
+import me.coley.event.testevent.TestThetaEvent;
+import org.junit.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.*;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Andy Li
+ */
+public class FanOutTest {
+	private EventBus bus;
+	private ForkJoinPool pool;
+
+	@Before
+	public void setup() {
+		this.bus = new EventBus();
+		this.pool = new ForkJoinPool(3);
+		bus.setFanOutPool(TestAlphaEvent.class, pool);
+	}
+
+	@After
+	public void teardown() {
+		pool.shutdownNow();
+	}
+
+	@Test
+	public void testConcurrentBand() {
+		// Deadlocks unless all listeners of the band run at the same time
+		CyclicBarrier barrier = new CyclicBarrier(4);
+		for (int i = 0; i < 2; i++) bus.subscribe(new BarrierListener(barrier));
+		bus.subscribe(new Object() {
+			@Listener
+			public void onAlpha(TestAlphaEvent event) throws Exception {
+				barrier.await(5, TimeUnit.SECONDS);
+			}
+
+			@Listener
+			public void onBeta(TestAlphaEvent event) throws Exception {
+				barrier.await(5, TimeUnit.SECONDS);
+			}
+		});
+		assertSame("pool", pool, bus.getFanOutPool(TestAlphaEvent.class));
+		bus.post(new TestAlphaEvent(1));
+		assertEquals("barrier should be tripped", 0, barrier.getNumberWaiting());
+	}
+
+	@Test
+	public void testBandOrder() {
+		List<String> calls = Collections.synchronizedList(new ArrayList<>());
+		bus.subscribe(new Object() {
+			@Listener(priority = -1)
+			public void first1(TestAlphaEvent event) {
+				calls.add("first");
+			}
+
+			@Listener(priority = -1)
+			public void first2(TestAlphaEvent event) {
+				calls.add("first");
+			}
+
+			@Listener
+			public void second1(TestAlphaEvent event) {
+				calls.add("second");
+			}
+
+			@Listener
+			public void second2(TestAlphaEvent event) {
+				calls.add("second");
+			}
+
+			@Listener(priority = 1)
+			public void third(TestAlphaEvent event) {
+				calls.add("third");
+			}
+		});
+		for (int i = 0; i < 100; i++) {
+			calls.clear();
+			bus.post(new TestAlphaEvent(i));
+			assertEquals("bands should be ordered", Arrays.asList("first", "first", "second", "second", "third"), calls);
+		}
+	}
+
+	@Test
+	public void testExceptions() {
+		List<Integer> calls = Collections.synchronizedList(new ArrayList<>());
+		bus.subscribe(new Object() {
+			@Listener
+			public void fail1(TestAlphaEvent event) {
+				throw new IllegalStateException("fail1");
+			}
+
+			@Listener
+			public void fail2(TestAlphaEvent event) {
+				throw new IllegalStateException("fail2");
+			}
+
+			@Listener
+			public void succeed(TestAlphaEvent event) {
+				calls.add(0);
+			}
+
+			@Listener(priority = 1)
+			public void skipped(TestAlphaEvent event) {
+				calls.add(1);
+			}
+		});
+		try {
+			bus.post(new TestAlphaEvent(1));
+			fail("exception should be rethrown");
+		} catch (IllegalStateException e) {
+			assertEquals("other exception should be suppressed", 1, e.getSuppressed().length);
+			assertTrue("suppressed exception", e.getSuppressed()[0] instanceof IllegalStateException);
+		}
+		assertEquals("band should complete, and following bands should be skipped", Collections.singletonList(0), calls);
+	}
+
+	@Test
+	public void testSequential() {
+		List<Thread> threads = Collections.synchronizedList(new ArrayList<>());
+		for (int i = 0; i < 4; i++) {
+			bus.subscribe(new Object() {
+				@Listener
+				public void onBeta(TestBetaEvent event) {
+					threads.add(Thread.currentThread());
+				}
+			});
+		}
+		assertNull("other types should have no pool", bus.getFanOutPool(TestBetaEvent.class));
+		bus.post(new TestBetaEvent());
+		assertEquals("other types should be delivered on the posting thread", Collections.nCopies(4, Thread.currentThread()), threads);
+
+		bus.setFanOutPool(TestAlphaEvent.class, null);
+		bus.subscribe(new Object() {
+			@Listener
+			public void onAlpha(TestAlphaEvent event) {
+				threads.add(Thread.currentThread());
+			}
+		});
+		threads.clear();
+		bus.post(new TestAlphaEvent(1));
+		assertEquals("delivered on the posting thread after removing the pool", Collections.singletonList(Thread.currentThread()), threads);
+	}
+
+	@Test
+	public void testPooledEvent() {
+		EventPool<TestThetaEvent> events = new EventPool<>(TestThetaEvent::new);
+		bus.setFanOutPool(TestThetaEvent.class, pool);
+		List<Integer> values = Collections.synchronizedList(new ArrayList<>());
+		for (int i = 0; i < 4; i++) {
+			bus.subscribe(new Object() {
+				@Listener
+				public void onTheta(TestThetaEvent event) {
+					values.add(event.getId());
+				}
+			});
+		}
+		for (int i = 0; i < 10; i++) {
+			bus.post(events.acquire().setId(i));
+		}
+		assertEquals("all values", 40, values.size());
+		for (int i = 0; i < 10; i++) assertEquals("value " + i, 4, Collections.frequency(values, i));
+	}
+
+	public static class BarrierListener {
+		private final CyclicBarrier barrier;
+
+		BarrierListener(CyclicBarrier barrier) {
+			this.barrier = barrier;
+		}
+
+		@Listener
+		public void onAlpha(TestAlphaEvent event) throws Exception {
+			barrier.await(5, TimeUnit.SECONDS);
+		}
+	}
+}
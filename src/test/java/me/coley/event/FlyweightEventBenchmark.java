@@ -0,0 +1,79 @@
+package me.coley.event;
+
+import me.coley.event.testevent.TestIotaEvent;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.lang.invoke.MethodHandles;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures flyweight dispatch throughput. Run with the GC profiler to check that
+ * {@code gc.alloc.rate.norm} stays at zero bytes per post.
+ *
+ * @author Andy Li
+ */
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 3, time = 3)
+@Measurement(iterations = 3, time = 10)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class FlyweightEventBenchmark {
+	private static final int RECORDS = 1024;
+
+	public static void main(String[] args) throws RunnerException {
+		Options opt = new OptionsBuilder()
+				.include(FlyweightEventBenchmark.class.getSimpleName())
+				.addProfiler(GCProfiler.class)
+				.build();
+
+		new Runner(opt).run();
+	}
+
+	private ByteBuffer buffer;
+	private FlyweightPublisher<TestIotaEvent> publisher;
+
+	@Setup
+	public void setup() {
+		this.buffer = ByteBuffer.allocateDirect(RECORDS * TestIotaEvent.LAYOUT.size()).order(ByteOrder.nativeOrder());
+		TestIotaEvent writer = new TestIotaEvent();
+		for (int i = 0; i < RECORDS; i++) {
+			writer.wrap(buffer, i * TestIotaEvent.LAYOUT.size());
+			TestIotaEvent.ID.set(writer, i);
+			TestIotaEvent.PRICE.set(writer, i * 100L);
+		}
+
+		EventBus bus = new EventBus();
+		bus.subscribe(MyListener.INSTANCE, MethodHandles.lookup());
+		this.publisher = new FlyweightPublisher<>(bus, TestIotaEvent::new);
+	}
+
+	@TearDown
+	public void tearDown() {
+		if (MyListener.INSTANCE.sum == 0) throw new RuntimeException("listener wasn't being called!");
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(RECORDS)
+	public void publishAll() {
+		publisher.publishAll(buffer, 0, RECORDS);
+	}
+
+	static class MyListener {
+		static final MyListener INSTANCE = new MyListener();
+
+		long sum;
+
+		@Listener
+		public void onIotaEvent(TestIotaEvent event) {
+			sum += event.price();
+		}
+	}
+}
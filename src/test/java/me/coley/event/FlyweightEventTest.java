@@ -0,0 +1,69 @@
+package me.coley.event;
+
+import me.coley.event.testevent.TestIotaEvent;
+import org.junit.*;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Andy Li
+ */
+public class FlyweightEventTest {
+	@Test
+	public void testLayout() {
+		FlyweightLayout layout = TestIotaEvent.LAYOUT;
+		assertEquals("id offset", 0, TestIotaEvent.ID.offset());
+		assertEquals("price offset should be aligned", 8, TestIotaEvent.PRICE.offset());
+		assertEquals("flags offset", 16, TestIotaEvent.FLAGS.offset());
+		assertEquals("size should be padded to the largest alignment", 24, layout.size());
+		assertEquals("fields", Arrays.asList(TestIotaEvent.ID, TestIotaEvent.PRICE, TestIotaEvent.FLAGS), layout.fields());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testDuplicateField() {
+		FlyweightLayout.Builder builder = FlyweightLayout.builder();
+		builder.int32("id");
+		builder.int64("id");
+	}
+
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void testWrapOutOfBounds() {
+		new TestIotaEvent().wrap(ByteBuffer.allocate(TestIotaEvent.LAYOUT.size()), 1);
+	}
+
+	@Test
+	public void testPublish() {
+		int size = TestIotaEvent.LAYOUT.size();
+		ByteBuffer buffer = ByteBuffer.allocateDirect(size * 3);
+		TestIotaEvent writer = new TestIotaEvent();
+		for (int i = 0; i < 3; i++) {
+			writer.wrap(buffer, i * size);
+			TestIotaEvent.ID.set(writer, i);
+			TestIotaEvent.PRICE.set(writer, 100L * i);
+			TestIotaEvent.FLAGS.set(writer, (short) -i);
+		}
+
+		List<String> delivered = new ArrayList<>();
+		Set<TestIotaEvent> instances = new HashSet<>();
+		EventBus bus = new EventBus();
+		bus.subscribe(new Object() {
+			@Listener
+			public void onEvent(TestIotaEvent event) {
+				instances.add(event);
+				delivered.add(event.id() + ":" + event.price() + ":" + event.flags());
+			}
+		});
+		FlyweightPublisher<TestIotaEvent> publisher = new FlyweightPublisher<>(bus, TestIotaEvent::new);
+		publisher.publishAll(buffer, 0, 3);
+		publisher.publish(buffer, size);
+		assertEquals("delivered records", Arrays.asList("0:0:0", "1:100:-1", "2:200:-2", "1:100:-1"), delivered);
+		assertEquals("one flyweight should be reused", 1, instances.size());
+	}
+}
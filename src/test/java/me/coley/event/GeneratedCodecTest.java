@@ -0,0 +1,159 @@
+package me.coley.event;
+
+import me.coley.event.processor.CodecProcessor;
+import me.coley.event.testevent.*;
+import org.junit.*;
+import org.junit.rules.TemporaryFolder;
+
+import javax.tools.*;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Andy Li
+ */
+public class GeneratedCodecTest {
+	@Rule
+	public final TemporaryFolder folder = new TemporaryFolder();
+
+	private static <E extends Event> E roundTrip(EventCodec<E> codec, E event, ByteBuffer buffer) {
+		codec.encode(event, buffer);
+		buffer.flip();
+		E decoded = codec.decode(buffer);
+		assertFalse("decoder should consume all bytes", buffer.hasRemaining());
+		return decoded;
+	}
+
+	private static void assertKappaEquals(TestKappaEvent expected, TestKappaEvent actual) {
+		assertEquals("id", expected.id, actual.id);
+		assertEquals("name", expected.name, actual.name);
+		assertEquals("timestamp", expected.getTimestamp(), actual.getTimestamp());
+		assertEquals("price", expected.getPrice(), actual.getPrice(), 0);
+		assertEquals("flag", expected.flag, actual.flag);
+		assertEquals("symbol", expected.symbol, actual.symbol);
+		assertEquals("unit", expected.unit, actual.unit);
+	}
+
+	@Test
+	public void testRoundTrip() {
+		EventCodec<TestKappaEvent> codec = GeneratedCodecs.of(TestKappaEvent.class);
+		TestKappaEvent event = new TestKappaEvent(42, "café 中 😀", 1234567890123L, 99.5, true,
+				'€', TimeUnit.MILLISECONDS);
+		event.attachment = new Object();
+		TestKappaEvent heap = roundTrip(codec, event, ByteBuffer.allocate(256));
+		assertKappaEquals(event, heap);
+		assertNull("transient fields should be skipped", heap.attachment);
+		assertKappaEquals(event, roundTrip(codec, event, ByteBuffer.allocateDirect(256)));
+
+		TestKappaEvent empty = new TestKappaEvent();
+		assertKappaEquals(empty, roundTrip(codec, empty, ByteBuffer.allocate(256)));
+	}
+
+	@Test
+	public void testUnpairedSurrogate() {
+		TestKappaEvent event = new TestKappaEvent();
+		event.name = "a\ud83db";
+		TestKappaEvent decoded = roundTrip(GeneratedCodecs.of(TestKappaEvent.class), event, ByteBuffer.allocate(64));
+		assertEquals("unpaired surrogate", "a?b", decoded.name);
+	}
+
+	@Test
+	public void testHierarchy() {
+		assertSame("lookup", TestDeltaEvent_Codec.INSTANCE, GeneratedCodecs.of(TestDeltaEvent.class));
+		TestDeltaEvent delta = roundTrip(GeneratedCodecs.of(TestDeltaEvent.class), new TestDeltaEvent(7),
+				ByteBuffer.allocate(64));
+		assertEquals("inherited field", 7, delta.id);
+		TestBetaEvent beta = roundTrip(GeneratedCodecs.of(TestBetaEvent.class), new TestBetaEvent(8),
+				ByteBuffer.allocate(64));
+		assertEquals("exact type", TestBetaEvent.class, beta.getClass());
+		assertEquals("field", 8, beta.id);
+		assertEquals("same layout, same schema", TestBetaEvent_Codec.SCHEMA, TestDeltaEvent_Codec.SCHEMA);
+		assertNotEquals("different layout", TestDeltaEvent_Codec.SCHEMA, TestKappaEvent_Codec.SCHEMA);
+	}
+
+	@Test
+	public void testSchemaMismatch() {
+		ByteBuffer buffer = ByteBuffer.allocate(256);
+		TestKappaEvent_Codec.INSTANCE.encode(new TestKappaEvent(1, "x", 0, 0, false, 'x', null), buffer);
+		buffer.flip();
+		try {
+			TestDeltaEvent_Codec.INSTANCE.decode(buffer);
+			fail("should reject a different schema");
+		} catch (IllegalArgumentException expected) {
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testNotGenerated() {
+		GeneratedCodecs.of(TestAlphaEvent.class);
+	}
+
+	@Test
+	public void testJournal() throws IOException {
+		Path directory = folder.newFolder("journal").toPath();
+		EventBus bus = new EventBus();
+		try (Journal journal = new Journal(directory)) {
+			journal.register(TestKappaEvent.class, GeneratedCodecs.of(TestKappaEvent.class));
+			bus.setJournal(journal);
+			for (int i = 0; i < 100; i++) {
+				bus.post(new TestKappaEvent(i, "event " + i, i * 10L, i / 2.0, i % 2 == 0, 'k', TimeUnit.SECONDS));
+			}
+		}
+
+		JournalReplayer replayer = new JournalReplayer(directory);
+		replayer.register(TestKappaEvent.class, GeneratedCodecs.of(TestKappaEvent.class));
+		List<TestKappaEvent> events = new ArrayList<>();
+		replayer.replay(event -> events.add((TestKappaEvent) event), Long.MIN_VALUE, Long.MAX_VALUE);
+		assertEquals("replayed events", 100, events.size());
+		for (int i = 0; i < 100; i++) {
+			assertKappaEquals(new TestKappaEvent(i, "event " + i, i * 10L, i / 2.0, i % 2 == 0, 'k', TimeUnit.SECONDS),
+					events.get(i));
+		}
+	}
+
+	@Test
+	public void testInvalidEvent() throws IOException {
+		JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+		Assume.assumeNotNull(compiler);
+		String source = "package test;\n" +
+				"@me.coley.event.GenerateCodec\n" +
+				"public class InvalidEvent extends me.coley.event.Event {\n" +
+				"\tprivate int secret;\n" +
+				"\tpublic final int constant = 1;\n" +
+				"\tpublic Object object;\n" +
+				"\tpublic InvalidEvent(int secret) {}\n" +
+				"}\n";
+		JavaFileObject file = new SimpleJavaFileObject(java.net.URI.create("string:///test/InvalidEvent.java"),
+				JavaFileObject.Kind.SOURCE) {
+			@Override
+			public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+				return source;
+			}
+		};
+		DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+		List<String> options = Arrays.asList("-classpath", System.getProperty("java.class.path"),
+				"-d", folder.newFolder("classes").getPath(), "-s", folder.newFolder("sources").getPath());
+		JavaCompiler.CompilationTask task = compiler.getTask(null, null, diagnostics, options, null,
+				Collections.singletonList(file));
+		task.setProcessors(Collections.singletonList(new CodecProcessor()));
+		assertFalse("compilation should fail", task.call());
+
+		List<String> errors = new ArrayList<>();
+		for (Diagnostic<? extends JavaFileObject> diagnostic : diagnostics.getDiagnostics()) {
+			if (diagnostic.getKind() == Diagnostic.Kind.ERROR) errors.add(diagnostic.getMessage(null));
+		}
+		assertEquals("errors: " + errors, 4, errors.size());
+		assertTrue("private field", errors.get(0).contains("must not be private"));
+		assertTrue("final field", errors.get(1).contains("must not be final"));
+		assertTrue("unsupported type", errors.get(2).contains("Unsupported type"));
+		assertTrue("constructor", errors.get(3).contains("no-arg constructor"));
+	}
+}
@@ -0,0 +1,59 @@
+package me.coley.event;
+
+import me.coley.event.testevent.TestAlphaEvent;
+import org.junit.*;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.util.function.BiConsumer;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Andy Li
+ */
+public class InvokersTest {
+	private static boolean isAtLeastJava11() {
+		String version = System.getProperty("java.specification.version");
+		return !version.startsWith("1.") && Integer.parseInt(version) >= 11;
+	}
+
+	@Test
+	public void testDirectInvoker() throws ReflectiveOperationException {
+		Assume.assumeTrue("direct invokers require Java 11+", isAtLeastJava11());
+		ListenerClass listenerClass = ListenerClass.create(PrivateListener.class, MethodHandles.lookup());
+		BiConsumer<Object, Event> invoker = Invokers.create(listenerClass.methods[0].method, null, MethodHandles.lookup());
+		assertTrue("invoker should be spun in the listener class: " + invoker.getClass().getName(),
+				invoker.getClass().getName().startsWith(PrivateListener.class.getName()));
+
+		PrivateListener listener = new PrivateListener();
+		invoker.accept(listener, new TestAlphaEvent(42));
+		assertEquals("received id", 42, listener.received);
+	}
+
+	@Test
+	public void testCheckedException() {
+		EventBus bus = new EventBus();
+		bus.subscribe(new Object() {
+			@Listener
+			public void onAlpha(TestAlphaEvent event) throws IOException {
+				throw new IOException("checked");
+			}
+		});
+		try {
+			bus.post(new TestAlphaEvent());
+			fail("exception should be propagated");
+		} catch (RuntimeException expected) {
+			assertTrue("checked exception should be wrapped", expected.getCause() instanceof IOException);
+		}
+	}
+
+	private static class PrivateListener {
+		int received;
+
+		@Listener
+		private void onAlpha(TestAlphaEvent event) {
+			received = event.id;
+		}
+	}
+}
@@ -0,0 +1,120 @@
+package me.coley.event;
+
+import me.coley.event.testevent.TestAlphaEvent;
+import me.coley.event.testevent.TestBetaEvent;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Measures journal replay throughput in events per microsecond, replaying all events into a bus,
+ * with and without checksum verification, and replaying a rare event type through the index.
+ *
+ * @author Andy Li
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 3)
+@Measurement(iterations = 3, time = 10)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class JournalReplayBenchmark {
+	private static final int EVENTS = 1_000_000;
+
+	/**
+	 * One in {@code BETA_RATIO} events is a beta event.
+	 */
+	private static final int BETA_RATIO = 10_000;
+
+	public static void main(String[] args) throws RunnerException {
+		Options opt = new OptionsBuilder()
+				.include(JournalReplayBenchmark.class.getSimpleName())
+				.build();
+
+		new Runner(opt).run();
+	}
+
+	private Path directory;
+	private EventBus bus;
+	private JournalReplayer replayer;
+	private JournalReplayer unverifiedReplayer;
+
+	@Setup
+	public void setup() throws IOException {
+		this.directory = Files.createTempDirectory("journal-benchmark");
+		EventBus writerBus = new EventBus();
+		try (Journal journal = new Journal(directory, Journal.DEFAULT_SEGMENT_SIZE, FsyncPolicy.never())) {
+			journal.register(TestAlphaEvent.class, JournalTest.alphaCodec(16));
+			journal.register(TestBetaEvent.class, JournalReplayerTest.BETA_CODEC);
+			writerBus.setJournal(journal);
+			for (int i = 0; i < EVENTS; i++) {
+				writerBus.post(i % BETA_RATIO == 0 ? new TestBetaEvent(i) : new TestAlphaEvent(i));
+			}
+		}
+
+		this.bus = new EventBus();
+		bus.subscribe(MyListener.INSTANCE, MethodHandles.lookup());
+		this.replayer = new JournalReplayer(directory);
+		replayer.register(TestAlphaEvent.class, JournalTest.alphaCodec(16));
+		replayer.register(TestBetaEvent.class, JournalReplayerTest.BETA_CODEC);
+		this.unverifiedReplayer = new JournalReplayer(directory);
+		unverifiedReplayer.register(TestAlphaEvent.class, JournalTest.alphaCodec(16));
+		unverifiedReplayer.register(TestBetaEvent.class, JournalReplayerTest.BETA_CODEC);
+		unverifiedReplayer.setVerifyChecksums(false);
+	}
+
+	@TearDown
+	public void tearDown() throws IOException {
+		if (MyListener.INSTANCE.sum == 0) throw new RuntimeException("listener wasn't being called!");
+		try (Stream<Path> files = Files.walk(directory)) {
+			files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(EVENTS)
+	public long replayAll() throws IOException {
+		return replayer.replay(bus);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(EVENTS)
+	public long replayAllUnverified() throws IOException {
+		return unverifiedReplayer.replay(bus);
+	}
+
+	/**
+	 * Counted in journaled events rather than replayed events, to compare with a full replay.
+	 */
+	@Benchmark
+	@OperationsPerInvocation(EVENTS)
+	public long replayRareType() throws IOException {
+		return replayer.replay(bus, Long.MIN_VALUE, Long.MAX_VALUE, TestBetaEvent.class);
+	}
+
+	static class MyListener {
+		static final MyListener INSTANCE = new MyListener();
+
+		long sum;
+
+		@Listener
+		public void onAlphaEvent(TestAlphaEvent event) {
+			sum += event.id;
+		}
+
+		@Listener
+		public void onBetaEvent(TestBetaEvent event) {
+			sum += event.id;
+		}
+	}
+}
@@ -0,0 +1,164 @@
+package me.coley.event;
+
+import me.coley.event.testevent.TestAlphaEvent;
+import me.coley.event.testevent.TestBetaEvent;
+import org.junit.*;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Andy Li
+ */
+public class JournalReplayerTest {
+	@Rule
+	public final TemporaryFolder folder = new TemporaryFolder();
+
+	private Path directory;
+
+	static final EventCodec<TestBetaEvent> BETA_CODEC = new EventCodec<TestBetaEvent>() {
+		@Override
+		public void encode(TestBetaEvent event, ByteBuffer buffer) {
+			buffer.putInt(event.id);
+		}
+
+		@Override
+		public TestBetaEvent decode(ByteBuffer buffer) {
+			return new TestBetaEvent(buffer.getInt());
+		}
+	};
+
+	@Before
+	public void setup() throws IOException {
+		this.directory = folder.newFolder("journal").toPath();
+	}
+
+	/**
+	 * Journals {@code alphaCount} alpha events with 100 bytes of padding, followed by beta events 1 to 3.
+	 */
+	private void write(int alphaCount) throws IOException {
+		EventBus bus = new EventBus();
+		try (Journal journal = new Journal(directory, 4 << 20, FsyncPolicy.never())) {
+			journal.register(TestAlphaEvent.class, JournalTest.alphaCodec(100));
+			journal.register(TestBetaEvent.class, BETA_CODEC);
+			bus.setJournal(journal);
+			for (int i = 0; i < alphaCount; i++) bus.post(new TestAlphaEvent(i));
+			for (int i = 1; i <= 3; i++) bus.post(new TestBetaEvent(i));
+		}
+	}
+
+	private JournalReplayer replayer() {
+		JournalReplayer replayer = new JournalReplayer(directory);
+		replayer.register(TestAlphaEvent.class, JournalTest.alphaCodec(100));
+		replayer.register(TestBetaEvent.class, BETA_CODEC);
+		return replayer;
+	}
+
+	private static List<Integer> betaIds(List<Event> events) {
+		List<Integer> ids = new ArrayList<>();
+		for (Event event : events) {
+			if (event instanceof TestBetaEvent) ids.add(((TestBetaEvent) event).id);
+		}
+		return ids;
+	}
+
+	@Test
+	public void testReplay() throws IOException {
+		write(10_000);
+		assertTrue("index should be written",
+				Files.exists(JournalFormat.indexPath(directory, JournalFormat.listSegments(directory).get(0))));
+
+		EventBus bus = new EventBus();
+		List<Integer> received = new ArrayList<>();
+		bus.subscribe(new Object() {
+			@Listener
+			public void onAlpha(TestAlphaEvent event) {
+				received.add(event.id);
+			}
+
+			@Listener
+			public void onBeta(TestBetaEvent event) {
+				received.add(-event.id);
+			}
+		});
+		assertEquals("replayed count", 10_003, replayer().replay(bus));
+		assertEquals("replayed events", 10_003, received.size());
+		for (int i = 0; i < 10_000; i++) assertEquals("alpha order", i, (int) received.get(i));
+		assertEquals("beta events", Arrays.asList(-1, -2, -3), received.subList(10_000, 10_003));
+
+		List<Event> betas = new ArrayList<>();
+		assertEquals("replayed beta count", 3,
+				replayer().replay(betas::add, Long.MIN_VALUE, Long.MAX_VALUE, TestBetaEvent.class));
+		assertEquals("beta ids", Arrays.asList(1, 2, 3), betaIds(betas));
+		assertEquals("time range", 0, replayer().replay(betas::add, 0, 1, TestBetaEvent.class));
+	}
+
+	@Test
+	public void testIndexSkipsBlocks() throws IOException {
+		write(10_000);
+		Path segment = JournalFormat.segmentPath(directory, JournalFormat.listSegments(directory).get(0));
+		try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+			// Corrupt an alpha event in the middle
+			channel.write(ByteBuffer.wrap(new byte[]{ 1, 2, 3, 4 }), 500_000);
+		}
+
+		List<Event> events = new ArrayList<>();
+		JournalReplayer replayer = replayer();
+		replayer.replay(events::add, Long.MIN_VALUE, Long.MAX_VALUE, TestBetaEvent.class);
+		assertEquals("beta events should be found without reading alpha blocks", Arrays.asList(1, 2, 3), betaIds(events));
+		assertEquals("no corruption seen", 0, replayer.getCorruptSegmentCount());
+
+		events.clear();
+		replayer.replay(events::add, Long.MIN_VALUE, Long.MAX_VALUE);
+		assertEquals("replay of all types should stop at the corruption", 1, replayer.getCorruptSegmentCount());
+		assertTrue("beta events are after the corruption", betaIds(events).isEmpty());
+	}
+
+	@Test
+	public void testZeroFilledSegment() throws IOException {
+		write(1_000);
+		long last = JournalFormat.listSegments(directory).get(0);
+		// Segments created just before a crash, whose headers never reached the disk
+		Files.write(JournalFormat.segmentPath(directory, last + 1), new byte[4096]);
+		Files.write(JournalFormat.segmentPath(directory, last + 2), new byte[0]);
+
+		List<Event> events = new ArrayList<>();
+		JournalReplayer replayer = replayer();
+		assertEquals("replayed beta count", 3, replayer.replay(events::add, Long.MIN_VALUE, Long.MAX_VALUE, TestBetaEvent.class));
+		assertEquals("beta ids", Arrays.asList(1, 2, 3), betaIds(events));
+		assertEquals("zero-filled segments", 2, replayer.getCorruptSegmentCount());
+	}
+
+	@Test
+	public void testUnindexedSegment() throws IOException {
+		write(1_000);
+		Files.delete(JournalFormat.indexPath(directory, JournalFormat.listSegments(directory).get(0)));
+		List<Event> events = new ArrayList<>();
+		assertEquals("replayed beta count", 3,
+				replayer().replay(events::add, Long.MIN_VALUE, Long.MAX_VALUE, TestBetaEvent.class));
+		assertEquals("beta ids", Arrays.asList(1, 2, 3), betaIds(events));
+	}
+
+	@Test
+	public void testNotJournaledAgain() throws IOException {
+		write(10);
+		EventBus bus = new EventBus();
+		try (Journal journal = new Journal(folder.newFolder("other").toPath())) {
+			journal.register(TestBetaEvent.class, BETA_CODEC);
+			bus.setJournal(journal);
+			assertEquals("replayed count", 13, replayer().replay(bus));
+			journal.sync();
+			assertEquals("replayed events shouldn't be journaled", 0, journal.getWrittenCount());
+		}
+	}
+}
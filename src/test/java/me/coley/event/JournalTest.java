@@ -0,0 +1,178 @@
+package me.coley.event;
+
+import me.coley.event.testevent.TestAlphaEvent;
+import me.coley.event.testevent.TestBetaEvent;
+import org.junit.*;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.CRC32;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Andy Li
+ */
+public class JournalTest {
+	@Rule
+	public final TemporaryFolder folder = new TemporaryFolder();
+
+	private EventBus bus;
+	private Path directory;
+
+	/**
+	 * Encodes the id, padded to {@code padding} bytes. Negative ids fail to encode.
+	 */
+	static EventCodec<TestAlphaEvent> alphaCodec(int padding) {
+		return new EventCodec<TestAlphaEvent>() {
+			@Override
+			public void encode(TestAlphaEvent event, ByteBuffer buffer) {
+				if (event.id < 0) throw new IllegalArgumentException("negative id");
+				buffer.putInt(event.id);
+				for (int i = 0; i < padding; i++) buffer.put((byte) i);
+			}
+
+			@Override
+			public TestAlphaEvent decode(ByteBuffer buffer) {
+				return new TestAlphaEvent(buffer.getInt());
+			}
+		};
+	}
+
+	@Before
+	public void setup() throws IOException {
+		this.bus = new EventBus();
+		this.directory = folder.newFolder("journal").toPath();
+	}
+
+	/**
+	 * Reads the ids of all alpha events in the journal directory.
+	 */
+	private List<Integer> readIds() throws IOException {
+		List<Integer> ids = new ArrayList<>();
+		for (long index : JournalFormat.listSegments(directory)) {
+			ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(JournalFormat.segmentPath(directory, index)));
+			assertEquals("magic", JournalFormat.MAGIC, buffer.getInt());
+			assertEquals("version", JournalFormat.VERSION, buffer.getInt());
+			buffer.getLong();
+
+			String[] types = new String[16];
+			while (buffer.remaining() >= JournalFormat.RECORD_HEADER_SIZE) {
+				int start = buffer.position();
+				byte kind = buffer.get(start + JournalFormat.KIND_OFFSET);
+				if (kind == JournalFormat.KIND_END) break;
+				short typeId = buffer.getShort(start + JournalFormat.TYPE_ID_OFFSET);
+				int length = buffer.getInt(start + JournalFormat.LENGTH_OFFSET);
+				ByteBuffer payload = ByteBuffer.wrap(buffer.array(), start + JournalFormat.RECORD_HEADER_SIZE, length);
+				CRC32 crc = new CRC32();
+				crc.update(payload.duplicate());
+				assertEquals("crc", buffer.getInt(start + JournalFormat.CRC_OFFSET), (int) crc.getValue());
+				if (kind == JournalFormat.KIND_TYPE) {
+					types[typeId] = StandardCharsets.UTF_8.decode(payload).toString();
+				} else {
+					assertEquals("type", TestAlphaEvent.class.getName(), types[typeId]);
+					assertTrue("timestamp", buffer.getLong(start + JournalFormat.TIMESTAMP_OFFSET) > 0);
+					ids.add(payload.getInt());
+				}
+				buffer.position(start + JournalFormat.RECORD_HEADER_SIZE + length);
+			}
+		}
+		return ids;
+	}
+
+	@Test
+	public void testAppend() throws IOException {
+		try (Journal journal = new Journal(directory)) {
+			journal.register(TestAlphaEvent.class, alphaCodec(0));
+			assertTrue("journaled", journal.isJournaled(TestAlphaEvent.class));
+			assertFalse("not journaled", journal.isJournaled(TestBetaEvent.class));
+			bus.setJournal(journal);
+			bus.post(new TestAlphaEvent(1));
+			bus.post(new TestBetaEvent(2));
+			bus.post(new TestAlphaEvent(3));
+			journal.sync();
+			assertEquals("written count", 2, journal.getWrittenCount());
+			assertEquals("synced events", Arrays.asList(1, 3), readIds());
+			bus.post(new TestAlphaEvent(4));
+		}
+		assertEquals("closing should write everything", Arrays.asList(1, 3, 4), readIds());
+		bus.post(new TestAlphaEvent(5));
+		assertEquals("events after closing should be dropped", 1, bus.getJournal().getDroppedCount());
+	}
+
+	@Test
+	public void testCloseDrainsQueue() throws IOException {
+		// The writer may be between an empty poll and the closed check while events are posted and it's closed
+		for (int run = 0; run < 50; run++) {
+			Path directory = folder.newFolder("close" + run).toPath();
+			Journal journal = new Journal(directory, 1 << 16, FsyncPolicy.never());
+			journal.register(TestAlphaEvent.class, alphaCodec(0));
+			bus.setJournal(journal);
+			for (int i = 0; i < 100; i++) bus.post(new TestAlphaEvent(i));
+			journal.close();
+			assertEquals("events posted before closing should be written", 100, journal.getWrittenCount());
+			assertEquals("dropped count", 0, journal.getDroppedCount());
+		}
+	}
+
+	@Test
+	public void testRolling() throws IOException {
+		List<Integer> expected = new ArrayList<>();
+		try (Journal journal = new Journal(directory, 1024, FsyncPolicy.never())) {
+			journal.register(TestAlphaEvent.class, alphaCodec(200));
+			bus.setJournal(journal);
+			for (int i = 0; i < 20; i++) {
+				bus.post(new TestAlphaEvent(i));
+				expected.add(i);
+			}
+		}
+		assertTrue("segments should roll", JournalFormat.listSegments(directory).size() >= 5);
+
+		try (Journal journal = new Journal(directory, 1024, FsyncPolicy.interval(1, java.util.concurrent.TimeUnit.SECONDS))) {
+			journal.register(TestAlphaEvent.class, alphaCodec(200));
+			bus.setJournal(journal);
+			bus.post(new TestAlphaEvent(20));
+			expected.add(20);
+		}
+		assertEquals("all events in order", expected, readIds());
+	}
+
+	@Test
+	public void testEncodingFailure() throws IOException {
+		List<String> failures = new ArrayList<>();
+		try (Journal journal = new Journal(directory, 1024, FsyncPolicy.everyBatch())) {
+			journal.setUncaughtExceptionHandler((thread, e) -> failures.add(e.getMessage()));
+			journal.register(TestAlphaEvent.class, alphaCodec(200));
+			bus.setJournal(journal);
+			bus.post(new TestAlphaEvent(1));
+			bus.post(new TestAlphaEvent(-1));
+			bus.post(new TestAlphaEvent(2));
+			journal.register(TestBetaEvent.class, new EventCodec<TestBetaEvent>() {
+				@Override
+				public void encode(TestBetaEvent event, ByteBuffer buffer) {
+					buffer.put(new byte[2048]);
+				}
+
+				@Override
+				public TestBetaEvent decode(ByteBuffer buffer) {
+					throw new AssertionError();
+				}
+			});
+			bus.post(new TestBetaEvent());
+			bus.post(new TestAlphaEvent(3));
+			journal.sync();
+			assertEquals("dropped count", 2, journal.getDroppedCount());
+		}
+		assertEquals("reported failures", 2, failures.size());
+		assertEquals("codec failure", "negative id", failures.get(0));
+		assertTrue("oversized event", failures.get(1).startsWith("Encoded event is larger than a segment"));
+		assertEquals("failed events should be skipped", Arrays.asList(1, 2, 3), readIds());
+	}
+}
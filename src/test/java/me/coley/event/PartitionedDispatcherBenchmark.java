@@ -0,0 +1,82 @@
+package me.coley.event;
+
+import me.coley.event.testevent.TestEtaEvent;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.lang.invoke.MethodHandles;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures keyed event throughput in events per microsecond, posting a batch of events over 64 keys to listeners
+ * which burn some CPU, through a partitioned dispatcher with different numbers of lanes, and directly on the bus.
+ * Scaling with the lane count requires as many idle cores.
+ *
+ * @author Andy Li
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 3)
+@Measurement(iterations = 3, time = 5)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PartitionedDispatcherBenchmark {
+	private static final int BATCH = 10_000;
+	private static final String[] KEYS = new String[64];
+
+	static {
+		for (int i = 0; i < KEYS.length; i++) KEYS[i] = "key" + i;
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		Options opt = new OptionsBuilder()
+				.include(PartitionedDispatcherBenchmark.class.getSimpleName())
+				.build();
+
+		new Runner(opt).run();
+	}
+
+	@Param({"1", "2", "4"})
+	public int lanes;
+
+	private EventBus bus;
+	private PartitionedDispatcher dispatcher;
+	private final TestEtaEvent[] events = new TestEtaEvent[BATCH];
+
+	@Setup
+	public void setup() {
+		this.bus = new EventBus();
+		bus.subscribe(new MyListener(), MethodHandles.lookup());
+		this.dispatcher = new PartitionedDispatcher(bus, lanes);
+		for (int i = 0; i < BATCH; i++) events[i] = new TestEtaEvent(KEYS[i % KEYS.length], i);
+	}
+
+	@TearDown
+	public void tearDown() {
+		dispatcher.close();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(BATCH)
+	public void partitioned() {
+		for (TestEtaEvent event : events) dispatcher.post(event);
+		while (dispatcher.getPendingCount() != 0) Thread.yield();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(BATCH)
+	public void direct() {
+		for (TestEtaEvent event : events) bus.post(event);
+	}
+
+	public static class MyListener {
+		@Listener
+		public void onEta(TestEtaEvent event) {
+			Blackhole.consumeCPU(100);
+		}
+	}
+}
@@ -0,0 +1,133 @@
+package me.coley.event;
+
+import me.coley.event.testevent.TestAlphaEvent;
+import me.coley.event.testevent.TestEtaEvent;
+import org.junit.*;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Andy Li
+ */
+public class PartitionedDispatcherTest {
+	private EventBus bus;
+	private final Map<String, List<Integer>> idsByKey = new ConcurrentHashMap<>();
+	private final Map<String, Set<Thread>> threadsByKey = new ConcurrentHashMap<>();
+
+	@Before
+	public void setup() {
+		this.bus = new EventBus();
+		bus.subscribe(new Object() {
+			@Listener
+			public void onEta(TestEtaEvent event) {
+				// Each key is only touched by its lane thread
+				idsByKey.computeIfAbsent(event.key, k -> new ArrayList<>()).add(event.id);
+				threadsByKey.computeIfAbsent(event.key, k -> new HashSet<>()).add(Thread.currentThread());
+			}
+		});
+	}
+
+	@Test
+	public void testPerKeyOrder() throws InterruptedException {
+		int keys = 64;
+		int perProducer = 20_000;
+		PartitionedDispatcher dispatcher = new PartitionedDispatcher(bus, 4, 256);
+		Thread[] producers = new Thread[4];
+		for (int p = 0; p < producers.length; p++) {
+			int producer = p;
+			// Each producer owns a disjoint set of keys, so per-key post order is well-defined
+			producers[p] = new Thread(() -> {
+				for (int i = 0; i < perProducer; i++) {
+					dispatcher.post(new TestEtaEvent("key" + (producer + producers.length * (i % (keys / 4))), i));
+				}
+			});
+			producers[p].start();
+		}
+		for (Thread producer : producers) producer.join();
+		dispatcher.close();
+
+		assertEquals("all keys", keys, idsByKey.size());
+		int total = 0;
+		for (Map.Entry<String, List<Integer>> entry : idsByKey.entrySet()) {
+			List<Integer> ids = entry.getValue();
+			for (int i = 1; i < ids.size(); i++) {
+				assertTrue("events of " + entry.getKey() + " should be in order", ids.get(i - 1) < ids.get(i));
+			}
+			total += ids.size();
+			assertEquals("events of " + entry.getKey() + " should be posted by one lane",
+					1, threadsByKey.get(entry.getKey()).size());
+		}
+		assertEquals("all events", producers.length * perProducer, total);
+		assertEquals("nothing pending", 0, dispatcher.getPendingCount());
+	}
+
+	@Test
+	public void testLanes() {
+		PartitionedDispatcher dispatcher = new PartitionedDispatcher(bus, 8);
+		Set<Integer> used = new HashSet<>();
+		for (int i = 0; i < 1000; i++) {
+			int lane = dispatcher.laneOf("key" + i);
+			assertTrue("lane in range", lane >= 0 && lane < 8);
+			assertEquals("lane should be stable", lane, dispatcher.laneOf("key" + i));
+			used.add(lane);
+		}
+		assertEquals("keys should spread over all lanes", 8, used.size());
+		assertEquals("unkeyed lane", 0, dispatcher.laneOf(null));
+		dispatcher.close();
+	}
+
+	@Test
+	public void testUnkeyed() {
+		List<Integer> ids = Collections.synchronizedList(new ArrayList<>());
+		bus.subscribe(new Object() {
+			@Listener
+			public void onAlpha(TestAlphaEvent event) {
+				ids.add(event.id);
+			}
+		});
+		PartitionedDispatcher dispatcher = new PartitionedDispatcher(bus, 4, 16);
+		List<Integer> expected = new ArrayList<>();
+		for (int i = 0; i < 1000; i++) {
+			dispatcher.post(new TestAlphaEvent(i));
+			expected.add(i);
+		}
+		dispatcher.close();
+		assertEquals("unkeyed events should keep their order", expected, ids);
+	}
+
+	@Test
+	public void testListenerException() throws InterruptedException {
+		AtomicInteger delivered = new AtomicInteger();
+		bus.subscribe(new Object() {
+			@Listener
+			public void onAlpha(TestAlphaEvent event) {
+				if (event.id == 0) throw new IllegalStateException("expected");
+				delivered.incrementAndGet();
+			}
+		});
+		PartitionedDispatcher dispatcher = new PartitionedDispatcher(bus, 1);
+		List<Throwable> reported = Collections.synchronizedList(new ArrayList<>());
+		Thread.UncaughtExceptionHandler handler = Thread.getDefaultUncaughtExceptionHandler();
+		Thread.setDefaultUncaughtExceptionHandler((t, e) -> reported.add(e));
+		try {
+			dispatcher.post(new TestAlphaEvent(0));
+			dispatcher.post(new TestAlphaEvent(1));
+			dispatcher.close();
+		} finally {
+			Thread.setDefaultUncaughtExceptionHandler(handler);
+		}
+		assertEquals("exception should be reported", 1, reported.size());
+		assertEquals("lane should go on", 1, delivered.get());
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testClosed() {
+		PartitionedDispatcher dispatcher = new PartitionedDispatcher(bus, 2);
+		dispatcher.close();
+		dispatcher.post(new TestAlphaEvent());
+	}
+}
@@ -0,0 +1,106 @@
+package me.coley.event;
+
+import me.coley.event.testevent.TestAlphaEvent;
+import me.coley.event.testevent.TestBetaEvent;
+import org.junit.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Andy Li
+ */
+public class PostPolicyTest {
+	private EventBus bus;
+	private List<Integer> delivered;
+
+	@Before
+	public void setup() {
+		this.bus = new EventBus();
+		this.delivered = Collections.synchronizedList(new ArrayList<>());
+		bus.subscribe(new Object() {
+			@Listener
+			public void onAlpha(TestAlphaEvent event) {
+				delivered.add(event.id);
+			}
+
+			@Listener
+			public void onBeta(TestBetaEvent event) {
+				delivered.add(-event.id);
+			}
+		});
+	}
+
+	@Test
+	public void testThrottle() {
+		PostPolicy policy = PostPolicy.throttle(1, TimeUnit.HOURS);
+		bus.setPostPolicy(TestAlphaEvent.class, policy);
+		assertSame("policy", policy, bus.getPostPolicy(TestAlphaEvent.class));
+		for (int i = 1; i <= 5; i++) bus.post(new TestAlphaEvent(i));
+		bus.post(new TestBetaEvent());
+		assertEquals("delivered ids", Arrays.asList(1, 0), delivered);
+		assertEquals("suppressed count", 4, policy.getSuppressedCount());
+		assertEquals("bus suppressed count", 4, bus.getSuppressedEventCount());
+
+		bus.setPostPolicy(TestAlphaEvent.class, null);
+		bus.post(new TestAlphaEvent(6));
+		assertEquals("last delivered id after removing the policy", 6, (int) delivered.get(delivered.size() - 1));
+	}
+
+	@Test
+	public void testTokenBucket() throws InterruptedException {
+		PostPolicy policy = PostPolicy.tokenBucket(3, 20, TimeUnit.MILLISECONDS);
+		bus.setPostPolicy(TestAlphaEvent.class, policy);
+		for (int i = 1; i <= 5; i++) bus.post(new TestAlphaEvent(i));
+		assertEquals("burst should be limited by capacity", Arrays.asList(1, 2, 3), delivered);
+		assertEquals("suppressed count", 2, policy.getSuppressedCount());
+
+		Thread.sleep(50);
+		bus.post(new TestAlphaEvent(6));
+		assertEquals("tokens should be refilled", 6, (int) delivered.get(delivered.size() - 1));
+	}
+
+	@Test
+	public void testTokenBucketTooLong() {
+		try {
+			PostPolicy.tokenBucket(200_000, 1, TimeUnit.DAYS);
+			fail("refilling the bucket overflows nanoTime");
+		} catch (IllegalArgumentException expected) {
+		}
+		try {
+			PostPolicy.throttle(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+			fail("arrival times overflow nanoTime");
+		} catch (IllegalArgumentException expected) {
+		}
+		PostPolicy.tokenBucket(100_000, 1, TimeUnit.DAYS);
+	}
+
+	@Test
+	public void testDebounce() throws InterruptedException {
+		CountDownLatch latch = new CountDownLatch(1);
+		bus.setAsyncExecutor(task -> {
+			task.run();
+			latch.countDown();
+		});
+		PostPolicy policy = PostPolicy.debounce(30, TimeUnit.MILLISECONDS);
+		bus.setPostPolicy(TestAlphaEvent.class, policy);
+		for (int i = 1; i <= 5; i++) bus.post(new TestAlphaEvent(i));
+		assertTrue("nothing should be delivered synchronously", delivered.isEmpty());
+		assertTrue("last event should be delivered", latch.await(5, TimeUnit.SECONDS));
+		assertEquals("delivered ids", Collections.singletonList(5), delivered);
+		assertEquals("suppressed count", 4, policy.getSuppressedCount());
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testPolicyReuse() {
+		PostPolicy policy = PostPolicy.throttle(1, TimeUnit.SECONDS);
+		bus.setPostPolicy(TestAlphaEvent.class, policy);
+		bus.setPostPolicy(TestBetaEvent.class, policy);
+	}
+}
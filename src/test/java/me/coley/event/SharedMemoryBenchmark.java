@@ -0,0 +1,108 @@
+package me.coley.event;
+
+import me.coley.event.testevent.TestBetaEvent;
+import me.coley.event.testevent.TestDeltaEvent;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.lang.invoke.MethodHandles;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Measures the round trip latency in microseconds of an event transmitted through a shared memory ring to
+ * {@linkplain SharedMemoryTest.Echo another process}, which posts it back through a second ring.
+ * Use the percentiles of the sample time mode, e.g. the median and p0.99.
+ *
+ * @author Andy Li
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 3)
+@Measurement(iterations = 3, time = 10)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SharedMemoryBenchmark {
+	private static final File SHM = new File("/dev/shm");
+
+	public static void main(String[] args) throws RunnerException {
+		Options opt = new OptionsBuilder()
+				.include(SharedMemoryBenchmark.class.getSimpleName())
+				.build();
+
+		new Runner(opt).run();
+	}
+
+	private Path directory;
+	private Process process;
+	private SharedMemoryReceiver receiver;
+	private EventBus bus;
+	private int id;
+
+	@Setup
+	public void setup() throws IOException {
+		this.directory = SHM.isDirectory() && SHM.canWrite()
+				? Files.createTempDirectory(SHM.toPath(), "shm-benchmark")
+				: Files.createTempDirectory("shm-benchmark");
+		Path ring = directory.resolve("ring");
+		Path echo = directory.resolve("echo");
+		this.bus = new EventBus();
+		SharedMemoryTransmitter transmitter = new SharedMemoryTransmitter(bus, ring, 64 << 10);
+		transmitter.publish(TestBetaEvent.class, GeneratedCodecs.of(TestBetaEvent.class));
+
+		Path java = Paths.get(System.getProperty("java.home"), "bin", "java");
+		this.process = new ProcessBuilder(java.toString(), "-cp", System.getProperty("java.class.path"),
+				SharedMemoryTest.Echo.class.getName(), ring.toString(), echo.toString())
+				.redirectError(ProcessBuilder.Redirect.INHERIT)
+				.start();
+		BufferedReader output = new BufferedReader(new InputStreamReader(process.getInputStream(),
+				StandardCharsets.UTF_8));
+		if (!"ready".equals(output.readLine())) throw new IOException("echo process didn't start");
+
+		this.receiver = new SharedMemoryReceiver(bus, echo);
+		receiver.register(TestDeltaEvent.class, GeneratedCodecs.of(TestDeltaEvent.class));
+		bus.subscribe(MyListener.INSTANCE, MethodHandles.lookup());
+		receiver.start();
+	}
+
+	@TearDown
+	public void tearDown() throws IOException, InterruptedException {
+		receiver.close();
+		process.getOutputStream().close();
+		if (!process.waitFor(10, TimeUnit.SECONDS)) process.destroyForcibly();
+		try (Stream<Path> files = Files.walk(directory)) {
+			files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+		}
+	}
+
+	@Benchmark
+	public int roundTrip() {
+		int id = ++this.id;
+		bus.post(new TestBetaEvent(id));
+		while (MyListener.INSTANCE.echoed != id) Thread.yield();
+		return id;
+	}
+
+	public static final class MyListener {
+		static final MyListener INSTANCE = new MyListener();
+
+		volatile int echoed;
+
+		@Listener
+		public void onDelta(TestDeltaEvent event) {
+			echoed = event.id;
+		}
+	}
+}
@@ -0,0 +1,281 @@
+package me.coley.event;
+
+import me.coley.event.testevent.TestAlphaEvent;
+import me.coley.event.testevent.TestBetaEvent;
+import me.coley.event.testevent.TestDeltaEvent;
+import org.junit.*;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.*;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Andy Li
+ */
+public class SharedMemoryTest {
+	private static final File SHM = new File("/dev/shm");
+
+	@Rule
+	public final TemporaryFolder folder = new TemporaryFolder(SHM.isDirectory() && SHM.canWrite() ? SHM : null);
+
+	private EventBus transmitting;
+	private EventBus receiving;
+	private Path ring;
+	private final List<Integer> received = new ArrayList<>();
+
+	@Before
+	public void setup() {
+		this.transmitting = new EventBus();
+		this.receiving = new EventBus();
+		this.ring = folder.getRoot().toPath().resolve("ring");
+		receiving.subscribe(new Object() {
+			@Listener
+			public void onAlpha(TestAlphaEvent event) {
+				received.add(event.id);
+			}
+
+			@Listener
+			public void onBeta(TestBetaEvent event) {
+				received.add(-event.id);
+			}
+		});
+	}
+
+	private SharedMemoryTransmitter transmitter(int capacity) throws IOException {
+		SharedMemoryTransmitter transmitter = new SharedMemoryTransmitter(transmitting, ring, capacity);
+		transmitter.publish(TestAlphaEvent.class, JournalTest.alphaCodec(100));
+		return transmitter;
+	}
+
+	private SharedMemoryReceiver receiver() throws IOException {
+		SharedMemoryReceiver receiver = new SharedMemoryReceiver(receiving, ring);
+		receiver.register(TestAlphaEvent.class, JournalTest.alphaCodec(100));
+		return receiver;
+	}
+
+	@Test
+	public void testTransmit() throws IOException {
+		SharedMemoryTransmitter transmitter = transmitter(64 << 10);
+		transmitter.publish(TestBetaEvent.class, GeneratedCodecs.of(TestBetaEvent.class));
+		SharedMemoryReceiver receiver = receiver();
+		transmitting.post(new TestAlphaEvent(1));
+		transmitting.post(new TestBetaEvent(2));
+		transmitting.post(new TestDeltaEvent(3));
+		assertEquals("exact types should be transmitted", 2, transmitter.getTransmittedCount());
+		assertEquals("unregistered types should be skipped", 1, receiver.poll());
+		assertEquals("received events", Collections.singletonList(1), received);
+
+		receiver.register(TestBetaEvent.class, GeneratedCodecs.of(TestBetaEvent.class));
+		transmitting.post(new TestBetaEvent(4));
+		assertEquals("polled events", 1, receiver.poll());
+		assertEquals("received events", Arrays.asList(1, -4), received);
+		assertEquals("nothing left", 0, receiver.poll());
+		assertEquals("received count", 2, receiver.getReceivedCount());
+	}
+
+	@Test
+	public void testWrapAround() throws IOException {
+		transmitter(4096);
+		SharedMemoryReceiver receiver = receiver();
+		List<Integer> expected = new ArrayList<>();
+		for (int i = 0; i < 1000; i++) {
+			transmitting.post(new TestAlphaEvent(i));
+			if (i % 5 == 4) receiver.poll();
+			expected.add(i);
+		}
+		receiver.poll();
+		assertEquals("received events", expected, received);
+		assertEquals("no laps", 0, receiver.getLapCount());
+	}
+
+	@Test
+	public void testLapped() throws IOException {
+		transmitter(4096);
+		SharedMemoryReceiver receiver = receiver();
+		for (int i = 0; i < 100; i++) transmitting.post(new TestAlphaEvent(i));
+		receiver.poll();
+		assertEquals("receiver should be lapped", 1, receiver.getLapCount());
+		assertTrue("overwritten events should be lost", received.size() < 100);
+		received.clear();
+		transmitting.post(new TestAlphaEvent(100));
+		receiver.poll();
+		assertEquals("receiver should catch up", Collections.singletonList(100), received);
+	}
+
+	@Test
+	public void testLappedGarbage() throws IOException {
+		transmitter(4096);
+		SharedMemoryReceiver receiver = receiver();
+		for (int i = 0; i < 4; i++) transmitting.post(new TestAlphaEvent(i));
+
+		// Overwrite the type ids as if the transmitter was halfway through lapping the receiver
+		try (FileChannel channel = FileChannel.open(ring, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+			int recordLength = SharedMemoryFormat.recordLength(4 + 100);
+			int[] garbage = {12345, -7, Integer.MIN_VALUE, 12345};
+			for (int i = 0; i < garbage.length; i++) {
+				buffer.putInt(SharedMemoryFormat.DATA_OFFSET + i * recordLength + SharedMemoryFormat.TYPE_ID_OFFSET,
+						garbage[i]);
+			}
+			long tail = OrderedAccess.getLongAcquire(buffer, SharedMemoryFormat.TAIL_OFFSET);
+			OrderedAccess.setLongRelease(buffer, SharedMemoryFormat.TAIL_INTENT_OFFSET, tail + 4096 + 1);
+		}
+
+		assertEquals("overwritten events should be lost", 0, receiver.poll());
+		assertEquals("receiver should be lapped", 1, receiver.getLapCount());
+		transmitting.post(new TestAlphaEvent(4));
+		receiver.poll();
+		assertEquals("receiver should catch up", Collections.singletonList(4), received);
+	}
+
+	@Test
+	public void testCorruptRecord() throws IOException {
+		transmitter(4096);
+		SharedMemoryReceiver receiver = receiver();
+		for (int i = 0; i < 4; i++) transmitting.post(new TestAlphaEvent(i));
+
+		try (FileChannel channel = FileChannel.open(ring, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+			int recordLength = SharedMemoryFormat.recordLength(4 + 100);
+			buffer.putInt(SharedMemoryFormat.DATA_OFFSET + recordLength + SharedMemoryFormat.TYPE_ID_OFFSET, 12345);
+		}
+
+		try {
+			receiver.poll();
+			fail("undefined type id should be reported");
+		} catch (IllegalStateException expected) {
+		}
+		assertEquals("corrupt count", 1, receiver.getCorruptCount());
+		assertEquals("events before the corruption", Collections.singletonList(0), received);
+		assertEquals("corrupt records should be skipped", 0, receiver.poll());
+		transmitting.post(new TestAlphaEvent(4));
+		receiver.poll();
+		assertEquals("receiver should catch up", Arrays.asList(0, 4), received);
+		assertEquals("corrupt count", 1, receiver.getCorruptCount());
+	}
+
+	@Test
+	public void testDropOversized() throws IOException {
+		SharedMemoryTransmitter transmitter = new SharedMemoryTransmitter(transmitting, ring, 4096);
+		transmitter.publish(TestAlphaEvent.class, JournalTest.alphaCodec(4096 / 8));
+		transmitting.post(new TestAlphaEvent(1));
+		assertEquals("dropped count", 1, transmitter.getDroppedCount());
+		assertEquals("transmitted count", 0, transmitter.getTransmittedCount());
+	}
+
+	@Test
+	public void testReopen() throws IOException {
+		SharedMemoryTransmitter transmitter = transmitter(4096);
+		transmitter.publish(TestBetaEvent.class, GeneratedCodecs.of(TestBetaEvent.class));
+		SharedMemoryReceiver receiver = receiver();
+		receiver.register(TestBetaEvent.class, GeneratedCodecs.of(TestBetaEvent.class));
+		transmitting.post(new TestAlphaEvent(1));
+		transmitter.close();
+		transmitting.post(new TestAlphaEvent(2));
+
+		transmitting = new EventBus();
+		transmitter = new SharedMemoryTransmitter(transmitting, ring, 4096);
+		transmitter.publish(TestBetaEvent.class, GeneratedCodecs.of(TestBetaEvent.class));
+		transmitting.post(new TestBetaEvent(3));
+		receiver.poll();
+		assertEquals("attached receiver should survive the restart", Arrays.asList(1, -3), received);
+
+		new SharedMemoryTransmitter(transmitting, ring, 8192);
+		assertEquals("ring of another capacity should be replaced", SharedMemoryFormat.DATA_OFFSET + 8192,
+				Files.size(ring));
+	}
+
+	@Test
+	public void testNotTransmittedBack() throws IOException {
+		SharedMemoryTransmitter transmitter = new SharedMemoryTransmitter(receiving, ring, 4096);
+		transmitter.publish(TestAlphaEvent.class, JournalTest.alphaCodec(0));
+		SharedMemoryReceiver receiver = new SharedMemoryReceiver(receiving, ring);
+		receiver.register(TestAlphaEvent.class, JournalTest.alphaCodec(0));
+		receiving.post(new TestAlphaEvent(1));
+		assertEquals("polled events", 1, receiver.poll());
+		assertEquals("received event shouldn't be transmitted", 1, transmitter.getTransmittedCount());
+		assertEquals("nothing left", 0, receiver.poll());
+	}
+
+	/**
+	 * Echoes each beta event received from the first ring as a delta event into the second ring,
+	 * until its standard input is closed.
+	 */
+	public static class Echo {
+		public static void main(String[] args) throws IOException {
+			EventBus bus = new EventBus();
+			SharedMemoryReceiver receiver = new SharedMemoryReceiver(bus, Paths.get(args[0]));
+			receiver.register(TestBetaEvent.class, GeneratedCodecs.of(TestBetaEvent.class));
+			SharedMemoryTransmitter transmitter = new SharedMemoryTransmitter(bus, Paths.get(args[1]), 64 << 10);
+			transmitter.publish(TestDeltaEvent.class, GeneratedCodecs.of(TestDeltaEvent.class));
+			bus.subscribe(new Object() {
+				@Listener
+				public void onBeta(TestBetaEvent event) {
+					if (event.getClass() == TestBetaEvent.class) bus.post(new TestDeltaEvent(event.id));
+				}
+			});
+			receiver.start();
+			System.out.println("ready");
+			System.out.flush();
+			while (System.in.read() >= 0) ;
+			receiver.close();
+		}
+	}
+
+	private volatile int echoed;
+
+	@Test(timeout = 60_000)
+	public void testForkedProcess() throws Exception {
+		Path echo = folder.getRoot().toPath().resolve("echo");
+		SharedMemoryTransmitter transmitter = new SharedMemoryTransmitter(transmitting, ring, 64 << 10);
+		transmitter.publish(TestBetaEvent.class, GeneratedCodecs.of(TestBetaEvent.class));
+
+		Path java = Paths.get(System.getProperty("java.home"), "bin", "java");
+		Process process = new ProcessBuilder(java.toString(), "-cp", System.getProperty("java.class.path"),
+				Echo.class.getName(), ring.toString(), echo.toString())
+				.redirectError(ProcessBuilder.Redirect.INHERIT)
+				.start();
+		try {
+			BufferedReader output = new BufferedReader(new InputStreamReader(process.getInputStream(),
+					StandardCharsets.UTF_8));
+			assertEquals("echo process should start", "ready", output.readLine());
+
+			SharedMemoryReceiver receiver = new SharedMemoryReceiver(receiving, echo);
+			receiver.register(TestDeltaEvent.class, GeneratedCodecs.of(TestDeltaEvent.class));
+			receiving.subscribe(new Object() {
+				@Listener
+				public void onDelta(TestDeltaEvent event) {
+					echoed = event.id;
+				}
+			});
+			receiver.start();
+
+			// Latency is measured by SharedMemoryBenchmark
+			for (int i = 1; i <= 2000; i++) {
+				long start = System.nanoTime();
+				transmitting.post(new TestBetaEvent(i));
+				while (echoed != i) {
+					if (System.nanoTime() - start > TimeUnit.SECONDS.toNanos(10)) fail("event " + i + " not echoed");
+					Thread.yield();
+				}
+			}
+			receiver.close();
+		} finally {
+			process.getOutputStream().close();
+			if (!process.waitFor(10, TimeUnit.SECONDS)) process.destroyForcibly();
+		}
+	}
+}
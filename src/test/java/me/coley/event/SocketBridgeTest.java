@@ -0,0 +1,164 @@
+package me.coley.event;
+
+import me.coley.event.testevent.TestAlphaEvent;
+import me.coley.event.testevent.TestBetaEvent;
+import org.junit.*;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Andy Li
+ */
+public class SocketBridgeTest {
+	private static final InetSocketAddress LOCALHOST = new InetSocketAddress(InetAddress.getLoopbackAddress(), 0);
+
+	private EventBus local;
+	private EventBus remote;
+	private final List<Integer> localReceived = Collections.synchronizedList(new ArrayList<>());
+	private final List<Integer> remoteReceived = Collections.synchronizedList(new ArrayList<>());
+	private final List<SocketBridge> bridges = new ArrayList<>();
+
+	@Before
+	public void setup() {
+		this.local = new EventBus();
+		this.remote = new EventBus();
+		local.subscribe(new Recorder(localReceived));
+		remote.subscribe(new Recorder(remoteReceived));
+	}
+
+	@After
+	public void teardown() {
+		for (SocketBridge bridge : bridges) bridge.close();
+	}
+
+	public static class Recorder {
+		private final List<Integer> received;
+
+		Recorder(List<Integer> received) {
+			this.received = received;
+		}
+
+		@Listener
+		public void onAlpha(TestAlphaEvent event) {
+			received.add(event.id);
+		}
+	}
+
+	private SocketBridge bridge(EventBus bus, int bufferSize) throws IOException {
+		SocketBridge bridge = new SocketBridge(bus, bufferSize);
+		bridge.register(TestAlphaEvent.class, JournalTest.alphaCodec(100));
+		bridges.add(bridge);
+		return bridge;
+	}
+
+	private static void await(String message, BooleanSupplier condition) throws InterruptedException {
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+		while (!condition.getAsBoolean()) {
+			if (System.nanoTime() - deadline > 0) fail(message);
+			Thread.sleep(1);
+		}
+	}
+
+	private static List<Integer> range(int from, int to) {
+		List<Integer> list = new ArrayList<>();
+		for (int i = from; i < to; i++) list.add(i);
+		return list;
+	}
+
+	@Test
+	public void testForward() throws Exception {
+		SocketBridge server = bridge(remote, SocketBridge.DEFAULT_BUFFER_SIZE);
+		SocketBridge client = bridge(local, SocketBridge.DEFAULT_BUFFER_SIZE);
+		client.connect(server.listen(LOCALHOST));
+		await("should connect", () -> server.getConnectionCount() == 1 && client.getConnectionCount() == 1);
+
+		for (int i = 0; i < 10_000; i++) local.post(new TestAlphaEvent(i));
+		await("events should be forwarded", () -> remoteReceived.size() >= 10_000);
+		assertEquals("forwarded events in order", range(0, 10_000), remoteReceived);
+
+		remote.post(new TestAlphaEvent(10_000));
+		await("events should be forwarded back", () -> localReceived.contains(10_000));
+		local.post(new TestBetaEvent(1));
+		Thread.sleep(50);
+		assertEquals("received events shouldn't be forwarded again", 10_001, localReceived.size());
+		assertEquals("remote received count", 10_000, server.getReceivedCount());
+		assertEquals("local received count", 1, client.getReceivedCount());
+		assertEquals("nothing dropped", 0, client.getDroppedCount());
+	}
+
+	@Test
+	public void testLateRegistration() throws Exception {
+		SocketBridge server = bridge(remote, 4096);
+		SocketBridge client = bridge(local, 4096);
+		client.connect(server.listen(LOCALHOST));
+		local.post(new TestAlphaEvent(1));
+		await("should forward", () -> remoteReceived.size() == 1);
+
+		List<Integer> betas = Collections.synchronizedList(new ArrayList<>());
+		remote.subscribe(new Object() {
+			@Listener
+			public void onBeta(TestBetaEvent event) {
+				betas.add(event.id);
+			}
+		});
+		client.register(TestBetaEvent.class, GeneratedCodecs.of(TestBetaEvent.class));
+		local.post(new TestBetaEvent(2));
+		Thread.sleep(50);
+		assertTrue("unregistered type shouldn't be posted", betas.isEmpty());
+		server.register(TestBetaEvent.class, GeneratedCodecs.of(TestBetaEvent.class));
+		local.post(new TestBetaEvent(3));
+		await("late registered type should be forwarded", () -> betas.contains(3));
+	}
+
+	@Test
+	public void testReconnect() throws Exception {
+		int port;
+		try (ServerSocket socket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress())) {
+			port = socket.getLocalPort();
+		}
+		InetSocketAddress address = new InetSocketAddress(InetAddress.getLoopbackAddress(), port);
+		SocketBridge client = bridge(local, SocketBridge.DEFAULT_BUFFER_SIZE);
+		client.connect(address);
+		for (int i = 0; i < 100; i++) local.post(new TestAlphaEvent(i));
+		Thread.sleep(100);
+
+		SocketBridge server = bridge(remote, SocketBridge.DEFAULT_BUFFER_SIZE);
+		server.listen(address);
+		await("events buffered while disconnected should be forwarded", () -> remoteReceived.size() >= 100);
+		assertEquals("forwarded events", range(0, 100), remoteReceived);
+
+		server.close();
+		await("should notice the disconnect", () -> client.getConnectionCount() == 0);
+		remoteReceived.clear();
+		remote = new EventBus();
+		remote.subscribe(new Recorder(remoteReceived));
+		bridge(remote, SocketBridge.DEFAULT_BUFFER_SIZE).listen(address);
+		await("should reconnect", () -> client.getConnectionCount() == 1);
+		local.post(new TestAlphaEvent(100));
+		await("should forward after reconnecting", () -> remoteReceived.contains(100));
+	}
+
+	@Test
+	public void testBoundedBuffer() throws Exception {
+		int port;
+		try (ServerSocket socket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress())) {
+			port = socket.getLocalPort();
+		}
+		SocketBridge client = bridge(local, 4096);
+		client.connect(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+		for (int i = 0; i < 1000; i++) local.post(new TestAlphaEvent(i));
+		assertTrue("full buffer should drop events", client.getDroppedCount() > 0);
+		assertEquals("all events should be counted", 1000, client.getDroppedCount() + client.getForwardedCount());
+		assertTrue("buffer should be bounded", client.getForwardedCount() * 111 <= 4096);
+	}
+}
@@ -0,0 +1,66 @@
+package me.coley.event;
+
+import me.coley.event.testevent.TestAlphaEvent;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the cost of subscribing listeners of the same class. Run with the GC profiler, its
+ * {@code gc.alloc.rate.norm} reports the bytes allocated per subscription, including the growth of the
+ * receivers array and of the subscription map, which bounds the heap footprint of a subscription.
+ *
+ * @author Andy Li
+ * @see SubscriptionFootprintTest
+ */
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 3, time = 3)
+@Measurement(iterations = 3, time = 10)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class SubscriptionFootprintBenchmark {
+	private static final int COUNT = 10_000;
+
+	public static void main(String[] args) throws RunnerException {
+		Options opt = new OptionsBuilder()
+				.include(SubscriptionFootprintBenchmark.class.getSimpleName())
+				.addProfiler(GCProfiler.class)
+				.build();
+
+		new Runner(opt).run();
+	}
+
+	private final SubscriptionFootprintTest.FootprintListener[] listeners =
+			new SubscriptionFootprintTest.FootprintListener[COUNT];
+	private EventBus bus;
+
+	@Setup(Level.Trial)
+	public void createListeners() {
+		for (int i = 0; i < COUNT; i++) listeners[i] = new SubscriptionFootprintTest.FootprintListener();
+	}
+
+	@Setup(Level.Invocation)
+	public void setup() {
+		this.bus = new EventBus();
+		bus.subscribe(listeners[0]);  // creates the descriptor and the handler
+	}
+
+	@TearDown(Level.Invocation)
+	public void tearDown() {
+		bus.post(new TestAlphaEvent());
+		if (listeners[COUNT - 1].count == 0) throw new RuntimeException("listener wasn't subscribed!");
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(COUNT - 1)
+	public EventBus subscribe() {
+		for (int i = 1; i < COUNT; i++) bus.subscribe(listeners[i]);
+		return bus;
+	}
+}
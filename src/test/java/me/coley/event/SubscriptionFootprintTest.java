@@ -0,0 +1,58 @@
+package me.coley.event;
+
+import me.coley.event.testevent.TestAlphaEvent;
+import org.junit.*;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that subscriptions are stored compactly: listeners of the same class share one descriptor, and each
+ * subscription is a slot in the receivers array of a shared invoker rather than an object of its own.
+ * The bytes per subscription are reported by {@link SubscriptionFootprintBenchmark}.
+ *
+ * @author Andy Li
+ */
+public class SubscriptionFootprintTest {
+	private static final int COUNT = 10_000;
+
+	@Test
+	public void testSharedStorage() {
+		FootprintListener[] listeners = new FootprintListener[COUNT];
+		for (int i = 0; i < COUNT; i++) listeners[i] = new FootprintListener();
+		EventBus bus = new EventBus();
+		for (FootprintListener listener : listeners) bus.subscribe(listener);
+
+		EventBus.Subscription first = bus.subscriptions.get(listeners[0]);
+		assertEquals("listener methods", 1, first.type.methods.length);
+		ListenerMethod method = first.type.methods[0];
+		EventBus.InvokeWrapper invoker = bus.handlerRegistry.getHandler(TestAlphaEvent.class).getInvoker(method, null);
+		assertNotNull("invoker", invoker);
+		assertEquals("listeners held by one invoker", COUNT, invoker.listenerCount());
+		for (FootprintListener listener : listeners) {
+			EventBus.Subscription subscription = bus.subscriptions.get(listener);
+			assertSame("listener class should be shared", first.type, subscription.type);
+			assertSame("receiver slot", listener, invoker.receivers()[subscription.slots[0]]);
+		}
+
+		bus.post(new TestAlphaEvent());
+		for (FootprintListener listener : listeners) assertEquals("delivered count", 1, listener.count);
+
+		for (int i = 0; i < COUNT; i += 2) bus.unsubscribe(listeners[i]);
+		assertEquals("remaining listeners", COUNT / 2, invoker.listenerCount());
+		for (int i = 1; i < COUNT; i += 2) {
+			int slot = bus.subscriptions.get(listeners[i]).slots[0];
+			assertSame("receiver slot after compaction", listeners[i], invoker.receivers()[slot]);
+		}
+		bus.post(new TestAlphaEvent());
+		for (int i = 0; i < COUNT; i++) assertEquals("delivered count", 2 - (i + 1) % 2, listeners[i].count);
+	}
+
+	static class FootprintListener {
+		int count;
+
+		@Listener
+		public void onEvent(TestAlphaEvent event) {
+			count++;
+		}
+	}
+}
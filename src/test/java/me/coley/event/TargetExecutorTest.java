@@ -0,0 +1,337 @@
+package me.coley.event;
+
+import me.coley.event.testevent.TestAlphaEvent;
+import me.coley.event.testevent.TestThetaEvent;
+import org.junit.*;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.*;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Andy Li
+ */
+public class TargetExecutorTest {
+	private EventBus bus;
+	private QueueExecutor render;
+	private QueueExecutor state;
+	private List<String> calls;
+
+	@Before
+	public void setup() {
+		this.bus = new EventBus();
+		this.render = new QueueExecutor();
+		this.state = new QueueExecutor();
+		this.calls = Collections.synchronizedList(new ArrayList<>());
+		bus.setTargetExecutor("render", render);
+		bus.setTargetExecutor("state", state);
+	}
+
+	@Test
+	public void testBatching() {
+		bus.subscribe(new Object() {
+			@Listener(target = "render", priority = 1)
+			public void render2(TestAlphaEvent event) {
+				calls.add("render2");
+			}
+
+			@Listener(target = "render")
+			public void render1(TestAlphaEvent event) {
+				calls.add("render1");
+			}
+
+			@Listener(target = "state")
+			public void state(TestAlphaEvent event) {
+				calls.add("state");
+			}
+
+			@Listener
+			public void local(TestAlphaEvent event) {
+				calls.add("local");
+			}
+		});
+		assertSame("executor", render, bus.getTargetExecutor("render"));
+		bus.post(new TestAlphaEvent(1));
+		assertEquals("only local listeners should be called by the post", Collections.singletonList("local"), calls);
+		assertEquals("one task per target", 1, render.tasks.size());
+		assertEquals("one task per target", 1, state.tasks.size());
+
+		calls.clear();
+		render.runAll();
+		assertEquals("targeted listeners in priority order", Arrays.asList("render1", "render2"), calls);
+		calls.clear();
+		state.runAll();
+		assertEquals("state listener", Collections.singletonList("state"), calls);
+	}
+
+	@Test
+	public void testMissingExecutor() {
+		bus.setTargetExecutor("state", null);
+		assertNull("executor should be removed", bus.getTargetExecutor("state"));
+		bus.subscribe(new Object() {
+			@Listener(target = "render")
+			public void render(TestAlphaEvent event) {
+				calls.add("render");
+			}
+
+			@Listener(target = "state")
+			public void state(TestAlphaEvent event) {
+				calls.add("state");
+			}
+		});
+		try {
+			bus.post(new TestAlphaEvent(1));
+			fail("post should fail without an executor");
+		} catch (IllegalStateException expected) {
+		}
+		assertTrue("nothing should be submitted", render.tasks.isEmpty());
+	}
+
+	@Test
+	public void testExceptions() {
+		List<Throwable> errors = new ArrayList<>();
+		bus.subscribe(new Object() {
+			@Listener(target = "render")
+			public void fail(TestAlphaEvent event) {
+				throw new IllegalStateException("fail");
+			}
+
+			@Listener(target = "render", priority = 1)
+			public void render(TestAlphaEvent event) {
+				calls.add("render");
+			}
+		});
+		bus.post(new TestAlphaEvent(1));
+		Thread thread = Thread.currentThread();
+		Thread.UncaughtExceptionHandler handler = thread.getUncaughtExceptionHandler();
+		thread.setUncaughtExceptionHandler((t, e) -> errors.add(e));
+		try {
+			render.runAll();
+		} finally {
+			thread.setUncaughtExceptionHandler(handler);
+		}
+		assertEquals("exception should be passed to the handler", 1, errors.size());
+		assertEquals("rest of the task should still run", Collections.singletonList("render"), calls);
+	}
+
+	@Test
+	public void testPooledEvent() {
+		EventPool<TestThetaEvent> pool = new EventPool<>(TestThetaEvent::new);
+		List<Integer> ids = new ArrayList<>();
+		bus.subscribe(new Object() {
+			@Listener(target = "render")
+			public void render(TestThetaEvent event) {
+				ids.add(event.getId());
+			}
+		});
+		TestThetaEvent event = pool.acquire().setId(42);
+		bus.post(event);
+		assertEquals("event should be retained by the task", 1, event.referenceCount());
+		render.runAll();
+		assertEquals("delivered id", Collections.singletonList(42), ids);
+		assertEquals("event should be recycled", 0, event.referenceCount());
+	}
+
+	@Test
+	public void testQuery() {
+		bus.subscribe(new Object() {
+			@Listener(target = "render")
+			public String render(TestAlphaEvent event) {
+				return "render";
+			}
+
+			@Listener(priority = 1)
+			public String local(TestAlphaEvent event) {
+				return "local";
+			}
+		});
+		assertEquals("targeted listeners never answer", "local", bus.query(new TestAlphaEvent(1)));
+		assertEquals("query should still be delivered", 1, render.tasks.size());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testConflatingTarget() {
+		bus.subscribe(new Object() {
+			@Listener(target = "render", conflate = true)
+			public void render(TestAlphaEvent event) {
+			}
+		});
+	}
+
+	private void subscribeRender() {
+		bus.subscribe(new Object() {
+			@Listener(target = "render")
+			public void render(TestAlphaEvent event) {
+				calls.add("render" + event.id);
+			}
+		});
+	}
+
+	private void post(int... ids) {
+		for (int id : ids) bus.post(new TestAlphaEvent(id));
+	}
+
+	@Test
+	public void testDropNewest() {
+		TargetQueue queue = bus.setTargetExecutor("render", render, 2, OverloadPolicy.DROP_NEWEST);
+		List<Event> overloaded = new ArrayList<>();
+		queue.setOverloadListener(overloaded::add);
+		assertSame("queue", queue, bus.getTargetQueue("render"));
+		subscribeRender();
+		post(1, 2, 3, 4);
+		assertEquals("only the drain task should be submitted", 1, render.tasks.size());
+		assertEquals("depth", 2, queue.getDepth());
+		assertEquals("dropped count", 2, queue.getDroppedCount());
+		assertEquals("overload count", 2, queue.getOverloadCount());
+		assertEquals("overload listener", 2, overloaded.size());
+		assertEquals("exported dropped counts", 2L,
+				(long) new EventBusMonitor(bus).getTargetDroppedCounts().get("render"));
+
+		render.runAll();
+		assertEquals("oldest posts should be delivered", Arrays.asList("render1", "render2"), calls);
+		assertEquals("depth after drain", 0, queue.getDepth());
+	}
+
+	@Test
+	public void testDropOldest() {
+		TargetQueue queue = bus.setTargetExecutor("render", render, 2, OverloadPolicy.DROP_OLDEST);
+		EventPool<TestThetaEvent> pool = new EventPool<>(TestThetaEvent::new);
+		bus.subscribe(new Object() {
+			@Listener(target = "render")
+			public void render(TestThetaEvent event) {
+				calls.add("render" + event.getId());
+			}
+		});
+		List<TestThetaEvent> events = new ArrayList<>();
+		for (int i = 1; i <= 4; i++) {
+			TestThetaEvent event = pool.acquire().setId(i);
+			events.add(event);
+			bus.post(event);
+		}
+		assertEquals("dropped count", 2, queue.getDroppedCount());
+		assertEquals("queued events should be retained", 1, events.get(3).referenceCount());
+
+		render.runAll();
+		assertEquals("newest posts should be delivered", Arrays.asList("render3", "render4"), calls);
+		for (TestThetaEvent event : events) assertEquals("all events should be released", 0, event.referenceCount());
+	}
+
+	@Test
+	public void testCallerRuns() {
+		bus.setTargetExecutor("render", render, 1, OverloadPolicy.CALLER_RUNS);
+		subscribeRender();
+		post(1, 2);
+		assertEquals("overflowing post should be delivered by the caller", Collections.singletonList("render2"), calls);
+		render.runAll();
+		assertEquals("queued post", Arrays.asList("render2", "render1"), calls);
+		assertEquals("nothing dropped", 0, bus.getTargetQueue("render").getDroppedCount());
+	}
+
+	@Test
+	public void testBlock() throws Exception {
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			CountDownLatch started = new CountDownLatch(1);
+			CountDownLatch release = new CountDownLatch(1);
+			TargetQueue queue = bus.setTargetExecutor("render", executor, 1, OverloadPolicy.BLOCK);
+			queue.setBlockTimeout(30, TimeUnit.SECONDS);
+			bus.subscribe(new Object() {
+				@Listener(target = "render")
+				public void render(TestAlphaEvent event) throws InterruptedException {
+					if (event.id == 1) {
+						started.countDown();
+						release.await();
+					}
+					calls.add("render" + event.id);
+				}
+			});
+			post(1);
+			assertTrue("first post should be delivered", started.await(5, TimeUnit.SECONDS));
+			post(2);
+			Thread poster = new Thread(() -> post(3));
+			poster.start();
+			long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+			while (poster.getState() != Thread.State.TIMED_WAITING && System.nanoTime() < deadline) Thread.sleep(1);
+			assertEquals("poster should wait for room", Thread.State.TIMED_WAITING, poster.getState());
+			assertEquals("depth", 1, queue.getDepth());
+
+			release.countDown();
+			poster.join(5000);
+			assertFalse("poster should be released", poster.isAlive());
+			executor.shutdown();
+			assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+			assertEquals("posts in order", Arrays.asList("render1", "render2", "render3"), calls);
+			assertEquals("nothing dropped", 0, queue.getDroppedCount());
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	public void testBlockOnOwnThread() throws Exception {
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			TargetQueue queue = bus.setTargetExecutor("render", executor, 1, OverloadPolicy.BLOCK);
+			queue.setBlockTimeout(50, TimeUnit.MILLISECONDS);
+			assertEquals("block timeout", 50, queue.getBlockTimeout(TimeUnit.MILLISECONDS));
+			subscribeRender();
+			// Not a listener, so the drain task is queued behind this task
+			Future<?> task = executor.submit(() -> post(1, 2));
+			task.get(5, TimeUnit.SECONDS);
+			assertEquals("post should be dropped after the timeout", 1, queue.getDroppedCount());
+			executor.shutdown();
+			assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+			assertEquals("queued post", Collections.singletonList("render1"), calls);
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	public void testBlockOnPool() throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			int rounds = 5000;
+			CountDownLatch delivered = new CountDownLatch(rounds * 2);
+			bus.setTargetExecutor("render", executor, 1, OverloadPolicy.BLOCK);
+			bus.subscribe(new Object() {
+				@Listener(target = "render")
+				public void render(TestAlphaEvent event) {
+					// Posts made by the drainer must never wait for itself
+					if (event.id == 0) bus.post(new TestAlphaEvent(1));
+					delivered.countDown();
+				}
+			});
+			for (int i = 0; i < rounds; i++) {
+				post(0);
+				if ((i & 15) == 0) Thread.yield();
+			}
+			assertTrue("all posts should be delivered without deadlock", delivered.await(10, TimeUnit.SECONDS));
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * Executor running tasks on demand.
+	 */
+	private static final class QueueExecutor implements Executor {
+		final Queue<Runnable> tasks = new ArrayDeque<>();
+
+		@Override
+		public void execute(Runnable command) {
+			tasks.add(command);
+		}
+
+		void runAll() {
+			Runnable task;
+			while ((task = tasks.poll()) != null) task.run();
+		}
+	}
+}
@@ -0,0 +1,87 @@
+package me.coley.event;
+
+import org.junit.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Andy Li
+ */
+public class TimingWheelTest {
+	private TimingWheel wheel;
+
+	@Before
+	public void setup() {
+		// Small wheel, so that timeouts span multiple rounds
+		this.wheel = new TimingWheel(1, TimeUnit.MILLISECONDS, 8, "TimingWheelTest");
+	}
+
+	@After
+	public void teardown() {
+		wheel.stop();
+	}
+
+	@Test
+	public void testExpiryOrder() throws InterruptedException {
+		List<Integer> expired = Collections.synchronizedList(new ArrayList<>());
+		CountDownLatch latch = new CountDownLatch(4);
+		long start = wheel.nanoTime();
+		for (int delay : new int[]{ 30, 5, 20, 12 }) {
+			long deadline = start + TimeUnit.MILLISECONDS.toNanos(delay);
+			wheel.scheduleAt(() -> {
+				assertTrue("expired too early", wheel.nanoTime() >= deadline);
+				expired.add(delay);
+				latch.countDown();
+			}, deadline);
+		}
+		assertTrue("all timeouts should expire", latch.await(5, TimeUnit.SECONDS));
+		assertEquals("expiry order", Arrays.asList(5, 12, 20, 30), expired);
+	}
+
+	@Test
+	public void testCancel() throws InterruptedException {
+		AtomicInteger expired = new AtomicInteger();
+		List<TimingWheel.Timeout> timeouts = new ArrayList<>();
+		long start = wheel.nanoTime() + TimeUnit.MILLISECONDS.toNanos(500);
+		for (int i = 0; i < 100_000; i++) {
+			timeouts.add(wheel.scheduleAt(expired::incrementAndGet, start + TimeUnit.MILLISECONDS.toNanos(i % 50)));
+		}
+		for (int i = 0; i < timeouts.size(); i += 2) {
+			assertTrue("first cancel should succeed", timeouts.get(i).cancel());
+			assertFalse("second cancel should fail", timeouts.get(i).cancel());
+		}
+
+		CountDownLatch latch = new CountDownLatch(1);
+		wheel.scheduleAt(latch::countDown, start + TimeUnit.MILLISECONDS.toNanos(100));
+		assertTrue("last timeout should expire", latch.await(5, TimeUnit.SECONDS));
+		assertEquals("expired count", 50_000, expired.get());
+		for (int i = 0; i < timeouts.size(); i++) {
+			TimingWheel.Timeout timeout = timeouts.get(i);
+			assertEquals("cancelled state", i % 2 == 0, timeout.isCancelled());
+			assertEquals("expired state", i % 2 != 0, timeout.isExpired());
+			assertFalse("cancelling after expiry should fail", timeout.cancel());
+		}
+	}
+
+	@Test
+	public void testResumeFromIdle() throws InterruptedException {
+		CountDownLatch latch = new CountDownLatch(1);
+		wheel.schedule(latch::countDown, 0, TimeUnit.MILLISECONDS);
+		assertTrue("timeout should expire", latch.await(5, TimeUnit.SECONDS));
+
+		Thread.sleep(50);  // let the worker park
+		CountDownLatch latch2 = new CountDownLatch(1);
+		long start = System.nanoTime();
+		wheel.schedule(latch2::countDown, 10, TimeUnit.MILLISECONDS);
+		assertTrue("timeout should expire after idling", latch2.await(5, TimeUnit.SECONDS));
+		assertTrue("expired too early", System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(10));
+	}
+}
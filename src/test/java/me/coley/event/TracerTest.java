@@ -0,0 +1,135 @@
+package me.coley.event;
+
+import me.coley.event.testevent.TestAlphaEvent;
+import me.coley.event.testevent.TestBetaEvent;
+import org.junit.*;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Andy Li
+ */
+public class TracerTest {
+	private EventBus bus;
+
+	@Before
+	public void setup() {
+		this.bus = new EventBus();
+		bus.subscribe(new Object() {
+			@Listener
+			public void onAlpha(TestAlphaEvent event) {
+				bus.post(new TestBetaEvent());
+			}
+
+			@Listener
+			public void onBeta(TestBetaEvent event) {
+			}
+		});
+	}
+
+	@Test
+	public void testCausalChain() {
+		Tracer tracer = new Tracer(1, 16);
+		bus.setTracer(tracer);
+		bus.post(new TestAlphaEvent());
+
+		List<Tracer.Span> spans = tracer.dump();
+		assertEquals("span count", 4, spans.size());
+		Tracer.Span post = spans.get(0);
+		Tracer.Span listener = spans.get(1);
+		Tracer.Span nestedPost = spans.get(2);
+		Tracer.Span nestedListener = spans.get(3);
+		assertEquals("root kind", Tracer.Span.Kind.POST, post.getKind());
+		assertEquals("root name", TestAlphaEvent.class.getName(), post.getName());
+		assertTrue("root", post.isRoot());
+		assertEquals("listener kind", Tracer.Span.Kind.LISTENER, listener.getKind());
+		assertTrue("listener name", listener.getName().contains("onAlpha"));
+		assertEquals("nested post name", TestBetaEvent.class.getName(), nestedPost.getName());
+		assertTrue("nested listener name", nestedListener.getName().contains("onBeta"));
+
+		assertEquals("listener parent", post.getSpanId(), listener.getParentId());
+		assertEquals("nested post parent", listener.getSpanId(), nestedPost.getParentId());
+		assertEquals("nested listener parent", nestedPost.getSpanId(), nestedListener.getParentId());
+		for (Tracer.Span span : spans) {
+			assertEquals("trace id", post.getSpanId(), span.getTraceId());
+		}
+		assertTrue("parent should outlast its children", post.getDurationNanos() >= nestedListener.getDurationNanos());
+
+		String[] lines = Tracer.format(spans).split("\n");
+		assertEquals("formatted lines", 4, lines.length);
+		assertTrue("indentation", lines[3].startsWith("      listener"));
+	}
+
+	@Test
+	public void testSampling() {
+		Tracer tracer = new Tracer(3, 1024);
+		bus.setTracer(tracer);
+		for (int i = 0; i < 9; i++) bus.post(new TestAlphaEvent(i));
+		List<Tracer.Span> roots = tracer.dump().stream().filter(Tracer.Span::isRoot).collect(Collectors.toList());
+		assertEquals("sampled root posts", 3, roots.size());
+		assertEquals("spans of sampled traces", 12, tracer.dump().size());
+
+		tracer.clear();
+		assertTrue("cleared", tracer.dump().isEmpty());
+		bus.setTracer(null);
+		for (int i = 0; i < 9; i++) bus.post(new TestAlphaEvent(i));
+		assertTrue("disabled", tracer.dump().isEmpty());
+	}
+
+	@Test
+	public void testOverwrite() {
+		Tracer tracer = new Tracer(1, 6);
+		assertEquals("rounded buffer size", 8, tracer.getBufferSize());
+		bus.setTracer(tracer);
+		for (int i = 0; i < 10; i++) bus.post(new TestAlphaEvent(i));
+		List<Tracer.Span> spans = tracer.dump();
+		assertEquals("only the most recent spans are kept", 7, spans.size());
+		assertEquals("most recent root post", TestAlphaEvent.class.getName(), spans.get(spans.size() - 4).getName());
+	}
+
+	@Test
+	public void testTerminatedThread() throws InterruptedException {
+		Tracer tracer = new Tracer(1, 16);
+		bus.setTracer(tracer);
+		Thread thread = new Thread(() -> bus.post(new TestAlphaEvent()), "traced");
+		thread.start();
+		thread.join();
+		bus.post(new TestAlphaEvent());
+		assertEquals("recorders", 2, tracer.recorders.size());
+
+		List<Tracer.Span> spans = tracer.dump();
+		assertEquals("spans of the terminated thread should be dumped", 4,
+				spans.stream().filter(span -> span.getThread().equals("traced")).count());
+		assertEquals("recorder of the terminated thread should be removed", 1, tracer.recorders.size());
+		assertEquals("spans of the live thread should be kept", 4, tracer.dump().size());
+	}
+
+	@Test
+	public void testListenerException() {
+		Tracer tracer = new Tracer(1, 16);
+		bus.setTracer(tracer);
+		bus.subscribe(new Object() {
+			boolean thrown;
+
+			@Listener
+			public void onBeta(TestBetaEvent event) {
+				if (!thrown) {
+					thrown = true;
+					throw new IllegalStateException();
+				}
+			}
+		});
+		try {
+			bus.post(new TestAlphaEvent());
+			fail("exception should propagate");
+		} catch (IllegalStateException ignored) {
+		}
+		bus.post(new TestBetaEvent());
+		assertTrue("stack should be unwound", tracer.dump().stream()
+				.filter(span -> span.getName().equals(TestBetaEvent.class.getName()))
+				.anyMatch(Tracer.Span::isRoot));
+	}
+}
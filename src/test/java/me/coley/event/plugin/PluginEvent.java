@@ -0,0 +1,11 @@
+package me.coley.event.plugin;
+
+import me.coley.event.Event;
+
+/**
+ * Event loaded by a separate class loader in {@link me.coley.event.ClassUnloadingTest}.
+ *
+ * @author Andy Li
+ */
+public class PluginEvent extends Event {
+}
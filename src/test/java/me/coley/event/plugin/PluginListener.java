@@ -0,0 +1,31 @@
+package me.coley.event.plugin;
+
+import me.coley.event.Listener;
+import me.coley.event.testevent.TestAlphaEvent;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Listener loaded by a separate class loader in {@link me.coley.event.ClassUnloadingTest}.
+ *
+ * @author Andy Li
+ */
+public class PluginListener implements Consumer<List<String>> {
+	private List<String> delivered;
+
+	@Override
+	public void accept(List<String> delivered) {
+		this.delivered = delivered;
+	}
+
+	@Listener
+	public void onPluginEvent(PluginEvent event) {
+		delivered.add("plugin");
+	}
+
+	@Listener
+	public void onAlphaEvent(TestAlphaEvent event) {
+		delivered.add("alpha");
+	}
+}
@@ -1,10 +1,12 @@
 package me.coley.event.testevent;
 
 import me.coley.event.Event;
+import me.coley.event.GenerateCodec;
 
 /**
  * @author Andy Li
  */
+@GenerateCodec
 public class TestBetaEvent extends Event {
 	public int id;
 
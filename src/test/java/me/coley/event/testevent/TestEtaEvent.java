@@ -0,0 +1,31 @@
+package me.coley.event.testevent;
+
+import me.coley.event.Conflatable;
+import me.coley.event.Event;
+import me.coley.event.KeyedEvent;
+
+/**
+ * @author Andy Li
+ */
+public class TestEtaEvent extends Event implements Conflatable, KeyedEvent {
+	public String key;
+	public int id;
+
+	public TestEtaEvent() {
+	}
+
+	public TestEtaEvent(String key, int id) {
+		this.key = key;
+		this.id = id;
+	}
+
+	@Override
+	public Object conflationKey() {
+		return key;
+	}
+
+	@Override
+	public Object key() {
+		return key;
+	}
+}
@@ -0,0 +1,31 @@
+package me.coley.event.testevent;
+
+import me.coley.event.FlyweightEvent;
+import me.coley.event.FlyweightLayout;
+
+/**
+ * @author Andy Li
+ */
+public class TestIotaEvent extends FlyweightEvent {
+	private static final FlyweightLayout.Builder BUILDER = FlyweightLayout.builder();
+	public static final FlyweightLayout.IntField ID = BUILDER.int32("id");
+	public static final FlyweightLayout.LongField PRICE = BUILDER.int64("price");
+	public static final FlyweightLayout.ShortField FLAGS = BUILDER.int16("flags");
+	public static final FlyweightLayout LAYOUT = BUILDER.build();
+
+	public TestIotaEvent() {
+		super(LAYOUT);
+	}
+
+	public int id() {
+		return ID.get(this);
+	}
+
+	public long price() {
+		return PRICE.get(this);
+	}
+
+	public short flags() {
+		return FLAGS.get(this);
+	}
+}
@@ -0,0 +1,40 @@
+package me.coley.event.testevent;
+
+import me.coley.event.GenerateCodec;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author Andy Li
+ */
+@GenerateCodec(version = 2)
+public class TestKappaEvent extends TestDeltaEvent {
+	public String name;
+	long timestamp;
+	protected double price;
+	public boolean flag;
+	public char symbol;
+	public TimeUnit unit;
+	public transient Object attachment;
+
+	public TestKappaEvent() {
+	}
+
+	public TestKappaEvent(int id, String name, long timestamp, double price, boolean flag, char symbol, TimeUnit unit) {
+		super(id);
+		this.name = name;
+		this.timestamp = timestamp;
+		this.price = price;
+		this.flag = flag;
+		this.symbol = symbol;
+		this.unit = unit;
+	}
+
+	public long getTimestamp() {
+		return timestamp;
+	}
+
+	public double getPrice() {
+		return price;
+	}
+}
@@ -0,0 +1,26 @@
+package me.coley.event.testevent;
+
+import me.coley.event.PooledEvent;
+
+/**
+ * @author Andy Li
+ */
+public class TestThetaEvent extends PooledEvent {
+	private int id;
+
+	public int getId() {
+		ensureAccessible();
+		return id;
+	}
+
+	public TestThetaEvent setId(int id) {
+		ensureAccessible();
+		this.id = id;
+		return this;
+	}
+
+	@Override
+	protected void reset() {
+		id = 0;
+	}
+}
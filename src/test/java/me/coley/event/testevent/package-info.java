@@ -9,7 +9,13 @@
  *   │   ├── {@link me.coley.event.testevent.TestGammaEvent}
  *   │   │   └── {@link me.coley.event.testevent.TestEpsilonEvent}
  *   │   └── {@link me.coley.event.testevent.TestDeltaEvent}
- *   └── {@link me.coley.event.testevent.TestZetaEvent}
+ *   │       └── {@link me.coley.event.testevent.TestKappaEvent}
+ *   ├── {@link me.coley.event.testevent.TestZetaEvent}
+ *   ├── {@link me.coley.event.testevent.TestEtaEvent}
+ *   ├── {@linkplain me.coley.event.FlyweightEvent FlyweightEvent}
+ *   │   └── {@link me.coley.event.testevent.TestIotaEvent}
+ *   └── {@linkplain me.coley.event.PooledEvent PooledEvent}
+ *       └── {@link me.coley.event.testevent.TestThetaEvent}
  * </pre>
  */
 package me.coley.event.testevent;